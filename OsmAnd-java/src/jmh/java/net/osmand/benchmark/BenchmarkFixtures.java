@@ -0,0 +1,65 @@
+package net.osmand.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.GZIPInputStream;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.util.Algorithms;
+
+/**
+ * Fixtures are collected into src/test/resources by collectTestResources,
+ * benchmarks are run with project directory as working directory.
+ */
+public class BenchmarkFixtures {
+
+	public static final String TEST_RESOURCES = "src/test/resources/";
+	public static final String ROUTING_OBF = TEST_RESOURCES + "routing/Routing_test_archive.obf";
+	public static final String ROUTING_TESTS = TEST_RESOURCES + "test_routing.json";
+	public static final String SEARCH_RESOURCES = TEST_RESOURCES + "search/";
+
+	public static File getFixture(String path) {
+		File f = new File(path);
+		if (!f.exists()) {
+			throw new IllegalStateException("Fixture " + f.getAbsolutePath() + " is not found (run collectTestResources)");
+		}
+		return f;
+	}
+
+	public static BinaryMapIndexReader openReader(File f, boolean memoryMapped) throws IOException {
+		return new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f, true, memoryMapped);
+	}
+
+	/**
+	 * @return first search test (json) which has data file
+	 */
+	public static File getSearchTest() {
+		File[] files = getFixture(SEARCH_RESOURCES).listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.getName().endsWith(".json") && getSearchObfGz(f).exists()) {
+					return f;
+				}
+			}
+		}
+		throw new IllegalStateException("Search fixtures are not found in " + SEARCH_RESOURCES);
+	}
+
+	public static File unpackSearchObf(File searchTest) throws IOException {
+		File obf = File.createTempFile("benchmark", ".obf");
+		obf.deleteOnExit();
+		GZIPInputStream in = new GZIPInputStream(new FileInputStream(getSearchObfGz(searchTest)));
+		FileOutputStream out = new FileOutputStream(obf);
+		Algorithms.streamCopy(in, out);
+		out.close();
+		in.close();
+		return obf;
+	}
+
+	private static File getSearchObfGz(File searchTest) {
+		return new File(searchTest.getParentFile(), searchTest.getName().replace(".json", ".obf.gz"));
+	}
+}
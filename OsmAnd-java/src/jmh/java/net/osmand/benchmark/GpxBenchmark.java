@@ -0,0 +1,98 @@
+package net.osmand.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.gpx.GPXFile;
+import net.osmand.gpx.GPXStreamReader;
+import net.osmand.gpx.GPXTrackAnalysis;
+import net.osmand.gpx.GPXTrackCache;
+import net.osmand.gpx.GPXUtilities;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+/**
+ * Loads generated track (same seed, so file is identical between versions)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GpxBenchmark {
+
+	@Param({ "20000" })
+	public int points;
+
+	private File gpx;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		Random rnd = new Random(points);
+		GPXFile file = new GPXFile("benchmark");
+		Track track = new Track();
+		TrkSegment segment = new TrkSegment();
+		double lat = 52.3, lon = 4.9, ele = 10;
+		long time = 1_600_000_000_000L;
+		for (int i = 0; i < points; i++) {
+			lat += (rnd.nextDouble() - 0.5) * 0.0005;
+			lon += (rnd.nextDouble() - 0.5) * 0.0005;
+			ele += rnd.nextDouble() - 0.5;
+			time += 1000;
+			segment.points.add(new WptPt(lat, lon, time, ele, rnd.nextDouble() * 10, 5));
+		}
+		track.segments.add(segment);
+		file.tracks.add(track);
+		gpx = File.createTempFile("benchmark", ".gpx");
+		gpx.deleteOnExit();
+		Exception e = GPXUtilities.writeGpxFile(gpx, file);
+		if (e != null) {
+			throw new IOException(e);
+		}
+		GPXTrackCache.getCacheFile(gpx).deleteOnExit();
+		GPXTrackCache.write(gpx, GPXUtilities.loadGPXFile(gpx));
+	}
+
+	@Benchmark
+	public GPXFile loadGPXFile() {
+		return GPXUtilities.loadGPXFile(gpx);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis loadAndAnalyse() {
+		return GPXUtilities.loadGPXFile(gpx).getAnalysis(0);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis streamAnalyse() throws IOException, XmlPullParserException {
+		return GPXStreamReader.analyse(gpx, null);
+	}
+
+	@Benchmark
+	public GPXFile loadFromCache() {
+		return GPXTrackCache.loadGPXFile(gpx, true);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis cachedAnalysis() {
+		return GPXTrackCache.getAnalysis(gpx);
+	}
+}
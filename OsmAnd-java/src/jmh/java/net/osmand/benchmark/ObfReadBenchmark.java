@@ -0,0 +1,70 @@
+package net.osmand.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.data.Amenity;
+
+/**
+ * Decodes all map objects / pois of search test data file (whole file bbox)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ObfReadBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean memoryMapped;
+
+	@Param({ "15" })
+	public int zoom;
+
+	private BinaryMapIndexReader reader;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		File obf = BenchmarkFixtures.unpackSearchObf(BenchmarkFixtures.getSearchTest());
+		reader = BenchmarkFixtures.openReader(obf, memoryMapped);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		reader.close();
+	}
+
+	@Benchmark
+	public List<BinaryMapDataObject> searchMapIndex() throws IOException {
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(0, Integer.MAX_VALUE, 0,
+				Integer.MAX_VALUE, zoom, null);
+		return reader.searchMapIndex(req);
+	}
+
+	@Benchmark
+	public List<Amenity> searchPoi() throws IOException {
+		SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(0, Integer.MAX_VALUE, 0,
+				Integer.MAX_VALUE, -1, BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null);
+		return reader.searchPoi(req);
+	}
+}
@@ -0,0 +1,74 @@
+package net.osmand.benchmark;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.util.OpeningHoursParser;
+import net.osmand.util.OpeningHoursParser.OpeningHours;
+
+/**
+ * Parses / evaluates set of opening hours (taken from OpeningHoursParserTest) per operation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OpeningHoursBenchmark {
+
+	private static final String[] OPENING_HOURS = {
+			"Mo-Fr 08:30-14:40",
+			"mo-fr 07:00-19:00; sa 12:00-18:00",
+			"Mo-Su (sunrise-00:30)-(sunset+00:30)",
+			"11:00-14:00,17:00-22:00; We off; Fr,Sa 11:00-14:00,17:00-00:00",
+			"Mo 09:00-12:00; We,Sa 13:30-17:00, Apr 01-Oct 31 We,Sa 17:00-18:30; PH off",
+			"PH,Mo-Su 09:00-22:00",
+			"Mo-We 07:00-21:00, Th-Fr 07:00-21:30, PH,Sa-Su 08:00-21:00",
+			"2019 Jul 23 05:00-24:00; 2019 Jul 24-2019 Jul 26 00:00-24:00; 2019 Jul 27 00:00-18:00",
+			"2019 Apr 15 - 2019 Sep 1: Mo-Fr 00:00-24:00",
+			"Oct 24-Apr 05, Jun 10-Jun 20, Jul 6-12: Fr 08:00-16:00",
+			"Apr-Oct: Fr 08:00-16:00",
+			"24/7"
+	};
+
+	private OpeningHours[] parsed;
+	private Calendar cal;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		parsed = new OpeningHours[OPENING_HOURS.length];
+		for (int i = 0; i < OPENING_HOURS.length; i++) {
+			parsed[i] = OpeningHoursParser.parseOpenedHours(OPENING_HOURS[i]);
+		}
+		cal = Calendar.getInstance();
+		cal.set(2023, Calendar.MAY, 17, 10, 30);
+	}
+
+	@Benchmark
+	public void parseOpenedHours(Blackhole bh) {
+		for (String s : OPENING_HOURS) {
+			bh.consume(OpeningHoursParser.parseOpenedHours(s));
+		}
+	}
+
+	@Benchmark
+	public void isOpenedForTime(Blackhole bh) {
+		for (OpeningHours oh : parsed) {
+			bh.consume(oh != null && oh.isOpenedForTime(cal));
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package net.osmand.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.router.GeneralRouter;
+import net.osmand.router.GeneralRouter.RouteAttributeContext;
+import net.osmand.router.GeneralRouter.RouteAttributeEvalRule;
+import net.osmand.router.GeneralRouter.RouteDataObjectAttribute;
+import net.osmand.router.RoutingConfiguration;
+
+/**
+ * Evaluates (bypassing evaluation cache) all way attributes of all profiles from routing.xml
+ * for generated tag combinations, compiled rules vs interpreted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RouterEvalBenchmark {
+
+	private static final RouteDataObjectAttribute[] ATTRIBUTES = { RouteDataObjectAttribute.ACCESS,
+			RouteDataObjectAttribute.ONEWAY, RouteDataObjectAttribute.ROAD_SPEED,
+			RouteDataObjectAttribute.ROAD_PRIORITIES, RouteDataObjectAttribute.PENALTY_TRANSITION };
+
+	@Param({ "true", "false" })
+	public boolean compiled;
+
+	@Param({ "2000" })
+	public int roads;
+
+	private final List<GeneralRouter> routers = new ArrayList<>();
+	private final List<RouteRegion> regions = new ArrayList<>();
+	private final List<int[][]> roadTypes = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		boolean compile = GeneralRouter.COMPILE_RULES;
+		GeneralRouter.COMPILE_RULES = compiled;
+		try {
+			for (GeneralRouter root : RoutingConfiguration.getDefault().getAllRouters().values()) {
+				routers.add(root.build(new LinkedHashMap<String, String>()));
+				RouteRegion region = createRegion(root);
+				regions.add(region);
+				roadTypes.add(generateRoads(region, new Random(roads)));
+			}
+		} finally {
+			GeneralRouter.COMPILE_RULES = compile;
+		}
+	}
+
+	private RouteRegion createRegion(GeneralRouter router) {
+		Set<String> tagValues = new LinkedHashSet<>();
+		for (RouteDataObjectAttribute attr : ATTRIBUTES) {
+			for (RouteAttributeEvalRule rule : router.getObjContext(attr).getRules()) {
+				String[] tags = rule.getTagValueCondDefTag();
+				String[] values = rule.getTagValueCondDefValue();
+				for (int i = 0; i < tags.length; i++) {
+					if (values[i] != null) {
+						tagValues.add(tags[i] + "$" + values[i]);
+					}
+				}
+			}
+		}
+		RouteRegion region = new RouteRegion();
+		int id = 0;
+		for (String tv : tagValues) {
+			int i = tv.indexOf('$');
+			region.initRouteEncodingRule(id++, tv.substring(0, i), tv.substring(i + 1));
+		}
+		return region;
+	}
+
+	private int[][] generateRoads(RouteRegion region, Random rnd) {
+		int size = region.quickGetEncodingRulesSize();
+		int[][] res = new int[roads][];
+		for (int i = 0; i < roads; i++) {
+			res[i] = new int[size == 0 ? 0 : 1 + rnd.nextInt(Math.min(size, 6))];
+			for (int k = 0; k < res[i].length; k++) {
+				res[i][k] = rnd.nextInt(size);
+			}
+		}
+		return res;
+	}
+
+	@Benchmark
+	public void evaluateWayAttributes(Blackhole bh) {
+		for (int r = 0; r < routers.size(); r++) {
+			GeneralRouter router = routers.get(r);
+			RouteRegion region = regions.get(r);
+			for (RouteDataObjectAttribute attr : ATTRIBUTES) {
+				RouteAttributeContext ctx = router.getObjContext(attr);
+				for (int[] types : roadTypes.get(r)) {
+					bh.consume(ctx.evaluateFloat(region, types, 0));
+				}
+			}
+		}
+	}
+}
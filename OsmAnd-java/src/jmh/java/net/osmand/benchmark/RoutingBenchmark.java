@@ -0,0 +1,108 @@
+package net.osmand.benchmark;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.Gson;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRoutePlanner;
+import net.osmand.router.RouteCalculationProgress;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation;
+import net.osmand.router.RouteSegmentResult;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.router.RoutingContext;
+import net.osmand.router.TestEntry;
+
+/**
+ * Routes all tests of test_routing.json (which don't require additional maps) per operation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RoutingBenchmark {
+
+	private BinaryMapIndexReader[] readers;
+	private final List<TestEntry> tests = new ArrayList<>();
+	private final RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		RouteResultPreparation.PRINT_TO_CONSOLE_ROUTE_INFORMATION_TO_TEST = false;
+		HHRoutingConfig.STATS_VERBOSE_LEVEL = -1;
+		readers = new BinaryMapIndexReader[] {
+				BenchmarkFixtures.openReader(BenchmarkFixtures.getFixture(BenchmarkFixtures.ROUTING_OBF), false) };
+		Reader reader = new FileReader(BenchmarkFixtures.getFixture(BenchmarkFixtures.ROUTING_TESTS));
+		TestEntry[] entries = new Gson().fromJson(reader, TestEntry[].class);
+		reader.close();
+		for (TestEntry te : entries) {
+			if (!te.isIgnore() && !te.getParams().containsKey("map") && te.getExpectedResults() != null) {
+				tests.add(te);
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		for (BinaryMapIndexReader r : readers) {
+			r.close();
+		}
+	}
+
+	private RoutingContext buildContext(TestEntry te) {
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		String vehicle = te.getParams().containsKey("vehicle") ? te.getParams().get("vehicle") : "car";
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(vehicle, memoryLimits, te.getParams());
+		RoutingContext ctx = fe.buildRoutingContext(config, null, readers, RouteCalculationMode.NORMAL);
+		ctx.calculationProgress = new RouteCalculationProgress();
+		ctx.leftSideNavigation = false;
+		return ctx;
+	}
+
+	@Benchmark
+	public void binaryRoutePlanner(Blackhole bh) throws IOException, InterruptedException {
+		for (TestEntry te : tests) {
+			RoutingContext ctx = buildContext(te);
+			List<RouteSegmentResult> res = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(),
+					te.getTransitPoint()).getList();
+			bh.consume(res);
+		}
+	}
+
+	@Benchmark
+	public void hhRoutePlanner(Blackhole bh) throws Exception {
+		for (TestEntry te : tests) {
+			RoutingContext ctx = buildContext(te);
+			HHNetworkRouteRes res = HHRoutePlanner.create(ctx).runRouting(te.getStartPoint(), te.getEndPoint(),
+					HHRoutingConfig.astar(0).calcDetailed(2));
+			bh.consume(res);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package net.osmand.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.benchmark.BenchmarkFixtures;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.Algorithms;
+
+/**
+ * Runs all phrases of search test (see SearchUICoreTest) per operation.
+ * Placed in net.osmand.search package to reuse poi types setup of SearchUICoreTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+	private BinaryMapIndexReader reader;
+	private SearchUICore core;
+	private final List<String> phrases = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		SearchUICoreTest.defaultSetup();
+		File testFile = BenchmarkFixtures.getSearchTest();
+		JSONObject sourceJson = new JSONObject(Algorithms.getFileAsString(testFile));
+		String singlePhrase = sourceJson.optString("phrase", null);
+		if (singlePhrase != null) {
+			phrases.add(singlePhrase);
+		}
+		JSONArray phrasesJson = sourceJson.optJSONArray("phrases");
+		if (phrasesJson != null) {
+			for (int i = 0; i < phrasesJson.length(); i++) {
+				String phrase = phrasesJson.optString(i);
+				// POI_TYPE: phrases require interactive selection
+				if (phrase != null && !phrase.startsWith("POI_TYPE:")) {
+					phrases.add(phrase);
+				}
+			}
+		}
+		reader = BenchmarkFixtures.openReader(BenchmarkFixtures.unpackSearchObf(testFile), false);
+
+		SearchSettings settings = SearchSettings.parseJSON(sourceJson.getJSONObject("settings"));
+		settings.setOfflineIndexes(Collections.singletonList(reader));
+		core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		core.init();
+		core.updateSettings(settings);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		reader.close();
+	}
+
+	@Benchmark
+	public void immediateSearch(Blackhole bh) {
+		for (String phrase : phrases) {
+			bh.consume(core.immediateSearch(phrase, null));
+		}
+	}
+}
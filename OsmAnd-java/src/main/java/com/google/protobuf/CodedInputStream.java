@@ -33,6 +33,9 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +71,15 @@ public final class CodedInputStream {
     return new CodedInputStream(raf);
   }
 
+  /**
+   * Create a new CodedInputStream reading from a file mapped with {@link MappedInput}.
+   * Every stream has its own position, so several streams over one mapping can be used
+   * from different threads at the same time.
+   */
+  public static CodedInputStream newInstance(MappedInput mapped) {
+    return new CodedInputStream(mapped);
+  }
+
   /**
    * Create a new CodedInputStream wrapping the given byte array slice.
    */
@@ -539,6 +551,10 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change
+  private MappedInput mapped;
+  private ByteBuffer[] mappedViews;
+  private long mappedPointer;
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -589,6 +605,18 @@ public final class CodedInputStream {
 		input = null;
 	}
 
+   // osmand change
+   private CodedInputStream(final MappedInput mapped) {
+		buffer = new byte[BUFFER_SIZE];
+		this.bufferSize = 0;
+		bufferPos = 0;
+		totalBytesRetired = 0;
+		this.mapped = mapped;
+		this.mappedViews = mapped.createViews();
+		this.mappedPointer = 0;
+		input = null;
+	}
+
   private CodedInputStream(final InputStream input) {
     buffer = new byte[BUFFER_SIZE];
     bufferSize = 0;
@@ -777,6 +805,16 @@ public final class CodedInputStream {
     	} else {
     		bufferSize = -1;
     	}
+    } else if (mapped != null) {
+    	// osmand change
+    	totalBytesRetired = mappedPointer;
+    	long remain = mapped.length - mappedPointer;
+    	bufferSize = (int) Math.min(remain, buffer.length);
+    	if (bufferSize > 0) {
+    		readMapped(buffer, 0, bufferSize);
+    	} else {
+    		bufferSize = -1;
+    	}
     } else {
     	bufferSize = (input == null) ? -1 : input.read(buffer);
     }
@@ -898,6 +936,12 @@ public final class CodedInputStream {
         	if(raf != null) {
         		raf.readFully(chunk, pos, chunk.length - pos);
         		n = chunk.length - pos;
+        	} else if (mapped != null) {
+        		if (mappedPointer + chunk.length - pos > mapped.length) {
+        			throw InvalidProtocolBufferException.truncatedMessage();
+        		}
+        		readMapped(chunk, pos, chunk.length - pos);
+        		n = chunk.length - pos;
         	} else {
         		n = (input == null) ? -1 :
         	    input.read(chunk, pos, chunk.length - pos);
@@ -962,6 +1006,11 @@ public final class CodedInputStream {
          bufferSize = 0;
          raf.seek(raf.getFilePointer() + (size - pos));
          totalBytesRetired = raf.getFilePointer();
+      } else if (mapped != null) {
+         bufferPos = 0;
+         bufferSize = 0;
+         mappedPointer += size - pos;
+         totalBytesRetired = mappedPointer;
       } else {
         // Keep refilling the buffer until we get to the point we wanted to skip
         // to.  This has the side effect of ensuring the limits are updated
@@ -987,9 +1036,63 @@ public final class CodedInputStream {
 	  } else {
 		  totalBytesRetired = pointer;
 		  bufferSizeAfterLimit = 0;
-		  raf.seek(pointer);
+		  if (mapped != null) {
+			  mappedPointer = pointer;
+		  } else {
+			  raf.seek(pointer);
+		  }
 		  bufferPos = 0;
 		  bufferSize = 0;
 	  }
   }
+
+  // osmand change
+  private void readMapped(byte[] dst, int off, int len) {
+    while (len > 0) {
+      ByteBuffer view = mappedViews[(int) (mappedPointer >>> MappedInput.SEGMENT_SHIFT)];
+      int segmentPos = (int) (mappedPointer & MappedInput.SEGMENT_MASK);
+      int n = Math.min(len, view.limit() - segmentPos);
+      // cast keeps java 8 compatible Buffer.position(int) signature
+      ((Buffer) view).position(segmentPos);
+      view.get(dst, off, n);
+      mappedPointer += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Read-only memory mapping of a whole file (osmand change). The mapping is shared,
+   * while every {@link CodedInputStream} created over it keeps its own views and position.
+   * Files larger than 1 GB are mapped in several segments.
+   */
+  public static final class MappedInput {
+    static final int SEGMENT_SHIFT = 30;
+    static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+    private final long length;
+
+    public MappedInput(FileChannel channel) throws IOException {
+      length = channel.size();
+      int cnt = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+      segments = new ByteBuffer[cnt];
+      for (int i = 0; i < cnt; i++) {
+        long start = ((long) i) << SEGMENT_SHIFT;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length - start, SEGMENT_MASK + 1));
+      }
+    }
+
+    public long length() {
+      return length;
+    }
+
+    private ByteBuffer[] createViews() {
+      ByteBuffer[] views = new ByteBuffer[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        views[i] = segments[i].duplicate();
+      }
+      return views;
+    }
+  }
 }
@@ -1,5 +1,8 @@
 package net.osmand;
 
+import java.text.CollationElementIterator;
+import java.text.RuleBasedCollator;
+import java.util.Arrays;
 import java.util.Locale;
 
 
@@ -15,6 +18,7 @@ public class CollatorStringMatcher implements StringMatcher {
 	private final Collator collator;
 	private final StringMatcherMode mode;
 	private final String part;
+	private final NameKey partKey;
 	
 	public static enum StringMatcherMode {
 		// tests only first word as base starts with part
@@ -44,7 +48,7 @@ public class CollatorStringMatcher implements StringMatcher {
 		}
 		this.part = part;
 		this.mode = mode;
-		
+		this.partKey = NameKey.create(part);
 	}
 
 	public Collator getCollator() {
@@ -55,6 +59,17 @@ public class CollatorStringMatcher implements StringMatcher {
 	public boolean matches(String name) {
 		return cmatches(collator, name, part, mode);
 	}
+
+	/**
+	 * Matches name normalized once (see {@link NameKey#create}) without allocations,
+	 * so names which are matched by several matchers should be converted to keys once
+	 */
+	public boolean matches(NameKey name) {
+		if (partKey.exact && name.exact && name.orders == partKey.orders) {
+			return kmatches(name, partKey, mode);
+		}
+		return cmatches(collator, name.chars == null ? name.name : new String(name.chars, 0, name.length), part, mode);
+	}
 	
 	
 	public static boolean cmatches(Collator collator, String fullName, String part, StringMatcherMode mode){
@@ -113,6 +128,71 @@ public class CollatorStringMatcher implements StringMatcher {
 		return false;
 	}
 
+	public static boolean kmatches(NameKey name, NameKey part, StringMatcherMode mode) {
+		switch (mode) {
+		case CHECK_CONTAINS:
+			return kcontains(name, part);
+		case CHECK_EQUALS_FROM_SPACE:
+			return kstartsWith(name, part, true, true, true);
+		case CHECK_STARTS_FROM_SPACE:
+			return kstartsWith(name, part, true, true, false);
+		case CHECK_STARTS_FROM_SPACE_NOT_BEGINNING:
+			return kstartsWith(name, part, false, true, false);
+		case CHECK_ONLY_STARTS_WITH:
+			return kstartsWith(name, part, true, false, false);
+		case CHECK_EQUALS:
+			return kstartsWith(name, part, false, false, true);
+		}
+		return false;
+	}
+
+	// same as ccontains (but base is simplified)
+	private static boolean kcontains(NameKey base, NameKey part) {
+		if (base.length <= part.length) {
+			return base.equalOrders(0, base.length, part);
+		}
+		for (int pos = 0; pos <= base.length - part.length + 1; pos++) {
+			for (int end = Math.min(pos + part.length * 2, base.length); end >= pos; end--) {
+				if (base.equalOrders(pos, end, part)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// same as cstartsWith
+	private static boolean kstartsWith(NameKey searchIn, NameKey theStart, boolean checkBeginning,
+			boolean checkSpaces, boolean equals) {
+		int searchInLength = searchIn.length;
+		int startLength = theStart.length;
+		if (startLength == 0) {
+			return true;
+		}
+		if (startLength > searchInLength) {
+			return false;
+		}
+		if (checkBeginning && searchIn.equalOrders(0, startLength, theStart)) {
+			if (!equals || startLength == searchInLength || isSpace(searchIn.chars[startLength])) {
+				return true;
+			}
+		}
+		if (checkSpaces) {
+			for (int i = 1; i <= searchInLength - startLength; i++) {
+				if (isSpace(searchIn.chars[i - 1]) && !isSpace(searchIn.chars[i])
+						&& searchIn.equalOrders(i, i + startLength, theStart)) {
+					if (!equals || i + startLength == searchInLength || isSpace(searchIn.chars[i + startLength])) {
+						return true;
+					}
+				}
+			}
+		}
+		if (!checkBeginning && !checkSpaces && equals) {
+			return searchIn.equalOrders(0, searchInLength, theStart);
+		}
+		return false;
+	}
+
 	private static int cindexOf(Collator collator, int start, String part, String base) {
 		for (int pos = start; pos <= base.length() - part.length(); pos++) {
 			if (collator.equals(base.substring(pos, pos + part.length()), part)) {
@@ -198,5 +278,189 @@ public class CollatorStringMatcher implements StringMatcher {
 	private static boolean isSpace(char c){
 		return !Character.isLetter(c) && !Character.isDigit(c);
 	}
+
+	/**
+	 * Name prepared for matching once instead of each comparison: chars are simplified and aligned
+	 * (as by simplifyStringAndAlignChars) and have primary collation orders of primary collator
+	 * (ignorable chars don't have orders), so substrings are compared as int sequences.
+	 * Names whose orders are not the same as orders of their chars (contractions of locale i.e. "cs" in hungarian,
+	 * reordered chars) and names of collators without orders are matched by collator.
+	 */
+	public static class NameKey {
+		private final String name;
+		private final int length;
+		private final char[] chars;
+		// orders of char i are charOrders[i] .. charOrders[i + 1] - 1 in keyOrders
+		private final int[] charOrders;
+		private final int[] keyOrders;
+		private final CharOrders orders;
+		private final boolean exact;
+
+		private NameKey(String name) {
+			this.name = name;
+			this.length = 0;
+			this.chars = null;
+			this.charOrders = null;
+			this.keyOrders = null;
+			this.orders = null;
+			this.exact = false;
+		}
+
+		private NameKey(String name, char[] chars, int length, CharOrders orders) {
+			this.name = name;
+			this.chars = chars;
+			this.length = length;
+			this.orders = orders;
+			this.charOrders = new int[length + 1];
+			int cnt = 0;
+			for (int i = 0; i < length; i++) {
+				cnt += orders.get(chars[i]).length;
+			}
+			this.keyOrders = new int[cnt];
+			cnt = 0;
+			for (int i = 0; i < length; i++) {
+				int[] o = orders.get(chars[i]);
+				charOrders[i] = cnt;
+				System.arraycopy(o, 0, keyOrders, cnt, o.length);
+				cnt += o.length;
+			}
+			charOrders[length] = cnt;
+			this.exact = orders.hasOrders(chars, length, keyOrders);
+		}
+
+		public static NameKey create(String name) {
+			CharOrders orders = CharOrders.getInstance();
+			if (orders == null) {
+				return new NameKey(name);
+			}
+			char[] chars = new char[name.length() * 2];
+			int length = 0;
+			for (int i = 0; i < name.length(); i++) {
+				char c = name.charAt(i);
+				char[] lower = c < 128 ? null : orders.lowerCase(c);
+				if (lower == null) {
+					chars[length++] = Character.toLowerCase(c);
+					continue;
+				}
+				for (char l : lower) {
+					if (length + 2 > chars.length) {
+						chars = Arrays.copyOf(chars, chars.length * 2);
+					}
+					if (l == 'ß') {
+						chars[length++] = 's';
+						chars[length++] = 's';
+					} else {
+						chars[length++] = l;
+					}
+				}
+			}
+			return new NameKey(name, chars, length, orders);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		// orders of chars [from, to) equal to all orders of key
+		boolean equalOrders(int from, int to, NameKey key) {
+			int s = charOrders[from];
+			int len = charOrders[to] - s;
+			if (len != key.keyOrders.length) {
+				return false;
+			}
+			for (int i = 0; i < len; i++) {
+				if (keyOrders[s + i] != key.keyOrders[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	// primary collation orders of single chars, calculated lazily (by pages of 256 chars) for current locale
+	private static class CharOrders {
+		private static final int[] IGNORABLE = new int[0];
+		private static final int PAGE_SHIFT = 8;
+		private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+		private static volatile CharOrders instance;
+
+		private final Locale locale;
+		private final RuleBasedCollator collator;
+		private final int[][][] orders = new int[(Character.MAX_VALUE >> PAGE_SHIFT) + 1][][];
+		private final char[][][] lowerCase = new char[(Character.MAX_VALUE >> PAGE_SHIFT) + 1][][];
+
+		private CharOrders(Locale locale, RuleBasedCollator collator) {
+			this.locale = locale;
+			this.collator = collator;
+		}
+
+		static CharOrders getInstance() {
+			CharOrders co = instance;
+			Locale locale = Locale.getDefault();
+			if (co == null || !co.locale.equals(locale)) {
+				java.text.Collator c = OsmAndCollator.primaryJavaCollator();
+				co = new CharOrders(locale, c instanceof RuleBasedCollator ? (RuleBasedCollator) c : null);
+				instance = co;
+			}
+			return co.collator == null ? null : co;
+		}
+
+		// lower case of char as String.toLowerCase does (it could be longer than 1 char)
+		synchronized char[] lowerCase(char c) {
+			char[][] page = lowerCase[c >> PAGE_SHIFT];
+			if (page == null) {
+				page = new char[PAGE_MASK + 1][];
+				lowerCase[c >> PAGE_SHIFT] = page;
+			}
+			char[] l = page[c & PAGE_MASK];
+			if (l == null) {
+				l = String.valueOf(c).toLowerCase(locale).toCharArray();
+				page[c & PAGE_MASK] = l;
+			}
+			return l;
+		}
+
+		synchronized int[] get(char c) {
+			int[][] page = orders[c >> PAGE_SHIFT];
+			if (page == null) {
+				page = new int[PAGE_MASK + 1][];
+				orders[c >> PAGE_SHIFT] = page;
+			}
+			int[] o = page[c & PAGE_MASK];
+			if (o == null) {
+				o = IGNORABLE;
+				CollationElementIterator it = collator.getCollationElementIterator(String.valueOf(c));
+				int e;
+				while ((e = it.next()) != CollationElementIterator.NULLORDER) {
+					int p = CollationElementIterator.primaryOrder(e);
+					if (p != 0) {
+						o = Arrays.copyOf(o, o.length + 1);
+						o[o.length - 1] = p;
+					}
+				}
+				page[c & PAGE_MASK] = o;
+			}
+			return o;
+		}
+
+		// orders of whole string are the same as orders of its chars
+		synchronized boolean hasOrders(char[] chars, int length, int[] keyOrders) {
+			CollationElementIterator it = collator.getCollationElementIterator(new String(chars, 0, length));
+			int i = 0;
+			int e;
+			while ((e = it.next()) != CollationElementIterator.NULLORDER) {
+				int p = CollationElementIterator.primaryOrder(e);
+				if (p != 0 && (i >= keyOrders.length || keyOrders[i++] != p)) {
+					return false;
+				}
+			}
+			return i == keyOrders.length;
+		}
+	}
 	
 }
@@ -1,20 +1,26 @@
 package net.osmand;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.apache.commons.logging.Log;
 
+/**
+ * Geoid heights from WW15MGH grid (15' grid of big endian shorts in cm, rows from 90 to -90 latitude,
+ * columns from 0 to 360 longitude). Grid is loaded into memory once, so it is immutable and thread-safe.
+ */
 public class GeoidAltitudeCorrection {
 
+	private static final int CELLS_PER_DEGREE = 4;
+	private static final int COLUMNS = 360 * CELLS_PER_DEGREE;
+
 	private final Log log = PlatformUtil.getLog(GeoidAltitudeCorrection.class);
 	private File f;
-	private RandomAccessFile rf;
-	
-	private int cachedPointer = -1;
-	private short cachedValue = 0;
+	private short[] grid;
+	private int rows;
 
 	public GeoidAltitudeCorrection(File dir) {
 		String[] fnames = dir.list();
@@ -30,47 +36,87 @@ public class GeoidAltitudeCorrection {
 				this.f = new File(dir, fn);
 				if (f.exists()) {
 					try {
-						rf = new RandomAccessFile(f.getPath(), "r");
-					} catch (FileNotFoundException e) {
+						loadGrid();
+					} catch (IOException e) {
 						log.error("Error", e);
 					}
 				}
 			}
 		}
-		
+
+	}
+
+	private void loadGrid() throws IOException {
+		RandomAccessFile rf = new RandomAccessFile(f.getPath(), "r");
+		try {
+			FileChannel ch = rf.getChannel();
+			int r = (int) (ch.size() / 2 / COLUMNS);
+			if (r < 2) {
+				log.error("Geoid file is too small " + f.getName());
+				return;
+			}
+			MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, (long) r * COLUMNS * 2);
+			short[] g = new short[r * COLUMNS];
+			// mapped buffer is big endian as the file
+			buf.asShortBuffer().get(g);
+			rows = r;
+			grid = g;
+		} finally {
+			rf.close();
+		}
 	}
-	
+
 	public boolean isGeoidInformationAvailable(){
-		return rf != null;
+		return grid != null;
 	}
-	
+
+	/**
+	 * @return geoid height in meters bilinearly interpolated between grid nodes
+	 */
 	public float getGeoidHeight(double lat, double lon) {
 		if (!isGeoidInformationAvailable()) {
 			return 0;
 		}
-		int shy = (int) Math.floor((90 - lat) * 4);
-		int shx = (int) Math.floor((lon >= 0 ? lon : lon + 360) * 4);
-		int pointer = ((shy * 1440) + shx) * 2;
-		short res = 0;
-		if (pointer != cachedPointer) {
-			try {
-				rf.seek(pointer);
-				// read short
-				cachedValue = readShort();
-				cachedPointer = pointer;
-			} catch (IOException e) {
-				log.error("Geoid info error", e);
-			}
+		double y = (90 - lat) * CELLS_PER_DEGREE;
+		double x = (lon >= 0 ? lon : lon + 360) * CELLS_PER_DEGREE;
+		int shy = (int) Math.floor(y);
+		int shx = (int) Math.floor(x);
+		double dy = y - shy;
+		double dx = x - shx;
+		if (shy < 0) {
+			shy = 0;
+			dy = 0;
+		} else if (shy >= rows - 1) {
+			shy = rows - 2;
+			dy = Math.min(1, y - shy);
+		}
+		shx = ((shx % COLUMNS) + COLUMNS) % COLUMNS;
+		int shx1 = shx == COLUMNS - 1 ? 0 : shx + 1;
+		int row = shy * COLUMNS;
+		int row1 = row + COLUMNS;
+		double top = grid[row + shx] * (1 - dx) + grid[row + shx1] * dx;
+		double bottom = grid[row1 + shx] * (1 - dx) + grid[row1 + shx1] * dx;
+		return (float) (top * (1 - dy) + bottom * dy) / 100f;
+	}
+
+	/**
+	 * Fills heights with geoid heights for points given by lats / lons arrays
+	 */
+	public void getGeoidHeights(double[] lats, double[] lons, float[] heights) {
+		for (int i = 0; i < lats.length; i++) {
+			heights[i] = getGeoidHeight(lats[i], lons[i]);
 		}
-		res = cachedValue;
-		return res / 100f;
 	}
 
-	private short readShort() throws IOException {
-		byte[] b = new byte[2];
-		rf.read(b);
-		int ch1 = b[0] < 0 ? b[0] + 256 : b[0];
-		int ch2 = b[1] < 0 ? b[1] + 256 : b[1];
-		return (short)((ch1 << 8) + ch2);
+	/**
+	 * Converts ellipsoid altitudes (as reported by GPS) to altitudes above sea level in place
+	 */
+	public void correctAltitudes(double[] lats, double[] lons, double[] altitudes) {
+		if (!isGeoidInformationAvailable()) {
+			return;
+		}
+		for (int i = 0; i < lats.length; i++) {
+			altitudes[i] -= getGeoidHeight(lats[i], lons[i]);
+		}
 	}
 }
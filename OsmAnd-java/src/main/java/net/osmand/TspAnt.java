@@ -118,13 +118,52 @@ public class TspAnt {
         n = l.size() ;
 //        System.out.println("Cost");
         graph = new double[n][n];
+		for (int i = 0; i < n ; i++) {
+			for (int j = 1; j < n ; j++) {
+				graph[i][j] = Math.rint(MapUtils.getDistance(l.get(i), l.get(j))) + 0.1;
+			}
+		}
+		return initGraph(keepEndPoint);
+    }
+
+	/**
+	 * Reads costs (for example travel times of HHRoutePlanner.calculateMatrix) between start (0), intermediates
+	 * and end (last point if keepEndPoint), unreachable pairs (infinite cost) are penalized.
+	 */
+	public TspAnt readGraph(float[][] costs, boolean keepEndPoint) {
+		n = costs.length;
+		graph = new double[n][n];
+		double unreachable = unreachableCost(costs);
+		for (int i = 0; i < n; i++) {
+			for (int j = 1; j < n; j++) {
+				double d = Float.isInfinite(costs[i][j]) ? unreachable : Math.rint(costs[i][j]);
+				graph[i][j] = d + 0.1;
+			}
+		}
+		return initGraph(keepEndPoint);
+	}
+
+	/**
+	 * Cost of unreachable pair: it is greater than any tour over reachable pairs (also when all pairs are unreachable)
+	 */
+	static double unreachableCost(float[][] costs) {
+		double maxCost = 0;
+		for (int i = 0; i < costs.length; i++) {
+			for (int j = 0; j < costs[i].length; j++) {
+				if (!Float.isInfinite(costs[i][j])) {
+					maxCost = Math.max(maxCost, Math.rint(costs[i][j]));
+				}
+			}
+		}
+		return (maxCost + 1) * costs.length;
+	}
+
+	private TspAnt initGraph(boolean keepEndPoint) {
         double maxSum = 0;
 		for (int i = 0; i < n ; i++) {
 			double maxIWeight = 0;
 			for (int j = 1; j < n ; j++) {
-				double d = Math.rint(MapUtils.getDistance(l.get(i), l.get(j))) + 0.1;
-				maxIWeight = Math.max(d, maxIWeight);
-				graph[i][j] = d;
+				maxIWeight = Math.max(graph[i][j], maxIWeight);
 			}
 			maxSum += maxIWeight;
 		}
@@ -43,6 +43,26 @@ public class TspHeldKarp {
 		
 		return this;
 	}
+
+	/**
+	 * Reads costs (for example travel times of HHRoutePlanner.calculateMatrix), unreachable pairs are penalized
+	 */
+	public TspHeldKarp readInput(float[][] costs, boolean returnToInitialPoint) {
+		n = costs.length;
+		order = new int[n];
+		cost = new double[n][n];
+		double unreachable = TspAnt.unreachableCost(costs);
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (i == j || (!returnToInitialPoint && (j == 0))) {
+					cost[i][j] = 0;
+				} else {
+					cost[i][j] = Float.isInfinite(costs[i][j]) ? unreachable : Math.rint(costs[i][j]);
+				}
+			}
+		}
+		return this;
+	}
   //
   
 
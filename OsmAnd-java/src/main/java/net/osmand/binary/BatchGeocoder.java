@@ -0,0 +1,260 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.LatLon;
+import net.osmand.data.Street;
+import net.osmand.router.GeneralRouter;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingContext;
+import net.osmand.util.MapUtils;
+
+/**
+ * Reverse geocoding of many points (see {@link GeocodingUtilities}). Points are expected to be spatially sorted,
+ * so consecutive partitions of points are processed by parallel workers. Each worker keeps its own routing context
+ * (loaded route tiles), cursors of readers and caches of streets found by name and loaded buildings,
+ * so neighbour points don't read the same data again.
+ */
+public class BatchGeocoder {
+
+	public static int PARTITION_SIZE = 256;
+	public static int STREETS_CACHE_SIZE = 2000;
+	// streets found by name are shared by points within tile of this zoom
+	private static final int STREETS_CELL_ZOOM = 12;
+
+	private final RoutingContext ctx;
+	private int threads = 1;
+	private boolean allowEmptyNames;
+
+	// stats of last batch
+	private int processedPoints;
+	private int foundPoints;
+	private double calculationTime;
+
+	public BatchGeocoder(RoutingContext ctx) {
+		this.ctx = ctx;
+	}
+
+	public BatchGeocoder setThreads(int threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	public BatchGeocoder setAllowEmptyNames(boolean allowEmptyNames) {
+		this.allowEmptyNames = allowEmptyNames;
+		return this;
+	}
+
+	/**
+	 * @return best result (same as first of {@link GeocodingUtilities#sortGeocodingResults}) for each point
+	 *         in the input order, null if nothing is found
+	 */
+	public List<GeocodingResult> reverseGeocode(final List<LatLon> points) throws IOException, InterruptedException {
+		long time = System.nanoTime();
+		final GeocodingResult[] res = new GeocodingResult[points.size()];
+		final int partitions = (points.size() + PARTITION_SIZE - 1) / PARTITION_SIZE;
+		final AtomicInteger nextPartition = new AtomicInteger();
+		int workers = Math.min(threads, partitions);
+		if (workers <= 1) {
+			new Worker(ctx, ctx.getMaps()).run(points, res, nextPartition, partitions);
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(workers);
+			try {
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+				for (int i = 0; i < workers; i++) {
+					tasks.add(new Callable<Void>() {
+
+						@Override
+						public Void call() throws Exception {
+							BinaryMapIndexReader[] cursors = createCursors();
+							try {
+								RoutingContext local = new RoutePlannerFrontEnd().buildRoutingContext(copyConfig(),
+										null, cursors, ctx.calculationMode);
+								if (ctx.getPreloadedGraph() != null) {
+									local.setPreloadedGraph(ctx.getPreloadedGraph());
+								}
+								new Worker(local, cursors).run(points, res, nextPartition, partitions);
+							} finally {
+								closeCursors(cursors);
+							}
+							return null;
+						}
+					});
+				}
+				for (Future<Void> f : executor.invokeAll(tasks)) {
+					try {
+						f.get();
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof IOException) {
+							throw (IOException) cause;
+						} else if (cause instanceof InterruptedException) {
+							throw (InterruptedException) cause;
+						} else if (cause instanceof RuntimeException) {
+							throw (RuntimeException) cause;
+						} else if (cause instanceof Error) {
+							throw (Error) cause;
+						}
+						throw new IOException(cause.getMessage(), cause);
+					}
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		int found = 0;
+		for (GeocodingResult r : res) {
+			if (r != null) {
+				found++;
+			}
+		}
+		synchronized (this) {
+			processedPoints = points.size();
+			foundPoints = found;
+			calculationTime = (System.nanoTime() - time) / 1e9;
+		}
+		return Arrays.asList(res);
+	}
+
+	private RoutingConfiguration copyConfig() {
+		// router converts types of regions while searching, so every worker has own router (conversion of regions),
+		// rules registered by all workers are shared by routers of one profile (see GeneralRouter.registerTagValueAttribute)
+		RoutingConfiguration config = ctx.config.copy();
+		GeneralRouter router = ctx.config.router;
+		config.router = router.build(router.getParameterValues());
+		Set<Long> impassableRoads = new HashSet<Long>();
+		for (long id : router.getImpassableRoadIds()) {
+			impassableRoads.add(id);
+		}
+		config.router.setImpassableRoads(impassableRoads);
+		return config;
+	}
+
+	private BinaryMapIndexReader[] createCursors() throws IOException {
+		BinaryMapIndexReader[] maps = ctx.getMaps();
+		BinaryMapIndexReader[] cursors = new BinaryMapIndexReader[maps.length];
+		try {
+			for (int i = 0; i < maps.length; i++) {
+				cursors[i] = maps[i].createCursor();
+			}
+		} catch (IOException e) {
+			closeCursors(cursors);
+			throw e;
+		}
+		return cursors;
+	}
+
+	private void closeCursors(BinaryMapIndexReader[] cursors) throws IOException {
+		for (BinaryMapIndexReader c : cursors) {
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+
+	public synchronized int getProcessedPoints() {
+		return processedPoints;
+	}
+
+	public synchronized int getFoundPoints() {
+		return foundPoints;
+	}
+
+	public synchronized double getPointsPerSecond() {
+		return calculationTime > 0 ? processedPoints / calculationTime : 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(Locale.US, "Geocoded %d points (%d found) in %.1f s, %.1f points/s, %d threads",
+				processedPoints, foundPoints, calculationTime, getPointsPerSecond(), threads);
+	}
+
+	private class Worker extends GeocodingUtilities {
+
+		private final RoutingContext local;
+		private final List<BinaryMapIndexReader> readers;
+		private final Map<Street, Boolean> preloaded = new IdentityHashMap<Street, Boolean>();
+		private final Map<String, List<Street>> streets = new LinkedHashMap<String, List<Street>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<Street>> eldest) {
+				if (size() > STREETS_CACHE_SIZE) {
+					for (Street s : eldest.getValue()) {
+						preloaded.remove(s);
+					}
+					return true;
+				}
+				return false;
+			}
+		};
+
+		Worker(RoutingContext local, BinaryMapIndexReader[] readers) {
+			this.local = local;
+			this.readers = Arrays.asList(readers);
+		}
+
+		void run(List<LatLon> points, GeocodingResult[] res, AtomicInteger nextPartition, int partitions)
+				throws IOException {
+			int p;
+			while ((p = nextPartition.getAndIncrement()) < partitions) {
+				int end = Math.min(points.size(), (p + 1) * PARTITION_SIZE);
+				for (int i = p * PARTITION_SIZE; i < end; i++) {
+					LatLon l = points.get(i);
+					List<GeocodingResult> lst = reverseGeocodingSearch(local, l.getLatitude(), l.getLongitude(),
+							allowEmptyNames);
+					List<GeocodingResult> complete = sortGeocodingResults(readers, lst);
+					res[i] = complete.isEmpty() ? null : complete.get(0);
+				}
+			}
+		}
+
+		@Override
+		protected List<Street> findStreetsByName(BinaryMapIndexReader reader, List<String> streetNames,
+				boolean addCommonWords, String mainWord, LatLon location, double radius,
+				ResultMatcher<GeocodingResult> result) throws IOException {
+			// search once for tile with radius extended by tile size
+			int x = (int) MapUtils.getTileNumberX(STREETS_CELL_ZOOM, location.getLongitude());
+			int y = (int) MapUtils.getTileNumberY(STREETS_CELL_ZOOM, location.getLatitude());
+			String key = readers.indexOf(reader) + " " + x + " " + y + " " + addCommonWords + " " + streetNames;
+			List<Street> lst = streets.get(key);
+			if (lst == null) {
+				LatLon center = new LatLon(MapUtils.getLatitudeFromTile(STREETS_CELL_ZOOM, y + 0.5),
+						MapUtils.getLongitudeFromTile(STREETS_CELL_ZOOM, x + 0.5));
+				double cellSize = MapUtils.getTileDistanceWidth(center.getLatitude(), STREETS_CELL_ZOOM);
+				lst = super.findStreetsByName(reader, streetNames, addCommonWords, mainWord, center,
+						radius + cellSize, result);
+				streets.put(key, lst.isEmpty() ? Collections.<Street>emptyList() : lst);
+			}
+			return lst;
+		}
+
+		@Override
+		protected void preloadBuildings(BinaryMapIndexReader reader, Street street) throws IOException {
+			if (!preloaded.containsKey(street)) {
+				super.preloadBuildings(reader, street);
+				preloaded.put(street, Boolean.TRUE);
+			}
+		}
+	}
+}
@@ -21,6 +21,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,6 +41,7 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedInputStream.MappedInput;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.WireFormat;
@@ -107,6 +113,10 @@ public class BinaryMapIndexReader {
 	
 	
 	private final RandomAccessFile raf;
+	// shared between all cursors of the same file, null when reading through raf
+	private final MappedInput mappedInput;
+	// cursors share raf with the reader they were created from and don't close it
+	private final boolean ownsRaf;
 	protected final File file;
 	/*private*/ int version;
 	/*private*/ long dateCreated;
@@ -134,22 +144,23 @@ public class BinaryMapIndexReader {
 
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
-		this.raf = raf;
-		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
-		transportAdapter = new BinaryMapTransportReaderAdapter(this);
-		addressAdapter = new BinaryMapAddressReaderAdapter(this);
-		poiAdapter = new BinaryMapPoiReaderAdapter(this);
-		routeAdapter = new BinaryMapRouteReaderAdapter(this);
-		hhAdapter = new BinaryHHRouteReaderAdapter(this);
-		init();
+		this(raf, file, true, false);
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
+		this(raf, file, init, false);
+	}
+
+	/**
+	 * @param memoryMapped map the whole file into memory once, so {@link #createCursor()} could serve
+	 * concurrent searches without opening the file again
+	 */
+	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init, boolean memoryMapped) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
+		this.ownsRaf = true;
+		this.mappedInput = memoryMapped ? new MappedInput(raf.getChannel()) : null;
+		codedIS = memoryMapped ? CodedInputStream.newInstance(mappedInput) : CodedInputStream.newInstance(raf);
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
@@ -162,9 +173,16 @@ public class BinaryMapIndexReader {
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
+		this(raf, null, referenceToSameFile);
+	}
+
+	private BinaryMapIndexReader(final RandomAccessFile raf, MappedInput mappedInput,
+			BinaryMapIndexReader referenceToSameFile) throws IOException {
 		this.raf = raf;
 		this.file = referenceToSameFile.file;
-		codedIS = CodedInputStream.newInstance(raf);
+		this.ownsRaf = mappedInput == null;
+		this.mappedInput = mappedInput;
+		codedIS = mappedInput != null ? CodedInputStream.newInstance(mappedInput) : CodedInputStream.newInstance(raf);
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
@@ -184,6 +202,22 @@ public class BinaryMapIndexReader {
 		calculateCenterPointForRegions();
 	}
 
+	/**
+	 * Creates a reader with its own read position over the same file, so it could be used from another thread.
+	 * For memory mapped readers the cursor shares the mapping and doesn't open any file handle,
+	 * otherwise the file is opened again.
+	 */
+	public BinaryMapIndexReader createCursor() throws IOException {
+		if (mappedInput != null) {
+			return new BinaryMapIndexReader(raf, mappedInput, this);
+		}
+		return new BinaryMapIndexReader(new RandomAccessFile(file, "r"), this);
+	}
+
+	public boolean isMemoryMapped() {
+		return mappedInput != null;
+	}
+
 
 	public long getDateCreated() {
 		return dateCreated;
@@ -1710,7 +1744,9 @@ public class BinaryMapIndexReader {
 
 	public void close() throws IOException {
 		if (codedIS != null) {
-			raf.close();
+			if (ownsRaf) {
+				raf.close();
+			}
 			codedIS = null;
 			mapIndexes.clear();
 			addressIndexes.clear();
@@ -2278,6 +2314,7 @@ public class BinaryMapIndexReader {
 	private static boolean testPoiSearch = true;
 	private static boolean testPoiSearchOnPath = false;
 	private static boolean testTransportSearch = false;
+	private static boolean testMappedReadBenchmark = false;
 	
 	private static int sleft = MapUtils.get31TileNumberX(27.55079);
 	private static int sright = MapUtils.get31TileNumberX(27.55317);
@@ -2315,6 +2352,10 @@ public class BinaryMapIndexReader {
 			testTransportSearch(reader);
 		}
 
+		if (testMappedReadBenchmark) {
+			testMappedReadBenchmark(fl, Runtime.getRuntime().availableProcessors());
+		}
+
 		if (testPoiSearch || testPoiSearchOnPath) {
 			PoiRegion poiRegion = reader.getPoiIndexes().get(0);
 			if (testPoiSearch) {
@@ -2330,6 +2371,59 @@ public class BinaryMapIndexReader {
 		println("Time " + (System.currentTimeMillis() - time)); //$NON-NLS-1$
 	}
 
+	private static void testMappedReadBenchmark(File fl, int threads) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(fl, "r");
+		BinaryMapIndexReader rafReader = new BinaryMapIndexReader(raf, fl);
+		long time = System.nanoTime();
+		int found = benchmarkPoiGrid(rafReader, 0, 1);
+		println(String.format("RAF reader: %d pois in %.1f ms (1 thread)", found, (System.nanoTime() - time) / 1e6));
+		rafReader.close();
+
+		raf = new RandomAccessFile(fl, "r");
+		final BinaryMapIndexReader mappedReader = new BinaryMapIndexReader(raf, fl, true, true);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Integer>> futures = new ArrayList<>();
+		time = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			final int part = i;
+			final int parts = threads;
+			futures.add(executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return benchmarkPoiGrid(mappedReader.createCursor(), part, parts);
+				}
+			}));
+		}
+		found = 0;
+		try {
+			for (Future<Integer> f : futures) {
+				found += f.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IOException(e);
+		} finally {
+			executor.shutdown();
+		}
+		println(String.format("Mapped reader: %d pois in %.1f ms (%d threads)", found, (System.nanoTime() - time) / 1e6, threads));
+		mappedReader.close();
+	}
+
+	private static int benchmarkPoiGrid(BinaryMapIndexReader reader, int part, int parts) throws IOException {
+		int grid = 16;
+		int found = 0;
+		for (PoiRegion poiRegion : reader.getPoiIndexes()) {
+			int w = (poiRegion.right31 - poiRegion.left31) / grid;
+			int h = (poiRegion.bottom31 - poiRegion.top31) / grid;
+			for (int cell = part; cell < grid * grid; cell += parts) {
+				int l = poiRegion.left31 + (cell % grid) * w;
+				int t = poiRegion.top31 + (cell / grid) * h;
+				SearchRequest<Amenity> req = buildSearchPoiRequest(l, l + w, t, t + h, -1, ACCEPT_ALL_POI_TYPE_FILTER, null);
+				found += reader.searchPoi(poiRegion, req).size();
+			}
+		}
+		return found;
+	}
+
 	private static void testSearchOnthePath(BinaryMapIndexReader reader) throws IOException {
 		float radius = 1000;
 		final MapPoiTypes poiTypes = MapPoiTypes.getDefault();
@@ -0,0 +1,578 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.data.Amenity;
+import net.osmand.util.MapUtils;
+
+/**
+ * Base map with its live update files (deltas) merged into one index. Deltas are small, so when overlay is created
+ * the newest version of every changed map, poi and route object is read from deltas and kept in memory, while ids
+ * of changed and deleted (osmand_change=delete) objects are stored in compact id -> file tables. Queries read only
+ * the base map (skipping its objects changed by updates) and filter kept delta objects by bbox, so every object is
+ * returned once in its newest version. Overlay should be recreated when list of deltas changes. Queries could be
+ * run from several threads, reads of base map are synchronized.
+ */
+public class BinaryMapOverlayReader {
+
+	// source of objects deleted by updates
+	static final int DELETED = -1;
+	// object is not changed by updates
+	static final int NOT_CHANGED = -2;
+	private static final int BASE = 0;
+
+	// readers are empty when overlay is created from other sources (tests)
+	private final List<BinaryMapIndexReader> readers;
+	private final OverlaySource base;
+	private final int updates;
+	private final IdSourceTable mapTable;
+	private final IdSourceTable poiTable;
+	private final IdSourceTable routeTable;
+	private final List<DeltaObject<BinaryMapDataObject>> mapObjects;
+	private final List<DeltaObject<Amenity>> poiObjects;
+	private final List<DeltaObject<RouteDataObject>> routeObjects;
+
+	private final AtomicLong baseQueried = new AtomicLong();
+	private final AtomicLong baseSkipped = new AtomicLong();
+	private final AtomicLong objectsSuppressed = new AtomicLong();
+
+	public BinaryMapOverlayReader(BinaryMapIndexReader base, List<BinaryMapIndexReader> deltas) throws IOException {
+		this(new ReaderSource(base), readerSources(deltas), readers(base, deltas));
+	}
+
+	BinaryMapOverlayReader(OverlaySource base, List<? extends OverlaySource> deltas,
+			List<BinaryMapIndexReader> readers) throws IOException {
+		this.base = base;
+		this.readers = readers;
+		this.updates = deltas.size();
+		List<OverlaySource> sorted = new ArrayList<OverlaySource>(deltas);
+		// stable sort keeps given order of files with same date
+		Collections.sort(sorted, new Comparator<OverlaySource>() {
+			@Override
+			public int compare(OverlaySource o1, OverlaySource o2) {
+				return Long.compare(o1.getDateCreated(), o2.getDateCreated());
+			}
+		});
+		if (sorted.size() >= Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many updates " + deltas.size());
+		}
+		TLongObjectHashMap<Integer> map = new TLongObjectHashMap<Integer>();
+		TLongObjectHashMap<Integer> poi = new TLongObjectHashMap<Integer>();
+		TLongObjectHashMap<Integer> route = new TLongObjectHashMap<Integer>();
+		List<DeltaObject<BinaryMapDataObject>> allMap = new ArrayList<DeltaObject<BinaryMapDataObject>>();
+		List<DeltaObject<Amenity>> allPoi = new ArrayList<DeltaObject<Amenity>>();
+		List<DeltaObject<RouteDataObject>> allRoute = new ArrayList<DeltaObject<RouteDataObject>>();
+		// newer files override sources of older files, base map has source 0
+		for (int i = 0; i < sorted.size(); i++) {
+			readMap(sorted.get(i), i + 1, map, allMap);
+			readPoi(sorted.get(i), i + 1, poi, allPoi);
+			readRoute(sorted.get(i), i + 1, route, allRoute);
+		}
+		mapTable = new IdSourceTable(map);
+		poiTable = new IdSourceTable(poi);
+		routeTable = new IdSourceTable(route);
+		mapObjects = newest(allMap, mapTable, MAP_ID);
+		poiObjects = newest(allPoi, poiTable, POI_ID);
+		routeObjects = newest(allRoute, routeTable, ROUTE_ID);
+	}
+
+	private static List<OverlaySource> readerSources(List<BinaryMapIndexReader> deltas) {
+		List<OverlaySource> res = new ArrayList<OverlaySource>();
+		for (BinaryMapIndexReader r : deltas) {
+			res.add(new ReaderSource(r));
+		}
+		return res;
+	}
+
+	private static List<BinaryMapIndexReader> readers(BinaryMapIndexReader base, List<BinaryMapIndexReader> deltas) {
+		List<BinaryMapIndexReader> res = new ArrayList<BinaryMapIndexReader>();
+		res.add(base);
+		res.addAll(deltas);
+		return res;
+	}
+
+	private static void readMap(OverlaySource source, final int ind, final TLongObjectHashMap<Integer> table,
+			final List<DeltaObject<BinaryMapDataObject>> res) throws IOException {
+		source.readAllMapObjects(new MapObjectsCollector() {
+
+			@Override
+			public void collect(int minZoom, int maxZoom, BinaryMapDataObject object) {
+				boolean deleted = isDeleted(object);
+				putSource(table, object.getId(), ind, deleted);
+				if (!deleted) {
+					DeltaObject<BinaryMapDataObject> o = new DeltaObject<BinaryMapDataObject>(object, ind, minZoom,
+							maxZoom);
+					for (int i = 0; i < object.getPointsLength(); i++) {
+						o.extend(object.getPoint31XTile(i), object.getPoint31YTile(i));
+					}
+					res.add(o);
+				}
+			}
+		});
+	}
+
+	private static void readPoi(OverlaySource source, final int ind, final TLongObjectHashMap<Integer> table,
+			final List<DeltaObject<Amenity>> res) throws IOException {
+		source.searchPoi(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, -1,
+				BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, new ResultMatcher<Amenity>() {
+
+					@Override
+					public boolean publish(Amenity object) {
+						if (object.getId() != null) {
+							putSource(table, object.getId(), ind, object.isClosed());
+						}
+						if (!object.isClosed() && object.getLocation() != null) {
+							DeltaObject<Amenity> o = new DeltaObject<Amenity>(object, ind, 0, Integer.MAX_VALUE);
+							o.extend(MapUtils.get31TileNumberX(object.getLocation().getLongitude()),
+									MapUtils.get31TileNumberY(object.getLocation().getLatitude()));
+							res.add(o);
+						}
+						return false;
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return false;
+					}
+				});
+	}
+
+	private static void readRoute(OverlaySource source, final int ind, final TLongObjectHashMap<Integer> table,
+			final List<DeltaObject<RouteDataObject>> res) throws IOException {
+		source.searchRoute(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, new ResultMatcher<RouteDataObject>() {
+
+			@Override
+			public boolean publish(RouteDataObject object) {
+				boolean deleted = object.isRoadDeleted();
+				putSource(table, object.getId(), ind, deleted);
+				if (!deleted) {
+					DeltaObject<RouteDataObject> o = new DeltaObject<RouteDataObject>(object, ind, 0,
+							Integer.MAX_VALUE);
+					for (int i = 0; i < object.getPointsLength(); i++) {
+						o.extend(object.getPoint31XTile(i), object.getPoint31YTile(i));
+					}
+					res.add(o);
+				}
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+	}
+
+	// keeps only objects from the newest delta containing them (objects without id are always kept)
+	private static <T> List<DeltaObject<T>> newest(List<DeltaObject<T>> objects, IdSourceTable table,
+			ObjectId<T> ids) {
+		List<DeltaObject<T>> res = new ArrayList<DeltaObject<T>>();
+		for (DeltaObject<T> o : objects) {
+			int s = table.get(ids.getId(o.object));
+			if (s == NOT_CHANGED || s == o.source) {
+				res.add(o);
+			}
+		}
+		return res;
+	}
+
+	// files are read from oldest to newest, so source of newer file (or its deletion) replaces older one
+	static void putSource(TLongObjectHashMap<Integer> table, long id, int source, boolean deleted) {
+		table.put(id, deleted ? DELETED : source);
+	}
+
+	private static boolean isDeleted(BinaryMapDataObject object) {
+		if (object.getMapIndex() == null) {
+			return false;
+		}
+		Integer rule = object.getMapIndex().getRule(Amenity.OSM_DELETE_TAG, Amenity.OSM_DELETE_VALUE);
+		return rule != null && (object.containsType(rule) || object.containsAdditionalType(rule));
+	}
+
+	// base objects changed or deleted by updates are replaced by delta objects
+	private <T> ResultMatcher<T> filterBase(final IdSourceTable table, final ResultMatcher<T> matcher,
+			final ObjectId<T> ids, final List<T> res) {
+		return new ResultMatcher<T>() {
+
+			@Override
+			public boolean publish(T object) {
+				if (!table.accept(ids.getId(object), BASE)) {
+					objectsSuppressed.incrementAndGet();
+					return false;
+				}
+				return BinaryMapOverlayReader.publish(object, matcher, res);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return BinaryMapOverlayReader.isCancelled(matcher);
+			}
+		};
+	}
+
+	private static <T> boolean publish(T object, ResultMatcher<T> matcher, List<T> res) {
+		if (matcher == null || matcher.publish(object)) {
+			res.add(object);
+			return true;
+		}
+		return false;
+	}
+
+	private interface ObjectId<T> {
+		// ids of objects without id are not in tables
+		long getId(T object);
+	}
+
+	private static final ObjectId<BinaryMapDataObject> MAP_ID = new ObjectId<BinaryMapDataObject>() {
+		@Override
+		public long getId(BinaryMapDataObject object) {
+			return object.getId();
+		}
+	};
+
+	private static final ObjectId<Amenity> POI_ID = new ObjectId<Amenity>() {
+		@Override
+		public long getId(Amenity object) {
+			Long id = object.getId();
+			return id == null ? Long.MIN_VALUE : id;
+		}
+	};
+
+	private static final ObjectId<RouteDataObject> ROUTE_ID = new ObjectId<RouteDataObject>() {
+		@Override
+		public long getId(RouteDataObject object) {
+			return object.getId();
+		}
+	};
+
+	public List<BinaryMapDataObject> searchMapIndex(int left31, int right31, int top31, int bottom31, int zoom,
+			SearchFilter searchFilter, ResultMatcher<BinaryMapDataObject> matcher) throws IOException {
+		List<BinaryMapDataObject> res = new ArrayList<BinaryMapDataObject>();
+		synchronized (base) {
+			if (base.containsMapData(left31, top31, right31, bottom31, zoom)) {
+				baseQueried.incrementAndGet();
+				base.searchMap(left31, right31, top31, bottom31, zoom, searchFilter,
+						filterBase(mapTable, matcher, MAP_ID, res));
+			} else {
+				baseSkipped.incrementAndGet();
+			}
+		}
+		for (DeltaObject<BinaryMapDataObject> o : mapObjects) {
+			if (isCancelled(matcher)) {
+				break;
+			}
+			if (o.minZoom <= zoom && zoom <= o.maxZoom && o.intersects(left31, right31, top31, bottom31)
+					&& (searchFilter == null
+							|| searchFilter.accept(new TIntArrayList(o.object.getTypes()), o.object.getMapIndex()))) {
+				publish(o.object, matcher, res);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Zoom is used only for base map, poi of deltas are not grouped by zoom
+	 */
+	public List<Amenity> searchPoi(int left31, int right31, int top31, int bottom31, int zoom,
+			SearchPoiTypeFilter poiTypeFilter, ResultMatcher<Amenity> matcher) throws IOException {
+		List<Amenity> res = new ArrayList<Amenity>();
+		synchronized (base) {
+			if (base.containsPoiData(left31, top31, right31, bottom31)) {
+				baseQueried.incrementAndGet();
+				base.searchPoi(left31, right31, top31, bottom31, zoom, poiTypeFilter,
+						filterBase(poiTable, matcher, POI_ID, res));
+			} else {
+				baseSkipped.incrementAndGet();
+			}
+		}
+		for (DeltaObject<Amenity> o : poiObjects) {
+			if (isCancelled(matcher)) {
+				break;
+			}
+			if (o.intersects(left31, right31, top31, bottom31)
+					&& (poiTypeFilter == null || poiTypeFilter.accept(o.object.getType(), o.object.getSubType()))) {
+				publish(o.object, matcher, res);
+			}
+		}
+		return res;
+	}
+
+	public List<RouteDataObject> searchRouteIndex(int left31, int right31, int top31, int bottom31,
+			ResultMatcher<RouteDataObject> matcher) throws IOException {
+		List<RouteDataObject> res = new ArrayList<RouteDataObject>();
+		synchronized (base) {
+			if (base.containsRouteData(left31, top31, right31, bottom31)) {
+				baseQueried.incrementAndGet();
+				base.searchRoute(left31, right31, top31, bottom31, filterBase(routeTable, matcher, ROUTE_ID, res));
+			} else {
+				baseSkipped.incrementAndGet();
+			}
+		}
+		for (DeltaObject<RouteDataObject> o : routeObjects) {
+			if (isCancelled(matcher)) {
+				break;
+			}
+			if (o.intersects(left31, right31, top31, bottom31)) {
+				publish(o.object, matcher, res);
+			}
+		}
+		return res;
+	}
+
+	private static boolean isCancelled(ResultMatcher<?> matcher) {
+		return matcher != null && matcher.isCancelled();
+	}
+
+	public BinaryMapIndexReader getBase() {
+		return readers.isEmpty() ? null : readers.get(0);
+	}
+
+	/**
+	 * @return base map and deltas in given order
+	 */
+	public List<BinaryMapIndexReader> getFiles() {
+		return Collections.unmodifiableList(readers);
+	}
+
+	public int getChangedObjectsCount() {
+		return mapTable.size() + poiTable.size() + routeTable.size();
+	}
+
+	public int getDeletedObjectsCount() {
+		return mapTable.getDeletedCount() + poiTable.getDeletedCount() + routeTable.getDeletedCount();
+	}
+
+	/**
+	 * @return objects of deltas kept in memory (map objects are counted once per zoom level)
+	 */
+	public int getDeltaObjectsCount() {
+		return mapObjects.size() + poiObjects.size() + routeObjects.size();
+	}
+
+	public long getBaseQueried() {
+		return baseQueried.get();
+	}
+
+	public long getBaseSkipped() {
+		return baseSkipped.get();
+	}
+
+	public long getObjectsSuppressed() {
+		return objectsSuppressed.get();
+	}
+
+	public void close() throws IOException {
+		for (BinaryMapIndexReader r : readers) {
+			r.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		BinaryMapIndexReader r = getBase();
+		return String.format(Locale.US,
+				"Overlay %s + %d updates: %d changed (%d deleted) objects, %d kept in memory, base queried %d times, skipped %d, %d objects suppressed",
+				r == null || r.getFile() == null ? "" : r.getFile().getName(), updates, getChangedObjectsCount(),
+				getDeletedObjectsCount(), getDeltaObjectsCount(), getBaseQueried(), getBaseSkipped(),
+				getObjectsSuppressed());
+	}
+
+	private static class DeltaObject<T> {
+		final T object;
+		final int source;
+		final int minZoom;
+		final int maxZoom;
+		int left = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE;
+		int top = Integer.MAX_VALUE;
+		int bottom = Integer.MIN_VALUE;
+
+		DeltaObject(T object, int source, int minZoom, int maxZoom) {
+			this.object = object;
+			this.source = source;
+			this.minZoom = minZoom;
+			this.maxZoom = maxZoom;
+		}
+
+		void extend(int x31, int y31) {
+			left = Math.min(left, x31);
+			right = Math.max(right, x31);
+			top = Math.min(top, y31);
+			bottom = Math.max(bottom, y31);
+		}
+
+		boolean intersects(int left31, int right31, int top31, int bottom31) {
+			return left <= right31 && right >= left31 && top <= bottom31 && bottom >= top31;
+		}
+	}
+
+	interface MapObjectsCollector {
+		void collect(int minZoom, int maxZoom, BinaryMapDataObject object);
+	}
+
+	/**
+	 * Map file read by overlay
+	 */
+	interface OverlaySource {
+
+		long getDateCreated();
+
+		boolean containsMapData(int left31, int top31, int right31, int bottom31, int zoom);
+
+		boolean containsPoiData(int left31, int top31, int right31, int bottom31);
+
+		boolean containsRouteData(int left31, int top31, int right31, int bottom31);
+
+		// all map objects with zoom range of their root
+		void readAllMapObjects(MapObjectsCollector collector) throws IOException;
+
+		void searchMap(int left31, int right31, int top31, int bottom31, int zoom, SearchFilter searchFilter,
+				ResultMatcher<BinaryMapDataObject> matcher) throws IOException;
+
+		void searchPoi(int left31, int right31, int top31, int bottom31, int zoom, SearchPoiTypeFilter poiTypeFilter,
+				ResultMatcher<Amenity> matcher) throws IOException;
+
+		void searchRoute(int left31, int right31, int top31, int bottom31, ResultMatcher<RouteDataObject> matcher)
+				throws IOException;
+	}
+
+	private static class ReaderSource implements OverlaySource {
+		private final BinaryMapIndexReader reader;
+
+		ReaderSource(BinaryMapIndexReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public long getDateCreated() {
+			return reader.getDateCreated();
+		}
+
+		@Override
+		public boolean containsMapData(int left31, int top31, int right31, int bottom31, int zoom) {
+			return reader.containsMapData(left31, top31, right31, bottom31, zoom);
+		}
+
+		@Override
+		public boolean containsPoiData(int left31, int top31, int right31, int bottom31) {
+			return reader.containsPoiData(left31, top31, right31, bottom31);
+		}
+
+		@Override
+		public boolean containsRouteData(int left31, int top31, int right31, int bottom31) {
+			return reader.containsRouteData(left31, top31, right31, bottom31, 0);
+		}
+
+		@Override
+		public void readAllMapObjects(final MapObjectsCollector collector) throws IOException {
+			for (MapIndex mi : reader.getMapIndexes()) {
+				for (final MapRoot root : mi.getRoots()) {
+					SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(0,
+							Integer.MAX_VALUE, 0, Integer.MAX_VALUE, root.getMinZoom(), null,
+							new ResultMatcher<BinaryMapDataObject>() {
+
+								@Override
+								public boolean publish(BinaryMapDataObject object) {
+									collector.collect(root.getMinZoom(), root.getMaxZoom(), object);
+									return false;
+								}
+
+								@Override
+								public boolean isCancelled() {
+									return false;
+								}
+							});
+					reader.searchMapIndex(req, mi);
+				}
+			}
+		}
+
+		@Override
+		public void searchMap(int left31, int right31, int top31, int bottom31, int zoom, SearchFilter searchFilter,
+				ResultMatcher<BinaryMapDataObject> matcher) throws IOException {
+			reader.searchMapIndex(BinaryMapIndexReader.buildSearchRequest(left31, right31, top31, bottom31, zoom,
+					searchFilter, matcher));
+		}
+
+		@Override
+		public void searchPoi(int left31, int right31, int top31, int bottom31, int zoom,
+				SearchPoiTypeFilter poiTypeFilter, ResultMatcher<Amenity> matcher) throws IOException {
+			if (reader.containsPoiData()) {
+				reader.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest(left31, right31, top31, bottom31, zoom,
+						poiTypeFilter, matcher));
+			}
+		}
+
+		@Override
+		public void searchRoute(int left31, int right31, int top31, int bottom31,
+				ResultMatcher<RouteDataObject> matcher) throws IOException {
+			SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(left31, right31, top31,
+					bottom31, null);
+			for (RouteRegion reg : reader.getRoutingIndexes()) {
+				List<RouteSubregion> subregs = reader.searchRouteIndexTree(req, reg.getSubregions());
+				if (!subregs.isEmpty()) {
+					reader.loadRouteIndexData(subregs, matcher);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorted ids of changed objects and index of file with the newest version (or {@link #DELETED})
+	 */
+	static class IdSourceTable {
+		private final long[] ids;
+		private final short[] sources;
+		private final int deleted;
+
+		IdSourceTable(TLongObjectHashMap<Integer> table) {
+			ids = table.keys();
+			Arrays.sort(ids);
+			sources = new short[ids.length];
+			int d = 0;
+			for (int i = 0; i < ids.length; i++) {
+				sources[i] = table.get(ids[i]).shortValue();
+				if (sources[i] == DELETED) {
+					d++;
+				}
+			}
+			deleted = d;
+		}
+
+		int get(long id) {
+			int ind = Arrays.binarySearch(ids, id);
+			return ind < 0 ? NOT_CHANGED : sources[ind];
+		}
+
+		// changed objects are accepted only from the newest file, deleted are not accepted
+		boolean accept(long id, int source) {
+			int s = get(id);
+			return s == NOT_CHANGED || s == source;
+		}
+
+		int size() {
+			return ids.length;
+		}
+
+		int getDeletedCount() {
+			return deleted;
+		}
+	}
+}
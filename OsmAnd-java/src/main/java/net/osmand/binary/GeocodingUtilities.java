@@ -239,36 +239,21 @@ public class GeocodingUtilities {
 					mainWord = s;
 				}
 			}
-			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
-					new ResultMatcher<MapObject>() {
-						@Override
-						public boolean publish(MapObject object) {
-							if (object instanceof Street
-									&& prepareStreetName(object.getName(), addCommonWordsFinal).equals(streetNamesUsedFinal)) {
-								double d = MapUtils.getDistance(object.getLocation(), road.searchPoint.getLatitude(),
-										road.searchPoint.getLongitude());
-								// double check to suport old format
-								if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
-									GeocodingResult rs = new GeocodingResult(road);
-									rs.street = (Street) object;
-									// set connection point to sort
-									rs.connectionPoint = rs.street.getLocation();
-									rs.city = rs.street.getCity();
-									streetsList.add(rs);
-									return true;
-								}
-								return false;
-							}
-							return false;
-						}
-
-						@Override
-						public boolean isCancelled() {
-							return result != null && result.isCancelled();
-						}
-					}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
-			req.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
-			reader.searchAddressDataByName(req);
+			List<Street> streets = findStreetsByName(reader, streetNamesUsedFinal, addCommonWordsFinal, mainWord,
+					road.getLocation(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME, result);
+			for (Street street : streets) {
+				double d = MapUtils.getDistance(street.getLocation(), road.searchPoint.getLatitude(),
+						road.searchPoint.getLongitude());
+				// double check to suport old format
+				if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
+					GeocodingResult rs = new GeocodingResult(road);
+					rs.street = street;
+					// set connection point to sort
+					rs.connectionPoint = rs.street.getLocation();
+					rs.city = rs.street.getCity();
+					streetsList.add(rs);
+				}
+			}
 		}
 
 		final List<GeocodingResult> res = new ArrayList<GeocodingResult>();
@@ -312,6 +297,39 @@ public class GeocodingUtilities {
 		return res;
 	}
 
+	/**
+	 * @return streets with the same prepared name within radius (by bbox) from location
+	 */
+	protected List<Street> findStreetsByName(BinaryMapIndexReader reader, final List<String> streetNames,
+			final boolean addCommonWords, String mainWord, LatLon location, double radius,
+			final ResultMatcher<GeocodingResult> result) throws IOException {
+		final List<Street> streets = new ArrayList<Street>();
+		SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
+				new ResultMatcher<MapObject>() {
+					@Override
+					public boolean publish(MapObject object) {
+						if (object instanceof Street
+								&& prepareStreetName(object.getName(), addCommonWords).equals(streetNames)) {
+							streets.add((Street) object);
+							return true;
+						}
+						return false;
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return result != null && result.isCancelled();
+					}
+				}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		req.setBBoxRadius(location.getLatitude(), location.getLongitude(), (int) radius);
+		reader.searchAddressDataByName(req);
+		return streets;
+	}
+
+	protected void preloadBuildings(BinaryMapIndexReader reader, Street street) throws IOException {
+		reader.preloadBuildings(street, null);
+	}
+
 	public void filterDuplicateRegionResults(final List<GeocodingResult> res) {
 		Collections.sort(res, DISTANCE_COMPARATOR);
 		// filter duplicate city results (when building is in both regions on boundary)
@@ -359,7 +377,7 @@ public class GeocodingUtilities {
 	private List<GeocodingResult> loadStreetBuildings(final GeocodingResult road, BinaryMapIndexReader reader,
 			GeocodingResult street) throws IOException {
 		final List<GeocodingResult> streetBuildings = new ArrayList<GeocodingResult>();
-		reader.preloadBuildings(street.street, null);
+		preloadBuildings(reader, street.street);
 //		log.info("Preload buildings " + street.street.getName() + " " + street.city.getName() + " " + street.street.getId());
 		for (Building b : street.street.getBuildings()) {
 			if (b.getLatLon2() != null) {
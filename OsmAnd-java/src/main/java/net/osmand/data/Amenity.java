@@ -9,6 +9,7 @@ import net.osmand.osm.MapPoiTypes;
 import net.osmand.osm.PoiCategory;
 import net.osmand.osm.PoiType;
 import net.osmand.util.Algorithms;
+import net.osmand.util.CompiledOpeningHours;
 
 import org.json.JSONObject;
 
@@ -146,6 +147,13 @@ public class Amenity extends MapObject {
 		return openingHours;
 	}
 
+	/**
+	 * @return compiled opening hours shared by amenities with equal opening_hours or null
+	 */
+	public CompiledOpeningHours getCompiledOpeningHours() {
+		return CompiledOpeningHours.compile(openingHours);
+	}
+
 	public String getAdditionalInfo(String key) {
 		if (additionalInfo == null) {
 			return null;
@@ -0,0 +1,178 @@
+package net.osmand.gpx;
+
+import net.osmand.gpx.GPXStreamReader.TrackPointsVisitor;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Track segment stored as parallel primitive arrays (about 56 bytes per point instead of {@link WptPt} object),
+ * for tracks read by {@link GPXStreamReader} when points are needed. Names and extensions are not kept.
+ */
+public class ColumnarTrkSegment {
+
+	private int size;
+	private double[] lat;
+	private double[] lon;
+	private double[] ele;
+	private double[] speed;
+	private double[] hdop;
+	private double[] distance;
+	private long[] time;
+
+	public ColumnarTrkSegment() {
+		this(16);
+	}
+
+	public ColumnarTrkSegment(int capacity) {
+		capacity = Math.max(capacity, 1);
+		lat = new double[capacity];
+		lon = new double[capacity];
+		ele = new double[capacity];
+		speed = new double[capacity];
+		hdop = new double[capacity];
+		distance = new double[capacity];
+		time = new long[capacity];
+	}
+
+	public ColumnarTrkSegment(TrkSegment segment) {
+		this(segment.points.size());
+		for (WptPt point : segment.points) {
+			add(point);
+		}
+	}
+
+	public void add(WptPt point) {
+		if (size == lat.length) {
+			int capacity = size * 2;
+			lat = Arrays.copyOf(lat, capacity);
+			lon = Arrays.copyOf(lon, capacity);
+			ele = Arrays.copyOf(ele, capacity);
+			speed = Arrays.copyOf(speed, capacity);
+			hdop = Arrays.copyOf(hdop, capacity);
+			distance = Arrays.copyOf(distance, capacity);
+			time = Arrays.copyOf(time, capacity);
+		}
+		lat[size] = point.lat;
+		lon[size] = point.lon;
+		ele[size] = point.ele;
+		speed[size] = point.speed;
+		hdop[size] = point.hdop;
+		distance[size] = point.distance;
+		time[size] = point.time;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getLatitude(int i) {
+		return lat[i];
+	}
+
+	public double getLongitude(int i) {
+		return lon[i];
+	}
+
+	public double getElevation(int i) {
+		return ele[i];
+	}
+
+	public double getSpeed(int i) {
+		return speed[i];
+	}
+
+	public double getHdop(int i) {
+		return hdop[i];
+	}
+
+	public double getDistance(int i) {
+		return distance[i];
+	}
+
+	public long getTime(int i) {
+		return time[i];
+	}
+
+	/**
+	 * Fills (reused) point with values of i-th point
+	 */
+	public WptPt getPoint(int i, WptPt point) {
+		point.lat = lat[i];
+		point.lon = lon[i];
+		point.ele = ele[i];
+		point.speed = speed[i];
+		point.hdop = hdop[i];
+		point.distance = distance[i];
+		point.time = time[i];
+		return point;
+	}
+
+	public TrkSegment toTrkSegment() {
+		TrkSegment segment = new TrkSegment();
+		for (int i = 0; i < size; i++) {
+			segment.points.add(getPoint(i, new WptPt()));
+		}
+		return segment;
+	}
+
+	/**
+	 * Passes points to visitor (i.e. {@link IncrementalTrackAnalysis}) using single reused {@link WptPt}
+	 */
+	public void visit(TrackPointsVisitor visitor) {
+		WptPt point = new WptPt();
+		visitor.startSegment();
+		for (int i = 0; i < size; i++) {
+			visitor.visitPoint(getPoint(i, point));
+		}
+		visitor.endSegment();
+	}
+
+	/**
+	 * Collects segments read by {@link GPXStreamReader}, points are passed to delegate (if it's not null)
+	 * before collecting, so distance calculated by {@link IncrementalTrackAnalysis} is stored too.
+	 */
+	public static class Collector implements TrackPointsVisitor {
+
+		private final TrackPointsVisitor delegate;
+		private final List<ColumnarTrkSegment> segments = new ArrayList<>();
+		private ColumnarTrkSegment current;
+
+		public Collector(TrackPointsVisitor delegate) {
+			this.delegate = delegate;
+		}
+
+		public List<ColumnarTrkSegment> getSegments() {
+			return segments;
+		}
+
+		@Override
+		public void startSegment() {
+			current = new ColumnarTrkSegment();
+			segments.add(current);
+			if (delegate != null) {
+				delegate.startSegment();
+			}
+		}
+
+		@Override
+		public void visitPoint(WptPt point) {
+			if (delegate != null) {
+				delegate.visitPoint(point);
+			}
+			current.add(point);
+		}
+
+		@Override
+		public void endSegment() {
+			current = null;
+			if (delegate != null) {
+				delegate.endSegment();
+			}
+		}
+	}
+}
@@ -40,6 +40,9 @@ public class GPXFile extends GPXUtilities.GPXExtensions {
 
 	private GPXUtilities.Track generalTrack;
 	private GPXUtilities.TrkSegment generalSegment;
+	// analysis loaded from track cache (see GPXTrackCache) and modification time of file when it was loaded
+	private GPXTrackAnalysis cachedAnalysis;
+	private long cachedAnalysisTime;
 
 	public GPXFile(String author) {
 		this.author = author;
@@ -289,6 +292,19 @@ public class GPXFile extends GPXUtilities.GPXExtensions {
 		}
 	}
 
+	void setCachedAnalysis(GPXTrackAnalysis analysis) {
+		this.cachedAnalysis = analysis;
+		this.cachedAnalysisTime = modifiedTime;
+	}
+
+	/**
+	 * @return analysis stored in track cache (without {@link GPXTrackAnalysis#pointAttributes}) if file was
+	 * loaded with cache and isn't modified since, otherwise null
+	 */
+	public GPXTrackAnalysis getCachedAnalysis() {
+		return cachedAnalysis != null && cachedAnalysisTime == modifiedTime ? cachedAnalysis : null;
+	}
+
 	public GPXTrackAnalysis getAnalysis(long fileTimestamp) {
 		return getAnalysis(fileTimestamp, null, null, null);
 	}
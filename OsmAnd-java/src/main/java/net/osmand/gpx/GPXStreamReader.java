@@ -0,0 +1,237 @@
+package net.osmand.gpx;
+
+import static net.osmand.gpx.GPXUtilities.POINT_BEARING;
+import static net.osmand.gpx.GPXUtilities.POINT_ELEVATION;
+import static net.osmand.gpx.GPXUtilities.POINT_SPEED;
+
+import net.osmand.PlatformUtil;
+import net.osmand.gpx.GPXTrackAnalysis.TrackPointsAnalyser;
+import net.osmand.gpx.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Pull based reader of gpx track points (trk / trkseg / trkpt), points are not collected
+ * but passed to {@link TrackPointsVisitor}, so memory doesn't depend on track size.
+ * Same {@link WptPt} instance is reused for all points, visitor should copy values it needs.
+ * Waypoints, routes and route point extensions (rpt of osmand:route) are skipped
+ * (use {@link GPXUtilities#loadGPXFile(File)} to read them).
+ */
+public class GPXStreamReader {
+
+	private static final Log log = PlatformUtil.getLog(GPXStreamReader.class);
+
+	public interface TrackPointsVisitor {
+
+		void startSegment();
+
+		void visitPoint(WptPt point);
+
+		void endSegment();
+	}
+
+	private final TrackPointsVisitor visitor;
+	private boolean readExtensions;
+	private int wptPoints;
+	private int trackPoints;
+
+	public GPXStreamReader(TrackPointsVisitor visitor) {
+		this.visitor = visitor;
+	}
+
+	/**
+	 * @param readExtensions fill extensions of visited point (i.e. sensor data for {@link TrackPointsAnalyser}),
+	 *                       otherwise only speed / bearing are read from extensions
+	 */
+	public GPXStreamReader setReadExtensions(boolean readExtensions) {
+		this.readExtensions = readExtensions;
+		return this;
+	}
+
+	public int getWptPoints() {
+		return wptPoints;
+	}
+
+	public int getTrackPoints() {
+		return trackPoints;
+	}
+
+	public void read(File file) throws IOException, XmlPullParserException {
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			read(fis);
+		} finally {
+			Algorithms.closeStream(fis);
+		}
+	}
+
+	public void read(InputStream stream) throws IOException, XmlPullParserException {
+		XmlPullParser parser = PlatformUtil.newXMLPullParser();
+		parser.setInput(GPXUtilities.getUTF8Reader(stream));
+		WptPt point = new WptPt();
+		boolean pointOpened = false;
+		boolean trackOpened = false;
+		boolean segmentOpened = false;
+		boolean extensionReadMode = false;
+		boolean routePointExtension = false;
+		int tok;
+		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (tok == XmlPullParser.START_TAG) {
+				String tag = parser.getName();
+				if (routePointExtension) {
+					continue;
+				}
+				if (extensionReadMode) {
+					if (tag.equalsIgnoreCase("routepointextension")) {
+						routePointExtension = true;
+					} else if (pointOpened) {
+						readPointExtension(parser, tag, point);
+					}
+				} else if (tag.equals("extensions")) {
+					extensionReadMode = true;
+				} else if (pointOpened) {
+					readPointTag(parser, tag, point);
+				} else if (tag.equals("trk")) {
+					trackOpened = true;
+				} else if (tag.equals("wpt")) {
+					wptPoints++;
+				} else if (trackOpened && tag.equals("trkseg")) {
+					segmentOpened = true;
+					visitor.startSegment();
+				} else if (trackOpened && (tag.equals("trkpt") || tag.equals("rpt"))) {
+					if (!segmentOpened) {
+						segmentOpened = true;
+						visitor.startSegment();
+					}
+					resetPoint(point);
+					try {
+						point.lat = Double.parseDouble(parser.getAttributeValue("", "lat"));
+						point.lon = Double.parseDouble(parser.getAttributeValue("", "lon"));
+					} catch (NumberFormatException e) {
+						// ignore
+					}
+					pointOpened = true;
+				}
+			} else if (tok == XmlPullParser.END_TAG) {
+				String tag = parser.getName();
+				if (tag.equalsIgnoreCase("routepointextension")) {
+					routePointExtension = false;
+				} else if (routePointExtension) {
+					continue;
+				} else if (tag.equals("extensions")) {
+					extensionReadMode = false;
+				} else if (pointOpened && (tag.equals("trkpt") || tag.equals("rpt"))) {
+					pointOpened = false;
+					trackPoints++;
+					visitor.visitPoint(point);
+				} else if (tag.equals("trkseg") || tag.equals("trk")) {
+					if (segmentOpened) {
+						segmentOpened = false;
+						visitor.endSegment();
+					}
+					trackOpened &= !tag.equals("trk");
+				}
+			}
+		}
+	}
+
+	private void readPointTag(XmlPullParser parser, String tag, WptPt point) throws XmlPullParserException, IOException {
+		if (tag.equals(POINT_ELEVATION)) {
+			String text = GPXUtilities.readText(parser, POINT_ELEVATION);
+			if (text != null) {
+				try {
+					point.ele = Float.parseFloat(text);
+				} catch (NumberFormatException e) {
+				}
+			}
+		} else if (tag.equals("time")) {
+			point.time = GPXUtilities.parseTime(GPXUtilities.readText(parser, "time"));
+		} else if (tag.equals("hdop")) {
+			String text = GPXUtilities.readText(parser, "hdop");
+			if (text != null) {
+				try {
+					point.hdop = Float.parseFloat(text);
+				} catch (NumberFormatException e) {
+				}
+			}
+		} else if (tag.equals(POINT_SPEED)) {
+			try {
+				String value = GPXUtilities.readText(parser, POINT_SPEED);
+				if (!Algorithms.isEmpty(value)) {
+					point.speed = Float.parseFloat(value);
+					if (readExtensions) {
+						point.getExtensionsToWrite().put(POINT_SPEED, value);
+					}
+				}
+			} catch (NumberFormatException e) {
+			}
+		} else if (tag.equals("name")) {
+			point.name = GPXUtilities.readText(parser, "name");
+		}
+	}
+
+	private void readPointExtension(XmlPullParser parser, String tag, WptPt point) throws XmlPullParserException, IOException {
+		Map<String, String> values = GPXUtilities.readTextMap(parser, tag);
+		for (Entry<String, String> entry : values.entrySet()) {
+			String value = entry.getValue();
+			if (readExtensions) {
+				String t = entry.getKey().toLowerCase();
+				point.getExtensionsToWrite().put(GPXUtilities.getExtensionsSupportedTag(t), value);
+			}
+			if (POINT_SPEED.equals(tag)) {
+				try {
+					point.speed = Float.parseFloat(value);
+				} catch (NumberFormatException e) {
+					log.debug(e.getMessage(), e);
+				}
+			} else if (POINT_BEARING.equals(tag)) {
+				try {
+					point.bearing = Float.parseFloat(value);
+				} catch (NumberFormatException ignored) {
+				}
+			}
+		}
+	}
+
+	private static void resetPoint(WptPt point) {
+		point.lat = 0;
+		point.lon = 0;
+		point.name = null;
+		point.time = 0;
+		point.ele = Double.NaN;
+		point.speed = 0;
+		point.hdop = Double.NaN;
+		point.bearing = Float.NaN;
+		point.distance = 0;
+		point.firstPoint = false;
+		point.lastPoint = false;
+		if (point.extensions != null) {
+			point.extensions.clear();
+		}
+	}
+
+	/**
+	 * Calculates analysis of all track segments without loading gpx file into memory
+	 * (same result as {@link GPXFile#getAnalysis(long)} except waypoint categories).
+	 */
+	public static GPXTrackAnalysis analyse(File file, TrackPointsAnalyser pointsAnalyser) throws IOException, XmlPullParserException {
+		GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		analysis.name = file.getAbsolutePath();
+		IncrementalTrackAnalysis calculator = new IncrementalTrackAnalysis(analysis, pointsAnalyser, false);
+		GPXStreamReader reader = new GPXStreamReader(calculator);
+		reader.setReadExtensions(pointsAnalyser != null);
+		reader.read(file);
+		analysis.setWptPoints(reader.getWptPoints());
+		return calculator.finish(file.lastModified());
+	}
+}
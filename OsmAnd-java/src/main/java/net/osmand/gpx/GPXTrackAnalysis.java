@@ -427,211 +427,22 @@ public class GPXTrackAnalysis {
 	}
 
 	public GPXTrackAnalysis prepareInformation(long fileTimeStamp, TrackPointsAnalyser pointsAnalyser, SplitSegment... splitSegments) {
-		float[] calculations = new float[1];
-
-		long startTimeOfSingleSegment = 0;
-		long endTimeOfSingleSegment = 0;
-
-		float distanceOfSingleSegment = 0;
-		float distanceMovingOfSingleSegment = 0;
-		long timeMovingOfSingleSegment = 0;
-
-		float totalElevation = 0;
-		int elevationPoints = 0;
-		int speedCount = 0;
-		long timeDiffMillis = 0;
-		int timeDiff = 0;
-		double totalSpeedSum = 0;
-
-		int sensorSpeedCount = 0;
-		double totalSensorSpeedSum = 0;
-		int sensorHrCount = 0;
-		double totalSensorHrSum = 0;
-		int sensorPowerCount = 0;
-		double totalSensorPowerSum = 0;
-		int sensorTemperatureCount = 0;
-		double totalSensorTemperatureSum = 0;
-		int sensorCadenceCount = 0;
-		double totalSensorCadenceSum = 0;
-
-		setPoints(0);
-
-		pointAttributes = new ArrayList<>();
-		availableAttributes = new HashSet<>();
+		IncrementalTrackAnalysis calculator = new IncrementalTrackAnalysis(this, pointsAnalyser, true);
 		for (final SplitSegment s : splitSegments) {
 			final int numberOfPoints = s.getNumberOfPoints();
-			float segmentDistance = 0f;
 			metricEnd += s.metricEnd;
 			secondaryMetricEnd += s.secondaryMetricEnd;
-			setPoints(getPoints() + numberOfPoints);
 			expectedRouteDuration += getExpectedRouteSegmentDuration(s);
+			calculator.startSegment(s.segment.generalSegment, s.metricEnd == 0, numberOfPoints);
 			for (int j = 0; j < numberOfPoints; j++) {
-				WptPt point = s.get(j);
-				if (j == 0 && locationStart == null) {
-					locationStart = point;
-					setLatLonStart(point.lat, point.lon);
-				}
-				if (j == numberOfPoints - 1) {
-					locationEnd = point;
-				}
-				long time = point.time;
-				if (time != 0) {
-					if (s.metricEnd == 0) {
-						if (s.segment.generalSegment) {
-							if (point.firstPoint) {
-								startTimeOfSingleSegment = time;
-							} else if (point.lastPoint) {
-								endTimeOfSingleSegment = time;
-							}
-							if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
-								timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
-								startTimeOfSingleSegment = 0;
-								endTimeOfSingleSegment = 0;
-							}
-						}
-					}
-					setStartTime(Math.min(getStartTime(), time));
-					setEndTime(Math.max(getEndTime(), time));
-				}
-				updateBounds(point);
-
-				float speed = (float) point.speed;
-				if (speed > 0) {
-					hasSpeedInTrack = true;
-				}
-				updateHdop(point);
-
-				if (j > 0) {
-					WptPt prev = s.get(j - 1);
-
-					// Old complete summation approach for elevation gain/loss
-					//if (!Double.isNaN(point.ele) && !Double.isNaN(prev.ele)) {
-					//	double diff = point.ele - prev.ele;
-					//	if (diff > 0) {
-					//		diffElevationUp += diff;
-					//	} else {
-					//		diffElevationDown -= diff;
-					//	}
-					//}
-
-					// totalDistance += MapUtils.getDistance(prev.lat, prev.lon, point.lat, point.lon);
-					// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
-					// a little more exact, also seems slightly faster:
-					net.osmand.Location.distanceBetween(prev.lat, prev.lon, point.lat, point.lon, calculations);
-					setTotalDistance(getTotalDistance() + calculations[0]);
-					segmentDistance += calculations[0];
-					point.distance = segmentDistance;
-
-					// In case points are reversed and => time is decreasing
-					timeDiffMillis = Math.max(0, point.time - prev.time);
-					timeDiff = (int) ((timeDiffMillis) / 1000);
-
-					//Last resort: Derive speed values from displacement if track does not originally contain speed
-					if (!hasSpeedInTrack && speed == 0 && timeDiff > 0) {
-						speed = calculations[0] / timeDiff;
-					}
-
-					// Motion detection:
-					//   speed > 0  uses GPS chipset's motion detection
-					//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
-					boolean timeSpecified = point.time != 0 && prev.time != 0;
-					if (speed > 0 && timeSpecified && calculations[0] > timeDiffMillis / 10000f) {
-						setTimeMoving(getTimeMoving() + timeDiffMillis);
-						setTotalDistanceMoving(getTotalDistanceMoving() + calculations[0]);
-						if (s.segment.generalSegment && !point.firstPoint) {
-							timeMovingOfSingleSegment += timeDiffMillis;
-							distanceMovingOfSingleSegment += calculations[0];
-						}
-					}
-
-					//Next few lines for Issue 3222 heuristic testing only
-					//	if (speed > 0 && point.time != 0 && prev.time != 0) {
-					//		timeMoving0 = timeMoving0 + (point.time - prev.time);
-					//		totalDistanceMoving0 += calculations[0];
-					//	}
-				}
-				setMinSpeed(Math.min(speed, getMinSpeed()));
-				if (speed > 0 && !Float.isInfinite(speed)) {
-					totalSpeedSum += speed;
-					setMaxSpeed(Math.max(speed, getMaxSpeed()));
-					speedCount++;
-				}
-				boolean isNaN = Double.isNaN(point.ele);
-				float elevation = isNaN ? Float.NaN : (float) point.ele;
-				if (!isNaN) {
-					totalElevation += point.ele;
-					elevationPoints++;
-					setMinElevation(Math.min(point.ele, getMinElevation()));
-					setMaxElevation(Math.max(point.ele, getMaxElevation()));
-				}
-
-				boolean firstPoint = false;
-				boolean lastPoint = false;
-				if (s.segment.generalSegment) {
-					distanceOfSingleSegment += calculations[0];
-					if (point.firstPoint) {
-						firstPoint = j > 0;
-						distanceOfSingleSegment = 0;
-						timeMovingOfSingleSegment = 0;
-						distanceMovingOfSingleSegment = 0;
-					}
-					if (point.lastPoint) {
-						lastPoint = j < numberOfPoints - 1;
-						totalDistanceWithoutGaps += distanceOfSingleSegment;
-						timeMovingWithoutGaps += timeMovingOfSingleSegment;
-						totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
-					}
-				}
-				float distance = (j > 0) ? calculations[0] : 0;
-				PointAttributes attribute = new PointAttributes(distance, timeDiff, firstPoint, lastPoint);
-				attribute.speed = speed;
-				attribute.elevation = elevation;
-				addWptAttribute(point, attribute, pointsAnalyser);
-				if (attribute.sensorSpeed > 0 && !Float.isInfinite(attribute.sensorSpeed)) {
-					setMaxSensorSpeed(Math.max(attribute.sensorSpeed, getMaxSensorSpeed()));
-					sensorSpeedCount++;
-					totalSensorSpeedSum += attribute.sensorSpeed;
-				}
-
-				if (attribute.bikeCadence > 0) {
-					setMaxSensorCadence(Math.max(attribute.bikeCadence, getMaxSensorCadence()));
-					sensorCadenceCount++;
-					totalSensorCadenceSum += attribute.bikeCadence;
-				}
-
-				if (attribute.heartRate > 0) {
-					setMaxSensorHr(Math.max((int) attribute.heartRate, getMaxSensorHr()));
-					sensorHrCount++;
-					totalSensorHrSum += attribute.heartRate;
-				}
-
-				float temperature = attribute.getTemperature();
-				if (temperature > 0) {
-					setMaxSensorTemperature(Math.max((int) temperature, getMaxSensorTemperature()));
-					sensorTemperatureCount++;
-					totalSensorTemperatureSum += temperature;
-				}
-
-				if (attribute.bikePower > 0) {
-					setMaxSensorPower(Math.max((int) attribute.bikePower, getMaxSensorPower()));
-					sensorPowerCount++;
-					totalSensorPowerSum += attribute.bikePower;
-				}
+				calculator.addPoint(s.get(j), j == numberOfPoints - 1);
 			}
-			processElevationDiff(s);
+			calculator.finishSegment();
 		}
-		checkUnspecifiedValues(fileTimeStamp);
-		processAverageValues(totalElevation, elevationPoints, totalSpeedSum, speedCount);
-
-		setAvgSensorSpeed(processAverageValue(totalSensorSpeedSum, sensorSpeedCount));
-		setAvgSensorCadence(processAverageValue(totalSensorCadenceSum, sensorCadenceCount));
-		setAvgSensorHr(processAverageValue(totalSensorHrSum, sensorHrCount));
-		setAvgSensorPower(processAverageValue(totalSensorPowerSum, sensorPowerCount));
-		setAvgSensorTemperature(processAverageValue(totalSensorTemperatureSum, sensorTemperatureCount));
-		return this;
+		return calculator.finish(fileTimeStamp);
 	}
 
-	private void addWptAttribute(WptPt point, PointAttributes attribute, TrackPointsAnalyser pointsAnalyser) {
+	void addWptAttribute(WptPt point, PointAttributes attribute, TrackPointsAnalyser pointsAnalyser, boolean collectAttribute) {
 		if (!hasSpeedData() && attribute.speed > 0 && getTotalDistance() > 0) {
 			setHasData(POINT_SPEED, true);
 		}
@@ -641,10 +452,12 @@ public class GPXTrackAnalysis {
 		if (pointsAnalyser != null) {
 			pointsAnalyser.onAnalysePoint(this, point, attribute);
 		}
-		pointAttributes.add(attribute);
+		if (collectAttribute) {
+			pointAttributes.add(attribute);
+		}
 	}
 
-	private void updateBounds(WptPt point) {
+	void updateBounds(WptPt point) {
 		if (left == 0 && right == 0) {
 			left = point.getLongitude();
 			right = point.getLongitude();
@@ -658,7 +471,7 @@ public class GPXTrackAnalysis {
 		}
 	}
 
-	private void updateHdop(WptPt point) {
+	void updateHdop(WptPt point) {
 		double hdop = point.hdop;
 		if (hdop > 0) {
 			if (Double.isNaN(minHdop) || hdop < minHdop) {
@@ -670,7 +483,7 @@ public class GPXTrackAnalysis {
 		}
 	}
 
-	private void checkUnspecifiedValues(long fileTimeStamp) {
+	void checkUnspecifiedValues(long fileTimeStamp) {
 		if (getTotalDistance() < 0) {
 			availableAttributes.clear();
 		}
@@ -703,7 +516,7 @@ public class GPXTrackAnalysis {
 		return 0;
 	}
 
-	private void processAverageValues(float totalElevation, int elevationPoints, double totalSpeedSum, int speedCount) {
+	void processAverageValues(float totalElevation, int elevationPoints, double totalSpeedSum, int speedCount) {
 		if (elevationPoints > 0) {
 			setAvgElevation(totalElevation / elevationPoints);
 		}
@@ -720,7 +533,7 @@ public class GPXTrackAnalysis {
 		}
 	}
 
-	private Float processAverageValue(Number totalSum, int valuesCount) {
+	Float processAverageValue(Number totalSum, int valuesCount) {
 		if (valuesCount > 0) {
 			return (float) ((double) totalSum / valuesCount);
 		} else {
@@ -728,41 +541,11 @@ public class GPXTrackAnalysis {
 		}
 	}
 
-	private void processElevationDiff(SplitSegment segment) {
-		ElevationApproximator approximator = getElevationApproximator(segment);
-		approximator.approximate();
-		final double[] distances = approximator.getDistances();
-		final double[] elevations = approximator.getElevations();
-		if (distances != null && elevations != null) {
-			ElevationDiffsCalculator elevationDiffsCalc = getElevationDiffsCalculator(distances, elevations);
-			elevationDiffsCalc.calculateElevationDiffs();
-			setDiffElevationUp(getDiffElevationUp() + elevationDiffsCalc.getDiffElevationUp());
-			setDiffElevationDown(getDiffElevationDown() + elevationDiffsCalc.getDiffElevationDown());
-		}
-	}
-
-	private ElevationApproximator getElevationApproximator(final SplitSegment segment) {
-		return new ElevationApproximator() {
-			@Override
-			public double getPointLatitude(int index) {
-				return segment.get(index).lat;
-			}
-
-			@Override
-			public double getPointLongitude(int index) {
-				return segment.get(index).lon;
-			}
-
-			@Override
-			public double getPointElevation(int index) {
-				return segment.get(index).ele;
-			}
-
-			@Override
-			public int getPointsCount() {
-				return segment.getNumberOfPoints();
-			}
-		};
+	void processElevationDiff(double[] distances, double[] elevations) {
+		ElevationDiffsCalculator elevationDiffsCalc = getElevationDiffsCalculator(distances, elevations);
+		elevationDiffsCalc.calculateElevationDiffs();
+		setDiffElevationUp(getDiffElevationUp() + elevationDiffsCalc.getDiffElevationUp());
+		setDiffElevationDown(getDiffElevationDown() + elevationDiffsCalc.getDiffElevationDown());
 	}
 
 	private ElevationDiffsCalculator getElevationDiffsCalculator(final double[] distances, final double[] elevations) {
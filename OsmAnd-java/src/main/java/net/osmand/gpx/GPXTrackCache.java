@@ -0,0 +1,741 @@
+package net.osmand.gpx;
+
+import net.osmand.PlatformUtil;
+import net.osmand.gpx.GPXUtilities.Metadata;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Binary columnar sidecar (<i>track.gpx.trkc</i>) written next to gpx file after first parse.
+ * It keeps precomputed {@link GPXTrackAnalysis} and track points as delta encoded columns
+ * (lat / lon / time / ele ...), sidecar is valid while size and modification time of gpx file are the same.
+ * <p>
+ * Only files consisting of tracks (no waypoints, routes, route segments, point names, metadata author / links ...)
+ * are fully stored, for other files only analysis is cached and {@link GPXUtilities#loadGPXFile(File)} parses xml
+ * (valid sidecar of such file is kept). Loaded files keep cached analysis (see {@link GPXFile#getCachedAnalysis()}).
+ * {@link GPXTrackAnalysis#pointAttributes} are not stored.
+ */
+public class GPXTrackCache {
+
+	private static final Log log = PlatformUtil.getLog(GPXTrackCache.class);
+
+	public static boolean ENABLED = false;
+
+	public static final String CACHE_EXT = ".trkc";
+
+	private static final int MAGIC = 0x4f54524b; // OTRK
+	private static final int VERSION = 1;
+
+	private static final byte COLUMN_CONSTANT = 0;
+	private static final byte COLUMN_DELTA = 1;
+	private static final byte COLUMN_DOUBLE = 2;
+	private static final byte COLUMN_FLOAT = 3;
+
+	private static final double COORDINATE_SCALE = 1e7;
+	private static final double VALUE_SCALE = 100;
+
+	private static final byte TYPE_NULL = 0;
+	private static final byte TYPE_DOUBLE = 1;
+	private static final byte TYPE_FLOAT = 2;
+	private static final byte TYPE_INT = 3;
+	private static final byte TYPE_LONG = 4;
+	private static final byte TYPE_STRING = 5;
+	private static final byte TYPE_BOOLEAN = 6;
+
+	public static File getCacheFile(File gpx) {
+		return new File(gpx.getParentFile(), gpx.getName() + CACHE_EXT);
+	}
+
+	/**
+	 * @return gpx file restored from cache or null if there is no valid cache or file is not fully stored
+	 */
+	public static GPXFile loadGPXFile(File gpx, boolean addGeneralTrack) {
+		ByteBuffer buf = openCache(gpx);
+		if (buf == null || buf.get() == 0) {
+			return null;
+		}
+		try {
+			GPXTrackAnalysis analysis = readAnalysis(buf);
+			analysis.name = gpx.getAbsolutePath();
+			GPXFile gpxFile = readGpx(buf, null);
+			gpxFile.path = gpx.getAbsolutePath();
+			gpxFile.modifiedTime = gpx.lastModified();
+			gpxFile.pointsModifiedTime = gpxFile.modifiedTime;
+			if (addGeneralTrack) {
+				gpxFile.addGeneralTrack();
+			}
+			gpxFile.setCachedAnalysis(analysis);
+			return gpxFile;
+		} catch (RuntimeException e) {
+			log.error("Error reading gpx cache " + gpx.getAbsolutePath(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return analysis stored in cache (same as {@link GPXFile#getAnalysis(long)} with file modification time)
+	 * or null if there is no valid cache
+	 */
+	public static GPXTrackAnalysis getAnalysis(File gpx) {
+		ByteBuffer buf = openCache(gpx);
+		if (buf == null) {
+			return null;
+		}
+		try {
+			buf.get();
+			GPXTrackAnalysis analysis = readAnalysis(buf);
+			analysis.name = gpx.getAbsolutePath();
+			return analysis;
+		} catch (RuntimeException e) {
+			log.error("Error reading gpx cache " + gpx.getAbsolutePath(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return points of all (not general) track segments without creating {@link WptPt} objects
+	 * or null if there is no valid cache or file is not fully stored
+	 */
+	public static List<ColumnarTrkSegment> loadSegments(File gpx) {
+		ByteBuffer buf = openCache(gpx);
+		if (buf == null || buf.get() == 0) {
+			return null;
+		}
+		try {
+			readAnalysis(buf);
+			List<ColumnarTrkSegment> segments = new ArrayList<>();
+			readGpx(buf, segments);
+			return segments;
+		} catch (RuntimeException e) {
+			log.error("Error reading gpx cache " + gpx.getAbsolutePath(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes cache for just loaded gpx file (temporary file is renamed so readers never see partial cache)
+	 * and attaches calculated analysis to the file
+	 */
+	public static boolean write(File gpx, GPXFile gpxFile) {
+		File cache = getCacheFile(gpx);
+		File tmp = new File(cache.getParentFile(), cache.getName() + ".tmp");
+		FileOutputStream fos = null;
+		try {
+			long length = gpx.length();
+			long modified = gpx.lastModified();
+			boolean complete = isComplete(gpxFile);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(GPXTrackAnalysis.ANALYSIS_VERSION);
+			out.writeLong(length);
+			out.writeLong(modified);
+			out.writeByte(complete ? 1 : 0);
+			GPXTrackAnalysis analysis = calculateAnalysis(gpxFile, modified);
+			analysis.name = gpx.getAbsolutePath();
+			writeAnalysis(out, analysis);
+			if (complete) {
+				writeGpx(out, gpxFile);
+			}
+			out.flush();
+			fos = new FileOutputStream(tmp);
+			bytes.writeTo(fos);
+			fos.close();
+			fos = null;
+			cache.delete();
+			if (!tmp.renameTo(cache)) {
+				tmp.delete();
+				return false;
+			}
+			gpxFile.setCachedAnalysis(analysis);
+			return true;
+		} catch (IOException | RuntimeException e) {
+			log.error("Error writing gpx cache " + cache.getAbsolutePath(), e);
+			tmp.delete();
+			return false;
+		} finally {
+			Algorithms.closeStream(fos);
+		}
+	}
+
+	private static ByteBuffer openCache(File gpx) {
+		File cache = getCacheFile(gpx);
+		if (!cache.exists() || !gpx.exists()) {
+			return null;
+		}
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(cache, "r");
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION || buf.getInt() != GPXTrackAnalysis.ANALYSIS_VERSION
+					|| buf.getLong() != gpx.length() || buf.getLong() != gpx.lastModified()) {
+				return null;
+			}
+			return buf;
+		} catch (IOException | BufferUnderflowException e) {
+			log.debug("Gpx cache is not readable " + cache.getAbsolutePath(), e);
+			return null;
+		} finally {
+			Algorithms.closeStream(raf);
+		}
+	}
+
+	private static boolean isComplete(GPXFile gpxFile) {
+		Metadata metadata = gpxFile.metadata;
+		if (gpxFile.error != null || !gpxFile.points.isEmpty() || !gpxFile.routes.isEmpty()
+				|| !gpxFile.pointsGroups.isEmpty() || !gpxFile.networkRouteKeyTags.isEmpty()
+				|| metadata.author != null || metadata.copyright != null || metadata.bounds != null
+				|| metadata.link != null || metadata.keywords != null) {
+			return false;
+		}
+		for (Track track : gpxFile.tracks) {
+			if (track.generalTrack) {
+				continue;
+			}
+			for (TrkSegment segment : track.segments) {
+				if (!segment.routeSegments.isEmpty() || !segment.routeTypes.isEmpty()) {
+					return false;
+				}
+				for (WptPt point : segment.points) {
+					if (point.name != null || point.desc != null || point.comment != null
+							|| point.link != null || point.category != null) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private static GPXTrackAnalysis calculateAnalysis(GPXFile gpxFile, long fileTimestamp) {
+		// segments are copied, so distance of loaded points isn't changed
+		GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		analysis.setWptPoints(gpxFile.points.size());
+		analysis.setWptCategoryNames(gpxFile.getWaypointCategories());
+		IncrementalTrackAnalysis calculator = new IncrementalTrackAnalysis(analysis, null, false);
+		for (Track track : gpxFile.tracks) {
+			for (TrkSegment segment : track.segments) {
+				if (!segment.generalSegment) {
+					new ColumnarTrkSegment(segment).visit(calculator);
+				}
+			}
+		}
+		return calculator.finish(fileTimestamp);
+	}
+
+	private static void writeAnalysis(DataOutputStream out, GPXTrackAnalysis analysis) throws IOException {
+		for (GpxParameter parameter : GpxParameter.values()) {
+			if (parameter.isAnalysisParameter()) {
+				writeValue(out, analysis.getGpxParameter(parameter));
+			}
+		}
+		out.writeFloat(analysis.totalDistanceWithoutGaps);
+		out.writeLong(analysis.timeSpanWithoutGaps);
+		out.writeLong(analysis.expectedRouteDuration);
+		out.writeLong(analysis.timeMovingWithoutGaps);
+		out.writeFloat(analysis.totalDistanceMovingWithoutGaps);
+		out.writeDouble(analysis.minHdop);
+		out.writeDouble(analysis.maxHdop);
+		out.writeDouble(analysis.metricEnd);
+		out.writeDouble(analysis.secondaryMetricEnd);
+		out.writeDouble(analysis.left);
+		out.writeDouble(analysis.right);
+		out.writeDouble(analysis.top);
+		out.writeDouble(analysis.bottom);
+		out.writeByte(analysis.hasSpeedInTrack ? 1 : 0);
+		writeVarInt(out, analysis.availableAttributes.size());
+		for (String attribute : analysis.availableAttributes) {
+			writeString(out, attribute);
+		}
+		writeLocation(out, analysis.locationStart);
+		writeLocation(out, analysis.locationEnd);
+	}
+
+	private static GPXTrackAnalysis readAnalysis(ByteBuffer buf) {
+		GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		for (GpxParameter parameter : GpxParameter.values()) {
+			if (parameter.isAnalysisParameter()) {
+				Object value = readValue(buf);
+				if (value != null) {
+					analysis.setGpxParameter(parameter, value);
+				}
+			}
+		}
+		analysis.totalDistanceWithoutGaps = buf.getFloat();
+		analysis.timeSpanWithoutGaps = buf.getLong();
+		analysis.expectedRouteDuration = buf.getLong();
+		analysis.timeMovingWithoutGaps = buf.getLong();
+		analysis.totalDistanceMovingWithoutGaps = buf.getFloat();
+		analysis.minHdop = buf.getDouble();
+		analysis.maxHdop = buf.getDouble();
+		analysis.metricEnd = buf.getDouble();
+		analysis.secondaryMetricEnd = buf.getDouble();
+		analysis.left = buf.getDouble();
+		analysis.right = buf.getDouble();
+		analysis.top = buf.getDouble();
+		analysis.bottom = buf.getDouble();
+		analysis.hasSpeedInTrack = buf.get() != 0;
+		int attributes = readVarInt(buf);
+		Set<String> availableAttributes = new HashSet<>();
+		for (int i = 0; i < attributes; i++) {
+			availableAttributes.add(readString(buf));
+		}
+		analysis.availableAttributes = availableAttributes;
+		analysis.locationStart = readLocation(buf);
+		analysis.locationEnd = readLocation(buf);
+		return analysis;
+	}
+
+	private static void writeLocation(DataOutputStream out, WptPt point) throws IOException {
+		out.writeByte(point != null ? 1 : 0);
+		if (point != null) {
+			out.writeDouble(point.lat);
+			out.writeDouble(point.lon);
+			out.writeLong(point.time);
+			out.writeDouble(point.ele);
+			out.writeDouble(point.speed);
+			out.writeDouble(point.hdop);
+			out.writeFloat(point.bearing);
+			out.writeDouble(point.distance);
+		}
+	}
+
+	private static WptPt readLocation(ByteBuffer buf) {
+		if (buf.get() == 0) {
+			return null;
+		}
+		WptPt point = new WptPt();
+		point.lat = buf.getDouble();
+		point.lon = buf.getDouble();
+		point.time = buf.getLong();
+		point.ele = buf.getDouble();
+		point.speed = buf.getDouble();
+		point.hdop = buf.getDouble();
+		point.bearing = buf.getFloat();
+		point.distance = buf.getDouble();
+		return point;
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value instanceof Double) {
+			out.writeByte(TYPE_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			out.writeByte(TYPE_FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(TYPE_INT);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(TYPE_LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof String) {
+			out.writeByte(TYPE_STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(TYPE_BOOLEAN);
+			out.writeByte((Boolean) value ? 1 : 0);
+		} else {
+			out.writeByte(TYPE_NULL);
+		}
+	}
+
+	private static Object readValue(ByteBuffer buf) {
+		byte type = buf.get();
+		switch (type) {
+			case TYPE_DOUBLE:
+				return buf.getDouble();
+			case TYPE_FLOAT:
+				return buf.getFloat();
+			case TYPE_INT:
+				return buf.getInt();
+			case TYPE_LONG:
+				return buf.getLong();
+			case TYPE_STRING:
+				return readString(buf);
+			case TYPE_BOOLEAN:
+				return buf.get() != 0;
+			default:
+				return null;
+		}
+	}
+
+	private static void writeGpx(DataOutputStream out, GPXFile gpxFile) throws IOException {
+		writeString(out, gpxFile.author);
+		writeString(out, gpxFile.metadata.name);
+		writeString(out, gpxFile.metadata.desc);
+		out.writeLong(gpxFile.metadata.time);
+		writeMap(out, gpxFile.metadata.extensions, null);
+		writeMap(out, gpxFile.extensions, null);
+
+		// points are written to separate buffer to know dictionary of point extensions before them
+		Map<String, Integer> dictionary = new LinkedHashMap<>();
+		ByteArrayOutputStream tracksBytes = new ByteArrayOutputStream();
+		DataOutputStream tracksOut = new DataOutputStream(tracksBytes);
+		List<Track> tracks = new ArrayList<>();
+		for (Track track : gpxFile.tracks) {
+			if (!track.generalTrack) {
+				tracks.add(track);
+			}
+		}
+		writeVarInt(tracksOut, tracks.size());
+		for (Track track : tracks) {
+			writeString(tracksOut, track.name);
+			writeString(tracksOut, track.desc);
+			writeMap(tracksOut, track.extensions, null);
+			writeVarInt(tracksOut, track.segments.size());
+			for (TrkSegment segment : track.segments) {
+				writeString(tracksOut, segment.name);
+				writeMap(tracksOut, segment.extensions, null);
+				writeSegmentPoints(tracksOut, segment.points, dictionary);
+			}
+		}
+		tracksOut.flush();
+		writeVarInt(out, dictionary.size());
+		for (String s : dictionary.keySet()) {
+			writeString(out, s);
+		}
+		tracksBytes.writeTo(out);
+	}
+
+	/**
+	 * @param columnar if it's not null, segments are collected there without points and extensions
+	 */
+	private static GPXFile readGpx(ByteBuffer buf, List<ColumnarTrkSegment> columnar) {
+		GPXFile gpxFile = new GPXFile(readString(buf));
+		gpxFile.metadata.name = readString(buf);
+		gpxFile.metadata.desc = readString(buf);
+		gpxFile.metadata.time = buf.getLong();
+		gpxFile.metadata.extensions = readMap(buf, null);
+		gpxFile.extensions = readMap(buf, null);
+		String[] dictionary = readDictionary(buf);
+		int tracks = readVarInt(buf);
+		for (int t = 0; t < tracks; t++) {
+			Track track = new Track();
+			track.name = readString(buf);
+			track.desc = readString(buf);
+			track.extensions = readMap(buf, null);
+			int segments = readVarInt(buf);
+			for (int s = 0; s < segments; s++) {
+				String name = readString(buf);
+				Map<String, String> extensions = readMap(buf, null);
+				TrkSegment segment = new TrkSegment();
+				if (columnar != null) {
+					ColumnarTrkSegment columns = new ColumnarTrkSegment();
+					readSegmentPoints(buf, dictionary, null, columns);
+					columnar.add(columns);
+				} else {
+					readSegmentPoints(buf, dictionary, segment.points, null);
+				}
+				segment.name = name;
+				segment.extensions = extensions;
+				track.segments.add(segment);
+			}
+			gpxFile.tracks.add(track);
+		}
+		return gpxFile;
+	}
+
+	private static String[] readDictionary(ByteBuffer buf) {
+		String[] dictionary = new String[readVarInt(buf)];
+		for (int i = 0; i < dictionary.length; i++) {
+			dictionary[i] = readString(buf);
+		}
+		return dictionary;
+	}
+
+	private static void writeSegmentPoints(DataOutputStream out, List<WptPt> points, Map<String, Integer> dictionary) throws IOException {
+		int size = points.size();
+		writeVarInt(out, size);
+		double[] values = new double[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = points.get(i).lat;
+		}
+		writeColumn(out, values, COORDINATE_SCALE, false);
+		for (int i = 0; i < size; i++) {
+			values[i] = points.get(i).lon;
+		}
+		writeColumn(out, values, COORDINATE_SCALE, false);
+		for (int i = 0; i < size; i++) {
+			values[i] = points.get(i).ele;
+		}
+		writeColumn(out, values, VALUE_SCALE, false);
+		for (int i = 0; i < size; i++) {
+			values[i] = points.get(i).speed;
+		}
+		writeColumn(out, values, VALUE_SCALE, false);
+		for (int i = 0; i < size; i++) {
+			values[i] = points.get(i).hdop;
+		}
+		writeColumn(out, values, VALUE_SCALE, false);
+		for (int i = 0; i < size; i++) {
+			values[i] = points.get(i).bearing;
+		}
+		writeColumn(out, values, VALUE_SCALE, true);
+		long prevTime = 0;
+		for (WptPt point : points) {
+			writeVarLong(out, point.time - prevTime);
+			prevTime = point.time;
+		}
+		boolean hasExtensions = false;
+		for (WptPt point : points) {
+			if (!point.getExtensionsToRead().isEmpty()) {
+				hasExtensions = true;
+				break;
+			}
+		}
+		out.writeByte(hasExtensions ? 1 : 0);
+		if (hasExtensions) {
+			for (WptPt point : points) {
+				writeMap(out, point.extensions, dictionary);
+			}
+		}
+	}
+
+	private static void readSegmentPoints(ByteBuffer buf, String[] dictionary, List<WptPt> points, ColumnarTrkSegment columns) {
+		int size = readVarInt(buf);
+		double[] lat = readColumn(buf, size);
+		double[] lon = readColumn(buf, size);
+		double[] ele = readColumn(buf, size);
+		double[] speed = readColumn(buf, size);
+		double[] hdop = readColumn(buf, size);
+		double[] bearing = readColumn(buf, size);
+		WptPt reused = new WptPt();
+		long time = 0;
+		for (int i = 0; i < size; i++) {
+			WptPt point = points != null ? new WptPt() : reused;
+			point.lat = lat[i];
+			point.lon = lon[i];
+			point.ele = ele[i];
+			point.speed = speed[i];
+			point.hdop = hdop[i];
+			point.bearing = (float) bearing[i];
+			time += readVarLong(buf);
+			point.time = time;
+			if (points != null) {
+				points.add(point);
+			} else {
+				columns.add(point);
+			}
+		}
+		if (buf.get() != 0) {
+			for (int i = 0; i < size; i++) {
+				Map<String, String> extensions = readMap(buf, dictionary);
+				if (points != null) {
+					points.get(i).extensions = extensions;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Column is stored as single value if all values are the same (i.e. NaN elevation),
+	 * as zigzag varint deltas of scaled values if values could be restored exactly, otherwise as raw values.
+	 */
+	private static void writeColumn(DataOutputStream out, double[] values, double scale, boolean floatValues) throws IOException {
+		int size = values.length;
+		boolean constant = true;
+		for (int i = 1; i < size && constant; i++) {
+			constant = Double.doubleToLongBits(values[i]) == Double.doubleToLongBits(values[0]);
+		}
+		if (constant) {
+			out.writeByte(COLUMN_CONSTANT);
+			out.writeDouble(size > 0 ? values[0] : 0);
+			return;
+		}
+		long[] scaled = new long[size];
+		boolean delta = true;
+		for (int i = 0; i < size && delta; i++) {
+			double v = values[i];
+			if (Double.isNaN(v) || Double.isInfinite(v) || Math.abs(v * scale) > Long.MAX_VALUE / 4) {
+				delta = false;
+			} else {
+				scaled[i] = Math.round(v * scale);
+				delta = restore(scaled[i], scale, floatValues) == v;
+			}
+		}
+		if (delta) {
+			out.writeByte(floatValues ? COLUMN_DELTA | 0x10 : COLUMN_DELTA);
+			out.writeDouble(scale);
+			long prev = 0;
+			for (long v : scaled) {
+				writeVarLong(out, v - prev);
+				prev = v;
+			}
+		} else if (floatValues) {
+			out.writeByte(COLUMN_FLOAT);
+			for (double v : values) {
+				out.writeFloat((float) v);
+			}
+		} else {
+			out.writeByte(COLUMN_DOUBLE);
+			for (double v : values) {
+				out.writeDouble(v);
+			}
+		}
+	}
+
+	private static double[] readColumn(ByteBuffer buf, int size) {
+		double[] values = new double[size];
+		byte type = buf.get();
+		switch (type & 0xf) {
+			case COLUMN_CONSTANT:
+				double value = buf.getDouble();
+				for (int i = 0; i < size; i++) {
+					values[i] = value;
+				}
+				break;
+			case COLUMN_DELTA:
+				boolean floatValues = (type & 0x10) != 0;
+				double scale = buf.getDouble();
+				long v = 0;
+				for (int i = 0; i < size; i++) {
+					v += readVarLong(buf);
+					values[i] = restore(v, scale, floatValues);
+				}
+				break;
+			case COLUMN_FLOAT:
+				for (int i = 0; i < size; i++) {
+					values[i] = buf.getFloat();
+				}
+				break;
+			case COLUMN_DOUBLE:
+				for (int i = 0; i < size; i++) {
+					values[i] = buf.getDouble();
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unknown column type " + type);
+		}
+		return values;
+	}
+
+	private static double restore(long scaled, double scale, boolean floatValue) {
+		double v = scaled / scale;
+		return floatValue ? (float) v : v;
+	}
+
+	/**
+	 * Map is written as count + 1 (0 is null map), strings are written as indexes if dictionary is used
+	 */
+	private static void writeMap(DataOutputStream out, Map<String, String> map, Map<String, Integer> dictionary) throws IOException {
+		if (map == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		writeVarInt(out, map.size() + 1);
+		for (Entry<String, String> entry : map.entrySet()) {
+			if (dictionary != null) {
+				writeVarInt(out, getDictionaryIndex(dictionary, entry.getKey()));
+				writeVarInt(out, getDictionaryIndex(dictionary, entry.getValue()));
+			} else {
+				writeString(out, entry.getKey());
+				writeString(out, entry.getValue());
+			}
+		}
+	}
+
+	private static int getDictionaryIndex(Map<String, Integer> dictionary, String s) {
+		if (s == null) {
+			return 0;
+		}
+		Integer ind = dictionary.get(s);
+		if (ind == null) {
+			ind = dictionary.size();
+			dictionary.put(s, ind);
+		}
+		return ind + 1;
+	}
+
+	private static Map<String, String> readMap(ByteBuffer buf, String[] dictionary) {
+		int size = readVarInt(buf) - 1;
+		if (size < 0) {
+			return null;
+		}
+		Map<String, String> map = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			if (dictionary != null) {
+				int key = readVarInt(buf);
+				int value = readVarInt(buf);
+				map.put(key == 0 ? null : dictionary[key - 1], value == 0 ? null : dictionary[value - 1]);
+			} else {
+				map.put(readString(buf), readString(buf));
+			}
+		}
+		return map;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length + 1);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buf) {
+		int length = readVarInt(buf) - 1;
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		writeVarLong(out, value);
+	}
+
+	private static int readVarInt(ByteBuffer buf) {
+		return (int) readVarLong(buf);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		long v = (value << 1) ^ (value >> 63);
+		while ((v & ~0x7FL) != 0) {
+			out.writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	private static long readVarLong(ByteBuffer buf) {
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buf.get();
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (v >>> 1) ^ -(v & 1);
+	}
+}
@@ -1536,6 +1536,17 @@ public class GPXUtilities {
 	}
 
 	public static GPXFile loadGPXFile(File file, GPXExtensionsReader extensionsReader, boolean addGeneralTrack) {
+		// custom extensions reader could keep data outside of GPXFile, so cache isn't used
+		boolean useCache = GPXTrackCache.ENABLED && extensionsReader == null;
+		GPXTrackAnalysis cachedAnalysis = null;
+		if (useCache) {
+			GPXFile cached = GPXTrackCache.loadGPXFile(file, addGeneralTrack);
+			if (cached != null) {
+				return cached;
+			}
+			// valid cache of file which isn't fully stored keeps only analysis
+			cachedAnalysis = GPXTrackCache.getAnalysis(file);
+		}
 		FileInputStream fis = null;
 		try {
 			fis = new FileInputStream(file);
@@ -1547,6 +1558,10 @@ public class GPXUtilities {
 			Algorithms.closeStream(fis);
 			if (gpxFile.error != null) {
 				log.info("Error reading gpx " + gpxFile.path);
+			} else if (cachedAnalysis != null) {
+				gpxFile.setCachedAnalysis(cachedAnalysis);
+			} else if (useCache) {
+				GPXTrackCache.write(file, gpxFile);
 			}
 			return gpxFile;
 		} catch (IOException e) {
@@ -1947,7 +1962,7 @@ public class GPXUtilities {
 		return gpxFile;
 	}
 
-	private static String getExtensionsSupportedTag(String tag) {
+	static String getExtensionsSupportedTag(String tag) {
 		String supportedTag = SUPPORTED_EXTENSION_TAGS.get(tag);
 		return supportedTag == null ? tag : supportedTag;
 	}
@@ -1998,7 +2013,7 @@ public class GPXUtilities {
 		return pointsGroups;
 	}
 
-	private static Reader getUTF8Reader(InputStream f) throws IOException {
+	static Reader getUTF8Reader(InputStream f) throws IOException {
 		BufferedInputStream bis = new BufferedInputStream(f);
 		assert bis.markSupported();
 		bis.mark(3);
@@ -0,0 +1,91 @@
+package net.osmand.gpx;
+
+import net.osmand.util.MapUtils;
+
+import java.util.Arrays;
+
+/**
+ * Same approximation as {@link ElevationApproximator} but points are added one by one,
+ * only points which survive filtering are kept in memory.
+ */
+public class IncrementalElevationApproximator {
+
+	private static final double SLOPE_THRESHOLD = 70.0;
+
+	private int pointsCount;
+	// 1st pass (local extremums): last survived elevation and point waiting for the next one
+	private int firstPassCount;
+	private double lastSurvivedEle;
+	private double pendingLat;
+	private double pendingLon;
+	private double pendingEle;
+	// 2nd pass (slope filter)
+	private double lastLat;
+	private double lastLon;
+	private double lastEle;
+	private double[] distances = new double[16];
+	private double[] elevations = new double[16];
+	private int survivedCount;
+
+	public void addPoint(double lat, double lon, double ele) {
+		if (pointsCount == 0) {
+			lastSurvivedEle = ele;
+			firstPassCount = 1;
+			addSurvived(lat, lon, ele);
+		} else if (pointsCount > 1) {
+			if ((pendingEle - lastSurvivedEle) * (ele - pendingEle) > 0) {
+				lastSurvivedEle = pendingEle;
+				firstPassCount++;
+				addSurvived(pendingLat, pendingLon, pendingEle);
+			}
+		}
+		if (pointsCount > 0) {
+			pendingLat = lat;
+			pendingLon = lon;
+			pendingEle = ele;
+		}
+		pointsCount++;
+	}
+
+	private void addSurvived(double lat, double lon, double ele) {
+		double dist = 0;
+		if (survivedCount > 0) {
+			dist = MapUtils.getDistance(lat, lon, lastLat, lastLon);
+			double slope = (ele - lastEle) * 100 / dist;
+			if (Math.abs(slope) > SLOPE_THRESHOLD) {
+				return;
+			}
+		}
+		if (survivedCount == distances.length) {
+			distances = Arrays.copyOf(distances, survivedCount * 2);
+			elevations = Arrays.copyOf(elevations, survivedCount * 2);
+		}
+		distances[survivedCount] = dist;
+		elevations[survivedCount] = ele;
+		survivedCount++;
+		lastLat = lat;
+		lastLon = lon;
+		lastEle = ele;
+	}
+
+	/**
+	 * Completes approximation (last point always survives 1st pass).
+	 * @return false if there are not enough points (same as {@link ElevationApproximator#approximate()})
+	 */
+	public boolean finish() {
+		if (pointsCount < 4) {
+			return false;
+		}
+		firstPassCount++;
+		addSurvived(pendingLat, pendingLon, pendingEle);
+		return firstPassCount >= 4 && survivedCount >= 4;
+	}
+
+	public double[] getDistances() {
+		return Arrays.copyOf(distances, survivedCount);
+	}
+
+	public double[] getElevations() {
+		return Arrays.copyOf(elevations, survivedCount);
+	}
+}
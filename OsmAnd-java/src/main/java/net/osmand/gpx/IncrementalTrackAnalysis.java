@@ -0,0 +1,295 @@
+package net.osmand.gpx;
+
+import net.osmand.gpx.GPXStreamReader.TrackPointsVisitor;
+import net.osmand.gpx.GPXTrackAnalysis.TrackPointsAnalyser;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Calculates {@link GPXTrackAnalysis} point by point without keeping points in memory,
+ * used by {@link GPXTrackAnalysis#prepareInformation} and as visitor of {@link GPXStreamReader}
+ * (visited points could be reused by caller, segments with single point are skipped as in {@link GPXFile#getAnalysis}).
+ */
+public class IncrementalTrackAnalysis implements TrackPointsVisitor {
+
+	private final GPXTrackAnalysis analysis;
+	private final TrackPointsAnalyser pointsAnalyser;
+	private final boolean collectPointAttributes;
+
+	private final float[] calculations = new float[1];
+
+	private long startTimeOfSingleSegment = 0;
+	private long endTimeOfSingleSegment = 0;
+
+	private float distanceOfSingleSegment = 0;
+	private float distanceMovingOfSingleSegment = 0;
+	private long timeMovingOfSingleSegment = 0;
+
+	private float totalElevation = 0;
+	private int elevationPoints = 0;
+	private int speedCount = 0;
+	private long timeDiffMillis = 0;
+	private int timeDiff = 0;
+	private double totalSpeedSum = 0;
+
+	private int sensorSpeedCount = 0;
+	private double totalSensorSpeedSum = 0;
+	private int sensorHrCount = 0;
+	private double totalSensorHrSum = 0;
+	private int sensorPowerCount = 0;
+	private double totalSensorPowerSum = 0;
+	private int sensorTemperatureCount = 0;
+	private double totalSensorTemperatureSum = 0;
+	private int sensorCadenceCount = 0;
+	private double totalSensorCadenceSum = 0;
+
+	// current segment
+	private boolean generalSegment;
+	private boolean withoutMetric;
+	private boolean countPoints;
+	private int pointIndex;
+	private float segmentDistance;
+	private double prevLat;
+	private double prevLon;
+	private long prevTime;
+	private IncrementalElevationApproximator approximator;
+
+	// visitor mode: first point is kept till the second one, last point is copied for locationEnd
+	private int visitedPoints;
+	private WptPt firstVisited;
+	private final WptPt lastVisited = new WptPt();
+
+	/**
+	 * @param collectPointAttributes keep {@link PointAttributes} of each point in analysis (memory is proportional to points)
+	 */
+	public IncrementalTrackAnalysis(GPXTrackAnalysis analysis, TrackPointsAnalyser pointsAnalyser, boolean collectPointAttributes) {
+		this.analysis = analysis;
+		this.pointsAnalyser = pointsAnalyser;
+		this.collectPointAttributes = collectPointAttributes;
+		analysis.setPoints(0);
+		analysis.pointAttributes = new ArrayList<>();
+		analysis.availableAttributes = new HashSet<>();
+	}
+
+	@Override
+	public void startSegment() {
+		analysis.setTotalTracks(analysis.getTotalTracks() + 1);
+		visitedPoints = 0;
+		firstVisited = null;
+	}
+
+	@Override
+	public void visitPoint(WptPt point) {
+		visitedPoints++;
+		if (visitedPoints == 1) {
+			firstVisited = new WptPt(point);
+			return;
+		}
+		if (visitedPoints == 2) {
+			startSegment(false, true, -1);
+			addPoint(firstVisited, false);
+			firstVisited = null;
+		}
+		addPoint(point, false);
+		copyPoint(point, lastVisited);
+	}
+
+	@Override
+	public void endSegment() {
+		if (visitedPoints > 1) {
+			analysis.locationEnd = new WptPt(lastVisited);
+			finishSegment();
+		}
+		firstVisited = null;
+	}
+
+	private static void copyPoint(WptPt from, WptPt to) {
+		to.lat = from.lat;
+		to.lon = from.lon;
+		to.time = from.time;
+		to.ele = from.ele;
+		to.speed = from.speed;
+		to.hdop = from.hdop;
+		to.bearing = from.bearing;
+		to.distance = from.distance;
+	}
+
+	/**
+	 * @param pointsCount number of points in segment or -1 if it's unknown
+	 */
+	void startSegment(boolean generalSegment, boolean withoutMetric, int pointsCount) {
+		this.generalSegment = generalSegment;
+		this.withoutMetric = withoutMetric;
+		this.countPoints = pointsCount < 0;
+		if (!countPoints) {
+			analysis.setPoints(analysis.getPoints() + pointsCount);
+		}
+		pointIndex = 0;
+		segmentDistance = 0f;
+		approximator = new IncrementalElevationApproximator();
+	}
+
+	void addPoint(WptPt point, boolean lastInSegment) {
+		int j = pointIndex++;
+		if (countPoints) {
+			analysis.setPoints(analysis.getPoints() + 1);
+		}
+		if (j == 0 && analysis.locationStart == null) {
+			analysis.locationStart = countPoints ? new WptPt(point) : point;
+			analysis.setLatLonStart(point.lat, point.lon);
+		}
+		if (lastInSegment) {
+			analysis.locationEnd = point;
+		}
+		long time = point.time;
+		if (time != 0) {
+			if (withoutMetric) {
+				if (generalSegment) {
+					if (point.firstPoint) {
+						startTimeOfSingleSegment = time;
+					} else if (point.lastPoint) {
+						endTimeOfSingleSegment = time;
+					}
+					if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
+						analysis.timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
+						startTimeOfSingleSegment = 0;
+						endTimeOfSingleSegment = 0;
+					}
+				}
+			}
+			analysis.setStartTime(Math.min(analysis.getStartTime(), time));
+			analysis.setEndTime(Math.max(analysis.getEndTime(), time));
+		}
+		analysis.updateBounds(point);
+
+		float speed = (float) point.speed;
+		if (speed > 0) {
+			analysis.hasSpeedInTrack = true;
+		}
+		analysis.updateHdop(point);
+
+		if (j > 0) {
+			// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
+			// a little more exact, also seems slightly faster:
+			net.osmand.Location.distanceBetween(prevLat, prevLon, point.lat, point.lon, calculations);
+			analysis.setTotalDistance(analysis.getTotalDistance() + calculations[0]);
+			segmentDistance += calculations[0];
+			point.distance = segmentDistance;
+
+			// In case points are reversed and => time is decreasing
+			timeDiffMillis = Math.max(0, point.time - prevTime);
+			timeDiff = (int) ((timeDiffMillis) / 1000);
+
+			//Last resort: Derive speed values from displacement if track does not originally contain speed
+			if (!analysis.hasSpeedInTrack && speed == 0 && timeDiff > 0) {
+				speed = calculations[0] / timeDiff;
+			}
+
+			// Motion detection:
+			//   speed > 0  uses GPS chipset's motion detection
+			//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
+			boolean timeSpecified = point.time != 0 && prevTime != 0;
+			if (speed > 0 && timeSpecified && calculations[0] > timeDiffMillis / 10000f) {
+				analysis.setTimeMoving(analysis.getTimeMoving() + timeDiffMillis);
+				analysis.setTotalDistanceMoving(analysis.getTotalDistanceMoving() + calculations[0]);
+				if (generalSegment && !point.firstPoint) {
+					timeMovingOfSingleSegment += timeDiffMillis;
+					distanceMovingOfSingleSegment += calculations[0];
+				}
+			}
+		}
+		prevLat = point.lat;
+		prevLon = point.lon;
+		prevTime = point.time;
+		approximator.addPoint(point.lat, point.lon, point.ele);
+
+		analysis.setMinSpeed(Math.min(speed, analysis.getMinSpeed()));
+		if (speed > 0 && !Float.isInfinite(speed)) {
+			totalSpeedSum += speed;
+			analysis.setMaxSpeed(Math.max(speed, analysis.getMaxSpeed()));
+			speedCount++;
+		}
+		boolean isNaN = Double.isNaN(point.ele);
+		float elevation = isNaN ? Float.NaN : (float) point.ele;
+		if (!isNaN) {
+			totalElevation += point.ele;
+			elevationPoints++;
+			analysis.setMinElevation(Math.min(point.ele, analysis.getMinElevation()));
+			analysis.setMaxElevation(Math.max(point.ele, analysis.getMaxElevation()));
+		}
+
+		boolean firstPoint = false;
+		boolean lastPoint = false;
+		if (generalSegment) {
+			distanceOfSingleSegment += calculations[0];
+			if (point.firstPoint) {
+				firstPoint = j > 0;
+				distanceOfSingleSegment = 0;
+				timeMovingOfSingleSegment = 0;
+				distanceMovingOfSingleSegment = 0;
+			}
+			if (point.lastPoint) {
+				lastPoint = !lastInSegment;
+				analysis.totalDistanceWithoutGaps += distanceOfSingleSegment;
+				analysis.timeMovingWithoutGaps += timeMovingOfSingleSegment;
+				analysis.totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
+			}
+		}
+		float distance = (j > 0) ? calculations[0] : 0;
+		PointAttributes attribute = new PointAttributes(distance, timeDiff, firstPoint, lastPoint);
+		attribute.speed = speed;
+		attribute.elevation = elevation;
+		analysis.addWptAttribute(point, attribute, pointsAnalyser, collectPointAttributes);
+		if (attribute.sensorSpeed > 0 && !Float.isInfinite(attribute.sensorSpeed)) {
+			analysis.setMaxSensorSpeed(Math.max(attribute.sensorSpeed, analysis.getMaxSensorSpeed()));
+			sensorSpeedCount++;
+			totalSensorSpeedSum += attribute.sensorSpeed;
+		}
+
+		if (attribute.bikeCadence > 0) {
+			analysis.setMaxSensorCadence(Math.max(attribute.bikeCadence, analysis.getMaxSensorCadence()));
+			sensorCadenceCount++;
+			totalSensorCadenceSum += attribute.bikeCadence;
+		}
+
+		if (attribute.heartRate > 0) {
+			analysis.setMaxSensorHr(Math.max((int) attribute.heartRate, analysis.getMaxSensorHr()));
+			sensorHrCount++;
+			totalSensorHrSum += attribute.heartRate;
+		}
+
+		float temperature = attribute.getTemperature();
+		if (temperature > 0) {
+			analysis.setMaxSensorTemperature(Math.max((int) temperature, analysis.getMaxSensorTemperature()));
+			sensorTemperatureCount++;
+			totalSensorTemperatureSum += temperature;
+		}
+
+		if (attribute.bikePower > 0) {
+			analysis.setMaxSensorPower(Math.max((int) attribute.bikePower, analysis.getMaxSensorPower()));
+			sensorPowerCount++;
+			totalSensorPowerSum += attribute.bikePower;
+		}
+	}
+
+	void finishSegment() {
+		if (approximator.finish()) {
+			analysis.processElevationDiff(approximator.getDistances(), approximator.getElevations());
+		}
+		approximator = null;
+	}
+
+	public GPXTrackAnalysis finish(long fileTimeStamp) {
+		analysis.checkUnspecifiedValues(fileTimeStamp);
+		analysis.processAverageValues(totalElevation, elevationPoints, totalSpeedSum, speedCount);
+
+		analysis.setAvgSensorSpeed(analysis.processAverageValue(totalSensorSpeedSum, sensorSpeedCount));
+		analysis.setAvgSensorCadence(analysis.processAverageValue(totalSensorCadenceSum, sensorCadenceCount));
+		analysis.setAvgSensorHr(analysis.processAverageValue(totalSensorHrSum, sensorHrCount));
+		analysis.setAvgSensorPower(analysis.processAverageValue(totalSensorPowerSum, sensorPowerCount));
+		analysis.setAvgSensorTemperature(analysis.processAverageValue(totalSensorTemperatureSum, sensorTemperatureCount));
+		return analysis;
+	}
+}
@@ -0,0 +1,327 @@
+package net.osmand.render;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * Binary form of parsed and merged {@link RenderingRulesStorage} (dictionary, properties, rendering attributes
+ * and rule trees of each state), so style could be loaded without parsing and merging of xml files.
+ * Rules shared between several parents are written once. Caller is responsible to rewrite compiled style
+ * when source xml files are changed, reading of incompatible format throws {@link IOException}.
+ */
+public class CompiledRenderingStyle {
+
+	private static final int MAGIC = 0x4f425253; // OBRS
+	private static final int VERSION = 1;
+
+	public static void write(RenderingRulesStorage storage, OutputStream os) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, storage.renderingName);
+		writeString(out, storage.internalRenderingName);
+		writeString(out, storage.dependsName);
+		out.writeInt(storage.internalVersion);
+		writeMap(out, storage.renderingConstants);
+		out.writeInt(storage.dictionary.size());
+		for (String s : storage.dictionary) {
+			out.writeUTF(s);
+		}
+		writeProperties(out, storage.PROPS);
+
+		Map<RenderingRule, Integer> ids = new IdentityHashMap<RenderingRule, Integer>();
+		List<RenderingRule> rules = new ArrayList<RenderingRule>();
+		for (RenderingRule r : storage.renderingAttributes.values()) {
+			collectRules(r, ids, rules);
+		}
+		for (TIntObjectHashMap<RenderingRule> m : storage.tagValueGlobalRules) {
+			if (m != null) {
+				for (RenderingRule r : m.valueCollection()) {
+					collectRules(r, ids, rules);
+				}
+			}
+		}
+		out.writeInt(rules.size());
+		for (RenderingRule r : rules) {
+			writeRule(out, r, ids);
+		}
+		out.writeInt(storage.renderingAttributes.size());
+		for (Entry<String, RenderingRule> e : storage.renderingAttributes.entrySet()) {
+			out.writeUTF(e.getKey());
+			out.writeInt(ids.get(e.getValue()));
+		}
+		out.writeInt(storage.tagValueGlobalRules.length);
+		for (TIntObjectHashMap<RenderingRule> m : storage.tagValueGlobalRules) {
+			if (m == null) {
+				out.writeInt(-1);
+				continue;
+			}
+			out.writeInt(m.size());
+			TIntObjectIterator<RenderingRule> it = m.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				out.writeInt(it.key());
+				out.writeInt(ids.get(it.value()));
+			}
+		}
+		out.flush();
+	}
+
+	public static RenderingRulesStorage read(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a compiled rendering style");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version of compiled rendering style " + version);
+		}
+		String name = readString(in);
+		String internalName = readString(in);
+		String dependsName = readString(in);
+		int internalVersion = in.readInt();
+		RenderingRulesStorage storage = new RenderingRulesStorage(name, readMap(in));
+		storage.internalRenderingName = internalName;
+		storage.dependsName = dependsName;
+		storage.internalVersion = internalVersion;
+		storage.dictionary.clear();
+		storage.dictionaryMap.clear();
+		int dictionarySize = in.readInt();
+		for (int i = 0; i < dictionarySize; i++) {
+			storage.getDictionaryValue(in.readUTF());
+		}
+		RenderingRuleProperty[] props = readProperties(in, storage.PROPS);
+
+		int rulesSize = in.readInt();
+		RenderingRule[] rules = new RenderingRule[rulesSize];
+		// references are resolved when all rules are created
+		int[][] refs = new int[rulesSize][];
+		int[][] ifElseChildren = new int[rulesSize][];
+		int[][] ifChildren = new int[rulesSize][];
+		for (int i = 0; i < rulesSize; i++) {
+			boolean group = in.readBoolean();
+			int sz = in.readInt();
+			RenderingRuleProperty[] properties = new RenderingRuleProperty[sz];
+			int[] intProperties = new int[sz];
+			float[] floatProperties = new float[sz];
+			refs[i] = new int[sz];
+			for (int j = 0; j < sz; j++) {
+				properties[j] = props[in.readInt()];
+				intProperties[j] = in.readInt();
+				floatProperties[j] = in.readFloat();
+				refs[i][j] = in.readInt();
+			}
+			rules[i] = new RenderingRule(properties, intProperties, floatProperties, group, storage);
+			ifElseChildren[i] = readInts(in);
+			ifChildren[i] = readInts(in);
+			if (in.readBoolean()) {
+				rules[i].storeAttributes(readMap(in));
+			}
+		}
+		for (int i = 0; i < rulesSize; i++) {
+			RenderingRule r = rules[i];
+			for (int j = 0; j < refs[i].length; j++) {
+				if (refs[i][j] >= 0) {
+					r.setAttrProp(j, rules[refs[i][j]]);
+				}
+			}
+			for (int c : ifElseChildren[i]) {
+				r.addIfElseChildren(rules[c]);
+			}
+			for (int c : ifChildren[i]) {
+				r.addIfChildren(rules[c]);
+			}
+		}
+		int attrs = in.readInt();
+		for (int i = 0; i < attrs; i++) {
+			String attr = in.readUTF();
+			storage.renderingAttributes.put(attr, rules[in.readInt()]);
+		}
+		int states = in.readInt();
+		if (states != storage.tagValueGlobalRules.length) {
+			throw new IOException("Incompatible rendering states " + states);
+		}
+		for (int i = 0; i < states; i++) {
+			int sz = in.readInt();
+			if (sz >= 0) {
+				TIntObjectHashMap<RenderingRule> m = new TIntObjectHashMap<RenderingRule>();
+				for (int j = 0; j < sz; j++) {
+					int key = in.readInt();
+					m.put(key, rules[in.readInt()]);
+				}
+				storage.tagValueGlobalRules[i] = m;
+			}
+		}
+		storage.clearSearchCache();
+		storage.compile();
+		return storage;
+	}
+
+	private static void collectRules(RenderingRule r, Map<RenderingRule, Integer> ids, List<RenderingRule> rules) {
+		if (r == null || ids.containsKey(r)) {
+			return;
+		}
+		ids.put(r, rules.size());
+		rules.add(r);
+		for (int i = 0; i < r.getProperties().length; i++) {
+			collectRules(r.getAttrProp(i), ids, rules);
+		}
+		for (RenderingRule c : r.getIfElseChildren()) {
+			collectRules(c, ids, rules);
+		}
+		for (RenderingRule c : r.getIfChildren()) {
+			collectRules(c, ids, rules);
+		}
+	}
+
+	private static void writeRule(DataOutputStream out, RenderingRule r, Map<RenderingRule, Integer> ids)
+			throws IOException {
+		out.writeBoolean(r.isGroup());
+		RenderingRuleProperty[] properties = r.getProperties();
+		out.writeInt(properties.length);
+		for (int i = 0; i < properties.length; i++) {
+			out.writeInt(properties[i].getId());
+			out.writeInt(r.getIntProp(i));
+			out.writeFloat(r.getFloatProp(i));
+			RenderingRule ref = r.getAttrProp(i);
+			out.writeInt(ref == null ? -1 : ids.get(ref));
+		}
+		out.writeInt(r.getIfElseChildren().size());
+		for (RenderingRule c : r.getIfElseChildren()) {
+			out.writeInt(ids.get(c));
+		}
+		out.writeInt(r.getIfChildren().size());
+		for (RenderingRule c : r.getIfChildren()) {
+			out.writeInt(ids.get(c));
+		}
+		Map<String, String> attrs = r.getAttributes();
+		out.writeBoolean(!attrs.isEmpty());
+		if (!attrs.isEmpty()) {
+			writeMap(out, attrs);
+		}
+	}
+
+	private static void writeProperties(DataOutputStream out, RenderingRuleStorageProperties props)
+			throws IOException {
+		out.writeInt(props.rules.size());
+		for (RenderingRuleProperty p : props.rules) {
+			out.writeUTF(p.getAttrName());
+			boolean custom = props.customRules.contains(p);
+			out.writeBoolean(custom);
+			if (custom) {
+				out.writeInt(p.type);
+				writeString(out, p.name);
+				writeString(out, p.description);
+				writeString(out, p.defaultValueDescription);
+				writeString(out, p.category);
+				out.writeInt(p.possibleValues == null ? -1 : p.possibleValues.length);
+				if (p.possibleValues != null) {
+					for (String s : p.possibleValues) {
+						out.writeUTF(s);
+					}
+				}
+			}
+		}
+		out.writeInt(props.customRules.size());
+		for (RenderingRuleProperty p : props.customRules) {
+			out.writeInt(p.getId());
+		}
+	}
+
+	private static RenderingRuleProperty[] readProperties(DataInputStream in, RenderingRuleStorageProperties props)
+			throws IOException {
+		int sz = in.readInt();
+		for (int id = 0; id < sz; id++) {
+			String attr = in.readUTF();
+			RenderingRuleProperty p;
+			if (in.readBoolean()) {
+				int type = in.readInt();
+				if (type == RenderingRuleProperty.BOOLEAN_TYPE) {
+					p = RenderingRuleProperty.createInputBooleanProperty(attr);
+				} else if (type == RenderingRuleProperty.STRING_TYPE) {
+					p = RenderingRuleProperty.createInputStringProperty(attr);
+				} else {
+					p = RenderingRuleProperty.createInputIntProperty(attr);
+				}
+				p.setName(readString(in));
+				p.setDescription(readString(in));
+				p.setDefaultValueDescription(readString(in));
+				p.setCategory(readString(in));
+				int vls = in.readInt();
+				if (vls >= 0) {
+					String[] possibleValues = new String[vls];
+					for (int i = 0; i < vls; i++) {
+						possibleValues[i] = in.readUTF();
+					}
+					p.setPossibleValues(possibleValues);
+				}
+				props.registerRule(p);
+			} else {
+				p = props.get(attr);
+			}
+			if (p == null || p.getId() != id) {
+				throw new IOException("Incompatible rendering property " + attr);
+			}
+		}
+		RenderingRuleProperty[] all = props.getPoperties();
+		if (all.length != sz) {
+			throw new IOException("Incompatible rendering properties");
+		}
+		props.customRules.clear();
+		int custom = in.readInt();
+		for (int i = 0; i < custom; i++) {
+			props.customRules.add(all[in.readInt()]);
+		}
+		return all;
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] res = new int[in.readInt()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = in.readInt();
+		}
+		return res;
+	}
+
+	private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+		out.writeInt(map.size());
+		for (Entry<String, String> e : map.entrySet()) {
+			out.writeUTF(e.getKey());
+			writeString(out, e.getValue());
+		}
+	}
+
+	private static Map<String, String> readMap(DataInputStream in) throws IOException {
+		int sz = in.readInt();
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		for (int i = 0; i < sz; i++) {
+			map.put(in.readUTF(), readString(in));
+		}
+		return map;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -22,12 +22,95 @@ public class RenderingRule {
 
 	private final RenderingRulesStorage storage;
 	private Map<String, String> attributes;
+
+	// compiled form (see RenderingRulesStorage#compile): indexes of properties checked before
+	// accepting rule (input properties and disable), indexes of output properties and children arrays
+	private int[] checkIndexes;
+	private int[] outputIndexes;
+	private RenderingRule[] ifElseArray;
+	private RenderingRule[] ifArray;
 	
 	public RenderingRule(Map<String, String> attributes, boolean isGroup, RenderingRulesStorage storage){
 		this.isGroup = isGroup;
 		this.storage = storage;
 		init(attributes);
 	}
+
+	RenderingRule(RenderingRuleProperty[] properties, int[] intProperties, float[] floatProperties, boolean isGroup,
+			RenderingRulesStorage storage) {
+		this.isGroup = isGroup;
+		this.storage = storage;
+		this.properties = properties;
+		this.intProperties = intProperties;
+		this.floatProperties = floatProperties;
+	}
+
+	private void changed() {
+		RenderingRuleSearchCache.rulesChanged();
+		checkIndexes = null;
+		outputIndexes = null;
+		ifElseArray = null;
+		ifArray = null;
+	}
+
+	void compile() {
+		int disable = storage.PROPS.R_DISABLE.getId();
+		int checks = 0;
+		int outputs = 0;
+		for (RenderingRuleProperty p : properties) {
+			if (p.isInputProperty() || p.getId() == disable) {
+				checks++;
+			}
+			if (p.isOutputProperty()) {
+				outputs++;
+			}
+		}
+		int[] check = new int[checks];
+		int[] output = new int[outputs];
+		checks = 0;
+		outputs = 0;
+		for (int i = 0; i < properties.length; i++) {
+			RenderingRuleProperty p = properties[i];
+			if (p.isInputProperty() || p.getId() == disable) {
+				check[checks++] = i;
+			}
+			if (p.isOutputProperty()) {
+				output[outputs++] = i;
+			}
+		}
+		ifElseArray = ifElseChildren == null ? new RenderingRule[0] : ifElseChildren.toArray(new RenderingRule[0]);
+		ifArray = ifChildren == null ? new RenderingRule[0] : ifChildren.toArray(new RenderingRule[0]);
+		outputIndexes = output;
+		checkIndexes = check;
+	}
+
+	int[] getCheckIndexes() {
+		if (checkIndexes == null) {
+			compile();
+		}
+		return checkIndexes;
+	}
+
+	int[] getOutputIndexes() {
+		if (outputIndexes == null) {
+			compile();
+		}
+		return outputIndexes;
+	}
+
+	RenderingRule[] getIfElseArray() {
+		if (ifElseArray == null) {
+			compile();
+		}
+		return ifElseArray;
+	}
+
+	RenderingRule[] getIfArray() {
+		if (ifArray == null) {
+			compile();
+		}
+		return ifArray;
+	}
 	
 	public void storeAttributes(Map<String, String> attributes){
 		this.attributes = new HashMap<String, String>(attributes);
@@ -47,6 +130,7 @@ public class RenderingRule {
 	}
 
 	public void init(Map<String, String> attributes) {
+		changed();
 		ArrayList<RenderingRuleProperty> props = new ArrayList<RenderingRuleProperty>(attributes.size());
 		intProperties = new int[attributes.size()];
 		floatProperties = new float[attributes.size()];
@@ -135,6 +219,13 @@ public class RenderingRule {
 		return attributesRef[ind];
 	}
 	
+	void setAttrProp(int ind, RenderingRule rule) {
+		if (attributesRef == null) {
+			attributesRef = new RenderingRule[properties.length];
+		}
+		attributesRef[ind] = rule;
+	}
+
 	protected float getFloatProp(int ind){
 		return floatProperties[ind];
 	}
@@ -154,6 +245,7 @@ public class RenderingRule {
 	}
 	
 	public void addIfChildren(RenderingRule rr){
+		changed();
 		if(ifChildren == null){
 			ifChildren = new ArrayList<RenderingRule>();
 		}
@@ -161,6 +253,7 @@ public class RenderingRule {
 	}
 	
 	public void addIfElseChildren(RenderingRule rr){
+		changed();
 		if(ifElseChildren == null){
 			ifElseChildren = new ArrayList<RenderingRule>();
 		}
@@ -168,6 +261,7 @@ public class RenderingRule {
 	}
 	
 	public void addToBeginIfElseChildren(RenderingRule rr){
+		changed();
 		if(ifElseChildren == null){
 			ifElseChildren = new ArrayList<RenderingRule>();
 		}
@@ -179,6 +273,7 @@ public class RenderingRule {
 	}
 
 	public void removeIfChildren(RenderingRule rule) {
+		changed();
 		if (ifChildren != null) {
 			List<RenderingRule> children = new ArrayList<>(ifChildren);
 			children.remove(rule);
@@ -187,6 +282,7 @@ public class RenderingRule {
 	}
 
 	public void removeIfElseChildren(RenderingRule rule) {
+		changed();
 		if (ifElseChildren != null) {
 			List<RenderingRule> children = new ArrayList<>(ifElseChildren);
 			children.remove(rule);
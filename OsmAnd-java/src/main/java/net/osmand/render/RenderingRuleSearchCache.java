@@ -0,0 +1,270 @@
+package net.osmand.render;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Results of {@link RenderingRuleSearchRequest#search(int, boolean)} shared by all requests of one
+ * {@link RenderingRulesStorage}. Result depends only on state, tag, value and input properties referenced
+ * by the rules of that tag / value (collected once from the rule tree), so they are used as a key and
+ * output properties written by the search are stored as a value.
+ * Cache is cleared when rules or properties of storage change (rules could be shared between storages,
+ * so any change of rules clears all caches); changed values of custom properties produce different keys.
+ */
+public class RenderingRuleSearchCache {
+
+	public static boolean ENABLED = true;
+	public static int MAX_SIZE = 50000;
+
+	private static final AtomicInteger rulesVersion = new AtomicInteger();
+
+	private final RenderingRulesStorage storage;
+	private final TLongObjectHashMap<SearchPlan> plans = new TLongObjectHashMap<SearchPlan>();
+	private final Map<SearchKey, SearchResult> results = new LinkedHashMap<SearchKey, SearchResult>(1024, 0.75f,
+			true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<SearchKey, SearchResult> eldest) {
+			if (size() > MAX_SIZE) {
+				evictions++;
+				return true;
+			}
+			return false;
+		}
+	};
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+	private int version = rulesVersion.get();
+
+	RenderingRuleSearchCache(RenderingRulesStorage storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * Input properties which could be checked by search of tag / value in state
+	 */
+	static class SearchPlan {
+		final int[] intProps;
+		final int[] floatProps;
+		// values of additional rules are checked against object, so key stores result of each check
+		final int[] additionalValues;
+
+		SearchPlan(int[] intProps, int[] floatProps, int[] additionalValues) {
+			this.intProps = intProps;
+			this.floatProps = floatProps;
+			this.additionalValues = additionalValues;
+		}
+
+		int getKeyLength() {
+			return 4 + intProps.length + floatProps.length + (additionalValues.length + 31) / 32;
+		}
+	}
+
+	static class SearchKey {
+		int[] data;
+		int length;
+		int hash;
+
+		SearchKey(int capacity) {
+			data = new int[capacity];
+		}
+
+		void reset(int capacity) {
+			if (data.length < capacity) {
+				data = new int[capacity];
+			}
+			length = 0;
+		}
+
+		void add(int v) {
+			data[length++] = v;
+		}
+
+		void computeHash() {
+			int h = 1;
+			for (int i = 0; i < length; i++) {
+				h = 31 * h + data[i];
+			}
+			hash = h;
+		}
+
+		SearchKey copy() {
+			SearchKey k = new SearchKey(length);
+			System.arraycopy(data, 0, k.data, 0, length);
+			k.length = length;
+			k.hash = hash;
+			return k;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SearchKey)) {
+				return false;
+			}
+			SearchKey o = (SearchKey) obj;
+			if (o.length != length || o.hash != hash) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (data[i] != o.data[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Properties changed by search (comparing to default values) and their values
+	 */
+	static class SearchResult {
+		final boolean found;
+		final int[] ids;
+		final int[] values;
+		final float[] fvalues;
+
+		SearchResult(boolean found, int[] ids, int[] values, float[] fvalues) {
+			this.found = found;
+			this.ids = ids;
+			this.values = values;
+			this.fvalues = fvalues;
+		}
+	}
+
+	static void rulesChanged() {
+		rulesVersion.incrementAndGet();
+	}
+
+	synchronized SearchPlan getPlan(int state, int tagKey, int valueKey) {
+		int v = rulesVersion.get();
+		if (v != version) {
+			clear();
+			version = v;
+		}
+		long key = (((long) state) << 48) | (((long) tagKey) << 24) | valueKey;
+		SearchPlan plan = plans.get(key);
+		if (plan == null) {
+			plan = buildPlan(state, tagKey, valueKey);
+			plans.put(key, plan);
+		}
+		return plan;
+	}
+
+	private SearchPlan buildPlan(int state, int tagKey, int valueKey) {
+		RenderingRuleStorageProperties props = storage.PROPS;
+		TIntHashSet intProps = new TIntHashSet();
+		TIntHashSet floatProps = new TIntHashSet();
+		TIntHashSet additional = new TIntHashSet();
+		Map<RenderingRule, Boolean> visited = new IdentityHashMap<RenderingRule, Boolean>();
+		List<RenderingRule> queue = new ArrayList<RenderingRule>();
+		queue.add(storage.getRule(state, tagKey, valueKey));
+		queue.add(storage.getRule(state, tagKey, 0));
+		queue.add(storage.getRule(state, 0, 0));
+		while (!queue.isEmpty()) {
+			RenderingRule rule = queue.remove(queue.size() - 1);
+			if (rule == null || visited.put(rule, Boolean.TRUE) != null) {
+				continue;
+			}
+			RenderingRuleProperty[] properties = rule.getProperties();
+			for (int i = 0; i < properties.length; i++) {
+				RenderingRuleProperty rp = properties[i];
+				// rules of depends storage have own instances of properties, so only ids are compared
+				int id = rp.getId();
+				if (rp.isInputProperty() && id != props.R_TAG.getId() && id != props.R_VALUE.getId()) {
+					if (id == props.R_ADDITIONAL.getId()) {
+						additional.add(rule.getIntProp(i));
+					} else if (rp.isFloat()) {
+						floatProps.add(id);
+					} else {
+						intProps.add(id);
+					}
+				}
+				queue.add(rule.getAttrProp(i));
+			}
+			queue.addAll(rule.getIfElseChildren());
+			queue.addAll(rule.getIfChildren());
+		}
+		return new SearchPlan(sorted(intProps), sorted(floatProps), sorted(additional));
+	}
+
+	private static int[] sorted(TIntHashSet set) {
+		TIntArrayList l = new TIntArrayList(set);
+		l.sort();
+		return l.toArray();
+	}
+
+	synchronized SearchResult get(SearchKey key) {
+		SearchResult r = results.get(key);
+		if (r != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return r;
+	}
+
+	synchronized void put(SearchKey key, SearchResult result) {
+		results.put(key.copy(), result);
+	}
+
+	/**
+	 * Should be called when rules of storage are changed directly
+	 */
+	public synchronized void clear() {
+		if (plans.isEmpty() && results.isEmpty()) {
+			return;
+		}
+		invalidations++;
+		plans.clear();
+		results.clear();
+	}
+
+	public synchronized int getSize() {
+		return results.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	public synchronized double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(Locale.US,
+				"Rendering search cache: %d results (%d plans), hit rate %.1f%% (%d hits, %d misses), %d evicted, %d invalidated",
+				results.size(), plans.size(), getHitRate() * 100, hits, misses, evictions, invalidations);
+	}
+}
@@ -7,6 +7,9 @@ import static net.osmand.render.RenderingRuleProperty.INT_TYPE;
 import static net.osmand.render.RenderingRuleProperty.STRING_TYPE;
 
 import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.render.RenderingRuleSearchCache.SearchKey;
+import net.osmand.render.RenderingRuleSearchCache.SearchPlan;
+import net.osmand.render.RenderingRuleSearchCache.SearchResult;
 import net.osmand.util.Algorithms;
 
 
@@ -26,6 +29,11 @@ public class RenderingRuleSearchRequest {
 
 	private boolean searchResult = false;
 
+	// output properties are equal to saved state which contains only default output values
+	private boolean savedOutputsDefault;
+	private boolean outputsModified;
+	private SearchKey searchKey;
+
 	public RenderingRuleSearchRequest(RenderingRulesStorage storage) {
 		this.storage = storage;
 		this.ALL = storage.PROPS;
@@ -64,35 +72,57 @@ public class RenderingRuleSearchRequest {
 
 	public void setStringFilter(RenderingRuleProperty p, String filter) {
 		assert p.isInputProperty();
+		checkOutputModified(p);
 		values[p.getId()] = storage.getDictionaryValue(filter);
 	}
 
 	public void setIntFilter(RenderingRuleProperty p, int filter) {
 		assert p.isInputProperty();
+		checkOutputModified(p);
 		values[p.getId()] = filter;
 	}
 	
 	public void setBooleanFilter(RenderingRuleProperty p, boolean filter) {
 		assert p.isInputProperty();
+		checkOutputModified(p);
 		values[p.getId()] = filter ? RenderingRuleProperty.TRUE_VALUE : RenderingRuleProperty.FALSE_VALUE;
 	}
 
 	public void setFloatFilter(RenderingRuleProperty p, float filter) {
 		assert p.isInputProperty();
+		checkOutputModified(p);
 		fvalues[p.getId()] = filter;
 	}
 
+	private void checkOutputModified(RenderingRuleProperty p) {
+		if (!p.isInputProperty()) {
+			outputsModified = true;
+		}
+	}
+
 	public void saveState() {
 		savedValues = new int[values.length];
 		savedFvalues = new float[fvalues.length];
 		System.arraycopy(values, 0, savedValues, 0, values.length);
 		System.arraycopy(fvalues, 0, savedFvalues, 0, fvalues.length);
+		savedOutputsDefault = true;
+		for (int i = 0; i < props.length && savedOutputsDefault; i++) {
+			if (!props[i].isInputProperty()) {
+				savedOutputsDefault = savedFvalues[i] == 0 && savedValues[i] == getDefaultValue(props[i]);
+			}
+		}
+		outputsModified = false;
+	}
+
+	private static int getDefaultValue(RenderingRuleProperty p) {
+		return p.isColor() ? 0 : -1;
 	}
 
 	public void clearState() {
 		System.arraycopy(savedValues, 0, values, 0, values.length);
 		System.arraycopy(savedFvalues, 0, fvalues, 0, fvalues.length);
 		object = null;
+		outputsModified = false;
 	}
 	
 	public void clearValue(RenderingRuleProperty p) {
@@ -130,6 +160,7 @@ public class RenderingRuleSearchRequest {
 		if (rule == null) {
 			return false;
 		}
+		outputsModified = true;
 		searchResult = visitRule(rule, true);
 		return searchResult;
 	}
@@ -139,25 +170,117 @@ public class RenderingRuleSearchRequest {
 	}
 	
 	public boolean search(int state, boolean loadOutput) {
-		searchResult = false;
 		int tagKey = values[storage.PROPS.R_TAG.getId()];
 		int valueKey = values[storage.PROPS.R_VALUE.getId()];
+		if (RenderingRuleSearchCache.ENABLED && savedOutputsDefault && !outputsModified) {
+			RenderingRuleSearchCache cache = storage.getSearchCache();
+			SearchKey key = buildSearchKey(cache.getPlan(state, tagKey, valueKey), state, tagKey, valueKey, loadOutput);
+			if (key != null) {
+				SearchResult cached = cache.get(key);
+				if (cached == null) {
+					searchResult = searchRules(state, tagKey, valueKey, loadOutput);
+					cached = createSearchResult();
+					cache.put(key, cached);
+				} else {
+					applySearchResult(cached);
+				}
+				outputsModified = true;
+				return searchResult;
+			}
+		}
+		outputsModified = true;
+		searchResult = searchRules(state, tagKey, valueKey, loadOutput);
+		return searchResult;
+	}
+
+	private SearchKey buildSearchKey(SearchPlan plan, int state, int tagKey, int valueKey, boolean loadOutput) {
+		int len = plan.getKeyLength();
+		if (searchKey == null) {
+			searchKey = new SearchKey(len);
+		}
+		SearchKey key = searchKey;
+		key.reset(len);
+		key.add(state);
+		key.add(tagKey);
+		key.add(valueKey);
+		key.add(loadOutput ? 1 : 0);
+		for (int id : plan.intProps) {
+			if (id >= values.length) {
+				// property was registered after request was created
+				return null;
+			}
+			key.add(values[id]);
+		}
+		for (int id : plan.floatProps) {
+			if (id >= fvalues.length) {
+				return null;
+			}
+			key.add(Float.floatToIntBits(fvalues[id]));
+		}
+		RenderingRuleProperty additional = storage.PROPS.R_ADDITIONAL;
+		int mask = 0;
+		for (int i = 0; i < plan.additionalValues.length; i++) {
+			if (additional.accept(plan.additionalValues[i], values[additional.getId()], this)) {
+				mask |= 1 << (i & 31);
+			}
+			if ((i & 31) == 31 || i == plan.additionalValues.length - 1) {
+				key.add(mask);
+				mask = 0;
+			}
+		}
+		key.computeHash();
+		return key;
+	}
+
+	private SearchResult createSearchResult() {
+		int tagId = storage.PROPS.R_TAG.getId();
+		int valueId = storage.PROPS.R_VALUE.getId();
+		int cnt = 2;
+		for (int i = 0; i < props.length; i++) {
+			if (isChangedOutput(i)) {
+				cnt++;
+			}
+		}
+		int[] ids = new int[cnt];
+		int[] ivalues = new int[cnt];
+		float[] ifvalues = new float[cnt];
+		ids[0] = tagId;
+		ids[1] = valueId;
+		cnt = 2;
+		for (int i = 0; i < props.length; i++) {
+			if (isChangedOutput(i)) {
+				ids[cnt++] = i;
+			}
+		}
+		for (int i = 0; i < ids.length; i++) {
+			ivalues[i] = values[ids[i]];
+			ifvalues[i] = fvalues[ids[i]];
+		}
+		return new SearchResult(searchResult, ids, ivalues, ifvalues);
+	}
+
+	private boolean isChangedOutput(int i) {
+		return !props[i].isInputProperty() && (values[i] != savedValues[i] || fvalues[i] != savedFvalues[i]);
+	}
+
+	private void applySearchResult(SearchResult r) {
+		for (int i = 0; i < r.ids.length; i++) {
+			values[r.ids[i]] = r.values[i];
+			fvalues[r.ids[i]] = r.fvalues[i];
+		}
+		searchResult = r.found;
+	}
+
+	private boolean searchRules(int state, int tagKey, int valueKey, boolean loadOutput) {
 		boolean result = searchInternal(state, tagKey, valueKey, loadOutput);
 		if (result) {
-			searchResult = true;
 			return true;
 		}
 		result = searchInternal(state, tagKey, 0, loadOutput);
 		if (result) {
-			searchResult = true;
 			return true;
 		}
-		result = searchInternal(state, 0, 0, loadOutput);
-		if (result) {
-			searchResult = true;
-			return true;
-		}
-		return false;
+		return searchInternal(state, 0, 0, loadOutput);
 	}
 
 	private boolean searchInternal(int state, int tagKey, int valueKey, boolean loadOutput) {
@@ -188,7 +311,7 @@ public class RenderingRuleSearchRequest {
 			loadOutputProperties(rule, true);
 		}
 		boolean match = false;
-		for (RenderingRule rr : rule.getIfElseChildren()) {
+		for (RenderingRule rr : rule.getIfElseArray()) {
 			match = visitRule(rr, loadOutput);
 			if (match) {
 				break;
@@ -200,7 +323,7 @@ public class RenderingRuleSearchRequest {
 				loadOutputProperties(rule, false);
 			}
 
-			for (RenderingRule rr : rule.getIfChildren()) {
+			for (RenderingRule rr : rule.getIfArray()) {
 				visitRule(rr, loadOutput);
 			}
 		}
@@ -208,28 +331,27 @@ public class RenderingRuleSearchRequest {
 	}
 	
 	public void loadOutputProperties(RenderingRule rule, boolean override) {
+		outputsModified = true;
 		RenderingRuleProperty[] properties = rule.getProperties();
-		for (int i = 0; i < properties.length; i++) {
+		for (int i : rule.getOutputIndexes()) {
 			RenderingRuleProperty rp = properties[i];
-			if (rp.isOutputProperty()) {
-				if (!isSpecified(rp) || override) {
-					RenderingRule rr = rule.getAttrProp(i);
-					if (rr != null) {
-						visitRule(rr, true);
-						if (isSpecified(storage.PROPS.R_ATTR_COLOR_VALUE)) {
-							values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE);
-						} else if (isSpecified(storage.PROPS.R_ATTR_INT_VALUE)) {
-							values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
-							fvalues[rp.getId()] = getFloatPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
-						} else if (isSpecified(storage.PROPS.R_ATTR_BOOL_VALUE)) {
-							values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_BOOL_VALUE);
-						}
-					} else if (rp.isFloat()) {
-						fvalues[rp.getId()] = rule.getFloatProp(i);
-						values[rp.getId()] = rule.getIntProp(i);
-					} else {
-						values[rp.getId()] = rule.getIntProp(i);
+			if (!isSpecified(rp) || override) {
+				RenderingRule rr = rule.getAttrProp(i);
+				if (rr != null) {
+					visitRule(rr, true);
+					if (isSpecified(storage.PROPS.R_ATTR_COLOR_VALUE)) {
+						values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE);
+					} else if (isSpecified(storage.PROPS.R_ATTR_INT_VALUE)) {
+						values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+						fvalues[rp.getId()] = getFloatPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+					} else if (isSpecified(storage.PROPS.R_ATTR_BOOL_VALUE)) {
+						values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_BOOL_VALUE);
 					}
+				} else if (rp.isFloat()) {
+					fvalues[rp.getId()] = rule.getFloatProp(i);
+					values[rp.getId()] = rule.getIntProp(i);
+				} else {
+					values[rp.getId()] = rule.getIntProp(i);
 				}
 			}
 		}
@@ -237,7 +359,7 @@ public class RenderingRuleSearchRequest {
 
 	protected boolean checkInputProperties(RenderingRule rule) {
 		RenderingRuleProperty[] properties = rule.getProperties();
-		for (int i = 0; i < properties.length; i++) {
+		for (int i : rule.getCheckIndexes()) {
 			RenderingRuleProperty rp = properties[i];
 			if (rp.isInputProperty()) {
 				boolean match;
@@ -249,8 +371,8 @@ public class RenderingRuleSearchRequest {
 				if (!match) {
 					return false;
 				}
-			} else if (rp == storage.PROPS.R_DISABLE) {
-				// quick disable return even without load output
+			} else {
+				// disable: quick return even without load output
 				values[rp.getId()] = rule.getIntProp(i);
 			}
 		}
@@ -15,6 +15,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -62,6 +63,7 @@ public class RenderingRulesStorage {
 
 	protected int internalVersion = 1;
 
+	private final RenderingRuleSearchCache searchCache = new RenderingRuleSearchCache(this);
 
 	public String getDependsName() {
 		return dependsName;
@@ -104,6 +106,17 @@ public class RenderingRulesStorage {
 		return internalVersion;
 	}
 
+	public RenderingRuleSearchCache getSearchCache() {
+		return searchCache;
+	}
+
+	/**
+	 * Should be called after rules or properties were changed directly (not by methods of storage or rules)
+	 */
+	public void clearSearchCache() {
+		searchCache.clear();
+	}
+
 	public int getDictionaryValue(String val) {
 		if (dictionaryMap.containsKey(val)) {
 			return dictionaryMap.get(val);
@@ -137,12 +150,40 @@ public class RenderingRulesStorage {
 			dependsName = depends.getName();
 			mergeDependsOrAddon(depends);
 		}
+		compile();
+	}
+
+	/**
+	 * Precomputes flat arrays of checked / output properties and children for all rules,
+	 * rules changed later are compiled again on first search.
+	 */
+	public void compile() {
+		Map<RenderingRule, Boolean> visited = new IdentityHashMap<RenderingRule, Boolean>();
+		List<RenderingRule> queue = new ArrayList<RenderingRule>(renderingAttributes.values());
+		for (TIntObjectHashMap<RenderingRule> rules : tagValueGlobalRules) {
+			if (rules != null) {
+				queue.addAll(rules.valueCollection());
+			}
+		}
+		while (!queue.isEmpty()) {
+			RenderingRule rule = queue.remove(queue.size() - 1);
+			if (rule == null || visited.put(rule, Boolean.TRUE) != null) {
+				continue;
+			}
+			rule.compile();
+			for (int i = 0; i < rule.getProperties().length; i++) {
+				queue.add(rule.getAttrProp(i));
+			}
+			queue.addAll(rule.getIfElseChildren());
+			queue.addAll(rule.getIfChildren());
+		}
 	}
 
 	public void mergeDependsOrAddon(RenderingRulesStorage depends) {
 		if (depends == null) {
 			return;
 		}
+		clearSearchCache();
 		// merge results
 		// dictionary and props are already merged
 		Iterator<Entry<String, RenderingRule>> it = depends.renderingAttributes.entrySet().iterator();
@@ -210,6 +251,7 @@ public class RenderingRulesStorage {
 			insert = rr;
 		}
 		tagValueGlobalRules[state].put(key, insert);
+		clearSearchCache();
 	}
 
 	private RenderingRule createTagValueRootWrapperRule(int tagValueKey, RenderingRule previous) {
@@ -386,6 +428,7 @@ public class RenderingRulesStorage {
 					prop.setPossibleValues(attrsMap.get("possibleValues").split(","));
 				}
 				PROPS.registerRule(prop);
+				clearSearchCache();
 			} else if("renderingConstant".equals(name)){ //$NON-NLS-1$
 				if(!renderingConstants.containsKey(attrsMap.get("name"))){
 					renderingConstants.put(attrsMap.get("name"), attrsMap.get("value"));
@@ -401,6 +444,7 @@ public class RenderingRulesStorage {
 						dictionary = new ArrayList<String>(dependsStorage.dictionary);
 						dictionaryMap = new LinkedHashMap<String, Integer>(dependsStorage.dictionaryMap);
 						PROPS = new RenderingRuleStorageProperties(dependsStorage.PROPS);
+						clearSearchCache();
 					}
 					internalRenderingName = attrsMap.get("name");
 				}
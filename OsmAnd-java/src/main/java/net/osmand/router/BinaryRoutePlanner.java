@@ -6,10 +6,8 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import net.osmand.PlatformUtil;
 import net.osmand.binary.RouteDataObject;
@@ -48,30 +46,12 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private static class SegmentsComparator implements Comparator<RouteSegmentCost> {
-		@Override
-		public int compare(RouteSegmentCost o1, RouteSegmentCost o2) {
-			return Double.compare(o1.cost, o2.cost);
-		}
-	}
-	
 	private static float cost(float distanceFromStart, float distanceToEnd, RoutingContext ctx) {
 		return ctx.config.heuristicCoefficient * distanceToEnd + distanceFromStart;
 	}
 
-	private static class RouteSegmentCost {
-		float cost;
-		RouteSegment segment;
-		
-		public RouteSegmentCost(RouteSegment segment, RoutingContext ctx) {
-			this.cost = cost(segment.distanceFromStart, segment.distanceToEnd, ctx);
-			this.segment = segment;
-		}
-
-		@Override
-		public String toString() {
-			return String.format("%.2f %s", cost, segment);
-		}
+	private static void addToQueue(CostHeap<RouteSegment> graphSegments, RouteSegment segment, RoutingContext ctx) {
+		graphSegments.add(segment, cost(segment.distanceFromStart, segment.distanceToEnd, ctx));
 	}
 
 	/**
@@ -83,8 +63,8 @@ public class BinaryRoutePlanner {
 		// measure time
 		ctx.memoryOverhead = 1000;
 		// Initializing priority queue to visit way segments 
-		PriorityQueue<RouteSegmentCost> graphDirectSegments = new PriorityQueue<>(50, new SegmentsComparator());
-		PriorityQueue<RouteSegmentCost> graphReverseSegments = new PriorityQueue<>(50, new SegmentsComparator());
+		CostHeap<RouteSegment> graphDirectSegments = new CostHeap<>();
+		CostHeap<RouteSegment> graphReverseSegments = new CostHeap<>();
 		// Set to not visit one segment twice (stores road.id << X + segmentStart)
 		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
 		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
@@ -104,11 +84,11 @@ public class BinaryRoutePlanner {
 			end.others = null;
 			forwardSearch = false;
 		}
-		PriorityQueue<RouteSegmentCost> graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
+		CostHeap<RouteSegment> graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
 		float[] minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
 		while (!graphSegments.isEmpty()) {
-			RouteSegmentCost cst = graphSegments.poll();
-			RouteSegment segment = cst.segment;
+			float cost = (float) graphSegments.peekCost();
+			RouteSegment segment = graphSegments.poll();
 			int visitedCnt = (start != null ? visitedDirectSegments.size() : 0) + (end != null ? visitedOppositeSegments.size() : 0);
 			// use accumulative approach
 			ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD +
@@ -164,12 +144,12 @@ public class BinaryRoutePlanner {
 					println("  " + segment.segEnd + ">> Already visited by minimum");
 				}
 				skipSegment = true;
-			} else if (cst.cost + 0.1 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
+			} else if (cost + 0.1 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
 				if (ctx.config.heuristicCoefficient <= 1) {
-					throw new IllegalStateException(cst.cost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
+					throw new IllegalStateException(cost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
 				}
 			} else {
-				minCost[forwardSearch ? 1 : 0] = cst.cost;
+				minCost[forwardSearch ? 1 : 0] = cost;
 			}
 			if (!skipSegment) {
 				if (forwardSearch) {
@@ -203,17 +183,17 @@ public class BinaryRoutePlanner {
 					graphSegments = graphDirectSegments.isEmpty() ? graphReverseSegments : graphDirectSegments;
 					if (finalSegment == null) {
 						while (!graphSegments.isEmpty()) {
-							RouteSegmentCost pc = graphSegments.poll();
-							if (pc.segment instanceof FinalRouteSegment) {
-								finalSegment = (FinalRouteSegment) pc.segment;
+							RouteSegment pc = graphSegments.poll();
+							if (pc instanceof FinalRouteSegment) {
+								finalSegment = (FinalRouteSegment) pc;
 								break;
 							}
 						}
 					}
 					return finalSegment;
 				} else {
-					RouteSegment fw = graphDirectSegments.peek().segment;
-					RouteSegment bw = graphReverseSegments.peek().segment;
+					RouteSegment fw = graphDirectSegments.peek();
+					RouteSegment bw = graphReverseSegments.peek();
 					forwardSearch = Double.compare(cost(fw.distanceFromStart, fw.distanceToEnd, ctx), 
 							cost(bw.distanceFromStart, bw.distanceToEnd,ctx)) <= 0;
 				}
@@ -247,8 +227,57 @@ public class BinaryRoutePlanner {
 		return finalSegment;
 	}
 
+	/**
+	 * One-to-all dijkstra from start till maxCost (isochrone mode). Returned visited segments contain time
+	 * to the end of segment (distanceFromStart) and parent route, segments crossing maxCost are included.
+	 */
+	public TLongObjectHashMap<RouteSegment> searchReachableSegments(final RoutingContext ctx, RouteSegmentPoint start,
+			float maxCost) throws InterruptedException, IOException {
+		ctx.memoryOverhead = 1000;
+		CostHeap<RouteSegment> graphSegments = new CostHeap<>();
+		TLongObjectHashMap<RouteSegment> visitedSegments = new TLongObjectHashMap<RouteSegment>();
+		TLongObjectHashMap<RouteSegment> oppositeSegments = new TLongObjectHashMap<RouteSegment>();
+		float savedHeuristicCoefficient = ctx.config.heuristicCoefficient;
+		int savedDijkstraMode = ctx.dijkstraMode;
+		ctx.config.heuristicCoefficient = 0;
+		ctx.dijkstraMode = 1;
+		start.others = null;
+		try {
+			initQueuesWithStartEnd(ctx, start, null, graphSegments, new CostHeap<RouteSegment>());
+			while (!graphSegments.isEmpty() && graphSegments.peekCost() <= maxCost) {
+				RouteSegment segment = graphSegments.poll();
+				if (ctx.config.MAX_VISITED > 0 && visitedSegments.size() > ctx.config.MAX_VISITED) {
+					break;
+				}
+				ctx.memoryOverhead = visitedSegments.size() * STANDARD_ROAD_VISITED_OVERHEAD
+						+ graphSegments.size() * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+				if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.9) {
+					throw new IllegalStateException(String.format("There is not enough memory for isochrone %.5f, %.5f - limit  %d  MB",
+							MapUtils.get31LatitudeY(ctx.startY), MapUtils.get31LongitudeX(ctx.startX),
+							ctx.config.memoryLimitation / (1 << 20)));
+				}
+				if (ctx.calculationProgress != null) {
+					ctx.calculationProgress.visitedSegments++;
+					if (ctx.calculationProgress.isCancelled) {
+						throw new InterruptedException("Route calculation interrupted");
+					}
+				}
+				if (!visitedSegments.containsKey(calculateRoutePointId(segment))) {
+					processRouteSegment(ctx, false, graphSegments, visitedSegments, segment, oppositeSegments, null, false);
+				}
+			}
+		} finally {
+			ctx.config.heuristicCoefficient = savedHeuristicCoefficient;
+			ctx.dijkstraMode = savedDijkstraMode;
+		}
+		if (ctx.calculationProgress != null) {
+			ctx.calculationProgress.visitedDirectSegments += visitedSegments.size();
+		}
+		return visitedSegments;
+	}
+
 	protected boolean checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
-			boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
+			boolean reverseWaySearch, CostHeap<RouteSegment> graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
 			String msg) {
 		if (allowDirection && graphSegments.isEmpty()) {
 			if (pnt.others != null) {
@@ -263,7 +292,7 @@ public class BinaryRoutePlanner {
 						pos.setParentRoute(null);
 						pos.distanceFromStart = 0;
 						pos.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(pos, ctx));
+						addToQueue(graphSegments, pos, ctx);
 					}
 					RouteSegment neg = next.initRouteSegment(false);
 					if (neg != null && !visited.containsKey(calculateRoutePointId(neg)) && 
@@ -271,7 +300,7 @@ public class BinaryRoutePlanner {
 						neg.setParentRoute(null);
 						neg.distanceFromStart = 0;
 						neg.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(neg, ctx));
+						addToQueue(graphSegments, neg, ctx);
 					}
 					if (!graphSegments.isEmpty()) {
 						println("Reiterate point with new " + (!reverseWaySearch ? "start " : "destination ")
@@ -287,7 +316,7 @@ public class BinaryRoutePlanner {
 		return false;
 	}
 
-	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, PriorityQueue<RouteSegmentCost> graphSegments, boolean reverseSearchWay) {
+	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, CostHeap<RouteSegment> graphSegments, boolean reverseSearchWay) {
 		if (pnt == null) {
 			return null;
 		}
@@ -331,7 +360,7 @@ public class BinaryRoutePlanner {
 		}
 		if (checkMovementAllowed(ctx, reverseSearchWay, seg)) {
 			seg.distanceToEnd = estimatedDistance(seg, reverseSearchWay, ctx);
-			graphSegments.add(new RouteSegmentCost(seg, ctx));
+			addToQueue(graphSegments, seg, ctx);
 			return seg;
 		}
 		return null;
@@ -348,7 +377,7 @@ public class BinaryRoutePlanner {
 	
 
 	private void initQueuesWithStartEnd(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
-			PriorityQueue<RouteSegmentCost> graphDirectSegments, PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+			CostHeap<RouteSegment> graphDirectSegments, CostHeap<RouteSegment> graphReverseSegments) {
 		if (ctx.precalculatedRouteDirection != null) {
 			ctx.precalculatedRouteDirection.updatePreciseStartEnd(
 					(start != null) ? start.preciseX : 0, (start != null) ? start.preciseY : 0,
@@ -383,19 +412,19 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphDirectSegments,
-			PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+	private void updateCalculationProgress(final RoutingContext ctx, CostHeap<RouteSegment> graphDirectSegments,
+			CostHeap<RouteSegment> graphReverseSegments) {
 		if (ctx.calculationProgress != null) {
 			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
 			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
 			if (!graphDirectSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
-				RouteSegment peek = graphDirectSegments.peek().segment;
+				RouteSegment peek = graphDirectSegments.peek();
 				ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
 						ctx.calculationProgress.distanceFromBegin);
 				ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
 			}
 			if (!graphReverseSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
-				RouteSegment peek = graphReverseSegments.peek().segment;
+				RouteSegment peek = graphReverseSegments.peek();
 				ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
 							ctx.calculationProgress.distanceFromEnd);
 				ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
@@ -489,7 +518,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
+			CostHeap<RouteSegment> graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
 			RouteSegment startSegment, TLongObjectMap<RouteSegment> oppositeSegments,
 			TLongObjectMap<RouteSegment> boundaries, boolean doNotAddIntersections) {
 		if (ASSERT_CHECKS && !checkMovementAllowed(ctx, reverseWaySearch, startSegment)) {
@@ -563,7 +592,7 @@ public class BinaryRoutePlanner {
 			// a) final segment is always in queue & double checked b) using osm segment almost always is shorter routing than other connected
 			if (DEBUG_BREAK_EACH_SEGMENT && nextCurrentSegment != null) {
 				if (!doNotAddIntersections) {
-					graphSegments.add(new RouteSegmentCost(nextCurrentSegment, ctx));
+					addToQueue(graphSegments, nextCurrentSegment, ctx);
 				}
 				break;
 			}
@@ -633,7 +662,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfOppositeSegmentWasVisited(RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, RouteSegment currentSegment,
+			CostHeap<RouteSegment> graphSegments, RouteSegment currentSegment,
 			TLongObjectMap<RouteSegment> oppositeSegments, TLongObjectMap<RouteSegment> boundaries) {
 		// check inverse direction for opposite
 		long currPoint = calculateRoutePointInternalId(currentSegment.getRoad(), 
@@ -661,7 +690,7 @@ public class BinaryRoutePlanner {
 					// impossible route (when start/point on same segment but different dir) don't add to queue
 					return true;
 				}
-				graphSegments.add(new RouteSegmentCost(frs, ctx));
+				addToQueue(graphSegments, frs, ctx);
 				if (TRACE_ROUTING) {
 					printRoad("  " + currentSegment.segEnd + ">> Final segment : ", frs, reverseWaySearch);
 				}
@@ -806,7 +835,7 @@ public class BinaryRoutePlanner {
 		}
 	}
 
-	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphSegments,
+	private RouteSegment processIntersections(RoutingContext ctx, CostHeap<RouteSegment> graphSegments,
 			TLongObjectMap<RouteSegment> visitedSegments,  RouteSegment currentSegment,
 			boolean reverseWaySearch, boolean doNotAddIntersections) {
 		RouteSegment nextCurrentSegment = null;
@@ -913,7 +942,7 @@ public class BinaryRoutePlanner {
 		return nextCurrentSegment;
 	}
 
-	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments,
+	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, CostHeap<RouteSegment> graphSegments,
 			TLongObjectMap<RouteSegment> visitedSegments, RouteSegment segment, RouteSegment next) {
 		if (next != null) {
 			if (!checkMovementAllowed(ctx, reverseWaySearch, next)) {
@@ -978,7 +1007,7 @@ public class BinaryRoutePlanner {
 				// put additional information to recover whole route after
 				next.setParentRoute(segment);
 				if (graphSegments != null) {
-					graphSegments.add(new RouteSegmentCost(next, ctx));
+					addToQueue(graphSegments, next, ctx);
 				}
 				return true;
 			}
@@ -0,0 +1,177 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of objects ordered by cost. Costs and objects are stored in parallel arrays,
+ * so adding an object doesn't allocate wrapper (as PriorityQueue with comparator does).
+ * Sift order is the same as in java.util.PriorityQueue, so objects with equal costs are polled in the same order.
+ *
+ * Indexed heap identifies objects by int handle (0 <= handle) and keeps only one entry per handle:
+ * adding handle which is already in the heap updates its cost (decrease-key).
+ */
+public class CostHeap<T> {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private double[] costs;
+	private Object[] values;
+	private int size;
+	// indexed heap only
+	private int[] handles;
+	private int[] positions; // position in heap + 1, 0 - handle is not in heap
+
+	public CostHeap() {
+		this(false);
+	}
+
+	public CostHeap(boolean indexed) {
+		costs = new double[INITIAL_CAPACITY];
+		values = new Object[INITIAL_CAPACITY];
+		if (indexed) {
+			handles = new int[INITIAL_CAPACITY];
+			positions = new int[INITIAL_CAPACITY];
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void add(T value, double cost) {
+		if (handles != null) {
+			throw new IllegalStateException("Indexed heap requires handle");
+		}
+		grow();
+		siftUp(size++, cost, value, 0);
+	}
+
+	/**
+	 * Adds object to indexed heap or updates cost if handle is already present
+	 */
+	public void add(T value, double cost, int handle) {
+		if (handles == null) {
+			throw new IllegalStateException("Heap is not indexed");
+		}
+		if (handle >= positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(handle + 1, positions.length * 2));
+		}
+		int pos = positions[handle] - 1;
+		if (pos >= 0) {
+			if (Double.compare(cost, costs[pos]) < 0) {
+				siftUp(pos, cost, value, handle);
+			} else {
+				siftDown(pos, cost, value, handle);
+			}
+			return;
+		}
+		grow();
+		siftUp(size++, cost, value, handle);
+	}
+
+	public boolean contains(int handle) {
+		return handle < positions.length && positions[handle] > 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		return size == 0 ? null : (T) values[0];
+	}
+
+	/**
+	 * @return cost of the first object (heap should not be empty)
+	 */
+	public double peekCost() {
+		return costs[0];
+	}
+
+	/**
+	 * @return handle of the first object (indexed heap should not be empty)
+	 */
+	public int peekHandle() {
+		return handles[0];
+	}
+
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		if (size == 0) {
+			return null;
+		}
+		T result = (T) values[0];
+		if (handles != null) {
+			positions[handles[0]] = 0;
+		}
+		int n = --size;
+		double cost = costs[n];
+		Object value = values[n];
+		int handle = handles == null ? 0 : handles[n];
+		values[n] = null;
+		if (n > 0) {
+			siftDown(0, cost, value, handle);
+		}
+		return result;
+	}
+
+	public void clear() {
+		if (handles != null) {
+			for (int i = 0; i < size; i++) {
+				positions[handles[i]] = 0;
+			}
+		}
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+	}
+
+	private void grow() {
+		if (size == costs.length) {
+			int capacity = costs.length * 2;
+			costs = Arrays.copyOf(costs, capacity);
+			values = Arrays.copyOf(values, capacity);
+			if (handles != null) {
+				handles = Arrays.copyOf(handles, capacity);
+			}
+		}
+	}
+
+	private void siftUp(int k, double cost, Object value, int handle) {
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			if (Double.compare(cost, costs[parent]) >= 0) {
+				break;
+			}
+			set(k, costs[parent], values[parent], handles == null ? 0 : handles[parent]);
+			k = parent;
+		}
+		set(k, cost, value, handle);
+	}
+
+	private void siftDown(int k, double cost, Object value, int handle) {
+		int half = size >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int right = child + 1;
+			if (right < size && Double.compare(costs[child], costs[right]) > 0) {
+				child = right;
+			}
+			if (Double.compare(cost, costs[child]) <= 0) {
+				break;
+			}
+			set(k, costs[child], values[child], handles == null ? 0 : handles[child]);
+			k = child;
+		}
+		set(k, cost, value, handle);
+	}
+
+	private void set(int k, double cost, Object value, int handle) {
+		costs[k] = cost;
+		values[k] = value;
+		if (handles != null) {
+			handles[k] = handle;
+			positions[handle] = k + 1;
+		}
+	}
+}
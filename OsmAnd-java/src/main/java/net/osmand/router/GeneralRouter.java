@@ -11,7 +11,6 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -19,6 +18,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.set.hash.TLongHashSet;
@@ -56,6 +57,8 @@ public class GeneralRouter implements VehicleRouter {
 	public static final String CHECK_ALLOW_PRIVATE_NEEDED = "check_allow_private_needed";
 
 	private static boolean USE_CACHE = true;
+	// compile rules of routers built for routing (see RouteAttributeContext.compile)
+	public static boolean COMPILE_RULES = true;
 	public static long TIMER = 0;
 
 	private final RouteAttributeContext[] objectAttributes;
@@ -64,6 +67,7 @@ public class GeneralRouter implements VehicleRouter {
 	private final Map<String, String> parameterValues; 
 	private final Map<String, Integer> universalRules;
 	private final List<String> universalRulesById;
+	// masks are replaced (not changed) when rule is registered, so they are read without lock
 	private final Map<String, BitSet> tagRuleMask;
 	private final ArrayList<Object> ruleToValue;
 	private boolean shortestRoute;
@@ -72,7 +76,8 @@ public class GeneralRouter implements VehicleRouter {
 	private String filename = null;
 	private String profileName = "";
 
-	private Map<RouteRegion, Map<Integer, Integer>> regionConvert = new LinkedHashMap<RouteRegion, Map<Integer,Integer>>();
+	// region type id -> universal rule id + 1 (0 - not converted yet)
+	private final Map<RouteRegion, int[]> regionConvert = new LinkedHashMap<RouteRegion, int[]>();
 	
 	// cached values
 	private boolean restrictionsAware = true;
@@ -92,7 +97,10 @@ public class GeneralRouter implements VehicleRouter {
 	
 	private GeneralRouterProfile profile;
 	
-	Map<RouteRegion, Map<IntHolder, Float>>[] evalCache;
+	private static final int MAX_SHARED_EVAL_CACHES = 32;
+	GeneralRouterEvalCache evalCache;
+	// root router only: caches shared by copies built with the same parameters
+	private final Map<Map<String, String>, GeneralRouterEvalCache> sharedEvalCaches;
 
 	public String[] hhNativeFilter = new String[0]; // getFilteredTags() as flat Array (JNI)
 	public String[] hhNativeParameterValues = new String[0]; // parameterValues as flat Array (JNI)
@@ -195,7 +203,11 @@ public class GeneralRouter implements VehicleRouter {
 				maxSpeed = Math.min(CAR_SHORTEST_DEFAULT_SPEED, maxSpeed);
 			}
 		}
-		initCaches();
+		sharedEvalCaches = null;
+		evalCache = root.getSharedEvalCache(params);
+		if (COMPILE_RULES) {
+			compileRules();
+		}
 	}
 	
 	public GeneralRouter(GeneralRouterProfile profile, Map<String, String> attributes) {
@@ -214,21 +226,26 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		universalRules = new LinkedHashMap<String, Integer>();
 		universalRulesById = new ArrayList<String>();
-		tagRuleMask = new LinkedHashMap<String, BitSet>();
+		tagRuleMask = new ConcurrentHashMap<String, BitSet>();
 		ruleToValue = new ArrayList<Object>();
 		parameters = new LinkedHashMap<String, GeneralRouter.RoutingParameter>();
-		
-		initCaches();
-
+		sharedEvalCaches = new ConcurrentHashMap<>();
+		evalCache = new GeneralRouterEvalCache();
 	}
 
-	@SuppressWarnings("unchecked")
-	private void initCaches() {
-		int l = RouteDataObjectAttribute.values().length;
-		evalCache = new Map[l];
-		for (int i = 0; i < l; i++) {
-			evalCache[i] = new HashMap<>();
+	private GeneralRouterEvalCache getSharedEvalCache(Map<String, String> params) {
+		Map<String, String> key = new TreeMap<>(params);
+		GeneralRouterEvalCache cache = sharedEvalCaches.get(key);
+		if (cache == null) {
+			if (sharedEvalCaches.size() >= MAX_SHARED_EVAL_CACHES) {
+				return new GeneralRouterEvalCache();
+			}
+			GeneralRouterEvalCache existing = sharedEvalCaches.putIfAbsent(key, cache = new GeneralRouterEvalCache());
+			if (existing != null) {
+				cache = existing;
+			}
 		}
+		return cache;
 	}
 
 	public String getFilename() {
@@ -299,6 +316,12 @@ public class GeneralRouter implements VehicleRouter {
 	public RouteAttributeContext getObjContext(RouteDataObjectAttribute a) {
 		return objectAttributes[a.ordinal()];
 	}
+
+	public void compileRules() {
+		for (RouteAttributeContext ctx : objectAttributes) {
+			ctx.compile();
+		}
+	}
 	
 
 	public void registerBooleanParameter(String id, String group, String name, String description, String[] profiles, boolean defaultValue) {
@@ -352,17 +375,33 @@ public class GeneralRouter implements VehicleRouter {
 	
 	public int registerTagValueAttribute(String tag, String value) {
 		String key = tag +"$"+value;
-		if(universalRules.containsKey(key)) {
-			return universalRules.get(key);
+		// rules are shared by all routers built from one profile and registered while routing (see convert)
+		synchronized (universalRules) {
+			Integer existing = universalRules.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			int id = universalRules.size();
+			universalRulesById.add(key);
+			universalRules.put(key, id);
+			BitSet mask = tagRuleMask.get(tag);
+			mask = mask == null ? new BitSet() : (BitSet) mask.clone();
+			mask.set(id);
+			tagRuleMask.put(tag, mask);
+			return id;
 		}
-		int id = universalRules.size();
-		universalRulesById.add(key);
-		universalRules.put(key, id);
-		if(!tagRuleMask.containsKey(tag)) {
-			tagRuleMask.put(tag, new BitSet());
+	}
+
+	private int getUniversalRulesSize() {
+		synchronized (universalRules) {
+			return universalRules.size();
+		}
+	}
+
+	private String getUniversalRule(int id) {
+		synchronized (universalRules) {
+			return universalRulesById.get(id);
 		}
-		tagRuleMask.get(tag).set(id);
-		return id;
 	}
 	
 	
@@ -389,18 +428,21 @@ public class GeneralRouter implements VehicleRouter {
 	}
 	
 	private Object parseValueFromTag(int id, String type) {
-		while (ruleToValue.size() <= id) {
-			ruleToValue.add(null);
-		}
-		Object res = ruleToValue.get(id);
-		if (res == null) {
-			String v = universalRulesById.get(id);
-			String value = v.substring(v.indexOf('$') + 1);
-			res = parseValue(value, type);
+		Object res;
+		synchronized (universalRules) {
+			while (ruleToValue.size() <= id) {
+				ruleToValue.add(null);
+			}
+			res = ruleToValue.get(id);
 			if (res == null) {
-				res = "";
+				String v = universalRulesById.get(id);
+				String value = v.substring(v.indexOf('$') + 1);
+				res = parseValue(value, type);
+				if (res == null) {
+					res = "";
+				}
+				ruleToValue.set(id, res);
 			}
-			ruleToValue.set(id, res);
 		}
 		if ("".equals(res)) {
 			return null;
@@ -599,46 +641,8 @@ public class GeneralRouter implements VehicleRouter {
 	}
 	
 	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, Float val, boolean extra) {
-//		TIMER -= System.nanoTime();
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
 		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				rM = new HashMap<IntHolder, Float>();
-				ch.put(reg, rM);
-			}
-			rM.put(new IntHolder(types, extra), val);
-		}
-//		TIMER += System.nanoTime();
-	}
-	
-	class IntHolder {
-		private final int[] array;
-		private final boolean extra;
-
-		IntHolder(int[] ts, boolean extra) {
-			array = ts;
-			this.extra = extra;
-		}
-
-		@Override
-		public int hashCode() {
-			return Arrays.hashCode(array) + (extra ? 1 : 0);
-		}
-
-		@Override
-		public boolean equals(Object other) {
-			if (array == other) {
-				return true;
-			}
-			if (!(other instanceof IntHolder)) {
-				return false;
-			}
-			if (((IntHolder) other).extra != this.extra) {
-				return false;
-			}
-			// noinspection unchecked
-			return Arrays.equals(array, ((IntHolder) other).array);
+			evalCache.put(attr, reg, types, extra, val);
 		}
 	}
 
@@ -651,16 +655,9 @@ public class GeneralRouter implements VehicleRouter {
 	}
 	
 	private Float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
-//		TIMER -= System.nanoTime();
 		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				return null;
-			}
-			Float vl = rM.get(new IntHolder(types, extra));
-			if(vl != null) {
-//				TIMER += System.nanoTime();
+			float vl = evalCache.get(attr, reg, types, extra);
+			if (!Float.isNaN(vl)) {
 				return vl;
 			}
 		}
@@ -825,6 +822,11 @@ public class GeneralRouter implements VehicleRouter {
 	public class RouteAttributeContext {
 		List<RouteAttributeEvalRule> rules = new ArrayList<RouteAttributeEvalRule>();
 		ParameterContext paramContext = null;
+		// compiled decision table: universal rule id -> indexes of rules which require it as first type
+		private int[][] rulesByType;
+		private int[] rulesWithoutTypes;
+		private int[][] ruleTypes;
+		private final TIntArrayList candidates = new TIntArrayList();
 		
 		public RouteAttributeContext(){
 		}
@@ -871,15 +873,65 @@ public class GeneralRouter implements VehicleRouter {
 		public RouteAttributeEvalRule registerNewRule(String selectValue, String selectType) {
 			RouteAttributeEvalRule ev = new RouteAttributeEvalRule();
 			ev.registerSelectValue(selectValue, selectType);
-			rules.add(ev);	
+			rules.add(ev);
+			rulesByType = null;
 			return ev;
 		}
+
+		/**
+		 * Builds decision table so evaluation checks only rules whose required tag-values are present
+		 * (in original order) instead of walking all rules. Other conditions ("$tag" values, ":param" values,
+		 * expressions) are still checked by the rules themselves. Rules should not be modified after.
+		 */
+		public synchronized void compile() {
+			int size = getUniversalRulesSize();
+			List<TIntArrayList> byType = new ArrayList<TIntArrayList>(size);
+			for (int i = 0; i < size; i++) {
+				byType.add(null);
+			}
+			TIntArrayList withoutTypes = new TIntArrayList();
+			ruleTypes = new int[rules.size()][];
+			for (int k = 0; k < rules.size(); k++) {
+				BitSet filter = rules.get(k).filterTypes;
+				int[] types = new int[filter.cardinality()];
+				int i = 0;
+				for (int t = filter.nextSetBit(0); t >= 0; t = filter.nextSetBit(t + 1)) {
+					types[i++] = t;
+				}
+				ruleTypes[k] = types;
+				if (types.length == 0) {
+					withoutTypes.add(k);
+				} else {
+					TIntArrayList l = byType.get(types[0]);
+					if (l == null) {
+						l = new TIntArrayList();
+						byType.set(types[0], l);
+					}
+					l.add(k);
+				}
+			}
+			int[][] table = new int[size][];
+			for (int i = 0; i < size; i++) {
+				if (byType.get(i) != null) {
+					table[i] = byType.get(i).toArray();
+				}
+			}
+			rulesWithoutTypes = withoutTypes.toArray();
+			rulesByType = table;
+		}
+
+		public boolean isCompiled() {
+			return rulesByType != null;
+		}
 		
 		public RouteAttributeEvalRule getLastRule() {
 			return rules.get(rules.size() - 1);
 		}
 
 		private synchronized Object evaluate(BitSet types) {
+			if (rulesByType != null) {
+				return evaluateCompiled(types);
+			}
 			for (int k = 0; k < rules.size(); k++) {
 				RouteAttributeEvalRule r = rules.get(k);
 				Object o = r.eval(types, paramContext);
@@ -890,6 +942,29 @@ public class GeneralRouter implements VehicleRouter {
 			return null;
 		}
 
+		private Object evaluateCompiled(BitSet types) {
+			candidates.resetQuick();
+			candidates.add(rulesWithoutTypes);
+			for (int t = types.nextSetBit(0); t >= 0 && t < rulesByType.length; t = types.nextSetBit(t + 1)) {
+				if (rulesByType[t] != null) {
+					candidates.add(rulesByType[t]);
+				}
+			}
+			// keep priority of rules (first matched wins), each rule is registered only once
+			candidates.sort();
+			for (int i = 0; i < candidates.size(); i++) {
+				int k = candidates.getQuick(i);
+				RouteAttributeEvalRule r = rules.get(k);
+				if (r.matches(types, ruleTypes[k], paramContext)) {
+					Object o = r.calcSelectValue(types, paramContext);
+					if (o != null) {
+						return o;
+					}
+				}
+			}
+			return null;
+		}
+
 		private boolean checkParameter(RouteAttributeEvalRule r) {
 			if (paramContext != null && r.parameters.size() > 0) {
 				for (String p : r.parameters) {
@@ -958,20 +1033,28 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		
 		private BitSet convert(RouteRegion reg, int[] types) {
-			BitSet b = new BitSet(universalRules.size());
-			Map<Integer, Integer> map = regionConvert.get(reg);
-			if(map == null){
-				map = new HashMap<Integer, Integer>();
-				regionConvert.put(reg, map);
-			}
-			for(int k = 0; k < types.length; k++) {
-				Integer nid = map.get(types[k]);
-				if (nid == null) {
-					RouteTypeRule r = reg.quickGetEncodingRule(types[k]);
-					nid = registerTagValueAttribute(r.getTag(), r.getValue());
-					map.put(types[k], nid);
+			BitSet b = new BitSet(getUniversalRulesSize());
+			// router could be used by several calculations at once (i.e. concurrent route legs)
+			synchronized (regionConvert) {
+				int[] map = regionConvert.get(reg);
+				if (map == null) {
+					map = new int[Math.max(reg.quickGetEncodingRulesSize(), 16)];
+					regionConvert.put(reg, map);
+				}
+				for (int k = 0; k < types.length; k++) {
+					int tp = types[k];
+					if (tp >= map.length) {
+						map = Arrays.copyOf(map, Math.max(tp + 1, map.length * 2));
+						regionConvert.put(reg, map);
+					}
+					int nid = map[tp] - 1;
+					if (nid < 0) {
+						RouteTypeRule r = reg.quickGetEncodingRule(tp);
+						nid = registerTagValueAttribute(r.getTag(), r.getValue());
+						map[tp] = nid + 1;
+					}
+					b.set(nid);
 				}
-				b.set(nid);
 			}
 			return b;
 		}
@@ -1132,7 +1215,7 @@ public class GeneralRouter implements VehicleRouter {
 			out.print(" Select " + selectValue + " if ");
 			for (int k = 0; k < filterTypes.length(); k++) {
 				if (filterTypes.get(k)) {
-					String key = universalRulesById.get(k);
+					String key = getUniversalRule(k);
 					out.print(key + " ");
 				}
 			}
@@ -1141,7 +1224,7 @@ public class GeneralRouter implements VehicleRouter {
 			}
 			for (int k = 0; k < filterNotTypes.length(); k++) {
 				if (filterNotTypes.get(k)) {
-					String key = universalRulesById.get(k);
+					String key = getUniversalRule(k);
 					out.print(key + " ");
 				}
 			}
@@ -1248,6 +1331,19 @@ public class GeneralRouter implements VehicleRouter {
 			if (!checkAllTypesShouldBePresent(types)) {
 				return false;
 			}
+			return matchesExceptTypes(types, paramContext);
+		}
+
+		boolean matches(BitSet types, int[] filterTypes, ParameterContext paramContext) {
+			for (int t : filterTypes) {
+				if (!types.get(t)) {
+					return false;
+				}
+			}
+			return matchesExceptTypes(types, paramContext);
+		}
+
+		private boolean matchesExceptTypes(BitSet types, ParameterContext paramContext) {
 			if (!checkAllTypesShouldNotBePresent(types)) {
 				return false;
 			}
@@ -1317,9 +1413,7 @@ public class GeneralRouter implements VehicleRouter {
 	
 	public void clearCaches() {
 		if (evalCache != null) {
-			for (int i = 0; i < evalCache.length; i++) {
-				evalCache[i].clear();
-			}
+			evalCache.clear();
 		}
 	}
 
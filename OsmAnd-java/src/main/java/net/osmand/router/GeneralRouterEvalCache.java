@@ -0,0 +1,99 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.router.GeneralRouter.RouteDataObjectAttribute;
+
+/**
+ * Bounded cache of evaluated router attributes (speed, priority, oneway...) keyed by
+ * (attribute, region, types, direction). Lookups are lock-free and don't allocate,
+ * so the same cache is shared by all {@link GeneralRouter} copies with equal parameters
+ * and could be used by routing threads concurrently.
+ * Table is 2-way associative: on collision older entry is simply overwritten.
+ */
+class GeneralRouterEvalCache {
+
+	public static final int DEFAULT_CAPACITY = 1 << 14;
+	// returned when value is not cached (evaluated values are never NaN)
+	public static final float MISSING = Float.NaN;
+
+	private final AtomicReferenceArray<Entry> table;
+	private final int mask;
+
+	private static class Entry {
+		final int hash;
+		final int attr;
+		final boolean extra;
+		final RouteRegion region;
+		final int[] types;
+		final float value;
+
+		Entry(int hash, int attr, boolean extra, RouteRegion region, int[] types, float value) {
+			this.hash = hash;
+			this.attr = attr;
+			this.extra = extra;
+			this.region = region;
+			this.types = types;
+			this.value = value;
+		}
+
+		boolean matches(int hash, int attr, boolean extra, RouteRegion region, int[] types) {
+			return this.hash == hash && this.attr == attr && this.extra == extra && this.region == region
+					&& (this.types == types || Arrays.equals(this.types, types));
+		}
+	}
+
+	GeneralRouterEvalCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	GeneralRouterEvalCache(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		table = new AtomicReferenceArray<>(size);
+		mask = size - 1;
+	}
+
+	float get(RouteDataObjectAttribute attr, RouteRegion region, int[] types, boolean extra) {
+		int h = hash(attr.ordinal(), region, types, extra);
+		int i = h & mask;
+		Entry e = table.get(i);
+		if (e != null && e.matches(h, attr.ordinal(), extra, region, types)) {
+			return e.value;
+		}
+		e = table.get(i ^ 1);
+		if (e != null && e.matches(h, attr.ordinal(), extra, region, types)) {
+			return e.value;
+		}
+		return MISSING;
+	}
+
+	void put(RouteDataObjectAttribute attr, RouteRegion region, int[] types, boolean extra, float value) {
+		int h = hash(attr.ordinal(), region, types, extra);
+		int i = h & mask;
+		// types array belongs to road object, so keep own copy
+		Entry ne = new Entry(h, attr.ordinal(), extra, region, Arrays.copyOf(types, types.length), value);
+		if (table.get(i) != null && table.get(i ^ 1) == null) {
+			i = i ^ 1;
+		}
+		table.lazySet(i, ne);
+	}
+
+	void clear() {
+		for (int i = 0; i < table.length(); i++) {
+			table.lazySet(i, null);
+		}
+	}
+
+	int capacity() {
+		return table.length();
+	}
+
+	private static int hash(int attr, RouteRegion region, int[] types, boolean extra) {
+		int h = Arrays.hashCode(types);
+		h = 31 * h + System.identityHashCode(region);
+		h = 31 * h + (attr << 1) + (extra ? 1 : 0);
+		return h ^ (h >>> 16);
+	}
+}
@@ -4,12 +4,13 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.Locale;
+import java.util.Map;
 import java.util.TreeMap;
 
 import com.google.protobuf.CodedInputStream;
@@ -30,7 +31,7 @@ import net.osmand.util.MapUtils;
 
 public class HHRouteDataStructure {
 	
-	public static class HHRoutingConfig {
+	public static class HHRoutingConfig implements Cloneable {
 		public final static int CALCULATE_ALL_DETAILED = 3;
 		public static int STATS_VERBOSE_LEVEL = 1; // 0 less verbose
 		float HEURISTIC_COEFFICIENT = 0; // A* - 1, Dijkstra - 0
@@ -101,6 +102,20 @@ public class HHRouteDataStructure {
 			return df;
 		}
 		
+		/**
+		 * Copy without cached context, so it could be used by concurrent calculation
+		 */
+		public HHRoutingConfig copy() {
+			try {
+				HHRoutingConfig c = (HHRoutingConfig) clone();
+				c.CACHE_CALCULATION_CONTEXT = false;
+				c.cacheCtx = null;
+				return c;
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
 		public HHRoutingConfig preloadSegments() {
 			this.PRELOAD_SEGMENTS = true;
 			return this;
@@ -150,6 +165,17 @@ public class HHRouteDataStructure {
 			return this;
 		}
 
+		/**
+		 * Parameters which change calculated route (used as a key of calculated routes)
+		 */
+		public String getParametersKey() {
+			return String.format(Locale.US,
+					"HC %.2f dir %.0f ch %b/%b mid %b/%d/%d last %b all %b/%b alt %b cost %.1f depth %d settle %d",
+					HEURISTIC_COEFFICIENT, DIJKSTRA_DIRECTION, USE_CH, USE_CH_SHORTCUTS, USE_MIDPOINT,
+					MIDPOINT_ERROR, MIDPOINT_MAX_DEPTH, ROUTE_LAST_MILE, ROUTE_ALL_SEGMENTS, ROUTE_ALL_ALT_SEGMENTS,
+					CALC_ALTERNATIVES, MAX_COST, MAX_DEPTH, MAX_SETTLE_POINTS);
+		}
+
 		@Override
 		public String toString() {
 			return toString(null, null);
@@ -207,11 +233,11 @@ public class HHRouteDataStructure {
 	public static class HHRoutingContext<T extends NetworkDBPoint> {
 		// faster when roads are in 1 global network but doesn't make sense for isolated islands
 		static boolean USE_GLOBAL_QUEUE = false; 
+		static final int MAX_CACHED_FILTER_PARAMETERS = 8;
 		
 		// Initial data structure
 		RoutingContext rctx; 
 		List<HHRouteRegionPointsCtx<T>> regions = new ArrayList<>();
-		TreeMap<String, String> filterRoutingParameters = new TreeMap<>();
 		
 		TLongObjectHashMap<T> pointsById; 
 		TLongObjectHashMap<T> pointsByGeo;
@@ -221,9 +247,14 @@ public class HHRouteDataStructure {
 		DataTileManager<T> pointsRect = new DataTileManager<>(11); // 20km tile
 		TLongObjectHashMap<RouteSegment> boundaries;
 		boolean initialized = false;
+		// synchronizes lazy loading of segments / geometry when network is shared between contexts
+		Object networkLock = new Object();
+		// points excluded by routing parameters (indexed by NetworkDBPoint.ordinal), shared between contexts
+		Map<TreeMap<String, String>, boolean[]> excludedByParameters = new HashMap<>();
 		
 		// Route specific details
 		RoutingStats stats = new RoutingStats();
+		NetworkDBPointsRouteInfo rt = new NetworkDBPointsRouteInfo(0, null);
 		HHRoutingConfig config;
 		int startX;
 		int startY;
@@ -235,31 +266,50 @@ public class HHRouteDataStructure {
 		List<T> visited = new ArrayList<>();
 		List<T> visitedRev = new ArrayList<>();
 		
-		Queue<NetworkDBPointCost<T>> queue = createQueue();
-		Queue<NetworkDBPointCost<T>> queuePos = createQueue();
-		Queue<NetworkDBPointCost<T>> queueRev = createQueue();
-
+		// indexed by queueHandle, so each point is present once per direction
+		CostHeap<T> queue = new CostHeap<>(true);
+		CostHeap<T> queuePos = new CostHeap<>(true);
+		CostHeap<T> queueRev = new CostHeap<>(true);
 
+		static int queueHandle(NetworkDBPoint p, boolean rev) {
+			return (p.ordinal << 1) + (rev ? 1 : 0);
+		}
 
-		private PriorityQueue<NetworkDBPointCost<T>> createQueue() {
-			return new PriorityQueue<>(new Comparator<NetworkDBPointCost<T>>() {
-				@Override
-				public int compare(NetworkDBPointCost<T> o1, NetworkDBPointCost<T> o2) {
-					return Double.compare(o1.cost, o2.cost);
-				}
-			});
+		static boolean isReverseHandle(int handle) {
+			return (handle & 1) == 1;
 		}
 		
+		/**
+		 * Creates context for another route calculation which shares loaded network (points, segments, clusters)
+		 * with this context. Network is not modified by route calculation, so contexts could be used concurrently,
+		 * though each context should have its own routing context (with own readers).
+		 */
+		public HHRoutingContext<T> shareNetwork(RoutingContext rctx) {
+			HHRoutingContext<T> c = new HHRoutingContext<T>();
+			c.rctx = rctx;
+			c.regions = regions;
+			c.pointsById = pointsById;
+			c.pointsByGeo = pointsByGeo;
+			c.clusterInPoints = clusterInPoints;
+			c.clusterOutPoints = clusterOutPoints;
+			c.pointsRect = pointsRect;
+			c.boundaries = boundaries;
+			c.initialized = initialized;
+			c.networkLock = networkLock;
+			c.excludedByParameters = excludedByParameters;
+			return c;
+		}
+
 		public void clearAll(TLongObjectHashMap<T> stPoints, TLongObjectHashMap<T> endPoints) {
 			clearVisited();
 			if (stPoints != null) {
 				for (NetworkDBPoint p : stPoints.valueCollection()) {
-					p.clearRouting();
+					rt.clearRouting(p);
 				}
 			}
 			if (endPoints != null) {
 				for (NetworkDBPoint p : endPoints.valueCollection()) {
-					p.clearRouting();
+					rt.clearRouting(p);
 				}
 			}
 		}
@@ -274,7 +324,7 @@ public class HHRouteDataStructure {
 			queue(false).clear();
 			queue(true).clear();
 			for (NetworkDBPoint p : queueAdded) {
-				p.clearRouting();
+				rt.clearRouting(p);
 			}
 			queueAdded.clear();
 			visited.clear();
@@ -295,16 +345,16 @@ public class HHRouteDataStructure {
 			Iterator<T> it = queueAdded.iterator();
 			while (it.hasNext()) {
 				NetworkDBPoint p = it.next();
-				FinalRouteSegment pos = p.rt(false).rtDetailedRoute;
-				FinalRouteSegment rev = p.rt(true).rtDetailedRoute;
-				p.clearRouting();
+				FinalRouteSegment pos = rt.detailedRoute(p, false);
+				FinalRouteSegment rev = rt.detailedRoute(p, true);
+				rt.clearRouting(p);
 				if (stPoints.containsKey(p.index) && pos != null) {
-					p.setDistanceToEnd(false, distanceToEnd(false, p));
-					p.setDetailedParentRt(false, pos);
+					rt.setDistanceToEnd(p, false, distanceToEnd(false, p));
+					rt.setDetailedParentRt(p, false, pos);
 				} 
 				if (endPoints.containsKey(p.index) && rev != null) {
-					p.setDistanceToEnd(true, distanceToEnd(true, p));
-					p.setDetailedParentRt(true, rev);
+					rt.setDistanceToEnd(p, true, distanceToEnd(true, p));
+					rt.setDetailedParentRt(p, true, rev);
 				}
 				it.remove();
 			}
@@ -329,7 +379,7 @@ public class HHRouteDataStructure {
 			}
 		}
 
-		public Queue<NetworkDBPointCost<T>> queue(boolean rev) {
+		public CostHeap<T> queue(boolean rev) {
 			return USE_GLOBAL_QUEUE ? queue : (rev ? queueRev : queuePos);
 		}
 
@@ -370,27 +420,34 @@ public class HHRouteDataStructure {
 		}
 
 		public boolean loadGeometry(NetworkDBSegment segment, boolean reload) throws SQLException {
-			if (!segment.getGeometry().isEmpty() && !reload) {
-				return true;
-			}
-			for (HHRouteRegionPointsCtx<T> r : regions) {
-				if (r.networkDB != null && !r.networkDB.compactDB) {
-					if (r.networkDB.loadGeometry(segment, r.routingProfile, reload)) {
-						return true;
+			synchronized (networkLock) {
+				if (!segment.getGeometry().isEmpty() && !reload) {
+					return true;
+				}
+				for (HHRouteRegionPointsCtx<T> r : regions) {
+					if (r.networkDB != null && !r.networkDB.compactDB) {
+						if (r.networkDB.loadGeometry(segment, r.routingProfile, reload)) {
+							return true;
+						}
 					}
 				}
+				return false;
 			}
-			return false;
 		}
 
 		public int loadNetworkSegmentPoint(T point, boolean reverse) throws SQLException, IOException {
+			if (point.connected(reverse) != null) {
+				return 0;
+			}
 			short mapId = point.mapId;
 			HHRouteRegionPointsCtx<T> r = regions.get(mapId);
-			if (r.networkDB != null) {
-				return r.networkDB.loadNetworkSegmentPoint(this, r, point, reverse);
-			}
-			if (r.file != null) {
-				return r.file.loadNetworkSegmentPoint(this, r, point, reverse);
+			synchronized (networkLock) {
+				if (r.networkDB != null) {
+					return r.networkDB.loadNetworkSegmentPoint(this, r, point, reverse);
+				}
+				if (r.file != null) {
+					return r.file.loadNetworkSegmentPoint(this, r, point, reverse);
+				}
 			}
 			throw new UnsupportedOperationException();
 		}
@@ -416,12 +473,12 @@ public class HHRouteDataStructure {
 		
 		public double distanceToEnd(boolean reverse,  NetworkDBPoint nextPoint) {
 			if (config.HEURISTIC_COEFFICIENT > 0) {
-				double distanceToEnd = nextPoint.rt(reverse).rtDistanceToEnd;
+				double distanceToEnd = rt.distanceToEnd(nextPoint, reverse);
 				if (distanceToEnd == 0) {
 					double dist = HHRoutePlanner.squareRootDist31(reverse ? startX : endX, reverse ? startY : endY, 
 							nextPoint.midX(), nextPoint.midY());
 					distanceToEnd = config.HEURISTIC_COEFFICIENT * dist / rctx.getRouter().getMaxSpeed();
-					nextPoint.setDistanceToEnd(reverse, distanceToEnd);
+					rt.setDistanceToEnd(nextPoint, reverse, distanceToEnd);
 				}
 				return distanceToEnd;
 			}
@@ -429,18 +486,6 @@ public class HHRouteDataStructure {
 		}
 	}
 
-	static class NetworkDBPointCost<T> {
-		final T point;
-		final double cost;
-		final boolean rev;
-		
-		NetworkDBPointCost(T p, double cost, boolean rev) {
-			point = p;
-			this.cost = cost;
-			this.rev = rev;
-		}
-	}
-	
 	public static class RoutingStats {
 		int firstRouteVisitedVertices = 0;
 		int visitedVertices = 0;
@@ -450,6 +495,9 @@ public class HHRouteDataStructure {
 		double loadPointsTime = 0;
 		int loadEdgesCnt;
 		double loadEdgesTime = 0;
+		// time spent in db queries (included in loadEdgesTime) and db queries
+		double loadEdgesDbTime = 0;
+		int loadEdgesQueries;
 		double altRoutingTime;
 		double routingTime = 0;
 		double searchPointsTime = 0;
@@ -458,6 +506,38 @@ public class HHRouteDataStructure {
 		double prepTime = 0;
 	}
 	
+	public static class HHRouteMatrix {
+		// [source][target]: time in seconds and distance in meters, Float.POSITIVE_INFINITY if target is not reachable
+		public final float[][] times;
+		public final float[][] distances;
+		public int settledPoints;
+		public double calculationTime;
+
+		public HHRouteMatrix(int sources, int targets) {
+			times = new float[sources][targets];
+			distances = new float[sources][targets];
+			for (int i = 0; i < sources; i++) {
+				Arrays.fill(times[i], Float.POSITIVE_INFINITY);
+				Arrays.fill(distances[i], Float.POSITIVE_INFINITY);
+			}
+		}
+	}
+
+	// cost from network point to target (linked list per network point ordinal)
+	static class HHMatrixBucket {
+		final int target;
+		final double time;
+		final double distance;
+		final HHMatrixBucket next;
+
+		HHMatrixBucket(int target, double time, double distance, HHMatrixBucket next) {
+			this.target = target;
+			this.time = time;
+			this.distance = distance;
+			this.next = next;
+		}
+	}
+
 	public static class HHNetworkRouteRes extends RouteCalcResult {
 
 		public RoutingStats stats;
@@ -583,38 +663,154 @@ public class HHRouteDataStructure {
 	}
 	
 	
-	static class NetworkDBPointRouteInfo {
-		NetworkDBPoint rtRouteToPoint;
-		boolean rtVisited;
-		double rtDistanceFromStart;
-		int rtDepth = -1; // possibly not needed (used 1)
-		double rtDistanceToEnd; // possibly not needed (used 1)
-		double rtCost;
-		FinalRouteSegment rtDetailedRoute;
-		
-		public int getDepth(boolean rev) {
-			if (rtDepth > 0) {
-				return rtDepth;
-			}
-			if (rtRouteToPoint != null) {
-				rtDepth = rtRouteToPoint.rt(rev).getDepth(rev) + 1; 
-				return rtDepth ;
+	/**
+	 * Runtime info of network points for a single route calculation. Values are stored in primitive arrays
+	 * addressed by {@link NetworkDBPoint#ordinal} (2 slots per point: positive and reverse direction),
+	 * arrays are allocated by pages on first write, so only visited area of the network takes memory.
+	 */
+	static class NetworkDBPointsRouteInfo {
+		private static final int PAGE_SHIFT = 9;
+		private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+		private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+		private static class Page {
+			final double[] cost = new double[PAGE_SIZE * 2];
+			final double[] distanceFromStart = new double[PAGE_SIZE * 2];
+			final double[] distanceToEnd = new double[PAGE_SIZE * 2];
+			final int[] depth = new int[PAGE_SIZE * 2];
+			final boolean[] visited = new boolean[PAGE_SIZE * 2];
+			final NetworkDBPoint[] routeToPoint = new NetworkDBPoint[PAGE_SIZE * 2];
+			final FinalRouteSegment[] detailedRoute = new FinalRouteSegment[PAGE_SIZE * 2];
+			final boolean[] exclude = new boolean[PAGE_SIZE];
+		}
+
+		private final Page[] pages;
+		// excluded by routing parameters, shared (read-only)
+		private final boolean[] excludedByParameters;
+
+		NetworkDBPointsRouteInfo(int points, boolean[] excludedByParameters) {
+			this.pages = new Page[(points >> PAGE_SHIFT) + 1];
+			this.excludedByParameters = excludedByParameters;
+		}
+
+		private Page page(NetworkDBPoint p) {
+			return pages[p.ordinal >> PAGE_SHIFT];
+		}
+
+		private Page writePage(NetworkDBPoint p) {
+			Page pg = pages[p.ordinal >> PAGE_SHIFT];
+			if (pg == null) {
+				pg = new Page();
+				pages[p.ordinal >> PAGE_SHIFT] = pg;
+			}
+			return pg;
+		}
+
+		private static int slot(NetworkDBPoint p, boolean rev) {
+			return ((p.ordinal & PAGE_MASK) << 1) + (rev ? 1 : 0);
+		}
+
+		public double cost(NetworkDBPoint p, boolean rev) {
+			Page pg = page(p);
+			return pg == null ? 0 : pg.cost[slot(p, rev)];
+		}
+
+		public double distanceFromStart(NetworkDBPoint p, boolean rev) {
+			Page pg = page(p);
+			return pg == null ? 0 : pg.distanceFromStart[slot(p, rev)];
+		}
+
+		public double distanceToEnd(NetworkDBPoint p, boolean rev) {
+			Page pg = page(p);
+			return pg == null ? 0 : pg.distanceToEnd[slot(p, rev)];
+		}
+
+		public boolean visited(NetworkDBPoint p, boolean rev) {
+			Page pg = page(p);
+			return pg != null && pg.visited[slot(p, rev)];
+		}
+
+		public NetworkDBPoint routeToPoint(NetworkDBPoint p, boolean rev) {
+			Page pg = page(p);
+			return pg == null ? null : pg.routeToPoint[slot(p, rev)];
+		}
+
+		public FinalRouteSegment detailedRoute(NetworkDBPoint p, boolean rev) {
+			Page pg = page(p);
+			return pg == null ? null : pg.detailedRoute[slot(p, rev)];
+		}
+
+		public boolean isExcluded(NetworkDBPoint p) {
+			if (excludedByParameters != null && p.ordinal < excludedByParameters.length
+					&& excludedByParameters[p.ordinal]) {
+				return true;
+			}
+			Page pg = page(p);
+			return pg != null && pg.exclude[p.ordinal & PAGE_MASK];
+		}
+
+		public void setExclude(NetworkDBPoint p, boolean exclude) {
+			writePage(p).exclude[p.ordinal & PAGE_MASK] = exclude;
+		}
+
+		public int getDepth(NetworkDBPoint p, boolean rev) {
+			Page pg = page(p);
+			if (pg == null) {
+				return 0;
+			}
+			int s = slot(p, rev);
+			if (pg.depth[s] > 0) {
+				return pg.depth[s];
+			}
+			if (pg.routeToPoint[s] != null) {
+				pg.depth[s] = getDepth(pg.routeToPoint[s], rev) + 1;
+				return pg.depth[s];
 			}
 			return 0;
 		}
-		
-		public void setDetailedParentRt(FinalRouteSegment r) {
+
+		public void setDistanceToEnd(NetworkDBPoint p, boolean rev, double segmentDist) {
+			writePage(p).distanceToEnd[slot(p, rev)] = segmentDist;
+		}
+
+		public void markVisited(NetworkDBPoint p, boolean rev) {
+			writePage(p).visited[slot(p, rev)] = true;
+		}
+
+		public void setDetailedParentRt(NetworkDBPoint p, boolean rev, FinalRouteSegment r) {
+			Page pg = writePage(p);
+			int s = slot(p, rev);
 			double segmentDist = r.getDistanceFromStart();
-			rtRouteToPoint = null;
-			rtCost = rtDistanceToEnd + segmentDist;
-			rtDetailedRoute = r;
-			rtDistanceFromStart = segmentDist;
+			pg.routeToPoint[s] = null;
+			pg.cost[s] = pg.distanceToEnd[s] + segmentDist;
+			pg.detailedRoute[s] = r;
+			pg.distanceFromStart[s] = segmentDist;
 		}
-		
-		public void setCostParentRt(boolean rev, double cost, NetworkDBPoint point, double segmentDist) {
-			rtCost = cost;
-			rtRouteToPoint = point;
-			rtDistanceFromStart = (point == null ? 0 : point.rt(rev).rtDistanceFromStart) + segmentDist;
+
+		public void setCostParentRt(NetworkDBPoint p, boolean rev, double cost, NetworkDBPoint point, double segmentDist) {
+			double parentDist = point == null ? 0 : distanceFromStart(point, rev);
+			Page pg = writePage(p);
+			int s = slot(p, rev);
+			pg.cost[s] = cost;
+			pg.routeToPoint[s] = point;
+			pg.distanceFromStart[s] = parentDist + segmentDist;
+		}
+
+		public void clearRouting(NetworkDBPoint p) {
+			Page pg = page(p);
+			if (pg == null) {
+				return;
+			}
+			pg.exclude[p.ordinal & PAGE_MASK] = false;
+			for (int s = slot(p, false); s <= slot(p, true); s++) {
+				pg.cost[s] = 0;
+				pg.distanceFromStart[s] = 0;
+				pg.distanceToEnd[s] = 0;
+				pg.depth[s] = 0;
+				pg.visited[s] = false;
+				pg.routeToPoint[s] = null;
+				pg.detailedRoute[s] = null;
+			}
 		}
 	}
 	
@@ -628,6 +824,8 @@ public class HHRouteDataStructure {
 		public int fileId;
 		public short mapId;
 		public boolean incomplete;
+		// position in loaded network, addresses route runtime info (see NetworkDBPointsRouteInfo)
+		public int ordinal;
 		
 		public long roadId;
 		public short start;
@@ -637,12 +835,9 @@ public class HHRouteDataStructure {
 		public int endX;
 		public int endY;
 		
-		boolean rtExclude;
-		NetworkDBPointRouteInfo rtRev;
-		NetworkDBPointRouteInfo rtPos;
-		
-		List<NetworkDBSegment> connected = new ArrayList<NetworkDBSegment>();
-		List<NetworkDBSegment> connectedReverse = new ArrayList<NetworkDBSegment>();
+		// volatile as segments are lazy loaded when network is shared between route calculations
+		volatile List<NetworkDBSegment> connected = new ArrayList<NetworkDBSegment>();
+		volatile List<NetworkDBSegment> connectedReverse = new ArrayList<NetworkDBSegment>();
 		
 		public int midX() {
 			return startX / 2 + endX / 2 ;
@@ -652,33 +847,10 @@ public class HHRouteDataStructure {
 			return startY / 2 + endY/ 2 ;
 		}
 		
-		public NetworkDBPointRouteInfo rt(boolean rev) {
-			if (rev) {
-				if (rtRev == null) {
-					rtRev = new NetworkDBPointRouteInfo();
-				}
-				return rtRev;
-			} else {
-				if (rtPos == null) {
-					rtPos = new NetworkDBPointRouteInfo();
-				}
-				return rtPos;
-			}
-		}
-		
 		public List<NetworkDBSegment> connected(boolean rev) {
 			return rev ? connectedReverse : connected;
 		}
 		
-		public void setDistanceToEnd(boolean rev, double segmentDist) {
-			rt(rev).rtDistanceToEnd = segmentDist;
-		}
-		
-
-		public void markVisited(boolean rev) {
-			rt(rev).rtVisited = true;
-		}
-		
 		public void connectedSet(boolean rev, List<NetworkDBSegment> l) {
 			if (rev) {
 				connectedReverse = l;
@@ -687,14 +859,6 @@ public class HHRouteDataStructure {
 			}
 		}
 		
-		public void setCostParentRt(boolean reverse, double cost, NetworkDBPoint point, double segmentDist) {
-			rt(reverse).setCostParentRt(reverse, cost, point, segmentDist);
-		}
-		
-		public void setDetailedParentRt(boolean reverse, FinalRouteSegment r) {
-			rt(reverse).setDetailedParentRt(r);
-		}
-		
 		public void markSegmentsNotLoaded() {
 			connected = null;
 			connectedReverse = null;
@@ -725,12 +889,6 @@ public class HHRouteDataStructure {
 			return null;
 		}
 
-		public void clearRouting() {
-			rtExclude = false;
-			rtPos = null;
-			rtRev = null;
-		}
-
 		public int chInd() {
 			return 0;
 		}
@@ -12,11 +12,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
@@ -35,12 +35,14 @@ import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
 import net.osmand.router.GeneralRouter.RoutingParameter;
 import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHMatrixBucket;
 import net.osmand.router.HHRouteDataStructure.HHNetworkSegmentRes;
+import net.osmand.router.HHRouteDataStructure.HHRouteMatrix;
 import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
 import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
 import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
 import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
-import net.osmand.router.HHRouteDataStructure.NetworkDBPointCost;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPointsRouteInfo;
 import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
 import net.osmand.router.HHRouteDataStructure.RoutingStats;
 import net.osmand.router.RouteCalculationProgress.HHIteration;
@@ -65,6 +67,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	private final Class<T> pointClass;
 	private final HHRouteRegionPointsCtx<T> predefinedRegions;
 	private HHRoutingContext<T> currentCtx; // never null
+	private boolean sharedNetwork;
 	
 	
 	public static HHRoutePlanner<NetworkDBPoint> createDB(RoutingContext ctx, HHRoutingDB networkDB) {
@@ -80,12 +83,32 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return new HHRoutePlanner<NetworkDBPoint>(ctx, null, NetworkDBPoint.class);
 	}
 	
+	/**
+	 * Creates planner for concurrent route calculations over already loaded network (see {@link #loadNetwork}).
+	 * Network is shared (segment costs corrected by detailed routing are written under network lock),
+	 * ctx should be separate for each thread (e.g. built over {@link BinaryMapIndexReader#createCursor()} readers).
+	 */
+	public static <Ts extends NetworkDBPoint> HHRoutePlanner<Ts> createShared(RoutingContext ctx, HHRoutingContext<Ts> network,
+			Class<Ts> cl) {
+		HHRoutePlanner<Ts> planner = new HHRoutePlanner<Ts>(ctx, null, cl);
+		planner.sharedNetwork = true;
+		planner.currentCtx = network.shareNetwork(ctx);
+		return planner;
+	}
+	
 	private HHRoutePlanner(RoutingContext ctx, HHRouteRegionPointsCtx<T> src, Class<T> cl) {
 		this.pointClass = cl;
 		this.predefinedRegions = src;
 		initNewContext(ctx, src == null ? null : Collections.singletonList(src));
 	}
 	
+	/**
+	 * Selects routing files and loads network points, so loaded network could be shared with {@link #createShared}
+	 */
+	public HHRoutingContext<T> loadNetwork(LatLon start, LatLon end, HHRoutingConfig config) throws SQLException, IOException {
+		return initHCtx(prepareDefaultRoutingConfig(config), start, end);
+	}
+	
 	private HHRoutingContext<T> initNewContext(RoutingContext ctx, List<HHRouteRegionPointsCtx<T>> regions) {
 		currentCtx = new HHRoutingContext<T>();
 		currentCtx.rctx = ctx;
@@ -96,6 +119,9 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	}
 
 	public void close() throws SQLException {
+		if (sharedNetwork) {
+			return;
+		}
 		if (predefinedRegions != null && predefinedRegions.networkDB != null) {
 			try {
 				predefinedRegions.networkDB.close();
@@ -285,15 +311,245 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		printGCInformation(false);
 		hctx.clearAll(stPoints, endPoints);
 		printf(SL >= 0,
-				"Routing %.1f ms: load/filter points %.1f ms, last mile %.1f ms, routing %.1f ms (queue  - %.1f ms, %.1f ms - %,d edges), prep result %.1f ms - %s (selected %s)\n",
+				"Routing %.1f ms: load/filter points %.1f ms, last mile %.1f ms, routing %.1f ms (queue  - %.1f ms, %.1f ms - %,d edges, db %.1f ms - %,d queries), prep result %.1f ms - %s (selected %s)\n",
 				(System.nanoTime() - startTime) / 1e6, 
 				hctx.stats.loadPointsTime, hctx.stats.searchPointsTime,
 				hctx.stats.routingTime, hctx.stats.addQueueTime + hctx.stats.pollQueueTime,
-				hctx.stats.loadEdgesTime, hctx.stats.loadEdgesCnt, hctx.stats.prepTime,
+				hctx.stats.loadEdgesTime, hctx.stats.loadEdgesCnt, hctx.stats.loadEdgesDbTime,
+				hctx.stats.loadEdgesQueries, hctx.stats.prepTime,
 				hctx.config.toString(start, end), hctx.getRoutingInfo());
 		return route;
 	}
 
+	/**
+	 * Calculates travel times and distances between all sources and all targets (many-to-many matrix).
+	 * Last mile is calculated once per point: targets store their cost from network points in buckets of these points,
+	 * so single forward dijkstra over network per source is enough and it stops as soon as all targets are settled.
+	 * Distances inside network are estimated by straight lines between network points.
+	 * @return null if files for hh routing were not found or calculation was cancelled
+	 */
+	@SuppressWarnings("unchecked")
+	public HHRouteMatrix calculateMatrix(List<LatLon> sources, List<LatLon> targets, HHRoutingConfig config)
+			throws SQLException, IOException, InterruptedException {
+		long startTime = System.nanoTime();
+		RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
+		config = prepareDefaultRoutingConfig(config);
+		// regions are selected by most distant pair
+		LatLon start = null, end = null;
+		double maxDist = -1;
+		for (LatLon s : sources) {
+			for (LatLon t : targets) {
+				double d = MapUtils.getDistance(s, t);
+				if (d > maxDist) {
+					maxDist = d;
+					start = s;
+					end = t;
+				}
+			}
+		}
+		if (start == null) {
+			return new HHRouteMatrix(sources.size(), targets.size());
+		}
+		float savedHeuristicCoefficient = config.HEURISTIC_COEFFICIENT;
+		config.HEURISTIC_COEFFICIENT = 0; // buckets require dijkstra
+		try {
+			HHRoutingContext<T> hctx = initHCtx(config, start, end);
+			if (hctx == null) {
+				return null;
+			}
+			filterPointsBasedOnConfiguration(hctx);
+			progress.hhIteration(HHIteration.START_END_POINT);
+			HHRouteMatrix matrix = new HHRouteMatrix(sources.size(), targets.size());
+			RoutePlannerFrontEnd frontEnd = new RoutePlannerFrontEnd();
+			BinaryRoutePlanner planner = new BinaryRoutePlanner();
+			TLongObjectHashMap<T> pnts = new TLongObjectHashMap<>();
+
+			int[] targetsX = new int[targets.size()], targetsY = new int[targets.size()];
+			boolean[] targetFound = new boolean[targets.size()];
+			HHMatrixBucket[] buckets = new HHMatrixBucket[hctx.pointsById.size()];
+			TLongObjectHashMap<TIntArrayList> targetsByGeo = new TLongObjectHashMap<>();
+			TLongArrayList targetKeys = new TLongArrayList();
+			for (int j = 0; j < targets.size(); j++) {
+				LatLon t = targets.get(j);
+				RouteSegmentPoint s = frontEnd.findRouteSegment(t.getLatitude(), t.getLongitude(), hctx.rctx, null);
+				if (s == null) {
+					continue;
+				}
+				hctx.setStartEnd(null, t);
+				targetsX[j] = hctx.endX;
+				targetsY[j] = hctx.endY;
+				pnts.clear();
+				initStart(hctx, s, true, pnts, hctx.boundaries);
+				for (T pnt : pnts.valueCollection()) {
+					if (!hctx.rt.isExcluded(pnt)) {
+						targetFound[j] = true;
+						buckets[pnt.ordinal] = new HHMatrixBucket(j, hctx.rt.distanceFromStart(pnt, true),
+								lastMileDistance(hctx, pnt, true), buckets[pnt.ordinal]);
+					}
+					hctx.rt.clearRouting(pnt);
+				}
+				long uniId = calcUniDirRoutePointInternalId(s);
+				if (!targetsByGeo.containsKey(uniId)) {
+					targetsByGeo.put(uniId, new TIntArrayList());
+				}
+				targetsByGeo.get(uniId).add(j);
+				targetKeys.add(calcRPId(s, s.getSegmentEnd(), s.getSegmentStart()));
+				targetKeys.add(calcRPId(s, s.getSegmentStart(), s.getSegmentEnd()));
+			}
+			// targets are added as boundaries to find short routes without network
+			TLongObjectMap<RouteSegment> boundaries = new IncludeTLongObjectMap<>(hctx.boundaries, targetKeys.toArray());
+
+			progress.hhIteration(HHIteration.ROUTING);
+			int size = hctx.pointsById.size();
+			double[] times = new double[size];
+			double[] dists = new double[size];
+			boolean[] settled = new boolean[size];
+			Arrays.fill(times, Double.POSITIVE_INFINITY);
+			TIntArrayList touched = new TIntArrayList();
+			CostHeap<T> queue = new CostHeap<>(true);
+			for (int i = 0; i < sources.size(); i++) {
+				LatLon src = sources.get(i);
+				RouteSegmentPoint s = frontEnd.findRouteSegment(src.getLatitude(), src.getLongitude(), hctx.rctx, null);
+				if (s == null) {
+					continue;
+				}
+				hctx.setStartEnd(src, null);
+				float[] row = matrix.times[i];
+				float[] distRow = matrix.distances[i];
+				pnts.clear();
+				if (!hctx.config.ROUTE_LAST_MILE || hctx.pointsByGeo.containsKey(calcUniDirRoutePointInternalId(s))) {
+					initStart(hctx, s, false, pnts, hctx.boundaries);
+					for (T pnt : pnts.valueCollection()) {
+						addMatrixStart(hctx, queue, touched, times, dists, pnt, hctx.rt.distanceFromStart(pnt, false),
+								lastMileDistance(hctx, pnt, false));
+						hctx.rt.clearRouting(pnt);
+					}
+				} else {
+					MultiFinalRouteSegment frs = searchLastMile(hctx, planner, s, false, boundaries);
+					for (FinalRouteSegment o : frs == null ? Collections.<FinalRouteSegment>emptyList() : frs.all) {
+						T pnt = hctx.pointsByGeo.get(calculateRoutePointInternalId(o.getRoad().getId(), 
+								o.getSegmentStart(), o.getSegmentEnd()));
+						if (pnt != null) {
+							double time = o.distanceFromStart + planner.calcRoutingSegmentTimeOnlyDist(hctx.rctx.getRouter(), o) / 2;
+							addMatrixStart(hctx, queue, touched, times, dists, pnt, time, lastMileDistance(o, 0.5));
+							continue;
+						}
+						TIntArrayList direct = targetsByGeo.get(calcUniDirRoutePointInternalId(o));
+						for (int k = 0; direct != null && k < direct.size(); k++) {
+							int j = direct.get(k);
+							double time = o.distanceFromStart + planner.calculatePreciseStartTime(hctx.rctx, targetsX[j], targetsY[j], o);
+							if (time < row[j]) {
+								row[j] = (float) time;
+								distRow[j] = (float) (lastMileDistance(o, 0) 
+										+ squareRootDist31(o.getStartPointX(), o.getStartPointY(), targetsX[j], targetsY[j]));
+							}
+						}
+					}
+					if (hctx.config.USE_GC_MORE_OFTEN) {
+						hctx.rctx.unloadAllData();
+					}
+				}
+				double bound = maxFoundTime(row, targetFound);
+				while (!queue.isEmpty() && queue.peekCost() < bound) {
+					if (progress.isCancelled) {
+						return null;
+					}
+					double cost = queue.peekCost();
+					T point = queue.poll();
+					settled[point.ordinal] = true;
+					matrix.settledPoints++;
+					boolean updated = false;
+					for (HHMatrixBucket b = buckets[point.ordinal]; b != null; b = b.next) {
+						if (cost + b.time < row[b.target]) {
+							row[b.target] = (float) (cost + b.time);
+							distRow[b.target] = (float) (dists[point.ordinal] + b.distance);
+							updated = true;
+						}
+					}
+					if (updated) {
+						bound = maxFoundTime(row, targetFound);
+					}
+					if (hctx.config.MAX_COST > 0 && cost > hctx.config.MAX_COST) {
+						continue;
+					}
+					hctx.stats.loadEdgesCnt += hctx.loadNetworkSegmentPoint(point, false);
+					for (NetworkDBSegment connected : point.connected(false)) {
+						T nextPoint = (T) connected.end;
+						if (!hctx.config.USE_CH && !hctx.config.USE_CH_SHORTCUTS && connected.shortcut) {
+							continue;
+						}
+						if (connected.dist < 0 || settled[nextPoint.ordinal] || hctx.rt.isExcluded(nextPoint)) {
+							continue;
+						}
+						double dist = dists[point.ordinal]
+								+ squareRootDist31(point.midX(), point.midY(), nextPoint.midX(), nextPoint.midY());
+						addMatrixPoint(queue, touched, times, dists, nextPoint, cost + connected.dist, dist);
+					}
+				}
+				queue.clear();
+				for (int k = 0; k < touched.size(); k++) {
+					times[touched.get(k)] = Double.POSITIVE_INFINITY;
+					settled[touched.get(k)] = false;
+				}
+				touched.clear();
+				progress.hhIterationProgress((i + 1.0) / sources.size());
+			}
+			matrix.calculationTime = (System.nanoTime() - startTime) / 1e6;
+			printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "Matrix %dx%d is calculated: settled %,d points, %.2f ms\n",
+					sources.size(), targets.size(), matrix.settledPoints, matrix.calculationTime);
+			return matrix;
+		} finally {
+			config.HEURISTIC_COEFFICIENT = savedHeuristicCoefficient;
+		}
+	}
+
+	private void addMatrixStart(HHRoutingContext<T> hctx, CostHeap<T> queue, TIntArrayList touched, double[] times,
+			double[] dists, T pnt, double time, double dist) {
+		if (!hctx.rt.isExcluded(pnt)) {
+			addMatrixPoint(queue, touched, times, dists, pnt, time <= 0 ? MINIMAL_COST : time, dist);
+		}
+	}
+
+	private void addMatrixPoint(CostHeap<T> queue, TIntArrayList touched, double[] times, double[] dists, T pnt,
+			double time, double dist) {
+		if (time < times[pnt.ordinal]) {
+			if (times[pnt.ordinal] == Double.POSITIVE_INFINITY) {
+				touched.add(pnt.ordinal);
+			}
+			times[pnt.ordinal] = time;
+			dists[pnt.ordinal] = dist;
+			queue.add(pnt, time, pnt.ordinal);
+		}
+	}
+
+	private static double maxFoundTime(float[] row, boolean[] targetFound) {
+		double max = 0;
+		for (int j = 0; j < row.length; j++) {
+			if (targetFound[j]) {
+				max = Math.max(max, row[j]);
+			}
+		}
+		return max;
+	}
+
+	private double lastMileDistance(HHRoutingContext<T> hctx, T pnt, boolean reverse) {
+		FinalRouteSegment o = hctx.rt.detailedRoute(pnt, reverse);
+		if (o == null) {
+			return squareRootDist31(reverse ? hctx.endX : hctx.startX, reverse ? hctx.endY : hctx.startY, 
+					pnt.midX(), pnt.midY());
+		}
+		return lastMileDistance(o, 0.5);
+	}
+
+	private static double lastMileDistance(RouteSegment s, double lastPart) {
+		double d = 0;
+		for (RouteSegment p = s; p != null; p = p.getParentRoute()) {
+			double l = squareRootDist31(p.getStartPointX(), p.getStartPointY(), p.getEndPointX(), p.getEndPointY());
+			d += p == s ? l * lastPart : l;
+		}
+		return d;
+	}
+
 	public static TreeMap<String, String> getFilteredTags(GeneralRouter generalRouter) {
 		Map<String, RoutingParameter> parameters = generalRouter.getParameters();
 		TreeMap<String, String> tm = new TreeMap<String, String>();
@@ -312,19 +568,28 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 
 	private void filterPointsBasedOnConfiguration(HHRoutingContext<T> hctx) {
 		TreeMap<String, String> tm = getFilteredTags((GeneralRouter) hctx.rctx.getRouter());
-		if (hctx.filterRoutingParameters.equals(tm)) {
-			return;
-		}
-		for (T pnt : hctx.pointsById.valueCollection()) {
-			pnt.rtExclude = false;
-		}
-		if (tm.isEmpty()) {
-			// no parameters
-			hctx.filterRoutingParameters = tm;
-			return;
+		boolean[] excluded = null;
+		if (!tm.isEmpty()) {
+			// network could be shared between route calculations, so filtered points are cached per parameters
+			synchronized (hctx.networkLock) {
+				excluded = hctx.excludedByParameters.get(tm);
+				if (excluded == null) {
+					excluded = calculateExcludedPoints(hctx, tm);
+					if (hctx.excludedByParameters.size() >= HHRoutingContext.MAX_CACHED_FILTER_PARAMETERS) {
+						hctx.excludedByParameters.clear();
+					}
+					hctx.excludedByParameters.put(tm, excluded);
+				}
+			}
 		}
+		// 1 extra point is reserved for PNT_SHORT_ROUTE_START_END
+		hctx.rt = new NetworkDBPointsRouteInfo(hctx.pointsById.size() + 1, excluded);
+	}
+
+	private boolean[] calculateExcludedPoints(HHRoutingContext<T> hctx, TreeMap<String, String> tm) {
 		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, " Filter points based on parameters...");
 		long nt = System.nanoTime();
+		boolean[] excluded = new boolean[hctx.pointsById.size()];
 		RouteRegion regR = new RouteRegion();
 		TIntArrayList tint = new TIntArrayList(50);
 		RouteDataObject rdo = new RouteDataObject(regR);
@@ -352,21 +617,21 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				}
 				// here we always copy array but in C++ we could be more efficient
 				rdo.types = tint.toArray();
-				pnt.rtExclude = !currentCtx.rctx.getRouter().acceptLine(rdo);
-				if (!pnt.rtExclude) {
+				boolean exclude = !hctx.rctx.getRouter().acceptLine(rdo);
+				if (!exclude) {
 					// constant should be reduced if route is not found
-					pnt.rtExclude = currentCtx.rctx.getRouter().defineSpeedPriority(rdo, pnt.end > pnt.start) < EXCLUDE_PRIORITY_CONSTANT;
+					exclude = hctx.rctx.getRouter().defineSpeedPriority(rdo, pnt.end > pnt.start) < EXCLUDE_PRIORITY_CONSTANT;
 				}
-				if (pnt.rtExclude) {
+				if (exclude) {
+					excluded[pnt.ordinal] = true;
 					filtered++;
 				}
 			}
 		}
-		hctx.filterRoutingParameters = tm;
 		double time = (System.nanoTime() - nt) / 1e6;
 		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "%d excluded from %d, %.2f ms\n", filtered, hctx.pointsById.size(), time);
 		hctx.stats.loadPointsTime += time;
-
+		return excluded;
 	}
 
 	private void findFirstLastSegments(HHRoutingContext<T> hctx, LatLon start, LatLon end,
@@ -393,11 +658,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				break;
 			}
 			for (T p : stPoints.valueCollection()) {
-				p.clearRouting();
+				hctx.rt.clearRouting(p);
 			}
 			stPoints.clear();
 			for (T p : endPoints.valueCollection()) {
-				p.clearRouting();
+				hctx.rt.clearRouting(p);
 			}
 			endPoints.clear();
 			RouteSegmentPoint startP = startPnt;
@@ -418,10 +683,12 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			}
 			Double prev = hctx.rctx.config.initialDirection;
 			hctx.rctx.config.initialDirection = hctx.config.INITIAL_DIRECTION;
-			hctx.boundaries.put(calcRPId(endP, endP.getSegmentEnd(), endP.getSegmentStart()), null);
-			hctx.boundaries.put(calcRPId(endP, endP.getSegmentStart(), endP.getSegmentEnd()), null);
+			// end point is added as boundary only for this calculation (boundaries are shared)
+			TLongObjectMap<RouteSegment> startBoundaries = new IncludeTLongObjectMap<>(hctx.boundaries,
+					calcRPId(endP, endP.getSegmentEnd(), endP.getSegmentStart()),
+					calcRPId(endP, endP.getSegmentStart(), endP.getSegmentEnd()));
 			progress.hhIterationProgress(0.50); // %
-			initStart(hctx, startP, false, stPoints);
+			initStart(hctx, startP, false, stPoints, startBoundaries);
 			hctx.rctx.config.initialDirection = prev;
 			if (stPoints.isEmpty()) {
 				printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "   Reiterate with next start point: " + startP + "\n");
@@ -430,13 +697,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				continue;
 			}
 
-			hctx.boundaries.remove(calcRPId(endP, endP.getSegmentEnd(), endP.getSegmentStart()));
-			hctx.boundaries.remove(calcRPId(endP, endP.getSegmentStart(), endP.getSegmentEnd()));
 			if (stPoints.containsKey(PNT_SHORT_ROUTE_START_END)) {
 				endPoints.put(PNT_SHORT_ROUTE_START_END, stPoints.get(PNT_SHORT_ROUTE_START_END));
 			}
 			progress.hhIterationProgress(0.75); // %
-			initStart(hctx, endP, true, endPoints);
+			initStart(hctx, endP, true, endPoints, hctx.boundaries);
 			if (endPoints.isEmpty()) {
 				printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "   Reiterate with next end point: " + endP + "\n");
 				endReiterate++;
@@ -524,7 +789,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				hctx.clearVisited(stPoints, endPoints);
 //				hctx.clearVisited();
 				for (NetworkDBPoint pnt : exclude) {
-					pnt.rtExclude = false;
+					hctx.rt.setExclude(pnt, false);
 				}
 				exclude.clear();
 				
@@ -533,7 +798,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				for (T p : objs) {
 					if (MapUtils.getDistance(p.getPoint(), pnt) <= minDistance[i]) {
 						exclude.add(p);
-						p.rtExclude = true;
+						hctx.rt.setExclude(p, true);
 					}
 				}
 				
@@ -542,7 +807,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					return;
 				}
 				if (finalPnt != null) {
-					double cost = (finalPnt.rt(false).rtDistanceFromStart + finalPnt.rt(true).rtDistanceFromStart);
+					double cost = (hctx.rt.distanceFromStart(finalPnt, false) + hctx.rt.distanceFromStart(finalPnt, true));
 					if (DEBUG_VERBOSE_LEVEL == 1) {
 						System.out.println("Alternative route cost: " + cost);
 					}
@@ -595,7 +860,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			}
 		} finally {
 			for (NetworkDBPoint pnt : exclude) {
-				pnt.rtExclude = false;
+				hctx.rt.setExclude(pnt, false);
 			}
 		}
 				
@@ -604,7 +869,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	protected HHRoutingContext<T> initHCtx(HHRoutingConfig c, LatLon start, LatLon end) throws SQLException, IOException {
 		HHRoutingContext<T> hctx = this.currentCtx;
 		RouteCalculationProgress progress = hctx.rctx.calculationProgress;
-		if (predefinedRegions == null) {
+		if (predefinedRegions == null && !sharedNetwork) {
 			progress.hhIteration(HHIteration.SELECT_REGIONS);
 			hctx = selectBestRoutingFiles(start, end, hctx);
 		}
@@ -643,7 +908,9 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		}
 		hctx.clusterOutPoints = groupByClusters(hctx.pointsById, true);
 		hctx.clusterInPoints  = groupByClusters(hctx.pointsById, false);
+		int ordinal = 0;
 		for (T pnt : hctx.pointsById.valueCollection()) {
+			pnt.ordinal = ordinal++;
 			long pos = calculateRoutePointInternalId(pnt.roadId, pnt.start, pnt.end);
 			LatLon latlon = pnt.getPoint();
 			hctx.pointsRect.registerObject(latlon.getLatitude(), latlon.getLongitude(), pnt);
@@ -822,7 +1089,8 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	}
 	
 	@SuppressWarnings("unchecked")
-	private TLongObjectHashMap<T> initStart(HHRoutingContext<T> hctx, RouteSegmentPoint s, boolean reverse, TLongObjectHashMap<T> pnts) throws IOException, InterruptedException {
+	private TLongObjectHashMap<T> initStart(HHRoutingContext<T> hctx, RouteSegmentPoint s, boolean reverse, TLongObjectHashMap<T> pnts,
+			TLongObjectMap<RouteSegment> boundaries) throws IOException, InterruptedException {
 		if (!hctx.config.ROUTE_LAST_MILE) {
 			// simple method to calculate without detailed maps
 			double startLat = MapUtils.get31LatitudeY(!reverse? hctx.startY : hctx.endY);
@@ -840,7 +1108,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					}
 					T pnt  = reverse ? (T) pSelect.dualPoint : pSelect;
 					double cost = MapUtils.getDistance(pnt.getPoint(), startLat, startLon) / spd;
-					pnt.setCostParentRt(reverse, cost + hctx.distanceToEnd(reverse, pnt), null, cost);
+					hctx.rt.setCostParentRt(pnt, reverse, cost + hctx.distanceToEnd(reverse, pnt), null, cost);
 					pnts.put(pnt.index, pnt);
 				}
 			}
@@ -863,34 +1131,19 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					negCost += hctx.rctx.config.penaltyForReverseDirection;
 				}
 			}
-			finitePnt.setDistanceToEnd(reverse, hctx.distanceToEnd(reverse, finitePnt));
-			finitePnt.setCostParentRt(reverse, plusCost, null, plusCost);
+			hctx.rt.setDistanceToEnd(finitePnt, reverse, hctx.distanceToEnd(reverse, finitePnt));
+			hctx.rt.setCostParentRt(finitePnt, reverse, plusCost, null, plusCost);
 			pnts.put(finitePnt.index, finitePnt);
 
 			T dualPoint = (T) finitePnt.dualPoint;
-			dualPoint.setDistanceToEnd(reverse, hctx.distanceToEnd(reverse, dualPoint));
-			dualPoint.setCostParentRt(reverse, negCost, null, negCost);
+			hctx.rt.setDistanceToEnd(dualPoint, reverse, hctx.distanceToEnd(reverse, dualPoint));
+			hctx.rt.setCostParentRt(dualPoint, reverse, negCost, null, negCost);
 			pnts.put(dualPoint.index, dualPoint);
 
 			return pnts;
 		}
-		int savedMaxVisited = hctx.rctx.config.MAX_VISITED;
-		int savedPlanRoadDirectrion = hctx.rctx.config.planRoadDirection;
-		float savedHeuristicCoefficient = hctx.rctx.config.heuristicCoefficient;
-		hctx.rctx.config.MAX_VISITED = MAX_POINTS_CLUSTER_ROUTING;
-		hctx.rctx.config.planRoadDirection = reverse ? -1 : 1;
-		hctx.rctx.config.heuristicCoefficient = 0; // dijkstra
-		hctx.rctx.unloadAllData(); // needed for proper multidijsktra work
-		// hctx.rctx.calculationProgress = new RouteCalculationProgress(); // reuse same progress
 		BinaryRoutePlanner planner = new BinaryRoutePlanner();
-		MultiFinalRouteSegment frs = (MultiFinalRouteSegment) planner.searchRouteInternal(hctx.rctx,
-				reverse ? null : s, reverse ? s : null, hctx.boundaries);
-		hctx.rctx.config.heuristicCoefficient = savedHeuristicCoefficient;
-		hctx.rctx.config.planRoadDirection = savedPlanRoadDirectrion;
-		hctx.rctx.config.MAX_VISITED = savedMaxVisited;
-		if (HHRoutingConfig.STATS_VERBOSE_LEVEL > 0) {
-			System.out.println("  " + hctx.rctx.calculationProgress.getInfo(null));
-		}
+		MultiFinalRouteSegment frs = searchLastMile(hctx, planner, s, reverse, boundaries);
 		if (frs != null) {
 			TLongSet set = new TLongHashSet();
 			for (FinalRouteSegment o : frs.all) {
@@ -910,6 +1163,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 							throw new IllegalStateException(e);
 						}
 						pnt.index = PNT_SHORT_ROUTE_START_END;
+						pnt.ordinal = hctx.pointsById.size();
 						pnt.roadId = o.getRoad().getId();
 						pnt.start = o.getSegmentStart();
 						pnt.end = o.getSegmentEnd();
@@ -923,11 +1177,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					} else {
 						o.distanceFromStart += planner.calcRoutingSegmentTimeOnlyDist(hctx.rctx.getRouter(), o) / 2;
 					}
-					if (pnt.rt(reverse).rtCost != 0) {
+					if (hctx.rt.cost(pnt, reverse) != 0) {
 						throw new IllegalStateException();
 					}
-					pnt.setDistanceToEnd(reverse, hctx.distanceToEnd(reverse, pnt));
-					pnt.setDetailedParentRt(reverse, o);
+					hctx.rt.setDistanceToEnd(pnt, reverse, hctx.distanceToEnd(reverse, pnt));
+					hctx.rt.setDetailedParentRt(pnt, reverse, o);
 					pnts.put(pnt.index, pnt);
 				}
 			}
@@ -940,6 +1194,29 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return pnts;
 	}
 
+	/**
+	 * Detailed dijkstra from start / end segment till all reachable boundaries (network points)
+	 */
+	private MultiFinalRouteSegment searchLastMile(HHRoutingContext<T> hctx, BinaryRoutePlanner planner, RouteSegmentPoint s,
+			boolean reverse, TLongObjectMap<RouteSegment> boundaries) throws IOException, InterruptedException {
+		int savedMaxVisited = hctx.rctx.config.MAX_VISITED;
+		int savedPlanRoadDirectrion = hctx.rctx.config.planRoadDirection;
+		float savedHeuristicCoefficient = hctx.rctx.config.heuristicCoefficient;
+		hctx.rctx.config.MAX_VISITED = MAX_POINTS_CLUSTER_ROUTING;
+		hctx.rctx.config.planRoadDirection = reverse ? -1 : 1;
+		hctx.rctx.config.heuristicCoefficient = 0; // dijkstra
+		hctx.rctx.unloadAllData(); // needed for proper multidijsktra work
+		// hctx.rctx.calculationProgress = new RouteCalculationProgress(); // reuse same progress
+		MultiFinalRouteSegment frs = (MultiFinalRouteSegment) planner.searchRouteInternal(hctx.rctx,
+				reverse ? null : s, reverse ? s : null, boundaries);
+		hctx.rctx.config.heuristicCoefficient = savedHeuristicCoefficient;
+		hctx.rctx.config.planRoadDirection = savedPlanRoadDirectrion;
+		hctx.rctx.config.MAX_VISITED = savedMaxVisited;
+		if (HHRoutingConfig.STATS_VERBOSE_LEVEL > 0) {
+			System.out.println("  " + hctx.rctx.calculationProgress.getInfo(null));
+		}
+		return frs;
+	}
 	
 	protected T runRoutingPointToPoint(HHRoutingContext<T> hctx, T start, T end) throws SQLException, IOException {
 		if (start != null) {
@@ -955,19 +1232,19 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	protected T runRoutingPointsToPoints(HHRoutingContext<T> hctx, TLongObjectHashMap<T> stPoints,
 	                                     TLongObjectHashMap<T> endPoints) throws SQLException, IOException {
 		for (T start : stPoints.valueCollection()) {
-			if (start.rtExclude) {
+			if (hctx.rt.isExcluded(start)) {
 				continue;
 			}
-			double cost = start.rt(false).rtCost;
-			addPointToQueue(hctx, hctx.queue(false), false, start, null, start.rt(false).rtDistanceFromStart,
+			double cost = hctx.rt.cost(start, false);
+			addPointToQueue(hctx, hctx.queue(false), false, start, null, hctx.rt.distanceFromStart(start, false),
 					cost <= 0 ? MINIMAL_COST : cost);
 		}
 		for (T end : endPoints.valueCollection()) {
-			if (end.rtExclude) {
+			if (hctx.rt.isExcluded(end)) {
 				continue;
 			}
-			double cost = end.rt(true).rtCost;
-			addPointToQueue(hctx, hctx.queue(true), true, end, null, end.rt(true).rtDistanceFromStart,
+			double cost = hctx.rt.cost(end, true);
+			addPointToQueue(hctx, hctx.queue(true), true, end, null, hctx.rt.distanceFromStart(end, true),
 					cost <= 0 ? MINIMAL_COST : cost);
 		}
 		T t = runRoutingWithInitQueue(hctx);
@@ -986,20 +1263,20 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		double straightStartEndCost = squareRootDist31(hctx.startX, hctx.startY, hctx.endX, hctx.endY) /
 				hctx.rctx.getRouter().getMaxSpeed();
 		while (true) {
-			Queue<NetworkDBPointCost<T>> queue;
+			CostHeap<T> queue;
 			if (HHRoutingContext.USE_GLOBAL_QUEUE) {
 				queue = hctx.queue(false);
 				if (queue.isEmpty()) {
 					break;
 				}
 			} else {
-				Queue<NetworkDBPointCost<T>> pos = hctx.queue(false);
-				Queue<NetworkDBPointCost<T>> rev = hctx.queue(true);
+				CostHeap<T> pos = hctx.queue(false);
+				CostHeap<T> rev = hctx.queue(true);
 				if (hctx.config.DIJKSTRA_DIRECTION == 0 || (!rev.isEmpty() && !pos.isEmpty())) {
 					if (rev.isEmpty() || pos.isEmpty()) {
 						break;
 					}
-					queue = pos.peek().cost < rev.peek().cost ? pos : rev;
+					queue = pos.peekCost() < rev.peekCost() ? pos : rev;
 				} else {
 					queue = hctx.config.DIJKSTRA_DIRECTION > 0 ? pos : rev;
 					if (queue.isEmpty()) {
@@ -1011,12 +1288,12 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				return null;
 			}
 			long tm = System.nanoTime();
-			NetworkDBPointCost<T> pointCost = queue.poll();
-			T point = pointCost.point;
-			boolean rev = pointCost.rev;
+			double pointCost = queue.peekCost();
+			boolean rev = HHRoutingContext.isReverseHandle(queue.peekHandle());
+			T point = queue.poll();
 			hctx.stats.pollQueueTime += (System.nanoTime() - tm) / 1e6;
 			hctx.stats.visitedVertices++;
-			if (point.rt(!rev).rtVisited) {
+			if (hctx.rt.visited(point, !rev)) {
 				if (hctx.stats.firstRouteVisitedVertices == 0) {
 					hctx.stats.firstRouteVisitedVertices = hctx.stats.visitedVertices;
 					if (DIR_CONFIG == 0 && hctx.config.HEURISTIC_COEFFICIENT != 0) {
@@ -1027,36 +1304,36 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				if (hctx.config.HEURISTIC_COEFFICIENT == 0 && hctx.config.DIJKSTRA_DIRECTION == 0) {
 					// Valid only HC=0, Dijkstra as we run Many-to-Many - Test( Lat 49.12691 Lon 9.213685 -> Lat 49.155483 Lon 9.2140045)
 					T finalPoint = point;
-					finalPoint = scanFinalPoint(finalPoint, hctx.visited);
-					finalPoint = scanFinalPoint(finalPoint, hctx.visitedRev);
+					finalPoint = scanFinalPoint(hctx, finalPoint, hctx.visited);
+					finalPoint = scanFinalPoint(hctx, finalPoint, hctx.visitedRev);
 					return finalPoint;
 				} else {
-					double rcost = point.rt(true).rtDistanceFromStart + point.rt(false).rtDistanceFromStart;
-					if (rcost <= pointCost.cost) {
+					double rcost = hctx.rt.distanceFromStart(point, true) + hctx.rt.distanceFromStart(point, false);
+					if (rcost <= pointCost) {
 						// Universal condition to stop: works for any algorithm - cost equals to route length
 						return point;
 					} else {
-						queue.add(new NetworkDBPointCost<T>(point, rcost, rev));
-						point.markVisited(rev);
+						queue.add(point, rcost, HHRoutingContext.queueHandle(point, rev));
+						hctx.rt.markVisited(point, rev);
 						continue;
 					}
 				}
 			}
-			if (point.rt(rev).rtVisited) {
+			if (hctx.rt.visited(point, rev)) {
 				continue;
 			}
 			hctx.stats.uniqueVisitedVertices++;
-			point.markVisited(rev);
+			hctx.rt.markVisited(point, rev);
 			hctx.visited.add(point);
 			(rev ? hctx.visited : hctx.visitedRev).add(point);
-			printPoint(point, rev);
+			printPoint(hctx, point, rev);
 			if (progress != null && straightStartEndCost > 0) {
 				final double STRAIGHT_TO_ROUTE_COST = 1.25; // approximate, tested on car/bike
 				// correlation between straight-cost and route-cost (enough for the progress bar)
-				double k = (pointCost.cost - straightStartEndCost) / straightStartEndCost * STRAIGHT_TO_ROUTE_COST;
+				double k = (pointCost - straightStartEndCost) / straightStartEndCost * STRAIGHT_TO_ROUTE_COST;
 				progress.hhIterationProgress(k);
 			}
-			if (hctx.config.MAX_COST > 0 && pointCost.cost > hctx.config.MAX_COST) {
+			if (hctx.config.MAX_COST > 0 && pointCost > hctx.config.MAX_COST) {
 				break;
 			}
 			if (hctx.config.MAX_SETTLE_POINTS > 0 && (rev ? hctx.visitedRev : hctx.visited).size() > hctx.config.MAX_SETTLE_POINTS) {
@@ -1071,13 +1348,13 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return null;
 	}
 
-	private T scanFinalPoint(T finalPoint, List<T> lt) {
+	private T scanFinalPoint(HHRoutingContext<T> hctx, T finalPoint, List<T> lt) {
 		for (T p : lt) {
-			if (p.rt(true).rtDistanceFromStart == 0 || p.rt(false).rtDistanceFromStart == 0) {
+			if (hctx.rt.distanceFromStart(p, true) == 0 || hctx.rt.distanceFromStart(p, false) == 0) {
 				continue;
 			}
-			if (p.rt(true).rtDistanceFromStart + p.rt(false).rtDistanceFromStart 
-					< finalPoint.rt(true).rtDistanceFromStart + finalPoint.rt(false).rtDistanceFromStart) {
+			if (hctx.rt.distanceFromStart(p, true) + hctx.rt.distanceFromStart(p, false) 
+					< hctx.rt.distanceFromStart(finalPoint, true) + hctx.rt.distanceFromStart(finalPoint, false)) {
 				finalPoint = p;
 			}
 		}
@@ -1085,8 +1362,8 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	}
 	
 	@SuppressWarnings("unchecked")
-	private void addConnectedToQueue(HHRoutingContext<T> hctx, Queue<NetworkDBPointCost<T>> queue, T point, boolean reverse) throws SQLException, IOException {
-		int depth = hctx.config.USE_MIDPOINT || hctx.config.MAX_DEPTH > 0 ? point.rt(reverse).getDepth(reverse) : 0;
+	private void addConnectedToQueue(HHRoutingContext<T> hctx, CostHeap<T> queue, T point, boolean reverse) throws SQLException, IOException {
+		int depth = hctx.config.USE_MIDPOINT || hctx.config.MAX_DEPTH > 0 ? hctx.rt.getDepth(point, reverse) : 0;
 		if (hctx.config.MAX_DEPTH > 0 && depth >= hctx.config.MAX_DEPTH) {
 			return;
 		}
@@ -1099,7 +1376,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			if (!hctx.config.USE_CH && !hctx.config.USE_CH_SHORTCUTS && connected.shortcut) {
 				continue;
 			}
-			if (nextPoint.rtExclude) {
+			if (hctx.rt.isExcluded(nextPoint)) {
 				continue;
 			}
 			// modify CH to not compute all top points
@@ -1119,34 +1396,34 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				System.err.printf("Incorrect distance %s -> %s: db = %.2f > fastest %.2f \n", point, nextPoint, connected.dist, smallestSegmentCost);
 				connected.dist = smallestSegmentCost;
 			}
-			double cost = point.rt(reverse).rtDistanceFromStart  + connected.dist + hctx.distanceToEnd(reverse, nextPoint);
-			if (ASSERT_COST_INCREASING && point.rt(reverse).rtCost - cost > 1) {
+			double cost = hctx.rt.distanceFromStart(point, reverse)  + connected.dist + hctx.distanceToEnd(reverse, nextPoint);
+			if (ASSERT_COST_INCREASING && hctx.rt.cost(point, reverse) - cost > 1) {
 				String msg = String.format("%s (cost %.2f) -> %s (cost %.2f) st=%.2f-> + %.2f, toend=%.2f->%.2f: ",
-						point, point.rt(reverse).rtCost, nextPoint, cost, point.rt(reverse).rtDistanceFromStart,
-						connected.dist, point.rt(reverse).rtDistanceToEnd, hctx.distanceToEnd(reverse, nextPoint));
+						point, hctx.rt.cost(point, reverse), nextPoint, cost, hctx.rt.distanceFromStart(point, reverse),
+						connected.dist, hctx.rt.distanceToEnd(point, reverse), hctx.distanceToEnd(reverse, nextPoint));
 				throw new IllegalStateException(msg);
 			}
-			double exCost = nextPoint.rt(reverse).rtCost;
-			if ((exCost == 0 && !nextPoint.rt(reverse).rtVisited) || cost < exCost) {
+			double exCost = hctx.rt.cost(nextPoint, reverse);
+			if ((exCost == 0 && !hctx.rt.visited(nextPoint, reverse)) || cost < exCost) {
 				addPointToQueue(hctx, queue, reverse, nextPoint, point, connected.dist, cost);
 			}
 		}
 	}
 
-	private void addPointToQueue(HHRoutingContext<T> hctx, Queue<NetworkDBPointCost<T>> queue,
+	private void addPointToQueue(HHRoutingContext<T> hctx, CostHeap<T> queue,
 			boolean reverse, T point, T parent, double segmentDist, double cost) {
 		long tm = System.nanoTime();
 		if (DEBUG_VERBOSE_LEVEL > 2) {
 			System.out.printf("Add  %s to visit - cost %.2f (%.2f prev, %.2f dist) > prev cost %.2f \n", point, 
-					cost, parent == null ? 0 : parent.rt(reverse).rtDistanceFromStart, segmentDist, point.rt(reverse).rtCost);
+					cost, parent == null ? 0 : hctx.rt.distanceFromStart(parent, reverse), segmentDist, hctx.rt.cost(point, reverse));
 		}
-		if (point.rt(reverse).rtVisited) {
+		if (hctx.rt.visited(point, reverse)) {
 			throw new IllegalStateException(String.format("%s visited - cost %.2f > prev cost %.2f", point, cost, 
-					point.rt(reverse).rtCost));
+					hctx.rt.cost(point, reverse)));
 		}
-		point.setCostParentRt(reverse, cost, parent, segmentDist);
+		hctx.rt.setCostParentRt(point, reverse, cost, parent, segmentDist);
 		hctx.queueAdded.add(point);
-		queue.add(new NetworkDBPointCost<T>(point, cost, reverse)); // we need to add new object to not  remove / rebalance priority queue
+		queue.add(point, cost, HHRoutingContext.queueHandle(point, reverse)); // decreases cost if point is already in queue
 		hctx.stats.addQueueTime += (System.nanoTime() - tm) / 1e6;
 		hctx.stats.addedVertices++;
 	}
@@ -1158,15 +1435,15 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	}
 
 		
-	private void printPoint(T p, boolean rev) {
+	private void printPoint(HHRoutingContext<T> hctx, T p, boolean rev) {
 		if (DEBUG_VERBOSE_LEVEL > 1) {
 			int pind = 0; long pchInd = 0;
-			if (p.rt(rev).rtRouteToPoint != null) {
-				pind = p.rt(rev).rtRouteToPoint.index;
-				pchInd = p.rt(rev).rtRouteToPoint.chInd();
+			if (hctx.rt.routeToPoint(p, rev) != null) {
+				pind = hctx.rt.routeToPoint(p, rev).index;
+				pchInd = hctx.rt.routeToPoint(p, rev).chInd();
 			}
 			String symbol = String.format("%s %d [%d] (from %d [%d])", rev ? "<-" : "->", p.index, p.chInd(), pind, pchInd);
-			System.out.printf("Visit Point %s (cost %.1f s) %.5f/%.5f - %d\n", symbol, p.rt(rev).rtCost,
+			System.out.printf("Visit Point %s (cost %.1f s) %.5f/%.5f - %d\n", symbol, hctx.rt.cost(p, rev),
 					MapUtils.get31LatitudeY(p.startY), MapUtils.get31LongitudeX(p.startX), p.roadId / 64);
 		}
 	}
@@ -1241,7 +1518,10 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					if (full) {
 						recalculateNetworkCluster(hctx, s.segment.start);
 					}
-					s.segment.dist = -1;
+					// network could be shared between route calculations
+					synchronized (hctx.networkLock) {
+						s.segment.dist = -1;
+					}
 					return true;
 				}
 				if ((f.distanceFromStart + MAX_INC_COST_CORR) > (s.segment.dist + MAX_INC_COST_CORR) * hctx.config.MAX_INC_COST_CF) {
@@ -1249,7 +1529,9 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 						System.out.printf("Route cost increased (%.2f > %.2f) between %s -> %s: recalculate route\n",
 								f.distanceFromStart, s.segment.dist, s.segment.start, s.segment.end);
 					}
-					s.segment.dist = f.distanceFromStart;
+					synchronized (hctx.networkLock) {
+						s.segment.dist = f.distanceFromStart;
+					}
 					return true;
 				}
 				s.rtTimeDetailed = f.distanceFromStart;
@@ -1257,9 +1539,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			} else {
 				// load segment geometry from db
 				if (!hctx.loadGeometry(s.segment, false)) {
-					s.segment.getGeometry().clear();
-					s.segment.getGeometry().add(s.segment.start.getPoint());
-					s.segment.getGeometry().add(s.segment.end.getPoint());
+					synchronized (hctx.networkLock) {
+						s.segment.getGeometry().clear();
+						s.segment.getGeometry().add(s.segment.start.getPoint());
+						s.segment.getGeometry().add(s.segment.end.getPoint());
+					}
 				}
 			}
 		}
@@ -1280,6 +1564,13 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		ExcludeTLongObjectMap<RouteSegment> bounds = new ExcludeTLongObjectMap<>(hctx.boundaries, ps, ps2);
 		MultiFinalRouteSegment frs = (MultiFinalRouteSegment) plan.searchRouteInternal(hctx.rctx, s, null, bounds);
 		hctx.rctx.config.MAX_VISITED = -1;
+		synchronized (hctx.networkLock) {
+			updateNetworkCluster(hctx, plan, s, start, frs);
+		}
+	}
+
+	private void updateNetworkCluster(HHRoutingContext<T> hctx, BinaryRoutePlanner plan, RouteSegmentPoint s,
+			NetworkDBPoint start, MultiFinalRouteSegment frs) {
 		TLongObjectHashMap<RouteSegment> resUnique = new TLongObjectHashMap<>();
 		if (frs != null) {
 			for (FinalRouteSegment o : frs.all) {
@@ -1306,13 +1597,18 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 						// System.out.printf("Corrected dist %.2f -> %.2f\n", c.dist, routeTime);
 						c.dist = routeTime;
 					} else {
-						start.connected.add(new NetworkDBSegment(start, p, routeTime, true, false));
+						// copy on write as segments could be iterated by concurrent route calculation
+						List<NetworkDBSegment> l = new ArrayList<>(start.connected);
+						l.add(new NetworkDBSegment(start, p, routeTime, true, false));
+						start.connectedSet(false, l);
 					}
 					NetworkDBSegment co = p.getSegment(start, false);
 					if (co != null) {
 						co.dist = routeTime;
 					} else if (p.connectedReverse != null) {
-						p.connectedReverse.add(new NetworkDBSegment(start, p, routeTime, false, false));
+						List<NetworkDBSegment> l = new ArrayList<>(p.connectedReverse);
+						l.add(new NetworkDBSegment(start, p, routeTime, false, false));
+						p.connectedSet(true, l);
 					}
 				}
 			}
@@ -1390,8 +1686,8 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		if (pnt != null) {
 			NetworkDBPoint itPnt = pnt;
 			route.uniquePoints.add(itPnt.index);
-			while (itPnt.rt(true).rtRouteToPoint != null) {
-				NetworkDBPoint nextPnt = itPnt.rt(true).rtRouteToPoint;
+			while (hctx.rt.routeToPoint(itPnt, true) != null) {
+				NetworkDBPoint nextPnt = hctx.rt.routeToPoint(itPnt, true);
 				NetworkDBSegment segment = nextPnt.getSegment(itPnt, false);
 				HHNetworkSegmentRes res = new HHNetworkSegmentRes(segment);
 				route.segments.add(res);
@@ -1399,16 +1695,16 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				itPnt = nextPnt;
 				route.uniquePoints.add(itPnt.index);
 			}
-			if (itPnt.rt(true).rtDetailedRoute != null) {
+			if (hctx.rt.detailedRoute(itPnt, true) != null) {
 				HHNetworkSegmentRes res = new HHNetworkSegmentRes(null);
-				res.list = new RouteResultPreparation().convertFinalSegmentToResults(hctx.rctx, itPnt.rt(true).rtDetailedRoute);
-				res.rtTimeDetailed = res.rtTimeHHSegments = itPnt.rt(true).rtDetailedRoute.distanceFromStart;
+				res.list = new RouteResultPreparation().convertFinalSegmentToResults(hctx.rctx, hctx.rt.detailedRoute(itPnt, true));
+				res.rtTimeDetailed = res.rtTimeHHSegments = hctx.rt.detailedRoute(itPnt, true).distanceFromStart;
 				route.segments.add(res);
 			}
 			Collections.reverse(route.segments);
 			itPnt = pnt;
-			while (itPnt.rt(false).rtRouteToPoint != null) {
-				NetworkDBPoint nextPnt = itPnt.rt(false).rtRouteToPoint;
+			while (hctx.rt.routeToPoint(itPnt, false) != null) {
+				NetworkDBPoint nextPnt = hctx.rt.routeToPoint(itPnt, false);
 				NetworkDBSegment segment = nextPnt.getSegment(itPnt, true);
 				HHNetworkSegmentRes res = new HHNetworkSegmentRes(segment);
 				route.segments.add(res);
@@ -1416,10 +1712,10 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				itPnt = nextPnt;
 				route.uniquePoints.add(itPnt.index);
 			}
-			if (itPnt.rt(false).rtDetailedRoute != null) {
+			if (hctx.rt.detailedRoute(itPnt, false) != null) {
 				HHNetworkSegmentRes res = new HHNetworkSegmentRes(null);
-				res.list = new RouteResultPreparation().convertFinalSegmentToResults(hctx.rctx, itPnt.rt(false).rtDetailedRoute);
-				res.rtTimeDetailed = res.rtTimeHHSegments = itPnt.rt(false).rtDetailedRoute.distanceFromStart;
+				res.list = new RouteResultPreparation().convertFinalSegmentToResults(hctx.rctx, hctx.rt.detailedRoute(itPnt, false));
+				res.rtTimeDetailed = res.rtTimeHHSegments = hctx.rt.detailedRoute(itPnt, false).distanceFromStart;
 				route.segments.add(res);
 			}
 			Collections.reverse(route.segments);
@@ -10,7 +10,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.map.hash.TIntObjectHashMap;
@@ -41,9 +43,25 @@ public class HHRoutingDB {
 	protected final int BATCH_SIZE = 10000;
 	protected int batchInsPoint = 0;
 
+	// segments of points from the same cluster are loaded by one query
+	public static int LOAD_BATCH_SIZE = 256;
+	public static int GEOMETRY_CACHE_SIZE = 20000;
+
 	protected String routingProfile = "";
 	protected TIntObjectHashMap<String> routingProfiles = new TIntObjectHashMap<String>();
 	protected boolean compactDB;
+
+	private final Map<Long, List<LatLon>> geometryCache = new LinkedHashMap<Long, List<LatLon>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, List<LatLon>> eldest) {
+			return size() > GEOMETRY_CACHE_SIZE;
+		}
+	};
+	private int geometryCacheProfile = -1;
+	private long geometryCacheHits;
+	private long geometryCacheMisses;
 	
 	protected static Comparator<NetworkDBPoint> indexComparator = new Comparator<NetworkDBPoint>() {
 
@@ -229,42 +247,93 @@ public class HHRoutingDB {
 		if (point.connected(reverse) != null) {
 			return 0;
 		}
+		List<T> batch = getClusterBatch(ctx, point, reverse);
+		return loadNetworkSegmentsBatch(ctx, reg, batch, reverse);
+	}
+
+	// not loaded points of the same cluster and map (point goes first), they are likely to be visited by search,
+	// rows are matched to points by id so they are read in any order
+	private <T extends NetworkDBPoint> List<T> getClusterBatch(HHRoutingContext<T> ctx, T point, boolean reverse) {
+		List<T> batch = new ArrayList<T>();
+		batch.add(point);
+		List<T> cluster = ctx.clusterOutPoints == null ? null : ctx.clusterOutPoints.get(point.clusterId);
+		if (cluster != null) {
+			for (T p : cluster) {
+				if (batch.size() >= LOAD_BATCH_SIZE) {
+					break;
+				}
+				if (p != point && p.connected(reverse) == null && p.mapId == point.mapId) {
+					batch.add(p);
+				}
+			}
+		}
+		return batch;
+	}
+
+	private <T extends NetworkDBPoint> int loadNetworkSegmentsBatch(HHRoutingContext<T> ctx, HHRouteRegionPointsCtx<T> reg,
+			List<T> batch, boolean reverse) throws SQLException {
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		long tm = System.nanoTime();
+		TIntObjectHashMap<T> byIndex = new TIntObjectHashMap<T>();
+		StringBuilder ids = new StringBuilder();
+		for (T p : batch) {
+			if (ids.length() > 0) {
+				ids.append(',');
+			}
+			ids.append(p.index);
+			byIndex.put(p.index, p);
+		}
 		int loadedSegs = 0;
+		Statement st = conn.createStatement();
 		if (compactDB) {
-			loadSegmentStart.setInt(1, point.index);
-			loadSegmentStart.setInt(2, reg.routingProfile);
-			ResultSet rs = loadSegmentStart.executeQuery();
-			if (rs.next()) {
-				HHRouteDataStructure.setSegments(ctx, point, rs.getBytes(2), rs.getBytes(3));
-				return point.connected(true).size() + point.connected(false).size();
-			} else {
-				point.connectedSet(true, new ArrayList<NetworkDBSegment>());
-				point.connectedSet(false, new ArrayList<NetworkDBSegment>());
+			ResultSet rs = st.executeQuery("SELECT id, ins, outs from segments where profile = " + reg.routingProfile
+					+ " and id IN (" + ids + ")");
+			while (rs.next()) {
+				T point = byIndex.get(rs.getInt(1));
+				if (point != null) {
+					HHRouteDataStructure.setSegments(ctx, point, rs.getBytes(2), rs.getBytes(3));
+					loadedSegs += point.connected(true).size() + point.connected(false).size();
+				}
+			}
+			rs.close();
+			for (T point : batch) {
+				if (point.connected(reverse) == null) {
+					point.connectedSet(true, new ArrayList<NetworkDBSegment>());
+					point.connectedSet(false, new ArrayList<NetworkDBSegment>());
+				}
 			}
-			return 0;
 		} else {
-			List<NetworkDBSegment> l = new ArrayList<>();
-			@SuppressWarnings("resource")
-			PreparedStatement pre = reverse ? loadSegmentStart : loadSegmentEnd;
-			pre.setInt(1, point.index);
-			pre.setInt(2, reg.routingProfile);
-			ResultSet rs = pre.executeQuery();
+			String col = reverse ? "idConnPoint" : "idPoint";
+			ResultSet rs = st.executeQuery("SELECT idPoint, idConnPoint, dist, shortcut from segments where profile = "
+					+ reg.routingProfile + " and " + col + " IN (" + ids + ")");
+			TIntObjectHashMap<List<NetworkDBSegment>> segments = new TIntObjectHashMap<List<NetworkDBSegment>>();
 			while (rs.next()) {
 				loadedSegs++;
 				NetworkDBPoint start = ctx.pointsById.get(rs.getLong(1));
 				NetworkDBPoint end = ctx.pointsById.get(rs.getLong(2));
 				double dist = rs.getDouble(3);
 				boolean shortcut = rs.getInt(4) > 0;
-				NetworkDBSegment rev = new NetworkDBSegment(start, end, dist, !reverse, shortcut);
-				l.add(rev);
+				int key = reverse ? rs.getInt(2) : rs.getInt(1);
+				List<NetworkDBSegment> l = segments.get(key);
+				if (l == null) {
+					l = new ArrayList<NetworkDBSegment>();
+					segments.put(key, l);
+				}
+				l.add(new NetworkDBSegment(start, end, dist, !reverse, shortcut));
 			}
-			point.connectedSet(reverse, l);
 			rs.close();
+			for (T point : batch) {
+				List<NetworkDBSegment> l = segments.get(point.index);
+				point.connectedSet(reverse, l == null ? new ArrayList<NetworkDBSegment>() : l);
+			}
 		}
+		st.close();
+		ctx.stats.loadEdgesDbTime += (System.nanoTime() - tm) / 1e6;
+		ctx.stats.loadEdgesQueries++;
 		return loadedSegs;
 	}
-	
-	
 
 	public int loadNetworkSegments(Collection<? extends NetworkDBPoint> points, int routingProfile) throws SQLException {
 		return loadNetworkSegmentsInternal(points, routingProfile, false);
@@ -298,6 +367,12 @@ public class HHRoutingDB {
 	}
 
 	private List<LatLon> parseGeometry(int start, int end, int profile, boolean shortcut) throws SQLException {
+		if (!shortcut) {
+			List<LatLon> cached = getCachedGeometry(start, end, profile);
+			if (cached != null) {
+				return new ArrayList<LatLon>(cached);
+			}
+		}
 		List<LatLon> l = new ArrayList<LatLon>();
 		loadGeometry.setLong(1, start);
 		loadGeometry.setLong(2, end);
@@ -308,30 +383,112 @@ public class HHRoutingDB {
 			if (shortcutN != rs.getShort(2)) {
 				continue;
 			}
-			byte[] geom = rs.getBytes(1);
-			if (geom.length > 8 &&
-					Algorithms.parseIntFromBytes(geom, 0) == XY_SHORTCUT_GEOM && 
-					Algorithms.parseIntFromBytes(geom, 4) == XY_SHORTCUT_GEOM) {
-				for (int k = 8; k < geom.length; k += 8) {
-					int st = Algorithms.parseIntFromBytes(geom, k);
-					int en = Algorithms.parseIntFromBytes(geom, k + 4);
-					List<LatLon> gg = parseGeometry(st, en, profile, false);
-					l.addAll(gg);
-				}
-			} else {
-				for (int k = 0; k < geom.length; k += 8) {
-					int x = Algorithms.parseIntFromBytes(geom, k);
-					int y = Algorithms.parseIntFromBytes(geom, k + 4);
-					l.add(new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
-				}
-			}
+			parseGeometry(rs.getBytes(1), profile, l);
 		}
+		rs.close();
 		if (l.isEmpty()) {
 			System.err.printf("Empty route geometry %d -> %d  %s\n", start, end, shortcut ? "sh" : "bs");
+		} else if (!shortcut) {
+			putCachedGeometry(start, end, profile, l);
 		}
 		return l;
 	}
 
+	private void parseGeometry(byte[] geom, int profile, List<LatLon> l) throws SQLException {
+		if (geom.length > 8 &&
+				Algorithms.parseIntFromBytes(geom, 0) == XY_SHORTCUT_GEOM && 
+				Algorithms.parseIntFromBytes(geom, 4) == XY_SHORTCUT_GEOM) {
+			loadShortcutGeometry(geom, profile, l);
+		} else {
+			for (int k = 0; k < geom.length; k += 8) {
+				int x = Algorithms.parseIntFromBytes(geom, k);
+				int y = Algorithms.parseIntFromBytes(geom, k + 4);
+				l.add(new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
+			}
+		}
+	}
+
+	// geometry of shortcut is list of base segments which are loaded by one query (and cached)
+	private void loadShortcutGeometry(byte[] geom, int profile, List<LatLon> l) throws SQLException {
+		TLongObjectHashMap<List<LatLon>> parts = new TLongObjectHashMap<List<LatLon>>();
+		StringBuilder ids = new StringBuilder();
+		for (int k = 8; k < geom.length; k += 8) {
+			int st = Algorithms.parseIntFromBytes(geom, k);
+			int en = Algorithms.parseIntFromBytes(geom, k + 4);
+			List<LatLon> cached = getCachedGeometry(st, en, profile);
+			if (cached != null) {
+				parts.put(geometryKey(st, en), cached);
+			} else if (!parts.containsKey(geometryKey(st, en))) {
+				parts.put(geometryKey(st, en), null);
+				if (ids.length() > 0) {
+					ids.append(',');
+				}
+				ids.append(st);
+			}
+		}
+		if (ids.length() > 0) {
+			Statement s = conn.createStatement();
+			ResultSet rs = s.executeQuery("SELECT idPoint, idConnPoint, geometry FROM geometry WHERE profile = " + profile
+					+ " AND shortcut = 0 AND idPoint IN (" + ids + ")");
+			while (rs.next()) {
+				long key = geometryKey(rs.getInt(1), rs.getInt(2));
+				if (parts.containsKey(key) && parts.get(key) == null) {
+					List<LatLon> g = new ArrayList<LatLon>();
+					parseGeometry(rs.getBytes(3), profile, g);
+					parts.put(key, g);
+					putCachedGeometry(rs.getInt(1), rs.getInt(2), profile, g);
+				}
+			}
+			rs.close();
+			s.close();
+		}
+		for (int k = 8; k < geom.length; k += 8) {
+			int st = Algorithms.parseIntFromBytes(geom, k);
+			int en = Algorithms.parseIntFromBytes(geom, k + 4);
+			List<LatLon> g = parts.get(geometryKey(st, en));
+			if (g == null) {
+				// report missing geometry
+				g = parseGeometry(st, en, profile, false);
+			}
+			l.addAll(g);
+		}
+	}
+
+	private static long geometryKey(int start, int end) {
+		return (((long) start) << 32) | (end & 0xffffffffL);
+	}
+
+	private List<LatLon> getCachedGeometry(int start, int end, int profile) {
+		synchronized (geometryCache) {
+			if (geometryCacheProfile != profile) {
+				geometryCache.clear();
+				geometryCacheProfile = profile;
+			}
+			List<LatLon> l = geometryCache.get(geometryKey(start, end));
+			if (l != null) {
+				geometryCacheHits++;
+			} else {
+				geometryCacheMisses++;
+			}
+			return l;
+		}
+	}
+
+	private void putCachedGeometry(int start, int end, int profile, List<LatLon> l) {
+		synchronized (geometryCache) {
+			if (geometryCacheProfile == profile) {
+				geometryCache.put(geometryKey(start, end), new ArrayList<LatLon>(l));
+			}
+		}
+	}
+
+	public String getGeometryCacheStats() {
+		synchronized (geometryCache) {
+			return String.format("Geometry cache: %d segments, %d hits, %d misses", geometryCache.size(),
+					geometryCacheHits, geometryCacheMisses);
+		}
+	}
+
 	
 
 	public void close() throws SQLException {
@@ -0,0 +1,40 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+import gnu.trove.map.TLongObjectMap;
+
+/**
+ * Read-only view of the map with additional keys (mapped to null values), so shared map is not modified.
+ */
+public class IncludeTLongObjectMap<T> extends ExcludeTLongObjectMap<T> {
+
+	long[] includeKeys;
+
+	public IncludeTLongObjectMap(TLongObjectMap<T> map, long... includeKeys) {
+		super(map);
+		this.includeKeys = includeKeys.clone();
+		// many keys are included for matrix calculation (all targets)
+		Arrays.sort(this.includeKeys);
+	}
+
+	@Override
+	public boolean containsKey(long key) {
+		if (checkInclude(key)) {
+			return true;
+		}
+		return super.containsKey(key);
+	}
+
+	@Override
+	public T get(long key) {
+		if (checkInclude(key)) {
+			return null;
+		}
+		return super.get(key);
+	}
+
+	private boolean checkInclude(long key) {
+		return Arrays.binarySearch(includeKeys, key) >= 0;
+	}
+}
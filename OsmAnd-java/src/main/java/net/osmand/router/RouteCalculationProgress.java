@@ -79,6 +79,35 @@ public class RouteCalculationProgress {
 		return p;
 	}
 	
+	/**
+	 * Adds counters of route part calculated with own progress (i.e. concurrently)
+	 */
+	public void add(RouteCalculationProgress cp) {
+		timeNanoToCalcDeviation += cp.timeNanoToCalcDeviation;
+		timeToLoad += cp.timeToLoad;
+		timeToLoadHeaders += cp.timeToLoadHeaders;
+		timeToFindInitialSegments += cp.timeToFindInitialSegments;
+
+		visitedSegments += cp.visitedSegments;
+		visitedDirectSegments += cp.visitedDirectSegments;
+		visitedOppositeSegments += cp.visitedOppositeSegments;
+		finalSegmentsFound += cp.finalSegmentsFound;
+
+		loadedTiles += cp.loadedTiles;
+		distinctLoadedTiles += cp.distinctLoadedTiles;
+		unloadedTiles += cp.unloadedTiles;
+		loadedPrevUnloadedTiles += cp.loadedPrevUnloadedTiles;
+		maxLoadedTiles = Math.max(maxLoadedTiles, cp.maxLoadedTiles);
+
+		requestPrivateAccessRouting |= cp.requestPrivateAccessRouting;
+		if (cp.segmentNotFound != -1) {
+			segmentNotFound = cp.segmentNotFound;
+		}
+		if (cp.missingMapsCalculationResult != null) {
+			missingMapsCalculationResult = cp.missingMapsCalculationResult;
+		}
+	}
+
 	public Map<String, Object> getInfo(RouteCalculationProgress firstPhase) {
 		TreeMap<String, Object> map = new TreeMap<String, Object>();
 		TreeMap<String, Object> tiles = new TreeMap<String, Object>();
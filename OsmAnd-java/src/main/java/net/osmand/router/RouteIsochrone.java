@@ -0,0 +1,212 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Result of one-to-all search bounded by time (see {@link RoutePlannerFrontEnd#calculateIsochrone}):
+ * reachable segment end points with time to reach them and concave hull polygon per threshold band.
+ * <p>
+ * Hull is built on grid: parts of segments reachable within threshold are rasterized into cells
+ * (cells are dilated by 1 to join neighbour roads) and outer boundary of cells connected with start is traced.
+ */
+public class RouteIsochrone {
+
+	public static double HULL_CELL_SIZE = 100; // meters
+	private static final int MAX_GRID_CELLS = 1 << 22;
+
+	private final float[] thresholds;
+	private final int[] pointsX;
+	private final int[] pointsY;
+	private final float[] times;
+	private final List<List<LatLon>> polygons = new ArrayList<>();
+
+	RouteIsochrone(int startX, int startY, float[] thresholds, Collection<RouteSegment> segments) {
+		this.thresholds = thresholds;
+		float maxCost = thresholds[thresholds.length - 1];
+		int cnt = 0;
+		for (RouteSegment s : segments) {
+			if (s.distanceFromStart <= maxCost) {
+				cnt++;
+			}
+		}
+		pointsX = new int[cnt];
+		pointsY = new int[cnt];
+		times = new float[cnt];
+		int i = 0;
+		for (RouteSegment s : segments) {
+			if (s.distanceFromStart <= maxCost) {
+				pointsX[i] = s.getEndPointX();
+				pointsY[i] = s.getEndPointY();
+				times[i++] = s.distanceFromStart;
+			}
+		}
+		for (float t : thresholds) {
+			polygons.add(buildHull(startX, startY, t, segments));
+		}
+	}
+
+	public float[] getThresholds() {
+		return thresholds;
+	}
+
+	public int getPointsCount() {
+		return times.length;
+	}
+
+	public int getPointX(int i) {
+		return pointsX[i];
+	}
+
+	public int getPointY(int i) {
+		return pointsY[i];
+	}
+
+	public float getTime(int i) {
+		return times[i];
+	}
+
+	public LatLon getPoint(int i) {
+		return new LatLon(MapUtils.get31LatitudeY(pointsY[i]), MapUtils.get31LongitudeX(pointsX[i]));
+	}
+
+	/**
+	 * @return closed polygon of area reachable within thresholds[band] (empty if start is not reachable)
+	 */
+	public List<LatLon> getPolygon(int band) {
+		return polygons.get(band);
+	}
+
+	private static List<LatLon> buildHull(int startX, int startY, float threshold, Collection<RouteSegment> segments) {
+		TIntArrayList xs = new TIntArrayList();
+		TIntArrayList ys = new TIntArrayList();
+		int left = startX, right = startX, top = startY, bottom = startY;
+		for (RouteSegment s : segments) {
+			float endTime = s.distanceFromStart;
+			float startTime = s.getParentRoute() == null ? 0 : Math.min(s.getParentRoute().distanceFromStart, endTime);
+			if (startTime > threshold) {
+				continue;
+			}
+			int x1 = s.getStartPointX(), y1 = s.getStartPointY();
+			int x2 = s.getEndPointX(), y2 = s.getEndPointY();
+			if (endTime > threshold) {
+				// segment crosses threshold
+				double part = (threshold - startTime) / (endTime - startTime);
+				x2 = (int) (x1 + (x2 - x1) * part);
+				y2 = (int) (y1 + (y2 - y1) * part);
+			}
+			xs.add(x1);
+			ys.add(y1);
+			xs.add(x2);
+			ys.add(y2);
+			left = Math.min(left, Math.min(x1, x2));
+			right = Math.max(right, Math.max(x1, x2));
+			top = Math.min(top, Math.min(y1, y2));
+			bottom = Math.max(bottom, Math.max(y1, y2));
+		}
+		double unit = MapUtils.measuredDist31(startX, startY, startX + 1024, startY) / 1024;
+		double cell = Math.max(1, HULL_CELL_SIZE / unit);
+		while (((right - left) / cell + 3) * ((bottom - top) / cell + 3) > MAX_GRID_CELLS) {
+			cell *= 2;
+		}
+		// 1 cell border from each side is left empty
+		int w = (int) ((right - left) / cell) + 3;
+		int h = (int) ((bottom - top) / cell) + 3;
+		boolean[] grid = new boolean[w * h];
+		for (int i = 0; i < xs.size(); i += 2) {
+			double cx1 = (xs.get(i) - left) / cell, cy1 = (ys.get(i) - top) / cell;
+			double cx2 = (xs.get(i + 1) - left) / cell, cy2 = (ys.get(i + 1) - top) / cell;
+			int steps = (int) (2 * Math.max(Math.abs(cx2 - cx1), Math.abs(cy2 - cy1))) + 1;
+			for (int k = 0; k <= steps; k++) {
+				int cx = (int) (cx1 + (cx2 - cx1) * k / steps) + 1;
+				int cy = (int) (cy1 + (cy2 - cy1) * k / steps) + 1;
+				grid[cy * w + cx] = true;
+			}
+		}
+		boolean[] dilated = new boolean[w * h];
+		for (int cy = 1; cy < h - 1; cy++) {
+			for (int cx = 1; cx < w - 1; cx++) {
+				int c = cy * w + cx;
+				dilated[c] = grid[c] || grid[c - 1] || grid[c + 1] || grid[c - w] || grid[c + w];
+			}
+		}
+		// cells connected with start
+		int startCell = ((int) ((startY - top) / cell) + 1) * w + (int) ((startX - left) / cell) + 1;
+		boolean[] comp = new boolean[w * h];
+		List<LatLon> polygon = new ArrayList<>();
+		if (!dilated[startCell]) {
+			return polygon;
+		}
+		TIntArrayList stack = new TIntArrayList();
+		stack.add(startCell);
+		comp[startCell] = true;
+		int topLeft = startCell;
+		while (!stack.isEmpty()) {
+			int c = stack.removeAt(stack.size() - 1);
+			topLeft = Math.min(topLeft, c);
+			int[] neighbours = { c - 1, c + 1, c - w, c + w };
+			for (int n : neighbours) {
+				if (dilated[n] && !comp[n]) {
+					comp[n] = true;
+					stack.add(n);
+				}
+			}
+		}
+		// trace outer boundary clockwise (y goes down) over cell corners starting with top edge of top left cell
+		int cx = topLeft % w, cy = topLeft / w;
+		int dir = 0; // 0 - right, 1 - down, 2 - left, 3 - up
+		int sx = cx, sy = cy;
+		int[] dx = { 1, 0, -1, 0 };
+		int[] dy = { 0, 1, 0, -1 };
+		int maxSteps = 4 * w * h;
+		do {
+			// cells on the right and on the left side of moving direction from corner (cx, cy)
+			int prevDir = dir;
+			for (int turn : new int[] { 1, 0, 3 }) {
+				int d = (prevDir + turn) % 4;
+				if (isBoundaryEdge(comp, w, cx, cy, d)) {
+					dir = d;
+					break;
+				}
+			}
+			if (dir != prevDir || polygon.isEmpty()) {
+				polygon.add(new LatLon(MapUtils.get31LatitudeY((int) (top + (cy - 1) * cell)),
+						MapUtils.get31LongitudeX((int) (left + (cx - 1) * cell))));
+			}
+			cx += dx[dir];
+			cy += dy[dir];
+		} while ((cx != sx || cy != sy) && --maxSteps > 0);
+		polygon.add(polygon.get(0));
+		return polygon;
+	}
+
+	// edge from corner (cx, cy) in direction d has component cell on the right side and no component cell on the left
+	private static boolean isBoundaryEdge(boolean[] comp, int w, int cx, int cy, int d) {
+		int right, left;
+		switch (d) {
+		case 0:
+			right = cy * w + cx;
+			left = (cy - 1) * w + cx;
+			break;
+		case 1:
+			right = cy * w + cx - 1;
+			left = cy * w + cx;
+			break;
+		case 2:
+			right = (cy - 1) * w + cx - 1;
+			left = cy * w + cx - 1;
+			break;
+		default:
+			right = (cy - 1) * w + cx;
+			left = (cy - 1) * w + cx - 1;
+			break;
+		}
+		return right >= 0 && right < comp.length && comp[right] && (left < 0 || left >= comp.length || !comp[left]);
+	}
+}
@@ -4,10 +4,19 @@ package net.osmand.router;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.logging.Log;
 
+import gnu.trove.iterator.TLongIterator;
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
 import net.osmand.LocationsHolder;
 import net.osmand.NativeLibrary;
 import net.osmand.PlatformUtil;
@@ -23,6 +32,7 @@ import net.osmand.router.GeneralRouter.GeneralRouterProfile;
 import net.osmand.router.GeneralRouter.RoutingParameter;
 import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
 import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
 import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
 import net.osmand.router.RouteCalculationProgress.HHIteration;
 import net.osmand.router.RouteResultPreparation.RouteCalcResult;
@@ -42,6 +52,10 @@ public class RoutePlannerFrontEnd {
 	private boolean useOnlyHHRouting = false;
 	private HHRoutingConfig hhRoutingConfig = null;
 	private HHRoutingType hhRoutingType = HHRoutingType.JAVA;
+	private RoutingGraph[] preloadedGraphs = null;
+	private int parallelLegs = 1;
+	private static final long LEG_CANCEL_CHECK_MS = 100;
+	private RouteResultCache routeResultCache = null;
 
 
 	public RoutePlannerFrontEnd() {
@@ -111,7 +125,23 @@ public class RoutePlannerFrontEnd {
 			rm = config.router.getProfile() == GeneralRouterProfile.CAR ? RouteCalculationMode.COMPLEX
 					: RouteCalculationMode.NORMAL;
 		}
-		return new RoutingContext(config, nativeLibrary, map, rm);
+		RoutingContext ctx = new RoutingContext(config, nativeLibrary, map, rm);
+		if (preloadedGraphs != null) {
+			for (RoutingGraph graph : preloadedGraphs) {
+				if (ctx.setPreloadedGraph(graph)) {
+					break;
+				}
+			}
+		}
+		return ctx;
+	}
+
+	/**
+	 * Shared graphs (detailed and / or base) used by all built routing contexts when they are suitable
+	 */
+	public RoutePlannerFrontEnd setPreloadedGraphs(RoutingGraph... graphs) {
+		this.preloadedGraphs = graphs;
+		return this;
 	}
 
 	public RoutingContext buildRoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] map) {
@@ -186,6 +216,72 @@ public class RoutePlannerFrontEnd {
 		if (ctx.calculationProgress != null) {
 			ctx.calculationProgress.timeToFindInitialSegments += (System.nanoTime() - now);
 		}
+		return selectRouteSegment(ctx, list, transportStop);
+	}
+
+	/**
+	 * Snaps points to roads as {@link #findRouteSegment} but nearest segments are searched in grid index
+	 * of loaded tiles which is reused by all points (and next calls while tiles are loaded),
+	 * road objects are copied only for returned candidates.
+	 * @return closest segment with up to maxCandidates - 1 others per point (null if there are no roads around)
+	 * @throws IllegalArgumentException if maxCandidates is less than 1
+	 */
+	public List<RouteSegmentPoint> findRouteSegments(RoutingContext ctx, List<LatLon> points, int maxCandidates) throws IOException {
+		if (maxCandidates < 1) {
+			throw new IllegalArgumentException("At least one candidate is required: " + maxCandidates);
+		}
+		long now = System.nanoTime();
+		List<RouteSegmentPoint> res = new ArrayList<RouteSegmentPoint>(points.size());
+		RouteSegmentIndex.Candidates candidates = new RouteSegmentIndex.Candidates();
+		double[] dists = new double[0];
+		for (LatLon l : points) {
+			int px = MapUtils.get31TileNumberX(l.getLongitude());
+			int py = MapUtils.get31TileNumberY(l.getLatitude());
+			candidates.clear();
+			for (int zoom : new int[] { 17, 15, 14 }) {
+				TLongIterator it = ctx.loadRoutingTiles(px, py, zoom).iterator();
+				while (it.hasNext()) {
+					ctx.getSegmentIndex(it.next()).findNearest(px, py, maxCandidates, candidates);
+				}
+				if (candidates.size() > 0) {
+					break;
+				}
+			}
+			if (dists.length < candidates.size()) {
+				dists = new double[candidates.roads.length];
+			}
+			for (int i = 0; i < candidates.size(); i++) {
+				float prio = ctx.getRouter().defineDestinationPriority(candidates.roads[i]);
+				dists[i] = prio > 0 ? (candidates.distances[i] + GPS_POSSIBLE_ERROR * GPS_POSSIBLE_ERROR) / (prio * prio) : -1;
+			}
+			List<RouteSegmentPoint> list = new ArrayList<BinaryRoutePlanner.RouteSegmentPoint>();
+			while (list.size() < maxCandidates) {
+				int min = -1;
+				for (int i = 0; i < candidates.size(); i++) {
+					if (dists[i] >= 0 && (min == -1 || dists[i] < dists[min])) {
+						min = i;
+					}
+				}
+				if (min == -1) {
+					break;
+				}
+				int j = candidates.segmentEnds[min];
+				RouteSegmentPoint road = new RouteSegmentPoint(new RouteDataObject(candidates.roads[min]), j - 1, j, dists[min]);
+				road.preciseX = candidates.projX[min];
+				road.preciseY = candidates.projY[min];
+				list.add(road);
+				dists[min] = -1;
+			}
+			res.add(selectRouteSegment(ctx, list, false));
+		}
+		candidates.clear();
+		if (ctx.calculationProgress != null) {
+			ctx.calculationProgress.timeToFindInitialSegments += (System.nanoTime() - now);
+		}
+		return res;
+	}
+
+	private RouteSegmentPoint selectRouteSegment(RoutingContext ctx, List<RouteSegmentPoint> list, boolean transportStop) {
 		if (list.size() > 0) {
 			RouteSegmentPoint ps = null;
 			if (ctx.publicTransport) {
@@ -214,6 +310,31 @@ public class RoutePlannerFrontEnd {
 		return null;
 	}
 
+	/**
+	 * Calculates area reachable from start within each of thresholds (seconds) in a single bounded search
+	 * @return null if start point is not found on roads
+	 * @throws IllegalArgumentException if no thresholds are given or some of them are not positive
+	 */
+	public RouteIsochrone calculateIsochrone(final RoutingContext ctx, LatLon start, float... thresholds) throws IOException, InterruptedException {
+		if (thresholds == null || thresholds.length == 0) {
+			throw new IllegalArgumentException("At least one threshold is required");
+		}
+		for (float t : thresholds) {
+			if (!(t > 0) || Float.isInfinite(t)) {
+				throw new IllegalArgumentException("Threshold should be positive: " + t);
+			}
+		}
+		RouteSegmentPoint s = findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null);
+		if (s == null) {
+			return null;
+		}
+		float[] sorted = Arrays.copyOf(thresholds, thresholds.length);
+		Arrays.sort(sorted);
+		BinaryRoutePlanner planner = new BinaryRoutePlanner();
+		TLongObjectHashMap<RouteSegment> visited = planner.searchReachableSegments(ctx, s, sorted[sorted.length - 1]);
+		return new RouteIsochrone(s.preciseX, s.preciseY, sorted, visited.valueCollection());
+	}
+
 	public RouteCalcResult searchRoute(final RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates) throws IOException, InterruptedException {
 		return searchRoute(ctx, start, end, intermediates, null);
 	}
@@ -223,6 +344,28 @@ public class RoutePlannerFrontEnd {
 		return this;
 	}
 	
+	/**
+	 * Number of threads to calculate legs between intermediate points concurrently (1 - sequentially).
+	 * Each leg has own routing context over reader cursors or shared preloaded graph.
+	 */
+	public RoutePlannerFrontEnd setParallelLegs(int threads) {
+		this.parallelLegs = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * Cache of calculated routes keyed by snapped points and router parameters (null - disabled).
+	 * Same cache could be shared by several front ends.
+	 */
+	public RoutePlannerFrontEnd setRouteResultCache(RouteResultCache cache) {
+		this.routeResultCache = cache;
+		return this;
+	}
+
+	public RouteResultCache getRouteResultCache() {
+		return routeResultCache;
+	}
+
 	public RoutePlannerFrontEnd setHHRoutingConfig(HHRoutingConfig hhRoutingConfig) {
 		// null means don't use hh 
 		this.hhRoutingConfig = hhRoutingConfig;
@@ -374,10 +517,71 @@ public class RoutePlannerFrontEnd {
 
 	public RouteCalcResult searchRoute(final RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates,
 	                                   PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
-		long timeToCalculate = System.nanoTime();
 		if (ctx.calculationProgress == null) {
 			ctx.calculationProgress = new RouteCalculationProgress();
 		}
+		RouteResultCache.Key cacheKey = null;
+		List<RouteSegmentPoint> points = null;
+		if (routeResultCache != null && routeDirection == null) {
+			points = snapRoutePoints(ctx, start, end, intermediates);
+			cacheKey = points == null ? null : RouteResultCache.createKey(ctx, points, getRouteCacheMode(ctx));
+			if (cacheKey != null) {
+				RouteResultCache.CachedRoute cached = routeResultCache.get(cacheKey, ctx.map.keySet());
+				if (cached != null) {
+					ctx.routingTime = cached.getRoutingTime();
+					return cached.createResult();
+				}
+			}
+		}
+		RouteCalcResult res = searchRouteNoCache(ctx, start, end, intermediates, routeDirection, points);
+		if (cacheKey != null) {
+			routeResultCache.put(cacheKey, ctx.map.keySet(), res, ctx.routingTime);
+		}
+		return res;
+	}
+
+	// same points as found by addSegment, null if any point is not located
+	private List<RouteSegmentPoint> snapRoutePoints(RoutingContext ctx, LatLon start, LatLon end,
+			List<LatLon> intermediates) throws IOException {
+		List<RouteSegmentPoint> points = new ArrayList<RouteSegmentPoint>();
+		RouteSegmentPoint p = findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null,
+				ctx.startTransportStop);
+		if (p == null) {
+			return null;
+		}
+		points.add(p);
+		if (intermediates != null) {
+			for (LatLon l : intermediates) {
+				p = findRouteSegment(l.getLatitude(), l.getLongitude(), ctx, null, false);
+				if (p == null) {
+					return null;
+				}
+				points.add(p);
+			}
+		}
+		p = findRouteSegment(end.getLatitude(), end.getLongitude(), ctx, null, ctx.targetTransportStop);
+		if (p == null) {
+			return null;
+		}
+		points.add(p);
+		return points;
+	}
+
+	private String getRouteCacheMode(RoutingContext ctx) {
+		String mode = ctx.nativeLib != null ? "native" : "java";
+		if (hhRoutingConfig != null) {
+			mode += " hh " + hhRoutingType + " " + useOnlyHHRouting + " " + hhRoutingConfig.getParametersKey();
+		}
+		return mode;
+	}
+
+	/**
+	 * @param snapped points found for start, intermediates and end (if already found) or null
+	 */
+	private RouteCalcResult searchRouteNoCache(final RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates,
+	                                   PrecalculatedRouteDirection routeDirection, List<RouteSegmentPoint> snapped)
+			throws IOException, InterruptedException {
+		long timeToCalculate = System.nanoTime();
 		boolean intermediatesEmpty = intermediates == null || intermediates.isEmpty();
 		List<LatLon> targets = new ArrayList<>();
 		if (!intermediatesEmpty) {
@@ -445,6 +649,9 @@ public class RoutePlannerFrontEnd {
 			ctx.calculationProgress.nextIteration();
 			res = runNativeRouting(ctx, recalculationEnd, null);
 			makeStartEndPointsPrecise(ctx, res, start, end, intermediates);
+		} else if (snapped != null) {
+			ctx.calculationProgress.nextIteration();
+			res = searchRouteImpl(ctx, snapped, routeDirection);
 		} else {
 			int indexNotFound = 0;
 			List<RouteSegmentPoint> points = new ArrayList<RouteSegmentPoint>();
@@ -493,17 +700,28 @@ public class RoutePlannerFrontEnd {
 	private HHNetworkRouteRes runHHRoute(RoutingContext ctx, LatLon start, List<LatLon> targets)
 			throws IOException, InterruptedException {
 		HHRoutePlanner<NetworkDBPoint> routePlanner = HHRoutePlanner.create(ctx);
+		List<HHNetworkRouteRes> legs = null;
+		if (parallelLegs > 1 && targets.size() > 1) {
+			legs = calculateHHLegsConcurrently(ctx, start, targets);
+		}
 		HHNetworkRouteRes r = null;
 		Double dir = ctx.config.initialDirection;
 		for (int i = 0; i < targets.size(); i++) {
-			double initialPenalty = ctx.config.penaltyForReverseDirection;
-			if (i > 0) {
-				ctx.config.penaltyForReverseDirection /= 2; // relax reverse-penalty (only for inter-points)
-			}
 			ctx.calculationProgress.hhTargetsProgress(i, targets.size());
-			HHNetworkRouteRes res = calculateHHRoute(routePlanner, ctx, i == 0 ? start : targets.get(i - 1),
-					targets.get(i), dir);
-			ctx.config.penaltyForReverseDirection = initialPenalty;
+			HHNetworkRouteRes res = legs == null ? null : legs.get(i);
+			if (res != null && (!res.isCorrect() || (i > 0 && isReverseDirection(res, dir)))) {
+				// leg was calculated without direction of previous leg, so penalty is applied by recalculation
+				res = null;
+			}
+			if (res == null) {
+				double initialPenalty = ctx.config.penaltyForReverseDirection;
+				if (i > 0) {
+					ctx.config.penaltyForReverseDirection /= 2; // relax reverse-penalty (only for inter-points)
+				}
+				res = calculateHHRoute(routePlanner, ctx, hhRoutingConfig, i == 0 ? start : targets.get(i - 1),
+						targets.get(i), dir);
+				ctx.config.penaltyForReverseDirection = initialPenalty;
+			}
 			if (r == null) {
 				r = res;
 			} else {
@@ -521,12 +739,63 @@ public class RoutePlannerFrontEnd {
 		return r;
 	}
 
+	private List<HHNetworkRouteRes> calculateHHLegsConcurrently(final RoutingContext ctx, final LatLon start,
+			final List<LatLon> targets) throws IOException, InterruptedException {
+		final HHRoutingContext<NetworkDBPoint> network;
+		try {
+			network = HHRoutePlanner.create(ctx).loadNetwork(start, targets.get(targets.size() - 1), hhRoutingConfig);
+		} catch (SQLException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		if (network == null) {
+			return null;
+		}
+		final RouteCalculationProgress[] progress = new RouteCalculationProgress[targets.size()];
+		List<Callable<HHNetworkRouteRes>> legs = new ArrayList<Callable<HHNetworkRouteRes>>();
+		for (int i = 0; i < targets.size(); i++) {
+			final int leg = i;
+			progress[i] = new RouteCalculationProgress();
+			legs.add(new Callable<HHNetworkRouteRes>() {
+				@Override
+				public HHNetworkRouteRes call() throws Exception {
+					BinaryMapIndexReader[] cursors = createLegCursors(ctx);
+					try {
+						RoutingContext local = buildLegContext(ctx, cursors, progress[leg]);
+						HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.createShared(local, network,
+								NetworkDBPoint.class);
+						return calculateHHRoute(planner, local, hhRoutingConfig.copy(), leg == 0 ? start : targets.get(leg - 1),
+								targets.get(leg), leg == 0 ? ctx.config.initialDirection : null);
+					} finally {
+						closeLegCursors(cursors);
+					}
+				}
+			});
+		}
+		try {
+			return runLegsConcurrently(legs, ctx.calculationProgress, progress);
+		} finally {
+			if (ctx.calculationProgress != null) {
+				for (RouteCalculationProgress p : progress) {
+					ctx.calculationProgress.add(p);
+				}
+			}
+		}
+	}
+
+	private static boolean isReverseDirection(RouteCalcResult res, Double dir) {
+		if (dir == null || res.detailed.isEmpty()) {
+			return false;
+		}
+		double diff = (res.detailed.get(0).getBearingBegin() / 180.0) * Math.PI - dir;
+		return Math.abs(MapUtils.alignAngleDifference(diff - Math.PI)) <= Math.PI / 3;
+	}
+
 	private HHNetworkRouteRes calculateHHRoute(HHRoutePlanner<NetworkDBPoint> routePlanner, RoutingContext ctx,
-			LatLon start, LatLon end, Double dir) throws InterruptedException, IOException {
+			HHRoutingConfig config, LatLon start, LatLon end, Double dir) throws InterruptedException, IOException {
 		NativeLibrary nativeLib = ctx.nativeLib;
 		ctx.nativeLib = null; // keep null to interfere with detailed 
 		try {
-			HHRoutingConfig cfg = HHRoutePlanner.prepareDefaultRoutingConfig(hhRoutingConfig);
+			HHRoutingConfig cfg = HHRoutePlanner.prepareDefaultRoutingConfig(config);
 			cfg.INITIAL_DIRECTION = dir;
 			HHNetworkRouteRes res = routePlanner.runRouting(start, end, cfg);
 			if (res != null && res.error == null) {
@@ -830,6 +1099,11 @@ public class RoutePlannerFrontEnd {
 				}
 			}
 		}
+		if (parallelLegs > 1 && firstPartRecalculatedRoute == null && ctx.nativeLib == null && ctx.getVisitor() == null) {
+			RouteCalcResult results = searchLegsConcurrently(ctx, points, routeDirection);
+			ctx.unloadAllData();
+			return results;
+		}
 		RouteCalcResult results = new RouteCalcResult(new ArrayList<RouteSegmentResult>());
 		for (int i = 0; i < points.size() - 1; i++) {
 			RoutingContext local = new RoutingContext(ctx);
@@ -852,6 +1126,160 @@ public class RoutePlannerFrontEnd {
 		return results;
 	}
 
+	private RouteCalcResult searchLegsConcurrently(final RoutingContext ctx, final List<RouteSegmentPoint> points,
+			final PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
+		final float[] routingTimes = new float[points.size() - 1];
+		// progress counters are not thread safe, so every leg has own progress merged when legs are finished
+		final RouteCalculationProgress[] progress = new RouteCalculationProgress[points.size() - 1];
+		List<Callable<RouteCalcResult>> legs = new ArrayList<Callable<RouteCalcResult>>();
+		for (int i = 0; i < points.size() - 1; i++) {
+			final int leg = i;
+			progress[i] = new RouteCalculationProgress();
+			if (ctx.calculationProgress != null) {
+				progress[i].routeCalculationStartTime = ctx.calculationProgress.routeCalculationStartTime;
+			}
+			legs.add(new Callable<RouteCalcResult>() {
+				@Override
+				public RouteCalcResult call() throws Exception {
+					BinaryMapIndexReader[] cursors = createLegCursors(ctx);
+					try {
+						RoutingContext local = buildLegContext(ctx, cursors, progress[leg]);
+						// points are modified by search (others are removed), neighbour legs share them
+						RouteSegmentPoint start = copyPoint(points.get(leg));
+						RouteSegmentPoint end = copyPoint(points.get(leg + 1));
+						RouteCalcResult res = searchRouteInternalPrepare(local, start, end, routeDirection);
+						makeStartEndPointsPrecise(local, res, start.getPreciseLatLon(), end.getPreciseLatLon(), null);
+						routingTimes[leg] = local.routingTime;
+						return res;
+					} finally {
+						closeLegCursors(cursors);
+					}
+				}
+			});
+		}
+		RouteCalcResult results = new RouteCalcResult(new ArrayList<RouteSegmentResult>());
+		List<RouteCalcResult> legResults;
+		try {
+			legResults = runLegsConcurrently(legs, ctx.calculationProgress, progress);
+		} finally {
+			if (ctx.calculationProgress != null) {
+				for (RouteCalculationProgress p : progress) {
+					ctx.calculationProgress.add(p);
+				}
+			}
+		}
+		for (RouteCalcResult res : legResults) {
+			results.detailed.addAll(res.detailed);
+		}
+		for (float t : routingTimes) {
+			ctx.routingTime += t;
+		}
+		return results;
+	}
+
+	private static RouteSegmentPoint copyPoint(RouteSegmentPoint pnt) {
+		RouteSegmentPoint cp = new RouteSegmentPoint(pnt);
+		if (pnt.others != null) {
+			cp.others = new ArrayList<RouteSegmentPoint>(pnt.others.size());
+			for (RouteSegmentPoint o : pnt.others) {
+				cp.others.add(new RouteSegmentPoint(o));
+			}
+		}
+		return cp;
+	}
+
+	// null if context uses preloaded graph which is shared read-only
+	private BinaryMapIndexReader[] createLegCursors(RoutingContext ctx) throws IOException {
+		if (ctx.getPreloadedGraph() != null) {
+			return null;
+		}
+		BinaryMapIndexReader[] maps = ctx.getMaps();
+		BinaryMapIndexReader[] cursors = new BinaryMapIndexReader[maps.length];
+		try {
+			for (int i = 0; i < maps.length; i++) {
+				cursors[i] = maps[i].createCursor();
+			}
+		} catch (IOException e) {
+			closeLegCursors(cursors);
+			throw e;
+		}
+		return cursors;
+	}
+
+	private void closeLegCursors(BinaryMapIndexReader[] cursors) throws IOException {
+		if (cursors != null) {
+			for (BinaryMapIndexReader c : cursors) {
+				if (c != null) {
+					c.close();
+				}
+			}
+		}
+	}
+
+	private RoutingContext buildLegContext(RoutingContext ctx, BinaryMapIndexReader[] cursors,
+			RouteCalculationProgress progress) {
+		// configuration is copied as calculation temporarily changes it
+		RoutingContext local;
+		if (cursors == null) {
+			local = new RoutingContext(ctx, ctx.config.copy());
+		} else {
+			local = new RoutingContext(ctx.config.copy(), null, cursors, ctx.calculationMode);
+			local.leftSideNavigation = ctx.leftSideNavigation;
+		}
+		local.calculationProgress = progress;
+		local.nativeLib = null;
+		local.setVisitor(null);
+		return local;
+	}
+
+	private <T> List<T> runLegsConcurrently(List<Callable<T>> legs, RouteCalculationProgress parent,
+			RouteCalculationProgress[] progress) throws IOException, InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelLegs, legs.size()));
+		try {
+			List<Future<T>> futures = new ArrayList<Future<T>>(legs.size());
+			for (Callable<T> leg : legs) {
+				futures.add(executor.submit(leg));
+			}
+			List<T> res = new ArrayList<T>(legs.size());
+			for (Future<T> f : futures) {
+				try {
+					res.add(waitLeg(f, parent, progress));
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					} else if (cause instanceof InterruptedException) {
+						throw (InterruptedException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IOException(cause.getMessage(), cause);
+				}
+			}
+			return res;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private <T> T waitLeg(Future<T> f, RouteCalculationProgress parent, RouteCalculationProgress[] progress)
+			throws InterruptedException, ExecutionException {
+		while (true) {
+			try {
+				return f.get(LEG_CANCEL_CHECK_MS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// calculation is cancelled via parent progress, legs check only own progress
+				if (parent != null && parent.isCancelled) {
+					for (RouteCalculationProgress p : progress) {
+						p.isCancelled = true;
+					}
+				}
+			}
+		}
+	}
+
 	private void pringGC(final RoutingContext ctx, boolean before) {
 		if (RoutingContext.SHOW_GC_SIZE && before) {
 			long h1 = RoutingContext.runGCUsedMemory();
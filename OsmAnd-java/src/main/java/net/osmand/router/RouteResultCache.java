@@ -0,0 +1,187 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+/**
+ * LRU cache of calculated routes (see {@link RoutePlannerFrontEnd#setRouteResultCache}) keyed by snapped
+ * route points and router parameters. Cache is cleared when set of map readers changes.
+ * Cached segments are shared between results, so they shouldn't be modified by callers.
+ */
+public class RouteResultCache {
+
+	private final int maxSize;
+	private final Map<Key, CachedRoute> cache;
+	private final Set<BinaryMapIndexReader> readers = new HashSet<BinaryMapIndexReader>();
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	public RouteResultCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.cache = new LinkedHashMap<Key, CachedRoute>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedRoute> eldest) {
+				if (size() > RouteResultCache.this.maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @param mode calculation mode of front end (java / native, hh routing and its config)
+	 * @return key or null if route depends on state which is not part of key (direction, previous route, time)
+	 */
+	static Key createKey(RoutingContext ctx, List<RouteSegmentPoint> points, String mode) {
+		RoutingConfiguration config = ctx.config;
+		if (config.initialDirection != null || config.targetDirection != null || config.routeCalculationTime != 0
+				|| config.getDirectionPoints() != null || ctx.previouslyCalculatedRoute != null) {
+			return null;
+		}
+		long[] impassable = config.router.getImpassableRoadIds();
+		Arrays.sort(impassable);
+		String params = mode + " " + ctx.calculationMode + " " + ctx.leftSideNavigation + " " + config.routerName + " "
+				+ config.router.getProfile() + " " + config.router.getParameterValues() + " "
+				+ Arrays.toString(impassable);
+		long[] pnts = new long[points.size() * 4];
+		for (int i = 0; i < points.size(); i++) {
+			RouteSegmentPoint p = points.get(i);
+			pnts[4 * i] = p.getRoad().getId();
+			pnts[4 * i + 1] = p.getSegmentStart();
+			pnts[4 * i + 2] = p.preciseX;
+			pnts[4 * i + 3] = p.preciseY;
+		}
+		return new Key(params, pnts);
+	}
+
+	/**
+	 * @return cached route or null
+	 */
+	synchronized CachedRoute get(Key key, Collection<BinaryMapIndexReader> maps) {
+		checkReaders(maps);
+		CachedRoute route = cache.get(key);
+		if (route == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return route;
+	}
+
+	/**
+	 * @param routingTime cost of route (see {@link RoutingContext#routingTime})
+	 */
+	synchronized void put(Key key, Collection<BinaryMapIndexReader> maps, RouteCalcResult res, float routingTime) {
+		checkReaders(maps);
+		if (res != null && res.isCorrect()) {
+			cache.put(key, new CachedRoute(new ArrayList<RouteSegmentResult>(res.getList()), routingTime));
+		}
+	}
+
+	private void checkReaders(Collection<BinaryMapIndexReader> maps) {
+		if (readers.size() != maps.size() || !readers.containsAll(maps)) {
+			if (!cache.isEmpty()) {
+				invalidations++;
+				cache.clear();
+			}
+			readers.clear();
+			readers.addAll(maps);
+		}
+	}
+
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Route cache: %d routes, %d hits, %d misses, %d evicted, %d invalidated", cache.size(),
+				hits, misses, evictions, invalidations);
+	}
+
+	static class CachedRoute {
+		private final List<RouteSegmentResult> segments;
+		private final float routingTime;
+
+		CachedRoute(List<RouteSegmentResult> segments, float routingTime) {
+			this.segments = segments;
+			this.routingTime = routingTime;
+		}
+
+		/**
+		 * @return copy of cached result
+		 */
+		RouteCalcResult createResult() {
+			return new RouteCalcResult(new ArrayList<RouteSegmentResult>(segments));
+		}
+
+		float getRoutingTime() {
+			return routingTime;
+		}
+	}
+
+	static class Key {
+		private final String params;
+		private final long[] points;
+		private final int hash;
+
+		Key(String params, long[] points) {
+			this.params = params;
+			this.points = points;
+			this.hash = 31 * params.hashCode() + Arrays.hashCode(points);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key o = (Key) obj;
+			return hash == o.hash && params.equals(o.params) && Arrays.equals(points, o.points);
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.QuadPointDouble;
+import net.osmand.util.MapUtils;
+
+/**
+ * Grid of road segments (point pairs) of one routing tile, so nearest roads are found
+ * by scanning cells around point instead of all segments of all roads in tile.
+ * Index is immutable and cached by {@link RoutingContext} while tiles are loaded.
+ */
+public class RouteSegmentIndex {
+
+	private static final int MIN_CELL_SHIFT = 31 - 19;
+	private static final int MAX_CELLS_SIDE = 64;
+
+	private final RouteDataObject[] roads;
+	private final int left;
+	private final int top;
+	private final int cellShift;
+	private final int width;
+	private final int height;
+	// cellOffsets[c] .. cellOffsets[c + 1] are indexes in segmentRoads / segmentPoints
+	private final int[] cellOffsets;
+	private final int[] segmentRoads;
+	private final int[] segmentPoints;
+
+	RouteSegmentIndex(List<RouteDataObject> list) {
+		roads = list.toArray(new RouteDataObject[0]);
+		int l = Integer.MAX_VALUE, t = Integer.MAX_VALUE, r = Integer.MIN_VALUE, b = Integer.MIN_VALUE;
+		for (RouteDataObject ro : roads) {
+			for (int i = 0; i < ro.getPointsLength(); i++) {
+				l = Math.min(l, ro.getPoint31XTile(i));
+				r = Math.max(r, ro.getPoint31XTile(i));
+				t = Math.min(t, ro.getPoint31YTile(i));
+				b = Math.max(b, ro.getPoint31YTile(i));
+			}
+		}
+		if (l > r) {
+			l = r = t = b = 0;
+		}
+		int shift = MIN_CELL_SHIFT;
+		while (((r - l) >> shift) >= MAX_CELLS_SIDE || ((b - t) >> shift) >= MAX_CELLS_SIDE) {
+			shift++;
+		}
+		left = l;
+		top = t;
+		cellShift = shift;
+		width = ((r - l) >> shift) + 1;
+		height = ((b - t) >> shift) + 1;
+		TIntArrayList cells = new TIntArrayList();
+		TIntArrayList segments = new TIntArrayList();
+		for (int ro = 0; ro < roads.length; ro++) {
+			RouteDataObject road = roads[ro];
+			for (int j = 1; j < road.getPointsLength(); j++) {
+				int cx1 = (Math.min(road.getPoint31XTile(j - 1), road.getPoint31XTile(j)) - left) >> shift;
+				int cx2 = (Math.max(road.getPoint31XTile(j - 1), road.getPoint31XTile(j)) - left) >> shift;
+				int cy1 = (Math.min(road.getPoint31YTile(j - 1), road.getPoint31YTile(j)) - top) >> shift;
+				int cy2 = (Math.max(road.getPoint31YTile(j - 1), road.getPoint31YTile(j)) - top) >> shift;
+				for (int cy = cy1; cy <= cy2; cy++) {
+					for (int cx = cx1; cx <= cx2; cx++) {
+						cells.add(cy * width + cx);
+						segments.add(ro);
+						segments.add(j);
+					}
+				}
+			}
+		}
+		cellOffsets = new int[width * height + 1];
+		for (int i = 0; i < cells.size(); i++) {
+			cellOffsets[cells.get(i) + 1]++;
+		}
+		for (int c = 0; c < width * height; c++) {
+			cellOffsets[c + 1] += cellOffsets[c];
+		}
+		segmentRoads = new int[cells.size()];
+		segmentPoints = new int[cells.size()];
+		int[] fill = Arrays.copyOf(cellOffsets, width * height);
+		for (int i = 0; i < cells.size(); i++) {
+			int e = fill[cells.get(i)]++;
+			segmentRoads[e] = segments.get(2 * i);
+			segmentPoints[e] = segments.get(2 * i + 1);
+		}
+	}
+
+	public int getRoadsCount() {
+		return roads.length;
+	}
+
+	/**
+	 * Finds closest segment of each road around point, search stops when cells couldn't contain
+	 * segments closer than maxCandidates found roads.
+	 */
+	void findNearest(int px, int py, int maxCandidates, Candidates res) {
+		if (roads.length == 0) {
+			return;
+		}
+		int pcx = Math.max(0, Math.min(width - 1, (px - left) >> cellShift));
+		int pcy = Math.max(0, Math.min(height - 1, (py - top) >> cellShift));
+		int maxRing = Math.max(Math.max(pcx, width - 1 - pcx), Math.max(pcy, height - 1 - pcy));
+		int cell = 1 << cellShift;
+		for (int ring = 0; ring <= maxRing; ring++) {
+			for (int cy = pcy - ring; cy <= pcy + ring; cy++) {
+				if (cy < 0 || cy >= height) {
+					continue;
+				}
+				boolean border = cy == pcy - ring || cy == pcy + ring;
+				for (int cx = pcx - ring; cx <= pcx + ring; cx += border ? 1 : 2 * ring) {
+					if (cx >= 0 && cx < width) {
+						scanCell(px, py, cy * width + cx, res);
+					}
+					if (ring == 0) {
+						break;
+					}
+				}
+			}
+			// cells of next rings are at least ring * cell far from point
+			if (res.size() >= maxCandidates) {
+				double ringDist = Math.min(MapUtils.squareDist31TileMetric(px, py, px + ring * cell, py),
+						MapUtils.squareDist31TileMetric(px, py, px, py + ring * cell));
+				if (ringDist > res.kthDistance(maxCandidates)) {
+					break;
+				}
+			}
+		}
+	}
+
+	private void scanCell(int px, int py, int c, Candidates res) {
+		for (int e = cellOffsets[c]; e < cellOffsets[c + 1]; e++) {
+			RouteDataObject r = roads[segmentRoads[e]];
+			int j = segmentPoints[e];
+			QuadPointDouble pr = MapUtils.getProjectionPoint31(px, py, r.getPoint31XTile(j - 1),
+					r.getPoint31YTile(j - 1), r.getPoint31XTile(j), r.getPoint31YTile(j));
+			double dist = MapUtils.squareDist31TileMetric((int) pr.x, (int) pr.y, px, py);
+			res.add(r, j, (int) pr.x, (int) pr.y, dist);
+		}
+	}
+
+	/**
+	 * Closest segment per road (roads are compared by id, so same road from several tiles is added once).
+	 * Reused between queries to avoid allocations.
+	 */
+	static class Candidates {
+		private final TLongObjectHashMap<Integer> byRoadId = new TLongObjectHashMap<Integer>();
+		RouteDataObject[] roads = new RouteDataObject[16];
+		int[] segmentEnds = new int[16];
+		int[] projX = new int[16];
+		int[] projY = new int[16];
+		double[] distances = new double[16];
+		private double[] sorted = new double[16];
+		private int size;
+
+		void clear() {
+			byRoadId.clear();
+			Arrays.fill(roads, 0, size, null);
+			size = 0;
+		}
+
+		int size() {
+			return size;
+		}
+
+		void add(RouteDataObject r, int segmentEnd, int x, int y, double dist) {
+			Integer existing = byRoadId.get(r.getId());
+			int ind;
+			if (existing != null) {
+				ind = existing;
+				if (distances[ind] <= dist) {
+					return;
+				}
+			} else {
+				ind = size++;
+				if (ind == roads.length) {
+					int len = roads.length * 2;
+					roads = Arrays.copyOf(roads, len);
+					segmentEnds = Arrays.copyOf(segmentEnds, len);
+					projX = Arrays.copyOf(projX, len);
+					projY = Arrays.copyOf(projY, len);
+					distances = Arrays.copyOf(distances, len);
+				}
+				byRoadId.put(r.getId(), ind);
+			}
+			roads[ind] = r;
+			segmentEnds[ind] = segmentEnd;
+			projX[ind] = x;
+			projY[ind] = y;
+			distances[ind] = dist;
+		}
+
+		double kthDistance(int k) {
+			if (sorted.length < size) {
+				sorted = new double[roads.length];
+			}
+			System.arraycopy(distances, 0, sorted, 0, size);
+			Arrays.sort(sorted, 0, size);
+			return sorted[Math.min(k, size) - 1];
+		}
+	}
+}
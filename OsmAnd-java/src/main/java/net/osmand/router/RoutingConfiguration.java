@@ -89,6 +89,35 @@ public class RoutingConfiguration {
 		return directionPoints;
 	}
 
+	/**
+	 * Shallow copy (router and direction points are shared), route calculation temporarily changes
+	 * directions / heuristic of configuration, so concurrent calculations need own copies
+	 */
+	public RoutingConfiguration copy() {
+		RoutingConfiguration c = new RoutingConfiguration();
+		c.attributes.putAll(attributes);
+		c.heuristicCoefficient = heuristicCoefficient;
+		c.ZOOM_TO_LOAD_TILES = ZOOM_TO_LOAD_TILES;
+		c.memoryLimitation = memoryLimitation;
+		c.nativeMemoryLimitation = nativeMemoryLimitation;
+		c.planRoadDirection = planRoadDirection;
+		c.router = router;
+		c.routerName = routerName;
+		c.initialDirection = initialDirection;
+		c.targetDirection = targetDirection;
+		c.penaltyForReverseDirection = penaltyForReverseDirection;
+		c.recalculateDistance = recalculateDistance;
+		c.routeCalculationTime = routeCalculationTime;
+		c.MAX_VISITED = MAX_VISITED;
+		c.directionPoints = directionPoints;
+		c.directionPointsRadius = directionPointsRadius;
+		c.minPointApproximation = minPointApproximation;
+		c.minStepApproximation = minStepApproximation;
+		c.maxStepApproximation = maxStepApproximation;
+		c.smoothenPointsNoRoute = smoothenPointsNoRoute;
+		return c;
+	}
+
 	public static class DirectionPoint extends Node {
 		private static final long serialVersionUID = -7496599771204656505L;
 		public double distance = Double.MAX_VALUE;
@@ -16,6 +16,7 @@ import org.apache.commons.logging.Log;
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.iterator.TLongIterator;
 import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.NativeLibrary;
@@ -87,6 +88,14 @@ public class RoutingContext {
 	
 	// Needs to be a sorted array list . Another option to use hashmap but it will be more memory expensive
 	List<RoutingSubregionTile> subregionTiles = new ArrayList<RoutingSubregionTile>();
+
+	// 2.1 Shared preloaded graph (instead of tiles) and segments of this context created from it (by node index)
+	RoutingGraph preloadedGraph;
+	TIntObjectHashMap<RouteSegment> graphSegments = new TIntObjectHashMap<RouteSegment>();
+	// 2.2 Segment indexes of loaded tiles for finding nearest roads (cleared when tiles are unloaded,
+	// graph tiles are never unloaded, so indexes of graph are cleared when their number reaches the limit)
+	private static final int MAX_GRAPH_SEGMENT_INDEXES = 256;
+	TLongObjectHashMap<RouteSegmentIndex> segmentIndexes = new TLongObjectHashMap<RouteSegmentIndex>();
 	
 	// 3. Warm object caches
 	ArrayList<RouteSegment> segmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
@@ -110,7 +119,11 @@ public class RoutingContext {
 	
 	
 	RoutingContext(RoutingContext cp) {
-		this.config = cp.config;
+		this(cp, cp.config);
+	}
+
+	RoutingContext(RoutingContext cp, RoutingConfiguration config) {
+		this.config = config;
 		this.map.putAll(cp.map);
 		this.calculationMode = cp.calculationMode;
 		this.leftSideNavigation = cp.leftSideNavigation;
@@ -118,6 +131,7 @@ public class RoutingContext {
 		this.nativeLib = cp.nativeLib;
 		this.visitor = cp.visitor;
 		this.calculationProgress = cp.calculationProgress;
+		this.preloadedGraph = cp.preloadedGraph;
 	}
 	
 	RoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] list, RouteCalculationMode calcMode) {
@@ -204,7 +218,29 @@ public class RoutingContext {
 		unloadAllData(null);
 	}
 	
+	/**
+	 * Uses shared graph instead of loading tiles, graph is not used with native library,
+	 * conditional tags (they change road types) and direction points (they change road points)
+	 * @return true if graph will be used
+	 */
+	public boolean setPreloadedGraph(RoutingGraph graph) {
+		if (graph != null && (nativeLib != null || config.routeCalculationTime != 0 || config.getDirectionPoints() != null
+				|| !graph.isSuitable(calculationMode, map.keySet()))) {
+			graph = null;
+		}
+		preloadedGraph = graph;
+		graphSegments.clear();
+		segmentIndexes.clear();
+		return graph != null;
+	}
+
+	public RoutingGraph getPreloadedGraph() {
+		return preloadedGraph;
+	}
+
 	public void unloadAllData(RoutingContext except) {
+		graphSegments.clear();
+		segmentIndexes.clear();
 		for (RoutingSubregionTile tl : subregionTiles) {
 			if (tl.isLoaded()) {
 				if(except == null || except.searchSubregionTile(tl.subregion) < 0){
@@ -250,6 +286,9 @@ public class RoutingContext {
 	}
 	
 	public RouteSegment loadRouteSegment(int x31, int y31, long memoryLimit, boolean reverseWaySearch) {
+		if (preloadedGraph != null) {
+			return loadGraphRouteSegment(x31, y31, reverseWaySearch);
+		}
 		long tileId = getRoutingTile(x31, y31, memoryLimit);
 		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
 		RouteSegment original = null;
@@ -263,6 +302,47 @@ public class RoutingContext {
 		return original;
 	}
 	
+	private RouteSegment loadGraphRouteSegment(int x31, int y31, boolean reverseWaySearch) {
+		int node = preloadedGraph.findNode(x31, y31);
+		if (node < 0) {
+			return null;
+		}
+		RouteSegment segment = graphSegments.get(node);
+		if (segment == null && !graphSegments.containsKey(node)) {
+			// same as RoutingSubregionTile.add but only for roads of this point
+			RouteSegment last = null;
+			for (int e = preloadedGraph.getEdgesStart(node); e < preloadedGraph.getEdgesEnd(node); e++) {
+				RouteDataObject ro = preloadedGraph.getEdgeRoad(e);
+				if (config.router.acceptLine(ro)) {
+					RouteSegment s = new RouteSegment(ro, preloadedGraph.getEdgePoint(e));
+					if (last == null) {
+						segment = s;
+					} else {
+						last.nextLoaded = s;
+					}
+					last = s;
+				}
+			}
+			graphSegments.put(node, segment);
+		}
+		RouteSegment original = null;
+		while (segment != null) {
+			RouteSegment s = segment;
+			if (reverseWaySearch) {
+				if (segment.reverseSearch == null) {
+					segment.reverseSearch = new RouteSegment(segment.road, segment.getSegmentStart());
+					segment.reverseSearch.reverseSearch = segment;
+					segment.reverseSearch.nextLoaded = segment.nextLoaded;
+				}
+				s = segment.reverseSearch;
+			}
+			s.next = original;
+			original = s;
+			segment = segment.nextLoaded;
+		}
+		return original;
+	}
+
 	public void loadSubregionTile(final RoutingSubregionTile ts, boolean loadObjectsInMemory, List<RouteDataObject> toLoad, TLongHashSet excludeNotAllowed) {
 		long now = System.nanoTime();
 		boolean wasUnloaded = ts.isUnloaded();
@@ -432,14 +512,24 @@ public class RoutingContext {
 		} else {
 			t = 1 << t;
 		}
+		if (preloadedGraph != null) {
+			// roads of the same tiles are returned once
+			int zmShift = 31 - config.ZOOM_TO_LOAD_TILES;
+			int left = ((x31 - t * coordinatesShift) >> zmShift) << zmShift;
+			int top = ((y31 - t * coordinatesShift) >> zmShift) << zmShift;
+			int right = ((x31 + t * coordinatesShift) >> zmShift) + 1 << zmShift;
+			int bottom = ((y31 + t * coordinatesShift) >> zmShift) + 1 << zmShift;
+			List<RouteDataObject> roads = new ArrayList<RouteDataObject>();
+			preloadedGraph.collectRoads(left, top, right - 1, bottom - 1, roads);
+			for (RouteDataObject ro : roads) {
+				if (config.router.acceptLine(ro)) {
+					toFillIn.add(ro);
+				}
+			}
+			return;
+		}
 		
-		TLongHashSet ts = new TLongHashSet(); 
-        for (int i = -t; i <= t; i++) {
-            for (int j = -t; j <= t; j++) {
-                ts.add(getRoutingTile(x31 + i * coordinatesShift, y31 + j * coordinatesShift, 0));
-            }
-        }
-		TLongIterator it = ts.iterator();
+		TLongIterator it = loadRoutingTiles(x31, y31, zoomAround).iterator();
 		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
 		while (it.hasNext()) {
 			getAllObjects(it.next(), toFillIn, excludeDuplications);
@@ -448,6 +538,64 @@ public class RoutingContext {
 			}
 		}
 	}
+
+	/**
+	 * Loads same tiles as {@link #loadTileData} and returns their ids
+	 */
+	TLongHashSet loadRoutingTiles(int x31, int y31, int zoomAround) {
+		int t = config.ZOOM_TO_LOAD_TILES - zoomAround;
+		int coordinatesShift = (1 << (31 - config.ZOOM_TO_LOAD_TILES));
+		if (t <= 0) {
+			t = 1;
+			coordinatesShift = (1 << (31 - zoomAround));
+		} else {
+			t = 1 << t;
+		}
+		TLongHashSet ts = new TLongHashSet();
+		for (int i = -t; i <= t; i++) {
+			for (int j = -t; j <= t; j++) {
+				if (preloadedGraph != null) {
+					int zmShift = 31 - config.ZOOM_TO_LOAD_TILES;
+					long xloc = (x31 + i * coordinatesShift) >> zmShift;
+					long yloc = (y31 + j * coordinatesShift) >> zmShift;
+					ts.add((xloc << config.ZOOM_TO_LOAD_TILES) + yloc);
+				} else {
+					ts.add(getRoutingTile(x31 + i * coordinatesShift, y31 + j * coordinatesShift, 0));
+				}
+			}
+		}
+		return ts;
+	}
+
+	/**
+	 * @return index of roads accepted by router of loaded tile (see {@link #loadRoutingTiles})
+	 */
+	RouteSegmentIndex getSegmentIndex(long tileId) {
+		RouteSegmentIndex index = segmentIndexes.get(tileId);
+		if (index == null) {
+			List<RouteDataObject> roads = new ArrayList<RouteDataObject>();
+			if (preloadedGraph != null) {
+				int zmShift = 31 - config.ZOOM_TO_LOAD_TILES;
+				int left = (int) (tileId >> config.ZOOM_TO_LOAD_TILES) << zmShift;
+				int top = (int) (tileId & ((1 << config.ZOOM_TO_LOAD_TILES) - 1)) << zmShift;
+				List<RouteDataObject> all = new ArrayList<RouteDataObject>();
+				preloadedGraph.collectRoads(left, top, left + (1 << zmShift) - 1, top + (1 << zmShift) - 1, all);
+				for (RouteDataObject ro : all) {
+					if (config.router.acceptLine(ro)) {
+						roads.add(ro);
+					}
+				}
+			} else {
+				getAllObjects(tileId, roads, new TLongObjectHashMap<RouteDataObject>());
+			}
+			index = new RouteSegmentIndex(roads);
+			if (preloadedGraph != null && segmentIndexes.size() >= MAX_GRAPH_SEGMENT_INDEXES) {
+				segmentIndexes.clear();
+			}
+			segmentIndexes.put(tileId, index);
+		}
+		return index;
+	}
 	
 	@SuppressWarnings("unused")
 	private long getRoutingTile(int x31, int y31, long memoryLimit) {
@@ -679,6 +827,7 @@ public class RoutingContext {
 			i++;
 //			System.out.println("Unload " + unload);
 			unload.unload();
+			segmentIndexes.clear();
 			if(calculationProgress != null) {
 				calculationProgress.unloadedTiles ++;
 			}
@@ -0,0 +1,284 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+
+/**
+ * Immutable road graph of whole maps decoded once (for routing servers with enough memory),
+ * could be shared between all {@link RoutingContext} (see {@link RoutingContext#setPreloadedGraph(RoutingGraph)}),
+ * so segments are looked up in arrays without decoding tiles and unloading them by memory limit.
+ * <p>
+ * Nodes (sorted 31-bit coordinates x << 31 + y) point to road points connected to them
+ * and tiles point to roads intersecting them (CSR: offsets array + flat arrays).
+ * Roads with same id from several maps are stored once (first map wins as during tile loading).
+ */
+public class RoutingGraph {
+
+	private final static Log log = PlatformUtil.getLog(RoutingGraph.class);
+
+	public static final int DEFAULT_TILE_ZOOM = 14;
+
+	private final Set<BinaryMapIndexReader> readers;
+	private final boolean base;
+	private final int tileZoom;
+
+	private final RouteDataObject[] roads;
+	// nodes: sorted keys, nodeOffsets[i] .. nodeOffsets[i + 1] are indexes in edgeRoads / edgePoints
+	private final long[] nodeKeys;
+	private final int[] nodeOffsets;
+	private final int[] edgeRoads;
+	private final int[] edgePoints;
+	// tiles: sorted keys, tileOffsets[i] .. tileOffsets[i + 1] are indexes in tileRoads
+	private final long[] tileKeys;
+	private final int[] tileOffsets;
+	private final int[] tileRoads;
+
+	RoutingGraph(Collection<BinaryMapIndexReader> readers, boolean base, int tileZoom, List<RouteDataObject> list) {
+		this.readers = new HashSet<>(readers);
+		this.base = base;
+		this.tileZoom = tileZoom;
+		this.roads = list.toArray(new RouteDataObject[0]);
+
+		int edges = 0;
+		for (RouteDataObject ro : roads) {
+			edges += ro.getPointsLength();
+		}
+		long[] keys = new long[edges];
+		int k = 0;
+		for (RouteDataObject ro : roads) {
+			for (int i = 0; i < ro.getPointsLength(); i++) {
+				keys[k++] = calcNodeKey(ro.getPoint31XTile(i), ro.getPoint31YTile(i));
+			}
+		}
+		nodeKeys = sortUnique(keys);
+		nodeOffsets = new int[nodeKeys.length + 1];
+		int[] edgeNodes = new int[edges];
+		for (int e = 0; e < edges; e++) {
+			edgeNodes[e] = Arrays.binarySearch(nodeKeys, keys[e]);
+			nodeOffsets[edgeNodes[e] + 1]++;
+		}
+		for (int i = 0; i < nodeKeys.length; i++) {
+			nodeOffsets[i + 1] += nodeOffsets[i];
+		}
+		edgeRoads = new int[edges];
+		edgePoints = new int[edges];
+		int[] fill = Arrays.copyOf(nodeOffsets, nodeKeys.length);
+		k = 0;
+		for (int r = 0; r < roads.length; r++) {
+			for (int i = 0; i < roads[r].getPointsLength(); i++) {
+				int e = fill[edgeNodes[k++]]++;
+				edgeRoads[e] = r;
+				edgePoints[e] = i;
+			}
+		}
+
+		TLongArrayList roadTiles = new TLongArrayList();
+		TIntArrayList tileRoadsList = new TIntArrayList();
+		TLongHashSet tiles = new TLongHashSet();
+		int shift = 31 - tileZoom;
+		for (int r = 0; r < roads.length; r++) {
+			RouteDataObject ro = roads[r];
+			tiles.clear();
+			for (int i = 0; i < ro.getPointsLength(); i++) {
+				int j = Math.min(i + 1, ro.getPointsLength() - 1);
+				int tx1 = Math.min(ro.getPoint31XTile(i), ro.getPoint31XTile(j)) >> shift;
+				int tx2 = Math.max(ro.getPoint31XTile(i), ro.getPoint31XTile(j)) >> shift;
+				int ty1 = Math.min(ro.getPoint31YTile(i), ro.getPoint31YTile(j)) >> shift;
+				int ty2 = Math.max(ro.getPoint31YTile(i), ro.getPoint31YTile(j)) >> shift;
+				for (int tx = tx1; tx <= tx2; tx++) {
+					for (int ty = ty1; ty <= ty2; ty++) {
+						long tile = calcTileKey(tx, ty);
+						if (tiles.add(tile)) {
+							roadTiles.add(tile);
+							tileRoadsList.add(r);
+						}
+					}
+				}
+			}
+		}
+		tileKeys = sortUnique(roadTiles.toArray());
+		tileOffsets = new int[tileKeys.length + 1];
+		for (int i = 0; i < roadTiles.size(); i++) {
+			tileOffsets[Arrays.binarySearch(tileKeys, roadTiles.get(i)) + 1]++;
+		}
+		for (int i = 0; i < tileKeys.length; i++) {
+			tileOffsets[i + 1] += tileOffsets[i];
+		}
+		tileRoads = new int[roadTiles.size()];
+		fill = Arrays.copyOf(tileOffsets, tileKeys.length);
+		for (int i = 0; i < roadTiles.size(); i++) {
+			tileRoads[fill[Arrays.binarySearch(tileKeys, roadTiles.get(i))]++] = tileRoadsList.get(i);
+		}
+	}
+
+	/**
+	 * Decodes all routing data of maps (base or detailed routing sections depending on mode)
+	 */
+	public static RoutingGraph build(BinaryMapIndexReader[] readers, RouteCalculationMode mode) throws IOException {
+		return build(readers, mode, DEFAULT_TILE_ZOOM);
+	}
+
+	public static RoutingGraph build(BinaryMapIndexReader[] readers, RouteCalculationMode mode, int tileZoom) throws IOException {
+		long now = System.currentTimeMillis();
+		boolean base = mode == RouteCalculationMode.BASE;
+		List<RouteDataObject> roads = new ArrayList<>();
+		TLongHashSet ids = new TLongHashSet();
+		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(0, Integer.MAX_VALUE,
+				0, Integer.MAX_VALUE, null);
+		for (BinaryMapIndexReader reader : readers) {
+			for (RouteRegion r : reader.getRoutingIndexes()) {
+				List<RouteSubregion> subregions = new ArrayList<>();
+				for (RouteSubregion rs : base ? r.getBaseSubregions() : r.getSubregions()) {
+					subregions.add(new RouteSubregion(rs));
+				}
+				for (RouteSubregion rs : reader.searchRouteIndexTree(request, subregions)) {
+					for (RouteDataObject ro : reader.loadRouteIndexData(rs)) {
+						if (ro != null && ro.getPointsLength() > 0 && (ro.getId() <= 0 || ids.add(ro.getId()))) {
+							roads.add(ro);
+						}
+					}
+				}
+			}
+		}
+		RoutingGraph graph = new RoutingGraph(Arrays.asList(readers), base, tileZoom, roads);
+		log.info(String.format("Routing graph is loaded in %d ms: %s", System.currentTimeMillis() - now, graph));
+		return graph;
+	}
+
+	private static long[] sortUnique(long[] keys) {
+		long[] sorted = Arrays.copyOf(keys, keys.length);
+		Arrays.sort(sorted);
+		int size = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		return Arrays.copyOf(sorted, size);
+	}
+
+	private static long calcNodeKey(int x31, int y31) {
+		return (((long) x31) << 31) + (long) y31;
+	}
+
+	private long calcTileKey(int tileX, int tileY) {
+		return (((long) tileX) << tileZoom) + tileY;
+	}
+
+	/**
+	 * Graph could be used by context with same maps (or their cursors, they share routing regions)
+	 * and same type of routing data (base or detailed)
+	 */
+	public boolean isSuitable(RouteCalculationMode mode, Collection<BinaryMapIndexReader> maps) {
+		if (base != (mode == RouteCalculationMode.BASE) || readers.size() != maps.size()) {
+			return false;
+		}
+		for (BinaryMapIndexReader m : maps) {
+			if (!readers.contains(m) && !isCursor(m)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isCursor(BinaryMapIndexReader map) {
+		if (map.getRoutingIndexes().isEmpty()) {
+			return false;
+		}
+		for (BinaryMapIndexReader r : readers) {
+			if (r.getRoutingIndexes().equals(map.getRoutingIndexes())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getRoadsCount() {
+		return roads.length;
+	}
+
+	public RouteDataObject getRoad(int road) {
+		return roads[road];
+	}
+
+	public int getNodesCount() {
+		return nodeKeys.length;
+	}
+
+	/**
+	 * @return node index or -1 if there are no roads with such point
+	 */
+	public int findNode(int x31, int y31) {
+		int ind = Arrays.binarySearch(nodeKeys, calcNodeKey(x31, y31));
+		return ind < 0 ? -1 : ind;
+	}
+
+	public int getNodeX(int node) {
+		return (int) (nodeKeys[node] >>> 31);
+	}
+
+	public int getNodeY(int node) {
+		return (int) (nodeKeys[node] & Integer.MAX_VALUE);
+	}
+
+	public int getEdgesStart(int node) {
+		return nodeOffsets[node];
+	}
+
+	public int getEdgesEnd(int node) {
+		return nodeOffsets[node + 1];
+	}
+
+	public RouteDataObject getEdgeRoad(int edge) {
+		return roads[edgeRoads[edge]];
+	}
+
+	public int getEdgePoint(int edge) {
+		return edgePoints[edge];
+	}
+
+	/**
+	 * Collects roads intersecting tiles (of graph tile zoom) which intersect the box, every road is added once
+	 */
+	public void collectRoads(int left31, int top31, int right31, int bottom31, List<RouteDataObject> toFillIn) {
+		int shift = 31 - tileZoom;
+		TIntHashSet added = new TIntHashSet();
+		for (int tx = left31 >> shift; tx <= right31 >> shift; tx++) {
+			for (int ty = top31 >> shift; ty <= bottom31 >> shift; ty++) {
+				int ind = Arrays.binarySearch(tileKeys, calcTileKey(tx, ty));
+				if (ind >= 0) {
+					for (int i = tileOffsets[ind]; i < tileOffsets[ind + 1]; i++) {
+						if (added.add(tileRoads[i])) {
+							toFillIn.add(roads[tileRoads[i]]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s roads %d, nodes %d, edges %d, tiles %d (zoom %d)", base ? "base" : "detailed",
+				roads.length, nodeKeys.length, edgeRoads.length, tileKeys.length, tileZoom);
+	}
+}
@@ -7,6 +7,11 @@ import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.data.LatLon;
 import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
 import net.osmand.router.RoutingConfiguration.Builder;
 import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
 
@@ -19,9 +24,15 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class TestRouting {
 	
@@ -42,6 +53,9 @@ public class TestRouting {
 		public double endLon = 0;
 		public RoutingConfiguration.Builder configBuilder;
 		public String vehicle = "car";
+		public int hhThreads = 0;
+		public int hhRoutes = 20;
+		public int repeat = 1;
 		
 		public static Parameters init(String[] args) throws IOException, XmlPullParserException {
 			Parameters p = new Parameters();
@@ -55,6 +69,12 @@ public class TestRouting {
 					RouteResultPreparation.PRINT_TO_CONSOLE_ROUTE_INFORMATION_TO_TEST = true;
 				} else if (a.startsWith("-obfDir=")) {
 					obfDirectory = a.substring("-obfDir=".length());
+				} else if (a.startsWith("-hhThreads=")) {
+					p.hhThreads = Integer.parseInt(a.substring("-hhThreads=".length()));
+				} else if (a.startsWith("-repeat=")) {
+					p.repeat = Integer.parseInt(a.substring("-repeat=".length()));
+				} else if (a.startsWith("-hhRoutes=")) {
+					p.hhRoutes = Integer.parseInt(a.substring("-hhRoutes=".length()));
 				} else if (a.startsWith("-vehicle=")) {
 					p.vehicle = a.substring("-vehicle=".length());
 				} else if (a.startsWith("-start=")) {
@@ -106,9 +126,18 @@ public class TestRouting {
 			return;
 		}
 		if (!params.tests.isEmpty()) {
-			boolean allSuccess = runAllTests(params, lib);
-			if (allSuccess) {
-				System.out.println("All is successful " + (System.currentTimeMillis() - time) + " ms");
+			for (int i = 0; i < params.repeat; i++) {
+				long allocated = getThreadAllocatedBytes();
+				long ts = System.currentTimeMillis();
+				boolean allSuccess = runAllTests(params, lib);
+				if (params.repeat > 1) {
+					// first runs are warm up
+					System.out.println(String.format("Run %d: %d ms, allocated %.1f MB", i + 1,
+							System.currentTimeMillis() - ts, (getThreadAllocatedBytes() - allocated) / (double) (1 << 20)));
+				}
+				if (allSuccess) {
+					System.out.println("All is successful " + (System.currentTimeMillis() - time) + " ms");
+				}
 			}
 		}
 		if(params.startLat != 0) {
@@ -116,6 +145,10 @@ public class TestRouting {
 //					params.endLat, params.endLon);
 			BinaryMapIndexReader[] rs = collectFiles(params.obfDir.getAbsolutePath());
 			vehicle = params.vehicle;
+			if (params.hhThreads > 0) {
+				calculateHHRoutesConcurrently(params, rs);
+				return;
+			}
 			calculateRoute(params.startLat, params.startLon,
 					params.endLat, params.endLon, rs);
 			calculateRoute(params.startLat, params.startLon,
@@ -125,6 +158,18 @@ public class TestRouting {
 	}
 
 
+	private static long getThreadAllocatedBytes() {
+		// com.sun.management.ThreadMXBean is not available on all platforms
+		try {
+			Object bean = ManagementFactory.getThreadMXBean();
+			Method m = bean.getClass().getMethod("getThreadAllocatedBytes", long.class);
+			m.setAccessible(true);
+			return (Long) m.invoke(bean, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return 0;
+		}
+	}
+
 	public static boolean runAllTests(Parameters params, NativeLibrary lib) throws FileNotFoundException, IOException, Exception {
 		BinaryMapIndexReader[] rs = collectFiles(params.obfDir.getAbsolutePath());
 		
@@ -141,6 +186,8 @@ public class TestRouting {
 	public static void info() {
 		println("Run router tests is console utility to test route calculation for osmand. It is also possible to calculate one route from -start to -end.");
 		println("\nUsage for run tests : runTestsSuite [-routingXmlPath=PATH] [-verbose] [-obfDir=PATH] [-vehicle=VEHICLE_STRING] [-start=lat;lon] [-end=lat;lon]  [-testDir=PATH] {individualTestPath}");
+		println("Measure time / allocations of tests: [-repeat=TIMES]");
+		println("HH routing throughput (-start, -end required): [-hhThreads=MAX_THREADS] [-hhRoutes=ROUTES_PER_THREAD]");
     }
 	
 
@@ -305,6 +352,78 @@ public class TestRouting {
 	}
 
 
+	/**
+	 * Measures HH routing throughput with 1, 2, 4 ... hhThreads threads sharing one loaded network,
+	 * each thread has own routing context over reader cursors.
+	 */
+	private static void calculateHHRoutesConcurrently(final Parameters params, BinaryMapIndexReader[] rs) throws Exception {
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(MEMORY_TEST_LIMIT, NATIVE_MEMORY_TEST_LIMIT);
+		final RoutingConfiguration rconfig = params.configBuilder.build(vehicle, memoryLimits);
+		final LatLon start = new LatLon(params.startLat, params.startLon);
+		final LatLon end = new LatLon(params.endLat, params.endLon);
+		RoutingContext ctx = buildHHContext(rconfig, rs);
+		final HHRoutingContext<NetworkDBPoint> network = HHRoutePlanner.create(ctx).loadNetwork(start, end, null);
+		if (network == null) {
+			throw new IllegalArgumentException("Files for hh routing are not found");
+		}
+		int hs = HHRoutingConfig.STATS_VERBOSE_LEVEL;
+		HHRoutingConfig.STATS_VERBOSE_LEVEL = -1;
+		try {
+			for (int threads = 1; threads <= params.hhThreads; threads *= 2) {
+				final BinaryMapIndexReader[][] cursors = new BinaryMapIndexReader[threads][rs.length];
+				for (int t = 0; t < threads; t++) {
+					for (int i = 0; i < rs.length; i++) {
+						cursors[t][i] = rs[i].createCursor();
+					}
+				}
+				ExecutorService executor = Executors.newFixedThreadPool(threads);
+				List<Future<Integer>> futures = new ArrayList<>();
+				long ts = System.nanoTime();
+				for (int t = 0; t < threads; t++) {
+					final int thread = t;
+					futures.add(executor.submit(new Callable<Integer>() {
+						@Override
+						public Integer call() throws Exception {
+							int found = 0;
+							RoutingContext tctx = buildHHContext(rconfig, cursors[thread]);
+							HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.createShared(tctx, network,
+									NetworkDBPoint.class);
+							for (int k = 0; k < params.hhRoutes; k++) {
+								HHNetworkRouteRes res = planner.runRouting(start, end,
+										HHRoutingConfig.astar(0).calcDetailed(2));
+								if (res != null && res.error == null) {
+									found++;
+								}
+							}
+							return found;
+						}
+					}));
+				}
+				int found = 0;
+				for (Future<Integer> f : futures) {
+					found += f.get();
+				}
+				executor.shutdown();
+				double sec = (System.nanoTime() - ts) / 1e9;
+				System.out.println(String.format("HH routing %d threads: %d routes (%d found) in %.2f s - %.2f routes/s",
+						threads, threads * params.hhRoutes, found, sec, threads * params.hhRoutes / sec));
+				for (BinaryMapIndexReader[] c : cursors) {
+					for (BinaryMapIndexReader r : c) {
+						r.close();
+					}
+				}
+			}
+		} finally {
+			HHRoutingConfig.STATS_VERBOSE_LEVEL = hs;
+		}
+	}
+
+	private static RoutingContext buildHHContext(RoutingConfiguration rconfig, BinaryMapIndexReader[] rs) {
+		RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(rconfig, null, rs, RouteCalculationMode.NORMAL);
+		ctx.calculationProgress = new RouteCalculationProgress();
+		return ctx;
+	}
+
 	private static void calculateRoute(double startLat, double startLon, double endLat, double endLon, BinaryMapIndexReader[] rs)
 			throws IOException, InterruptedException {
 		long ts = System.currentTimeMillis();
@@ -0,0 +1,477 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Round based public transport search (RAPTOR). Routes of loaded region are laid out into {@link TransportNetwork}
+ * of primitive arrays, round k finds best arrivals using k routes, so one pass gives Pareto optimal
+ * routes by arrival time and number of changes.
+ * Time is measured in seconds (from start of day if schedule is used).
+ */
+public class TransportRaptorPlanner {
+
+	private static final int INF = Integer.MAX_VALUE;
+	private static final int INHERITED = 0;
+	private static final int BY_ROUTE = 1;
+	private static final int BY_WALK = 2;
+
+	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, LatLon start, LatLon end)
+			throws IOException, InterruptedException {
+		ctx.startCalcTime = System.currentTimeMillis();
+		int sx = MapUtils.get31TileNumberX(start.getLongitude());
+		int sy = MapUtils.get31TileNumberY(start.getLatitude());
+		int ex = MapUtils.get31TileNumberX(end.getLongitude());
+		int ey = MapUtils.get31TileNumberY(end.getLatitude());
+		// routes could leave bbox of start / end, so changes are searched in a bit larger area
+		int d = (int) (ctx.cfg.walkRadius / MapUtils.getTileDistanceWidth(31))
+				+ Math.max(Math.abs(sx - ex), Math.abs(sy - ey)) / 4;
+		Collection<TransportRoute> routes = ctx.getTransportRoutes(Math.min(sx, ex) - d, Math.min(sy, ey) - d,
+				Math.max(sx, ex) + d, Math.max(sy, ey) + d);
+		TransportNetwork network = TransportNetwork.build(routes, ctx.cfg);
+		return searchRoute(ctx, network, start, end);
+	}
+
+	public List<TransportRouteResult> searchRoute(TransportRoutingContext ctx, TransportNetwork net, LatLon start,
+			LatLon end) throws InterruptedException {
+		TransportRoutingConfiguration cfg = ctx.cfg;
+		if (ctx.startCalcTime == 0) {
+			ctx.startCalcTime = System.currentTimeMillis();
+		}
+		int startTime = cfg.useSchedule ? cfg.scheduleTimeOfDay * 10 : 0;
+		double totalDistance = MapUtils.getDistance(start, end);
+		int finishTime = cfg.maxRouteTime;
+		if (totalDistance > cfg.maxRouteDistance && cfg.maxRouteIncreaseSpeed > 0) {
+			finishTime += (int) ((totalDistance - cfg.maxRouteDistance) * 3.6 / cfg.maxRouteIncreaseSpeed);
+		}
+		double maxTravelTimeCmpToWalk = totalDistance / cfg.walkSpeed - cfg.changeTime / 2;
+
+		int stops = net.stops.length;
+		int rounds = cfg.maxNumberOfChanges + 1;
+		int[][] arrival = new int[rounds + 1][stops];
+		int[][] parentType = new int[rounds + 1][stops];
+		// BY_ROUTE: route, trip base time, board position, alight position; BY_WALK: stop walked from
+		int[][] parentRoute = new int[rounds + 1][];
+		int[][] parentBase = new int[rounds + 1][];
+		int[][] parentBoard = new int[rounds + 1][];
+		int[][] parentAlight = new int[rounds + 1][];
+		int[][] parentStop = new int[rounds + 1][];
+		int[] best = new int[stops];
+		Arrays.fill(best, INF);
+		Arrays.fill(arrival[0], INF);
+
+		int[] access = net.findStops(start, cfg.walkRadius);
+		int[] egress = net.findStops(end, cfg.walkRadius);
+		boolean[] marked = new boolean[stops];
+		for (int s : access) {
+			int t = startTime + (int) (net.distance(s, start) / cfg.walkSpeed);
+			arrival[0][s] = best[s] = t;
+			marked[s] = true;
+		}
+		if (access.length == 0 || egress.length == 0) {
+			return Collections.emptyList();
+		}
+		int targetBound = startTime + finishTime;
+		int[] earliestPos = new int[net.routes.length];
+		boolean[] routeQueued = new boolean[net.routes.length];
+		TIntArrayList queue = new TIntArrayList();
+		List<int[]> journeys = new ArrayList<int[]>();
+		for (int k = 1; k <= rounds; k++) {
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				return null;
+			}
+			arrival[k] = arrival[k - 1].clone();
+			parentType[k] = new int[stops];
+			parentRoute[k] = new int[stops];
+			parentBase[k] = new int[stops];
+			parentBoard[k] = new int[stops];
+			parentAlight[k] = new int[stops];
+			parentStop[k] = new int[stops];
+			// collect routes passing marked stops
+			queue.clear();
+			for (int s = 0; s < stops; s++) {
+				if (!marked[s]) {
+					continue;
+				}
+				marked[s] = false;
+				ctx.visitedStops++;
+				for (int i = net.stopRoutesStart[s]; i < net.stopRoutesStart[s + 1]; i++) {
+					int r = net.stopRoutes[i];
+					int pos = net.stopRoutesPos[i];
+					if (!routeQueued[r]) {
+						routeQueued[r] = true;
+						earliestPos[r] = pos;
+						queue.add(r);
+					} else if (pos < earliestPos[r]) {
+						earliestPos[r] = pos;
+					}
+				}
+			}
+			int penalty = k > 1 ? cfg.getChangeTime() + cfg.getBoardingTime() : 0;
+			TIntArrayList routeMarked = new TIntArrayList();
+			for (int q = 0; q < queue.size(); q++) {
+				int r = queue.getQuick(q);
+				routeQueued[r] = false;
+				ctx.visitedRoutesCount++;
+				int first = net.routeStopsStart[r];
+				int last = net.routeStopsStart[r + 1];
+				// base time is departure from first stop of the boarded trip
+				int base = INF;
+				int boardPos = -1;
+				for (int p = first + earliestPos[r]; p < last; p++) {
+					int s = net.routeStops[p];
+					if (base != INF) {
+						int t = base + net.routeOffsets[p];
+						if (t < best[s] && t < targetBound) {
+							arrival[k][s] = best[s] = t;
+							parentType[k][s] = BY_ROUTE;
+							parentRoute[k][s] = r;
+							parentBase[k][s] = base;
+							parentBoard[k][s] = boardPos - first;
+							parentAlight[k][s] = p - first;
+							if (!marked[s]) {
+								marked[s] = true;
+								routeMarked.add(s);
+							}
+						}
+					}
+					int prev = arrival[k - 1][s];
+					if (prev != INF) {
+						int b = net.getTripBase(r, p, prev + penalty);
+						if (b < base) {
+							base = b;
+							boardPos = p;
+						}
+					}
+				}
+			}
+			// changes by walk only from stops reached by route in this round (walks are not chained)
+			int[] routeArrival = new int[routeMarked.size()];
+			for (int i = 0; i < routeMarked.size(); i++) {
+				routeArrival[i] = arrival[k][routeMarked.getQuick(i)];
+			}
+			for (int i = 0; i < routeMarked.size(); i++) {
+				int s = routeMarked.getQuick(i);
+				int from = routeArrival[i];
+				for (int j = net.transfersStart[s]; j < net.transfersStart[s + 1]; j++) {
+					int n = net.transfers[j];
+					int t = from + (int) (net.transfersDist[j] / cfg.walkSpeed);
+					if (t < best[n] && t < targetBound) {
+						arrival[k][n] = best[n] = t;
+						parentType[k][n] = BY_WALK;
+						parentStop[k][n] = s;
+						marked[n] = true;
+					}
+				}
+			}
+			// arrivals at destination by walk
+			int bestTarget = INF;
+			int bestStop = -1;
+			for (int s : egress) {
+				if (parentType[k][s] == INHERITED) {
+					continue;
+				}
+				int t = arrival[k][s] + (int) (net.distance(s, end) / cfg.walkSpeed);
+				if (t < bestTarget && t < targetBound) {
+					bestTarget = t;
+					bestStop = s;
+				}
+			}
+			if (bestStop != -1) {
+				targetBound = bestTarget;
+				journeys.add(new int[] { k, bestStop, bestTarget });
+			}
+			if (routeMarked.isEmpty()) {
+				break;
+			}
+		}
+
+		List<TransportRouteResult> results = new ArrayList<TransportRouteResult>();
+		for (int[] j : journeys) {
+			TransportRouteResult route = new TransportRouteResult(ctx);
+			int k = j[0];
+			int s = j[1];
+			route.routeTime = j[2] - startTime;
+			route.finishWalkDist = net.distance(s, end);
+			double walkDist = 0;
+			TransportRouteResultSegment next = null;
+			boolean walked = false;
+			while (k > 0) {
+				// stop walked from keeps its route parent even if it was improved by other walk
+				if (parentType[k][s] == INHERITED && !walked) {
+					k--;
+				} else if (parentType[k][s] == BY_WALK && !walked) {
+					int from = parentStop[k][s];
+					walkDist = MapUtils.getDistance(net.stops[from].getLocation(), net.stops[s].getLocation());
+					s = from;
+					walked = true;
+				} else {
+					walked = false;
+					int r = parentRoute[k][s];
+					int base = parentBase[k][s];
+					TransportRouteResultSegment sg = new TransportRouteResultSegment();
+					sg.route = net.routes[r];
+					sg.start = parentBoard[k][s];
+					sg.end = parentAlight[k][s];
+					int first = net.routeStopsStart[r];
+					sg.depTime = cfg.useSchedule ? (base + net.routeOffsets[first + sg.start]) / 10 : -1;
+					sg.travelTime = net.routeOffsets[first + sg.end] - net.routeOffsets[first + sg.start];
+					sg.travelDistApproximate = sg.getTravelDist();
+					if (next != null) {
+						next.walkDist = walkDist;
+						next.walkTime = walkDist / cfg.walkSpeed;
+					} else {
+						route.finishWalkDist += walkDist;
+					}
+					walkDist = 0;
+					route.segments.add(0, sg);
+					next = sg;
+					s = net.routeStops[first + sg.start];
+					k--;
+				}
+			}
+			if (next != null) {
+				next.walkDist = net.distance(s, start);
+				next.walkTime = next.walkDist / cfg.walkSpeed;
+			}
+			results.add(route);
+		}
+		Collections.sort(results, new Comparator<TransportRouteResult>() {
+			@Override
+			public int compare(TransportRouteResult o1, TransportRouteResult o2) {
+				return Double.compare(o1.routeTime, o2.routeTime);
+			}
+		});
+		List<TransportRouteResult> lst = new ArrayList<TransportRouteResult>();
+		for (TransportRouteResult r : results) {
+			if (r.routeTime < maxTravelTimeCmpToWalk || lst.isEmpty()) {
+				lst.add(r);
+			}
+		}
+		System.out.println(String.format(Locale.US,
+				"Calculated %.1f seconds (raptor), found %d results, visited %d routes / %d stops, network %d routes / %d stops, loaded %d tiles (%d ms read, %d ms total)",
+				(System.currentTimeMillis() - ctx.startCalcTime) / 1000.0, lst.size(), ctx.visitedRoutesCount,
+				ctx.visitedStops, net.routes.length, stops, ctx.quadTree.size(), ctx.readTime / (1000 * 1000),
+				ctx.loadTime / (1000 * 1000)));
+		return lst;
+	}
+
+	/**
+	 * Routes, stops and times of region in flat arrays. Positions of stops in route are indexes in
+	 * {@link TransportRoute#getForwardStops()}.
+	 */
+	public static class TransportNetwork {
+
+		final TransportStop[] stops;
+		final int[] stopX;
+		final int[] stopY;
+		final TransportRoute[] routes;
+		// stops of route r: routeStops[routeStopsStart[r]..routeStopsStart[r + 1])
+		final int[] routeStopsStart;
+		final int[] routeStops;
+		// seconds from departure at first stop
+		final int[] routeOffsets;
+		// departures from first stop (sorted), route without trips could be boarded any time
+		final int[] tripsStart;
+		final int[] trips;
+		// routes passing stop s with position in route
+		final int[] stopRoutesStart;
+		final int[] stopRoutes;
+		final int[] stopRoutesPos;
+		// stops within walkChangeRadius
+		final int[] transfersStart;
+		final int[] transfers;
+		final float[] transfersDist;
+		private final int cellSize;
+		private final TLongObjectHashMap<TIntArrayList> grid = new TLongObjectHashMap<TIntArrayList>();
+
+		private TransportNetwork(List<TransportRoute> rts, List<TransportStop> sts, TIntArrayList routeStopsStart,
+				TIntArrayList routeStops, TIntArrayList routeOffsets, TIntArrayList tripsStart, TIntArrayList trips,
+				int walkChangeRadius) {
+			this.routes = rts.toArray(new TransportRoute[0]);
+			this.stops = sts.toArray(new TransportStop[0]);
+			this.routeStopsStart = routeStopsStart.toArray();
+			this.routeStops = routeStops.toArray();
+			this.routeOffsets = routeOffsets.toArray();
+			this.tripsStart = tripsStart.toArray();
+			this.trips = trips.toArray();
+			this.cellSize = Math.max(1, (int) (walkChangeRadius / MapUtils.getTileDistanceWidth(31)));
+			int n = stops.length;
+			stopX = new int[n];
+			stopY = new int[n];
+			for (int s = 0; s < n; s++) {
+				LatLon l = stops[s].getLocation();
+				stopX[s] = MapUtils.get31TileNumberX(l.getLongitude());
+				stopY[s] = MapUtils.get31TileNumberY(l.getLatitude());
+				long cell = cellId(stopX[s] / cellSize, stopY[s] / cellSize);
+				TIntArrayList l2 = grid.get(cell);
+				if (l2 == null) {
+					l2 = new TIntArrayList();
+					grid.put(cell, l2);
+				}
+				l2.add(s);
+			}
+			// invert route -> stops
+			stopRoutesStart = new int[n + 1];
+			for (int s : this.routeStops) {
+				stopRoutesStart[s + 1]++;
+			}
+			for (int s = 0; s < n; s++) {
+				stopRoutesStart[s + 1] += stopRoutesStart[s];
+			}
+			stopRoutes = new int[this.routeStops.length];
+			stopRoutesPos = new int[this.routeStops.length];
+			int[] fill = Arrays.copyOf(stopRoutesStart, n);
+			for (int r = 0; r < routes.length; r++) {
+				for (int p = this.routeStopsStart[r]; p < this.routeStopsStart[r + 1]; p++) {
+					int s = this.routeStops[p];
+					stopRoutes[fill[s]] = r;
+					stopRoutesPos[fill[s]] = p - this.routeStopsStart[r];
+					fill[s]++;
+				}
+			}
+			transfersStart = new int[n + 1];
+			TIntArrayList tr = new TIntArrayList();
+			TIntArrayList dists = new TIntArrayList();
+			for (int s = 0; s < n; s++) {
+				for (int nb : findStops(stops[s].getLocation(), walkChangeRadius)) {
+					if (nb != s) {
+						tr.add(nb);
+						dists.add((int) distance(nb, stops[s].getLocation()));
+					}
+				}
+				transfersStart[s + 1] = tr.size();
+			}
+			transfers = tr.toArray();
+			transfersDist = new float[transfers.length];
+			for (int i = 0; i < transfers.length; i++) {
+				transfersDist[i] = dists.getQuick(i);
+			}
+		}
+
+		public static TransportNetwork build(Collection<TransportRoute> routes, TransportRoutingConfiguration cfg) {
+			List<TransportRoute> rts = new ArrayList<TransportRoute>();
+			List<TransportStop> sts = new ArrayList<TransportStop>();
+			TLongObjectHashMap<Integer> stopIndexes = new TLongObjectHashMap<Integer>();
+			TIntArrayList routeStopsStart = new TIntArrayList();
+			TIntArrayList routeStops = new TIntArrayList();
+			TIntArrayList routeOffsets = new TIntArrayList();
+			TIntArrayList tripsStart = new TIntArrayList();
+			TIntArrayList trips = new TIntArrayList();
+			routeStopsStart.add(0);
+			tripsStart.add(0);
+			for (TransportRoute route : routes) {
+				List<TransportStop> forwardStops = route.getForwardStops();
+				float speed = cfg.getSpeedByRouteType(route.getType());
+				TransportSchedule schedule = route.getSchedule();
+				if (speed == 0 || forwardStops.size() < 2
+						|| (cfg.useSchedule && (schedule == null || schedule.tripIntervals.isEmpty()))) {
+					continue;
+				}
+				int offset = 0;
+				for (int i = 0; i < forwardStops.size(); i++) {
+					TransportStop st = forwardStops.get(i);
+					if (i > 0) {
+						if (cfg.useSchedule && schedule.avgStopIntervals.size() >= i) {
+							offset += schedule.avgStopIntervals.getQuick(i - 1) * 10;
+						} else {
+							double dist = MapUtils.getDistance(forwardStops.get(i - 1).getLocation(), st.getLocation());
+							offset += cfg.stopTime + (int) (dist / speed);
+						}
+					}
+					Integer ind = stopIndexes.get(st.getId());
+					if (ind == null) {
+						ind = sts.size();
+						stopIndexes.put(st.getId(), ind);
+						sts.add(st);
+					}
+					routeStops.add(ind);
+					routeOffsets.add(offset);
+				}
+				if (cfg.useSchedule) {
+					int t = 0;
+					for (int i = 0; i < schedule.tripIntervals.size(); i++) {
+						t += schedule.tripIntervals.getQuick(i);
+						trips.add(t * 10);
+					}
+				}
+				rts.add(route);
+				routeStopsStart.add(routeStops.size());
+				tripsStart.add(trips.size());
+			}
+			return new TransportNetwork(rts, sts, routeStopsStart, routeStops, routeOffsets, tripsStart, trips,
+					cfg.walkChangeRadius);
+		}
+
+		/**
+		 * @return departure from first stop of earliest trip which could be boarded at route stop p (index in
+		 *         routeStops) not earlier than time or INF
+		 */
+		int getTripBase(int r, int p, int time) {
+			int from = tripsStart[r];
+			int to = tripsStart[r + 1];
+			int offset = routeOffsets[p];
+			if (from == to) {
+				return time - offset;
+			}
+			int ind = Arrays.binarySearch(trips, from, to, time - offset);
+			if (ind < 0) {
+				ind = -(ind + 1);
+			}
+			return ind < to ? trips[ind] : INF;
+		}
+
+		int[] findStops(LatLon loc, double radius) {
+			int x = MapUtils.get31TileNumberX(loc.getLongitude());
+			int y = MapUtils.get31TileNumberY(loc.getLatitude());
+			int d = (int) Math.ceil(radius / MapUtils.getTileDistanceWidth(31) / cellSize);
+			TIntArrayList res = new TIntArrayList();
+			for (int cx = x / cellSize - d; cx <= x / cellSize + d; cx++) {
+				for (int cy = y / cellSize - d; cy <= y / cellSize + d; cy++) {
+					TIntArrayList l = grid.get(cellId(cx, cy));
+					if (l == null) {
+						continue;
+					}
+					for (int i = 0; i < l.size(); i++) {
+						int s = l.getQuick(i);
+						if (distance(s, loc) <= radius) {
+							res.add(s);
+						}
+					}
+				}
+			}
+			return res.toArray();
+		}
+
+		double distance(int stop, LatLon loc) {
+			return MapUtils.getDistance(stops[stop].getLocation(), loc);
+		}
+
+		private static long cellId(int cx, int cy) {
+			return (((long) cx) << 32) + cy;
+		}
+
+		public int getRoutesCount() {
+			return routes.length;
+		}
+
+		public int getStopsCount() {
+			return stops.length;
+		}
+	}
+}
@@ -35,6 +35,8 @@ public class TransportRoutingConfiguration {
 	public int boardingTime = 180;
 	
 	public boolean useSchedule;
+	// round based search over flat network (see TransportRaptorPlanner)
+	public boolean useRaptor;
 	// 10 seconds based
 	public int scheduleTimeOfDay = 12 * 60 * 6; // 12:00 - 60*6*12
 	public int scheduleMaxTime = 50 * 6; // not appropriate variable, should be dynamic
@@ -92,6 +94,7 @@ public class TransportRoutingConfiguration {
 			finishTimeSeconds =  router.getIntAttribute("delayForAlternativesRoutes", finishTimeSeconds);
 			String mn = params.get("max_num_changes");
 			maxNumberOfChanges = (int) RoutingConfiguration.parseSilentFloat(mn, maxNumberOfChanges);
+			useRaptor = Boolean.parseBoolean(router.getAttribute("useRaptor"));
 			
 			walkSpeed = router.getFloatAttribute("minDefaultSpeed", this.walkSpeed * 3.6f) / 3.6f;
 			defaultTravelSpeed = router.getFloatAttribute("maxDefaultSpeed", this.defaultTravelSpeed * 3.6f) / 3.6f;
@@ -34,6 +34,8 @@ public class TransportRoutingContext {
 	// Incomplete routes usually don't need more files than around Max-BBOX of start/end,
 	// so here an improvement could be introduced
 	final TransportStopsRouteReader transportStopsReader;
+	// shared between contexts, could be null
+	final TransportStopsCache transportStopsCache;
 	public int finishTimeSeconds;
 
 	// stats
@@ -49,12 +51,22 @@ public class TransportRoutingContext {
 	private final int walkChangeRadiusIn31;
 
 	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library, BinaryMapIndexReader... readers) {
+		this(cfg, library, null, readers);
+	}
+
+	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library,
+			TransportStopsCache transportStopsCache, BinaryMapIndexReader... readers) {
 		this.cfg = cfg;
 		walkRadiusIn31 = (int) (cfg.walkRadius / MapUtils.getTileDistanceWidth(31));
 		walkChangeRadiusIn31 = (int) (cfg.walkChangeRadius / MapUtils.getTileDistanceWidth(31));
 		quadTree = new TLongObjectHashMap<List<TransportRouteSegment>>();
 		this.library = library;
-		transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers));
+		this.transportStopsCache = transportStopsCache;
+		if (transportStopsCache != null) {
+			transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers), transportStopsCache);
+		} else {
+			transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers));
+		}
 	}
 
 	public List<TransportRouteSegment> getTransportStops(LatLon loc) throws IOException {
@@ -76,12 +88,7 @@ public class TransportRoutingContext {
 		int by = (sy + d ) >> (31 - cfg.ZOOM_TO_LOAD_TILES);
 		for(int x = lx; x <= rx; x++) {
 			for(int y = ty; y <= by; y++) {
-				long tileId = (((long)x) << (cfg.ZOOM_TO_LOAD_TILES + 1)) + y;
-				List<TransportRouteSegment> list = quadTree.get(tileId);
-				if(list == null) {
-					list = loadTile(x, y);
-					quadTree.put(tileId, list);
-				}
+				List<TransportRouteSegment> list = getTile(x, y);
 				for(TransportRouteSegment r : list) {
 					TransportStop st = r.getStop(r.segStart);
 					if (Math.abs(st.x31 - sx) > walkRadiusIn31 || Math.abs(st.y31 - sy) > walkRadiusIn31) {
@@ -97,14 +104,46 @@ public class TransportRoutingContext {
 		return res;
 	}
 
+	/**
+	 * @return routes with stops (within schedule time if used) inside of tiles covering the bbox
+	 */
+	public Collection<TransportRoute> getTransportRoutes(int left31, int top31, int right31, int bottom31) throws IOException {
+		long nanoTime = System.nanoTime();
+		int pz = 31 - cfg.ZOOM_TO_LOAD_TILES;
+		TLongObjectHashMap<TransportRoute> routes = new TLongObjectHashMap<TransportRoute>();
+		for (int x = left31 >> pz; x <= right31 >> pz; x++) {
+			for (int y = top31 >> pz; y <= bottom31 >> pz; y++) {
+				for (TransportRouteSegment r : getTile(x, y)) {
+					routes.put(r.road.getId(), r.road);
+				}
+			}
+		}
+		loadTime += System.nanoTime() - nanoTime;
+		return routes.valueCollection();
+	}
+
+	private List<TransportRouteSegment> getTile(int x, int y) throws IOException {
+		long tileId = (((long)x) << (cfg.ZOOM_TO_LOAD_TILES + 1)) + y;
+		List<TransportRouteSegment> list = quadTree.get(tileId);
+		if(list == null) {
+			list = loadTile(x, y);
+			quadTree.put(tileId, list);
+		}
+		return list;
+	}
 
 	private List<TransportRouteSegment> loadTile(int x, int y) throws IOException {
 		long nanoTime = System.nanoTime();
 		List<TransportRouteSegment> lst = new ArrayList<TransportRouteSegment>();
-		int pz = (31 - cfg.ZOOM_TO_LOAD_TILES);
-		BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(x << pz, (x + 1) << pz,
-				y << pz, (y + 1) << pz, -1, null);
-		Collection<TransportStop> stops = transportStopsReader.readMergedTransportStops(sr);
+		Collection<TransportStop> stops;
+		if (transportStopsCache != null) {
+			stops = transportStopsCache.getTile(transportStopsReader, cfg.ZOOM_TO_LOAD_TILES, x, y);
+		} else {
+			int pz = (31 - cfg.ZOOM_TO_LOAD_TILES);
+			BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(x << pz, (x + 1) << pz,
+					y << pz, (y + 1) << pz, -1, null);
+			stops = transportStopsReader.readMergedTransportStops(sr);
+		}
 		loadTransportSegments(stops, lst);
 		readTime += System.nanoTime() - nanoTime;
 		return lst;
@@ -0,0 +1,139 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+
+/**
+ * Merged transport stops by tile (with combined routes attached) and decoded routes shared between
+ * {@link TransportRoutingContext}s, so repeated queries in the same area skip reading and merging of stops.
+ * Tiles are evicted in LRU order when number of cached stops exceeds limit, cache is cleared when
+ * list of readers changes. Cached stops and routes are shared, so they shouldn't be modified by callers.
+ */
+public class TransportStopsCache {
+
+	private final int maxStops;
+	private final int maxRoutes;
+	private final List<BinaryMapIndexReader> readers = new ArrayList<BinaryMapIndexReader>();
+	final Map<BinaryMapIndexReader, TLongObjectHashMap<TransportRoute>> routesFilesCache = new LinkedHashMap<BinaryMapIndexReader,
+			TLongObjectHashMap<TransportRoute>>();
+	final TLongObjectHashMap<TransportRoute> combinedRoutesCache = new TLongObjectHashMap<TransportRoute>();
+	private final Map<Long, Collection<TransportStop>> tiles = new LinkedHashMap<Long, Collection<TransportStop>>(16,
+			0.75f, true);
+	private int stopsCount;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	public TransportStopsCache(int maxStops, int maxRoutes) {
+		this.maxStops = maxStops;
+		this.maxRoutes = maxRoutes;
+	}
+
+	synchronized Collection<TransportStop> getTile(TransportStopsRouteReader reader, int zoom, int x, int y)
+			throws IOException {
+		checkReaders(reader.files);
+		long tileId = ((((long) zoom) << 58) | (((long) x) << (zoom + 1))) + y;
+		Collection<TransportStop> stops = tiles.get(tileId);
+		if (stops != null) {
+			hits++;
+			return stops;
+		}
+		misses++;
+		int pz = 31 - zoom;
+		SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(x << pz, (x + 1) << pz,
+				y << pz, (y + 1) << pz, -1, null);
+		stops = new ArrayList<TransportStop>(reader.readMergedTransportStops(sr));
+		tiles.put(tileId, stops);
+		stopsCount += stops.size();
+		Iterator<Collection<TransportStop>> it = tiles.values().iterator();
+		while (stopsCount > maxStops && tiles.size() > 1) {
+			stopsCount -= it.next().size();
+			it.remove();
+			evictions++;
+		}
+		int routes = 0;
+		for (TLongObjectHashMap<TransportRoute> r : routesFilesCache.values()) {
+			routes += r.size();
+		}
+		if (routes > maxRoutes) {
+			// loaded tiles keep their routes, only decoding cache is dropped: tiles loaded afterwards decode
+			// routes again, so they could hold other TransportRoute instances with the same id (compare routes by id)
+			for (TLongObjectHashMap<TransportRoute> r : routesFilesCache.values()) {
+				r.clear();
+			}
+			combinedRoutesCache.clear();
+		}
+		return stops;
+	}
+
+	private void checkReaders(List<BinaryMapIndexReader> files) {
+		if (!readers.equals(files)) {
+			if (!tiles.isEmpty()) {
+				invalidations++;
+			}
+			clearAll();
+			readers.clear();
+			readers.addAll(files);
+			for (BinaryMapIndexReader r : files) {
+				routesFilesCache.put(r, new TLongObjectHashMap<TransportRoute>());
+			}
+		}
+	}
+
+	private void clearAll() {
+		tiles.clear();
+		stopsCount = 0;
+		routesFilesCache.clear();
+		combinedRoutesCache.clear();
+	}
+
+	/**
+	 * Should be called when content of readers changed
+	 */
+	public synchronized void clear() {
+		clearAll();
+		readers.clear();
+	}
+
+	public synchronized int getTilesCount() {
+		return tiles.size();
+	}
+
+	public synchronized int getStopsCount() {
+		return stopsCount;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Transport stops cache: %d tiles / %d stops, %d hits, %d misses, %d evicted, %d invalidated",
+				tiles.size(), stopsCount, hits, misses, evictions, invalidations);
+	}
+}
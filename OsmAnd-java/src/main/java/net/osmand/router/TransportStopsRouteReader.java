@@ -26,13 +26,22 @@ public class TransportStopsRouteReader {
 	TLongObjectHashMap<TransportRoute> combinedRoutesCache = new TLongObjectHashMap<TransportRoute>();
 	Map<BinaryMapIndexReader, TLongObjectHashMap<TransportRoute>> routesFilesCache = new LinkedHashMap<BinaryMapIndexReader, 
 			TLongObjectHashMap<TransportRoute>>();
+	final List<BinaryMapIndexReader> files;
 	
 	
 	public TransportStopsRouteReader(Collection<BinaryMapIndexReader> fls) {
+		files = new ArrayList<BinaryMapIndexReader>(fls);
 		for(BinaryMapIndexReader r : fls) {
 			routesFilesCache.put(r, new TLongObjectHashMap<TransportRoute>());
 		}
 	}
+
+	// routes are decoded into shared cache, reading should be synchronized on cache
+	public TransportStopsRouteReader(Collection<BinaryMapIndexReader> fls, TransportStopsCache cache) {
+		files = new ArrayList<BinaryMapIndexReader>(fls);
+		routesFilesCache = cache.routesFilesCache;
+		combinedRoutesCache = cache.combinedRoutesCache;
+	}
 	
 	public Collection<TransportStop> readMergedTransportStops(SearchRequest<TransportStop> sr) throws IOException {
 		TLongObjectHashMap<TransportStop> loadedTransportStops = new TLongObjectHashMap<TransportStop>();
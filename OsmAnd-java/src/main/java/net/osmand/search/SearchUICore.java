@@ -771,6 +771,10 @@ public class SearchUICore {
 			return requestResults.size();
 		}
 
+		public boolean isLimitReached() {
+			return totalLimit != -1 && count >= totalLimit;
+		}
+
 		public void searchStarted(SearchPhrase phrase) {
 			if (matcher != null) {
 				SearchResult sr = new SearchResult(phrase);
@@ -0,0 +1,138 @@
+package net.osmand.search.core;
+
+import net.osmand.PlatformUtil;
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.Amenity;
+
+import org.apache.commons.logging.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs poi search over several readers concurrently (one task per reader) and hands
+ * collected objects back to the calling thread in the order of readers,
+ * so results are merged exactly in the same order as in sequential search.
+ */
+public class ParallelPoiSearch {
+
+	private static final Log LOG = PlatformUtil.getLog(ParallelPoiSearch.class);
+
+	// one pool per parallelism, pool can't be shut down while other search still uses it
+	// (idle workers of pools are stopped by ForkJoinPool itself)
+	private static final Map<Integer, ForkJoinPool> pools = new HashMap<>();
+
+	public interface ReaderPoiSearch {
+
+		/**
+		 * Called from worker thread, should run search over reader publishing objects to collector
+		 */
+		void search(BinaryMapIndexReader reader, ResultMatcher<Amenity> collector) throws IOException;
+
+		/**
+		 * Called from calling thread in readers order
+		 * @return false to stop search of remaining readers (i.e. limit is reached)
+		 */
+		boolean readerFinished(BinaryMapIndexReader reader, List<Amenity> objects);
+
+		/**
+		 * Called from worker threads
+		 */
+		boolean isCancelled();
+	}
+
+	static synchronized ForkJoinPool getPool(int threads) {
+		ForkJoinPool pool = pools.get(threads);
+		if (pool == null) {
+			pool = new ForkJoinPool(threads);
+			pools.put(threads, pool);
+		}
+		return pool;
+	}
+
+	/**
+	 * @param limitPerReader maximum objects collected from one reader, -1 unlimited
+	 */
+	public static void search(List<BinaryMapIndexReader> readers, int threads, final int limitPerReader,
+	                          final ReaderPoiSearch readerSearch) throws IOException {
+		ForkJoinPool pool = getPool(threads);
+		final AtomicBoolean stop = new AtomicBoolean();
+		List<Future<List<Amenity>>> tasks = new ArrayList<>();
+		for (final BinaryMapIndexReader r : readers) {
+			tasks.add(pool.submit(new Callable<List<Amenity>>() {
+				@Override
+				public List<Amenity> call() throws Exception {
+					return searchReader(r, limitPerReader, readerSearch, stop);
+				}
+			}));
+		}
+		try {
+			for (int i = 0; i < readers.size(); i++) {
+				List<Amenity> res = tasks.get(i).get();
+				if (!readerFinished(readerSearch, readers.get(i), res)) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			stop.set(true);
+			for (Future<List<Amenity>> t : tasks) {
+				t.cancel(false);
+			}
+		}
+	}
+
+	private static boolean readerFinished(ReaderPoiSearch readerSearch, BinaryMapIndexReader r, List<Amenity> res) {
+		return readerSearch.readerFinished(r, res) && !readerSearch.isCancelled();
+	}
+
+	private static List<Amenity> searchReader(BinaryMapIndexReader r, final int limit,
+	                                          final ReaderPoiSearch readerSearch, final AtomicBoolean stop) throws IOException {
+		final List<Amenity> res = new ArrayList<>();
+		if (stop.get() || readerSearch.isCancelled()) {
+			return res;
+		}
+		long time = System.currentTimeMillis();
+		readerSearch.search(r, new ResultMatcher<Amenity>() {
+			@Override
+			public boolean publish(Amenity object) {
+				if (limit == -1 || res.size() < limit) {
+					res.add(object);
+				}
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return stop.get() || (limit != -1 && res.size() >= limit) || readerSearch.isCancelled();
+			}
+		});
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Poi search in " + r.getFile().getName() + " found " + res.size() + " in "
+					+ (System.currentTimeMillis() - time) + " ms");
+		}
+		return res;
+	}
+}
@@ -644,11 +644,11 @@ public class SearchCoreFactory {
 					SearchResult sr = new SearchResult(phrase);
 					sr.otherNames = object.getOtherNames(true);
 					sr.localeName = object.getName(phrase.getSettings().getLang());
-					if (!nm.matches(sr.localeName)) {
+					if (!nm.matches(sr.getLocaleNameKey())) {
 						sr.localeName = object.getName(phrase.getSettings().getLang(),
 								phrase.getSettings().isTransliterate());
 					}
-					if (!nm.matches(sr.localeName) && !nm.matches(sr.otherNames)
+					if (!nm.matches(sr.getLocaleNameKey()) && !nm.matchesKeys(sr.getOtherNameKeys())
 							&& !nm.matches(object.getAdditionalInfoValues(false))) {
 						return false;
 					}
@@ -689,9 +689,17 @@ public class SearchCoreFactory {
 					matcher, rawDataCollector);
 
 			BinaryMapIndexReader fileRequest = phrase.getFileRequest();
+			int threads = phrase.getSettings().getPoiSearchThreads();
 			if (fileRequest != null) {
 				fileRequest.searchPoiByName(req);
 				resultMatcher.apiSearchRegionFinished(this, fileRequest, phrase);
+			} else if (threads > 1 && !phrase.getSettings().isExportObjects()) {
+				// exported objects are published from search threads, so export keeps sequential search
+				List<BinaryMapIndexReader> offlineIndexes = new ArrayList<>();
+				while (offlineIterator.hasNext()) {
+					offlineIndexes.add(offlineIterator.next());
+				}
+				searchParallel(phrase, resultMatcher, offlineIndexes, threads, searchWord, bbox, matcher, currentFile);
 			} else {
 				while (offlineIterator.hasNext()) {
 					BinaryMapIndexReader r = offlineIterator.next();
@@ -703,6 +711,44 @@ public class SearchCoreFactory {
 			return true;
 		}
 
+		private void searchParallel(final SearchPhrase phrase, final SearchResultMatcher resultMatcher,
+		                            List<BinaryMapIndexReader> offlineIndexes, int threads, final String searchWord,
+		                            final QuadRect bbox, final ResultMatcher<Amenity> matcher,
+		                            final BinaryMapIndexReader[] currentFile) throws IOException {
+			final SearchCoreAPI api = this;
+			ParallelPoiSearch.search(offlineIndexes, threads, LIMIT, new ParallelPoiSearch.ReaderPoiSearch() {
+				@Override
+				public void search(BinaryMapIndexReader reader, ResultMatcher<Amenity> collector) throws IOException {
+					int left = reader.isBasemap() ? 0 : (int) bbox.left;
+					int right = reader.isBasemap() ? Integer.MAX_VALUE : (int) bbox.right;
+					int top = reader.isBasemap() ? 0 : (int) bbox.top;
+					int bottom = reader.isBasemap() ? Integer.MAX_VALUE : (int) bbox.bottom;
+					SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(
+							(int) bbox.centerX(), (int) bbox.centerY(), searchWord, left, right, top, bottom,
+							collector, null);
+					reader.searchPoiByName(req);
+				}
+
+				@Override
+				public boolean readerFinished(BinaryMapIndexReader reader, List<Amenity> objects) {
+					currentFile[0] = reader;
+					for (Amenity a : objects) {
+						if (matcher.isCancelled()) {
+							break;
+						}
+						matcher.publish(a);
+					}
+					resultMatcher.apiSearchRegionFinished(api, reader, phrase);
+					return !resultMatcher.isLimitReached();
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return resultMatcher.isCancelled();
+				}
+			});
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (p.hasObjectType(ObjectType.POI) ||
@@ -1224,6 +1270,13 @@ public class SearchCoreFactory {
 				QuadRect bbox = phrase.getRadiusBBoxToSearch(radius);
 				List<BinaryMapIndexReader> offlineIndexes = phrase.getOfflineIndexes();
 				Set<String> searchedPois = new TreeSet<>();
+				int threads = phrase.getSettings().getPoiSearchThreads();
+				if (threads > 1 && offlineIndexes.size() > 1 && !phrase.getSettings().isExportObjects()) {
+					// exported objects are published from search threads, so export keeps sequential search
+					searchParallel(phrase, resultMatcher, offlineIndexes, threads, bbox, poiTypeFilter,
+							poiAdditionalFilter, nameFilter, searchedPois, poiAdditionals, countExtraWords);
+					return true;
+				}
 				for (BinaryMapIndexReader r : offlineIndexes) {
 					ResultMatcher<Amenity> rm = getResultMatcher(phrase, poiTypeFilter, resultMatcher, nameFilter, r,
 							searchedPois, poiAdditionals, countExtraWords);
@@ -1240,6 +1293,45 @@ public class SearchCoreFactory {
 		}
 
 
+		private void searchParallel(final SearchPhrase phrase, final SearchResultMatcher resultMatcher,
+		                            List<BinaryMapIndexReader> offlineIndexes, int threads, final QuadRect bbox,
+		                            final SearchPoiTypeFilter poiTypeFilter, final SearchPoiAdditionalFilter poiAdditionalFilter,
+		                            final String nameFilter, final Set<String> searchedPois,
+		                            final Collection<String> poiAdditionals, final int countExtraWords) throws IOException {
+			final SearchCoreAPI api = this;
+			// objects are filtered (duplicates, closed, private, name) only when merged, so readers are not limited
+			ParallelPoiSearch.search(offlineIndexes, threads, -1, new ParallelPoiSearch.ReaderPoiSearch() {
+				@Override
+				public void search(BinaryMapIndexReader reader, ResultMatcher<Amenity> collector) throws IOException {
+					SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.left,
+							(int) bbox.right, (int) bbox.top, (int) bbox.bottom, -1, poiTypeFilter, poiAdditionalFilter, collector);
+					reader.searchPoi(req);
+				}
+
+				@Override
+				public boolean readerFinished(BinaryMapIndexReader reader, List<Amenity> objects) {
+					ResultMatcher<Amenity> rm = getResultMatcher(phrase, poiTypeFilter, resultMatcher, nameFilter, reader,
+							searchedPois, poiAdditionals, countExtraWords);
+					if (poiTypeFilter instanceof CustomSearchPoiFilter) {
+						rm = ((CustomSearchPoiFilter) poiTypeFilter).wrapResultMatcher(rm);
+					}
+					for (Amenity a : objects) {
+						if (rm.isCancelled()) {
+							break;
+						}
+						rm.publish(a);
+					}
+					resultMatcher.apiSearchRegionFinished(api, reader, phrase);
+					return !resultMatcher.isLimitReached();
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return resultMatcher.isCancelled();
+				}
+			});
+		}
+
 		private ResultMatcher<Amenity> getResultMatcher(final SearchPhrase phrase, final SearchPoiTypeFilter poiTypeFilter,
 		                                                final SearchResultMatcher resultMatcher, final String nameFilter,
 		                                                final BinaryMapIndexReader selected, final Set<String> searchedPois,
@@ -1288,7 +1380,7 @@ public class SearchCoreFactory {
 						}
 					}
 					if (ns != null) {
-						if (ns.matches(res.localeName) || ns.matches(res.otherNames)) {
+						if (ns.matches(res.getLocaleNameKey()) || ns.matchesKeys(res.getOtherNameKeys())) {
 							phrase.countUnknownWordsMatchMainResult(res, countExtraWords);
 						} else {
 							String ref = object.getTagContent(Amenity.REF, null);
@@ -5,6 +5,7 @@ import java.util.regex.Pattern;
 
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.NameKey;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
 import net.osmand.OsmAndCollator;
 import net.osmand.StringMatcher;
@@ -804,6 +805,22 @@ public class SearchPhrase {
 		public boolean matches(String name) {
 			return sm.matches(name);
 		}
+
+		public boolean matches(NameKey name) {
+			return name != null && sm.matches(name);
+		}
+
+		public boolean matchesKeys(Collection<NameKey> names) {
+			if (names == null) {
+				return false;
+			}
+			for (NameKey name : names) {
+				if (sm.matches(name)) {
+					return true;
+				}
+			}
+			return false;
+		}
 		
 	}
 	
@@ -818,14 +835,21 @@ public class SearchPhrase {
 	
 	public int countUnknownWordsMatch(SearchResult sr, String localeName, Collection<String> otherNames, int amountMatchingWords) {
 		int r = 0;
+		// names are matched by matchers of all words, so they are converted to keys once
+		NameKey localeKey = null;
+		Collection<NameKey> otherKeys = null;
 		if (otherUnknownWords.size() > 0) {
 			for (int i = 0; i < otherUnknownWords.size(); i++) {
 				boolean match = false;
 				if (i < amountMatchingWords - 1) {
 					match = true;
 				} else {
+					if (localeKey == null) {
+						localeKey = getNameKey(sr, localeName);
+						otherKeys = getNameKeys(sr, otherNames);
+					}
 					NameStringMatcher ms = getUnknownNameStringMatcher(i);
-					if (ms.matches(localeName) || ms.matches(otherNames)) {
+					if (ms.matches(localeKey) || ms.matchesKeys(otherKeys)) {
 						match = true;
 					}
 				}
@@ -842,9 +866,15 @@ public class SearchPhrase {
 			sr.firstUnknownWordMatches = true;
 			r++;
 		} else {
-			boolean match = localeName.equals(getFirstUnknownSearchWord())
-					|| getFirstUnknownNameStringMatcher().matches(localeName)
-					|| getFirstUnknownNameStringMatcher().matches(otherNames);
+			boolean match = localeName.equals(getFirstUnknownSearchWord());
+			if (!match) {
+				if (localeKey == null) {
+					localeKey = getNameKey(sr, localeName);
+					otherKeys = getNameKeys(sr, otherNames);
+				}
+				match = getFirstUnknownNameStringMatcher().matches(localeKey)
+						|| getFirstUnknownNameStringMatcher().matchesKeys(otherKeys);
+			}
 			if(match) {
 				r++;
 			}
@@ -853,6 +883,24 @@ public class SearchPhrase {
 		return r;
 	}
 	
+	private static NameKey getNameKey(SearchResult sr, String name) {
+		return name == sr.localeName ? sr.getLocaleNameKey() : NameKey.create(name);
+	}
+
+	private static Collection<NameKey> getNameKeys(SearchResult sr, Collection<String> names) {
+		if (names == sr.otherNames) {
+			return sr.getOtherNameKeys();
+		}
+		if (names == null) {
+			return null;
+		}
+		List<NameKey> keys = new ArrayList<>(names.size());
+		for (String name : names) {
+			keys.add(NameKey.create(name));
+		}
+		return keys;
+	}
+
 	public String getLastUnknownSearchWord() {
 		if(otherUnknownWords.size() > 0) {
 			return otherUnknownWords.get(otherUnknownWords.size() - 1);
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import net.osmand.CollatorStringMatcher.NameKey;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.data.City;
 import net.osmand.data.LatLon;
@@ -57,6 +58,11 @@ public class SearchResult {
 
 	private double unknownPhraseMatchWeight = 0;
 
+	// keys of names for matching by several matchers, recreated when names are changed
+	private NameKey localeNameKey;
+	private List<NameKey> otherNameKeys;
+	private Collection<String> otherNameKeysSource;
+
 	public SearchResult() {
 		this.requiredSearchPhrase = SearchPhrase.emptyPhrase();
 	}
@@ -65,6 +71,30 @@ public class SearchResult {
 		this.requiredSearchPhrase = sp;
 	}
 
+	NameKey getLocaleNameKey() {
+		if (localeName == null) {
+			return null;
+		}
+		if (localeNameKey == null || localeNameKey.getName() != localeName) {
+			localeNameKey = NameKey.create(localeName);
+		}
+		return localeNameKey;
+	}
+
+	List<NameKey> getOtherNameKeys() {
+		if (otherNames == null) {
+			return null;
+		}
+		if (otherNameKeys == null || otherNameKeysSource != otherNames || otherNameKeys.size() != otherNames.size()) {
+			otherNameKeys = new ArrayList<>(otherNames.size());
+			for (String name : otherNames) {
+				otherNameKeys.add(NameKey.create(name));
+			}
+			otherNameKeysSource = otherNames;
+		}
+		return otherNameKeys;
+	}
+
 	// maximum corresponds to the top entry
 	public double getUnknownPhraseMatchWeight() {
 		if (unknownPhraseMatchWeight != 0) {
@@ -25,6 +25,8 @@ public class SearchSettings {
 
 	public static final Log LOG = PlatformUtil.getLog(SearchSettings.class);
 	private static final double MIN_DISTANCE_REGION_LANG_RECALC = 10000;
+	// low-core devices keep sequential poi search over readers
+	public static final int DEFAULT_POI_SEARCH_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
 
 	private LatLon originalLocation;
 	private OsmandRegions regions;
@@ -40,6 +42,7 @@ public class SearchSettings {
 	private QuadRect searchBBox31;
 	private boolean addressSearch;
 	private SearchExportSettings exportSettings; // = new SearchExportSettings(true, true, -1);
+	private int poiSearchThreads = DEFAULT_POI_SEARCH_THREADS;
 
 	public SearchSettings(SearchSettings s) {
 		if(s != null) {
@@ -57,6 +60,7 @@ public class SearchSettings {
 			this.emptyQueryAllowed = s.emptyQueryAllowed;
 			this.sortByName = s.sortByName;
 			this.exportSettings = s.exportSettings;
+			this.poiSearchThreads = s.poiSearchThreads;
 		}
 	}
 	
@@ -131,6 +135,17 @@ public class SearchSettings {
 		return s;
 	}
 
+	public int getPoiSearchThreads() {
+		return poiSearchThreads;
+	}
+
+	// 1 searches readers sequentially
+	public SearchSettings setPoiSearchThreads(int poiSearchThreads) {
+		SearchSettings s = new SearchSettings(this);
+		s.poiSearchThreads = Math.max(1, poiSearchThreads);
+		return s;
+	}
+
 	public boolean isTransliterate() {
 		return transliterateIfMissing;
 	}
@@ -0,0 +1,240 @@
+package net.osmand.util;
+
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import net.osmand.util.OpeningHoursParser.BasicOpeningHourRule;
+import net.osmand.util.OpeningHoursParser.OpeningHours;
+import net.osmand.util.OpeningHoursParser.OpeningHoursRule;
+
+/**
+ * Opening hours compiled to minute bitmaps, so open / next opening checks are bit tests instead of
+ * evaluation of rules for each {@link Calendar}.
+ * <p>
+ * If all rules depend only on week days, whole week is compiled once. Otherwise (month, date, year rules)
+ * bitmaps are compiled lazily per date and kept in small table of dates.
+ * Compiled instances are cached by original opening_hours string (see {@link #compile(String)}).
+ */
+public class CompiledOpeningHours {
+
+	public static int CACHE_SIZE = 2000;
+	private static final int MAX_COMPILED_DATES = 64;
+	private static final int MINUTES_IN_DAY = 24 * 60;
+	private static final int DAYS_IN_WEEK = 7;
+	private static final int DAY_WORDS = (MINUTES_IN_DAY + 63) / 64;
+
+	private static final Map<String, CompiledOpeningHours> cache = new LinkedHashMap<String, CompiledOpeningHours>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CompiledOpeningHours> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private final OpeningHours hours;
+	// minutes where result of rules could change
+	private final int[] breakpoints;
+	// week minutes (Monday 00:00 is 0) for weekly rules, otherwise null
+	private final long[] week;
+	// minutes of day by date key
+	private final TIntObjectHashMap<long[]> dates;
+
+	public CompiledOpeningHours(OpeningHours hours) {
+		this.hours = hours;
+		boolean weekly = true;
+		TIntArrayList times = new TIntArrayList();
+		times.add(0);
+		for (OpeningHoursRule r : hours.getRules()) {
+			if (r instanceof BasicOpeningHourRule) {
+				BasicOpeningHourRule rule = (BasicOpeningHourRule) r;
+				weekly &= rule.isWeekly();
+				TIntArrayList starts = rule.getStartTimes();
+				TIntArrayList ends = rule.getEndTimes();
+				for (int i = 0; i < starts.size(); i++) {
+					int start = starts.get(i);
+					int end = ends.get(i);
+					times.add(start);
+					if (end != -1) {
+						// both end inclusive (< end + 1) and exclusive (< end) checks are used
+						times.add(end);
+						times.add(end + 1);
+					}
+				}
+			}
+		}
+		times.sort();
+		TIntArrayList unique = new TIntArrayList();
+		for (int i = 0; i < times.size(); i++) {
+			int t = times.get(i);
+			if (t >= 0 && t < MINUTES_IN_DAY && (unique.isEmpty() || unique.get(unique.size() - 1) != t)) {
+				unique.add(t);
+			}
+		}
+		breakpoints = unique.toArray();
+		if (weekly) {
+			week = new long[(DAYS_IN_WEEK * MINUTES_IN_DAY + 63) / 64];
+			dates = null;
+			// rules don't depend on date, so any week could be used (1 Jan 2024 is Monday)
+			Calendar cal = Calendar.getInstance();
+			cal.clear();
+			cal.set(2024, Calendar.JANUARY, 1);
+			for (int d = 0; d < DAYS_IN_WEEK; d++) {
+				compileDay(cal, week, d * MINUTES_IN_DAY);
+				cal.add(Calendar.DAY_OF_MONTH, 1);
+			}
+		} else {
+			week = null;
+			dates = new TIntObjectHashMap<long[]>();
+		}
+	}
+
+	/**
+	 * @return compiled opening hours shared for equal strings or null if string couldn't be parsed
+	 */
+	public static CompiledOpeningHours compile(String openingHours) {
+		if (openingHours == null) {
+			return null;
+		}
+		synchronized (cache) {
+			CompiledOpeningHours c = cache.get(openingHours);
+			if (c != null) {
+				return c;
+			}
+		}
+		OpeningHours hours = OpeningHoursParser.parseOpenedHours(openingHours);
+		if (hours == null) {
+			return null;
+		}
+		CompiledOpeningHours c = new CompiledOpeningHours(hours);
+		synchronized (cache) {
+			cache.put(openingHours, c);
+		}
+		return c;
+	}
+
+	public OpeningHours getOpeningHours() {
+		return hours;
+	}
+
+	public boolean isWeekly() {
+		return week != null;
+	}
+
+	/**
+	 * Same as {@link OpeningHours#isOpenedForTime(Calendar)}
+	 */
+	public boolean isOpened(Calendar cal) {
+		int minute = getMinuteOfDay(cal);
+		if (week != null) {
+			return isSet(week, getDayOfWeek(cal) * MINUTES_IN_DAY + minute);
+		}
+		return isSet(getDate(cal), minute);
+	}
+
+	/**
+	 * @return minutes till opening (0 if opened now) or -1 if it's not opened within a week
+	 */
+	public int getMinutesToOpening(Calendar cal) {
+		return getMinutesTo(cal, true);
+	}
+
+	/**
+	 * @return minutes till closing (0 if closed now) or -1 if it's not closed within a week
+	 */
+	public int getMinutesToClosing(Calendar cal) {
+		return getMinutesTo(cal, false);
+	}
+
+	private int getMinutesTo(Calendar cal, boolean opened) {
+		int minute = getMinuteOfDay(cal);
+		if (week != null) {
+			int weekMinutes = DAYS_IN_WEEK * MINUTES_IN_DAY;
+			int start = getDayOfWeek(cal) * MINUTES_IN_DAY + minute;
+			int ind = nextBit(week, start, weekMinutes, opened);
+			if (ind == -1) {
+				ind = nextBit(week, 0, start, opened);
+				return ind == -1 ? -1 : ind + weekMinutes - start;
+			}
+			return ind - start;
+		}
+		int ind = nextBit(getDate(cal), minute, MINUTES_IN_DAY, opened);
+		if (ind != -1) {
+			return ind - minute;
+		}
+		Calendar c = (Calendar) cal.clone();
+		for (int d = 1; d <= DAYS_IN_WEEK; d++) {
+			c.add(Calendar.DAY_OF_MONTH, 1);
+			ind = nextBit(getDate(c), 0, MINUTES_IN_DAY, opened);
+			if (ind != -1) {
+				return d * MINUTES_IN_DAY + ind - minute;
+			}
+		}
+		return -1;
+	}
+
+	private long[] getDate(Calendar cal) {
+		int key = (cal.get(Calendar.YEAR) * 12 + cal.get(Calendar.MONTH)) * 31 + cal.get(Calendar.DAY_OF_MONTH) - 1;
+		synchronized (dates) {
+			long[] bits = dates.get(key);
+			if (bits == null) {
+				bits = new long[DAY_WORDS];
+				compileDay(cal, bits, 0);
+				if (dates.size() >= MAX_COMPILED_DATES) {
+					dates.clear();
+				}
+				dates.put(key, bits);
+			}
+			return bits;
+		}
+	}
+
+	// rules are evaluated once per interval between breakpoints
+	private void compileDay(Calendar date, long[] bits, int offset) {
+		Calendar c = (Calendar) date.clone();
+		for (int i = 0; i < breakpoints.length; i++) {
+			int from = breakpoints[i];
+			int to = i < breakpoints.length - 1 ? breakpoints[i + 1] : MINUTES_IN_DAY;
+			c.set(Calendar.HOUR_OF_DAY, from / 60);
+			c.set(Calendar.MINUTE, from % 60);
+			if (hours.isOpenedForTime(c)) {
+				for (int m = offset + from; m < offset + to; m++) {
+					bits[m >> 6] |= 1L << (m & 63);
+				}
+			}
+		}
+	}
+
+	private static int getMinuteOfDay(Calendar cal) {
+		return cal.get(Calendar.HOUR_OF_DAY) * 60 + cal.get(Calendar.MINUTE);
+	}
+
+	private static int getDayOfWeek(Calendar cal) {
+		// 0 is Monday as in rules
+		return (cal.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+	}
+
+	private static boolean isSet(long[] bits, int ind) {
+		return (bits[ind >> 6] & (1L << (ind & 63))) != 0;
+	}
+
+	// first index in [from, to) with bit equal to value or -1
+	private static int nextBit(long[] bits, int from, int to, boolean value) {
+		int w = from >> 6;
+		long word = (value ? bits[w] : ~bits[w]) & (-1L << (from & 63));
+		while (true) {
+			if (word != 0) {
+				int ind = (w << 6) + Long.numberOfTrailingZeros(word);
+				return ind < to ? ind : -1;
+			}
+			if (++w >= bits.length || (w << 6) >= to) {
+				return -1;
+			}
+			word = value ? bits[w] : ~bits[w];
+		}
+	}
+}
@@ -1612,6 +1612,21 @@ public class OpeningHoursParser {
 		private boolean hasYears() {
 			return firstYearMonths != null ;
 		}
+
+		/**
+		 * @return true if rule is same for all months and dates (only week days and times are specified)
+		 */
+		public boolean isWeekly() {
+			if (hasYears() || year != 0 || hasDayMonths()) {
+				return false;
+			}
+			for (boolean m : months) {
+				if (!m) {
+					return false;
+				}
+			}
+			return true;
+		}
 	}
 
 	public static class UnparseableRule implements OpeningHoursRule {
@@ -0,0 +1,94 @@
+package net.osmand;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.CollatorStringMatcher.NameKey;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+public class CollatorStringMatcherTest {
+
+	private static final String[] NAMES = { "Straße des 17. Juni", "Auhofstrasse", "St. Peter-Ording", "Ærøskøbing",
+			"Москва", "Улица Ленина", "Łódź Kaliska", "Café de Flore", "Rue de l'Église", "Zürich HB", "ŞİŞLİ", "",
+			"Avenida São João 12b", "Mc Donald's", "A  B", "Ελληνικό" };
+
+	private static final String[] QUERIES = { "str", "strasse", "straße", "17", "peter", "peter-ording", "aero", "ærø",
+			"mosk", "ленина", "lodz", "cafe", "eglise", "zurich hb", "sisli", "sao joao", "mcdonalds", "a b", "b",
+			"ελλην", "", "de", "jun", "17.", "ording" };
+
+	@Test
+	public void testSameAsCollator() {
+		Collator collator = OsmAndCollator.primaryCollator();
+		for (StringMatcherMode mode : StringMatcherMode.values()) {
+			for (String query : QUERIES) {
+				CollatorStringMatcher matcher = new CollatorStringMatcher(query, mode);
+				for (String name : NAMES) {
+					Assert.assertEquals(mode + " " + query + " in " + name, 
+							CollatorStringMatcher.cmatches(collator, name.toLowerCase(), expectedPart(query, mode), expectedMode(query, mode)),
+							matcher.matches(NameKey.create(name)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRandomSubstrings() {
+		Collator collator = OsmAndCollator.primaryCollator();
+		Random rnd = new Random(1);
+		for (String name : NAMES) {
+			for (int k = 0; k < 20 && name.length() > 0; k++) {
+				int s = rnd.nextInt(name.length());
+				String query = name.substring(s, s + 1 + rnd.nextInt(name.length() - s)).toLowerCase();
+				for (StringMatcherMode mode : StringMatcherMode.values()) {
+					CollatorStringMatcher matcher = new CollatorStringMatcher(query, mode);
+					Assert.assertEquals(mode + " " + query + " in " + name,
+							CollatorStringMatcher.cmatches(collator, name.toLowerCase(), expectedPart(query, mode), expectedMode(query, mode)),
+							matcher.matches(NameKey.create(name)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testContractions() {
+		Locale locale = Locale.getDefault();
+		try {
+			// "aa" is the same letter as "å" in danish
+			Locale.setDefault(new Locale("da"));
+			Collator collator = OsmAndCollator.primaryCollator();
+			String[] names = { "Aarhus", "Åbenrå", "Haderslev Vej", "Naarup Aa", "Strandvej" };
+			String[] queries = { "a", "aa", "å", "år", "aarh", "abenraa", "ab", "raa" };
+			for (String name : names) {
+				for (String query : queries) {
+					for (StringMatcherMode mode : StringMatcherMode.values()) {
+						CollatorStringMatcher matcher = new CollatorStringMatcher(query, mode);
+						Assert.assertEquals(mode + " " + query + " in " + name,
+								CollatorStringMatcher.cmatches(collator, name.toLowerCase(), query, mode),
+								matcher.matches(NameKey.create(name)));
+					}
+				}
+			}
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	private static String expectedPart(String query, StringMatcherMode mode) {
+		query = query.replace("ß", "ss");
+		return query.endsWith(".") ? query.substring(0, query.length() - 1) : query;
+	}
+
+	private static StringMatcherMode expectedMode(String query, StringMatcherMode mode) {
+		if (query.endsWith(".")) {
+			if (mode == StringMatcherMode.CHECK_EQUALS_FROM_SPACE) {
+				return StringMatcherMode.CHECK_STARTS_FROM_SPACE;
+			} else if (mode == StringMatcherMode.CHECK_EQUALS) {
+				return StringMatcherMode.CHECK_ONLY_STARTS_WITH;
+			}
+		}
+		return mode;
+	}
+}
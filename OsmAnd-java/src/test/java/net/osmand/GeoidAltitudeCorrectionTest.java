@@ -0,0 +1,64 @@
+package net.osmand;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GeoidAltitudeCorrectionTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// synthetic grid: height in cm = row * 10 + column % 100
+	private GeoidAltitudeCorrection createGrid() throws IOException {
+		File dir = folder.newFolder();
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(dir, "WW15MGH.DAC")));
+		try {
+			for (int row = 0; row < 721; row++) {
+				for (int col = 0; col < 1440; col++) {
+					out.writeShort(row * 10 + col % 100);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return new GeoidAltitudeCorrection(dir);
+	}
+
+	@Test
+	public void testInterpolation() throws IOException {
+		GeoidAltitudeCorrection geoid = createGrid();
+		Assert.assertTrue(geoid.isGeoidInformationAvailable());
+		// grid nodes
+		Assert.assertEquals(0, geoid.getGeoidHeight(90, 0), 1e-4);
+		Assert.assertEquals((360 * 10 + 40) / 100f, geoid.getGeoidHeight(0, 10), 1e-4);
+		Assert.assertEquals((720 * 10 + 40) / 100f, geoid.getGeoidHeight(-90, 10), 1e-4);
+		// between nodes
+		Assert.assertEquals((360 * 10 + 40.5f) / 100f, geoid.getGeoidHeight(0, 10.125), 1e-4);
+		Assert.assertEquals((360 * 10 + 5 + 40) / 100f, geoid.getGeoidHeight(-0.125, 10), 1e-4);
+		// negative longitude and wrap around 360
+		Assert.assertEquals(geoid.getGeoidHeight(0, 350), geoid.getGeoidHeight(0, -10), 1e-4);
+		Assert.assertEquals((360 * 10 + 39 * 0.5f) / 100f, geoid.getGeoidHeight(0, 359.875), 1e-4);
+	}
+
+	@Test
+	public void testBatch() throws IOException {
+		GeoidAltitudeCorrection geoid = createGrid();
+		double[] lats = { 52.1, -33.9, 0.3 };
+		double[] lons = { 4.3, 151.2, -78.5 };
+		float[] heights = new float[lats.length];
+		double[] alts = { 100, 200, 300 };
+		geoid.getGeoidHeights(lats, lons, heights);
+		geoid.correctAltitudes(lats, lons, alts);
+		for (int i = 0; i < lats.length; i++) {
+			Assert.assertEquals(geoid.getGeoidHeight(lats[i], lons[i]), heights[i], 1e-6);
+			Assert.assertEquals((i + 1) * 100 - heights[i], alts[i], 1e-4);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package net.osmand;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TspMatrixTest {
+
+	private static final float INF = Float.POSITIVE_INFINITY;
+
+	// only route 0 -> 2 -> 1 -> 3 is reachable (points are at the same place, so all costs are 0)
+	private static float[][] zeroCostChain() {
+		float[][] costs = new float[4][4];
+		for (float[] row : costs) {
+			Arrays.fill(row, INF);
+		}
+		int[] chain = { 0, 2, 1, 3 };
+		for (int i = 0; i < chain.length; i++) {
+			costs[chain[i]][chain[i]] = 0;
+			if (i > 0) {
+				costs[chain[i - 1]][chain[i]] = 0;
+				costs[chain[i]][chain[i - 1]] = 0;
+			}
+		}
+		return costs;
+	}
+
+	private static float[][] unreachable(int n) {
+		float[][] costs = new float[n][n];
+		for (int i = 0; i < n; i++) {
+			Arrays.fill(costs[i], INF);
+			costs[i][i] = 0;
+		}
+		return costs;
+	}
+
+	@Test
+	public void testUnreachableCost() {
+		Assert.assertEquals(4, TspAnt.unreachableCost(zeroCostChain()), 0);
+		Assert.assertEquals(5, TspAnt.unreachableCost(unreachable(5)), 0);
+		float[][] costs = unreachable(3);
+		costs[0][1] = 10.4f;
+		costs[1][2] = 20.6f;
+		// greater than tour over all reachable pairs
+		Assert.assertEquals(66, TspAnt.unreachableCost(costs), 0);
+	}
+
+	@Test
+	public void testHeldKarpAvoidsUnreachable() {
+		int[] order = new TspHeldKarp().readInput(zeroCostChain(), false).solve();
+		Assert.assertTrue(Arrays.toString(order), Arrays.equals(new int[] { 0, 2, 1, 3 }, order)
+				|| Arrays.equals(new int[] { 0, 3, 1, 2 }, order));
+	}
+
+	@Test
+	public void testAntAvoidsUnreachable() {
+		int[] order = new TspAnt().readGraph(zeroCostChain(), true).solve();
+		Assert.assertArrayEquals(Arrays.toString(order), new int[] { 0, 2, 1, 3 }, order);
+	}
+
+	@Test
+	public void testAllUnreachable() {
+		int[] order = new TspHeldKarp().readInput(unreachable(4), true).solve();
+		assertPermutation(order);
+		order = new TspAnt().readGraph(unreachable(4), false).solve();
+		assertPermutation(order);
+		Assert.assertEquals(0, order[0]);
+	}
+
+	private static void assertPermutation(int[] order) {
+		int[] sorted = order.clone();
+		Arrays.sort(sorted);
+		Assert.assertArrayEquals(Arrays.toString(order), new int[] { 0, 1, 2, 3 }, sorted);
+	}
+}
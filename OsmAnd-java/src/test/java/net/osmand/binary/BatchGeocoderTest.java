@@ -0,0 +1,92 @@
+package net.osmand.binary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutingContext;
+import net.osmand.router.RoutingTestNetwork;
+import net.osmand.util.MapUtils;
+
+public class BatchGeocoderTest {
+
+	private int partitionSize;
+
+	@Before
+	public void setUp() {
+		partitionSize = BatchGeocoder.PARTITION_SIZE;
+		// several partitions for each worker
+		BatchGeocoder.PARTITION_SIZE = 8;
+	}
+
+	@After
+	public void tearDown() {
+		BatchGeocoder.PARTITION_SIZE = partitionSize;
+	}
+
+	@Test
+	public void testOrderAndThreads() throws Exception {
+		RoutingTestNetwork network = new RoutingTestNetwork(10, 0);
+		List<LatLon> points = new ArrayList<LatLon>();
+		List<Boolean> far = new ArrayList<Boolean>();
+		for (int k = 0; k < 90; k++) {
+			if (k % 7 == 3) {
+				// far from any road
+				points.add(new LatLon(10 + k * 0.01, 10));
+				far.add(true);
+				continue;
+			}
+			// points are sorted along the grid
+			int x = network.x(k % 9) + RoutingTestNetwork.STEP / 2;
+			int y = network.y(k / 9) + RoutingTestNetwork.STEP / 10;
+			points.add(new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
+			far.add(false);
+		}
+
+		List<GeocodingResult> single = geocode(network, points, 1);
+		List<GeocodingResult> parallel = geocode(network, points, 4);
+		Assert.assertEquals(77, count(single));
+		Assert.assertEquals(77, count(parallel));
+		Assert.assertEquals(points.size(), single.size());
+		Assert.assertEquals(points.size(), parallel.size());
+		for (int k = 0; k < points.size(); k++) {
+			if (far.get(k)) {
+				Assert.assertNull("Point " + k, single.get(k));
+				Assert.assertNull("Point " + k, parallel.get(k));
+			} else {
+				Assert.assertNotNull("Point " + k, single.get(k));
+				Assert.assertTrue("Point " + k, single.get(k).streetName.matches("(Street|Avenue) \\d"));
+				Assert.assertEquals("Point " + k, points.get(k), single.get(k).searchPoint);
+				Assert.assertEquals("Point " + k, single.get(k).streetName, parallel.get(k).streetName);
+				Assert.assertEquals("Point " + k, single.get(k).searchPoint, parallel.get(k).searchPoint);
+				Assert.assertEquals("Point " + k, single.get(k).connectionPoint, parallel.get(k).connectionPoint);
+			}
+		}
+	}
+
+	private static int count(List<GeocodingResult> res) {
+		int cnt = 0;
+		for (GeocodingResult r : res) {
+			if (r != null) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+
+	private static List<GeocodingResult> geocode(RoutingTestNetwork network, List<LatLon> points, int threads)
+			throws Exception {
+		RoutingContext ctx = network.buildContext(new RoutePlannerFrontEnd(), RoutingTestNetwork.parseProfile());
+		BatchGeocoder geocoder = new BatchGeocoder(ctx).setThreads(threads);
+		List<GeocodingResult> res = geocoder.reverseGeocode(points);
+		Assert.assertEquals(points.size(), geocoder.getProcessedPoints());
+		return res;
+	}
+}
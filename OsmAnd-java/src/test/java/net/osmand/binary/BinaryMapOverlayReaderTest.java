@@ -0,0 +1,380 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.binary.BinaryMapOverlayReader.IdSourceTable;
+import net.osmand.binary.BinaryMapOverlayReader.MapObjectsCollector;
+import net.osmand.binary.BinaryMapOverlayReader.OverlaySource;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.data.Amenity;
+import net.osmand.osm.PoiCategory;
+import net.osmand.util.MapUtils;
+
+public class BinaryMapOverlayReaderTest {
+
+	@Test
+	public void testIdSourceTable() {
+		TLongObjectHashMap<Integer> map = new TLongObjectHashMap<Integer>();
+		BinaryMapOverlayReader.putSource(map, 30, 1, false);
+		BinaryMapOverlayReader.putSource(map, -5, 2, false);
+		BinaryMapOverlayReader.putSource(map, 10, 1, true);
+		BinaryMapOverlayReader.putSource(map, Long.MAX_VALUE, 3, false);
+		IdSourceTable table = new IdSourceTable(map);
+
+		Assert.assertEquals(4, table.size());
+		Assert.assertEquals(1, table.getDeletedCount());
+		Assert.assertEquals(1, table.get(30));
+		Assert.assertEquals(2, table.get(-5));
+		Assert.assertEquals(3, table.get(Long.MAX_VALUE));
+		Assert.assertEquals(BinaryMapOverlayReader.DELETED, table.get(10));
+		Assert.assertEquals(BinaryMapOverlayReader.NOT_CHANGED, table.get(20));
+		Assert.assertEquals(BinaryMapOverlayReader.NOT_CHANGED, table.get(Long.MIN_VALUE));
+
+		IdSourceTable empty = new IdSourceTable(new TLongObjectHashMap<Integer>());
+		Assert.assertEquals(0, empty.size());
+		Assert.assertEquals(BinaryMapOverlayReader.NOT_CHANGED, empty.get(1));
+		Assert.assertTrue(empty.accept(1, 0));
+	}
+
+	@Test
+	public void testNewestSourceAndDelete() {
+		TLongObjectHashMap<Integer> map = new TLongObjectHashMap<Integer>();
+		// deltas are put from oldest to newest
+		BinaryMapOverlayReader.putSource(map, 1, 1, false);
+		BinaryMapOverlayReader.putSource(map, 1, 2, false);
+		BinaryMapOverlayReader.putSource(map, 2, 1, false);
+		BinaryMapOverlayReader.putSource(map, 2, 2, true);
+		BinaryMapOverlayReader.putSource(map, 3, 1, true);
+		BinaryMapOverlayReader.putSource(map, 3, 3, false);
+		IdSourceTable table = new IdSourceTable(map);
+
+		// object changed twice is accepted only from the newest delta
+		Assert.assertFalse(table.accept(1, 0));
+		Assert.assertFalse(table.accept(1, 1));
+		Assert.assertTrue(table.accept(1, 2));
+		// object deleted by newer delta is not accepted from any file
+		for (int source = 0; source <= 3; source++) {
+			Assert.assertFalse(table.accept(2, source));
+		}
+		// object created again after deletion
+		Assert.assertFalse(table.accept(3, 0));
+		Assert.assertFalse(table.accept(3, 1));
+		Assert.assertTrue(table.accept(3, 3));
+		// not changed object is accepted from base map
+		Assert.assertTrue(table.accept(4, 0));
+		Assert.assertEquals(1, table.getDeletedCount());
+	}
+
+	private static final int MIN_ZOOM = 13;
+	private static final int MAX_ZOOM = 15;
+	private static final int ROAD = 0;
+	private static final int DELETE = 1;
+
+	private final MapIndex mapIndex = new MapIndex();
+	private final RouteRegion region = new RouteRegion();
+	private final PoiCategory shop = new PoiCategory(null, "shop", 0);
+	private final PoiCategory amenity = new PoiCategory(null, "amenity", 1);
+
+	{
+		mapIndex.initMapEncodingRule(0, ROAD, "highway", "primary");
+		mapIndex.initMapEncodingRule(0, DELETE, Amenity.OSM_DELETE_TAG, Amenity.OSM_DELETE_VALUE);
+		region.initRouteEncodingRule(ROAD, "highway", "primary");
+		region.initRouteEncodingRule(DELETE, Amenity.OSM_DELETE_TAG, Amenity.OSM_DELETE_VALUE);
+	}
+
+	@Test
+	public void testSearchMapIndex() throws IOException {
+		TestSource base = new TestSource(0);
+		base.map(1, 100, ROAD).map(2, 200, ROAD).map(3, 300, ROAD).map(4, 400, ROAD);
+		TestSource older = new TestSource(1);
+		older.map(1, 150, ROAD).map(2, 200, DELETE).map(5, 500, ROAD);
+		TestSource newer = new TestSource(2);
+		newer.map(1, 160, ROAD).map(5, 500, DELETE).map(6, 600, ROAD);
+		// deltas are sorted by date
+		BinaryMapOverlayReader overlay = new BinaryMapOverlayReader(base, Arrays.asList(newer, older),
+				Collections.<BinaryMapIndexReader>emptyList());
+		Assert.assertEquals(4, overlay.getChangedObjectsCount());
+		Assert.assertEquals(2, overlay.getDeletedObjectsCount());
+		Assert.assertEquals(2, overlay.getDeltaObjectsCount());
+		older.queries = newer.queries = 0;
+
+		List<BinaryMapDataObject> res = overlay.searchMapIndex(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, MIN_ZOOM,
+				null, null);
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(1L, 3L, 4L, 6L)), mapIds(res));
+		Assert.assertEquals(160, find(res, 1).getPoint31XTile(0));
+		Assert.assertEquals(1, base.queries);
+		// deltas are read only when overlay is created
+		Assert.assertEquals(0, older.queries + newer.queries);
+		Assert.assertEquals(2, overlay.getObjectsSuppressed());
+
+		// bbox is checked for base and delta objects
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(1L, 3L)),
+				mapIds(overlay.searchMapIndex(150, 350, 150, 350, MAX_ZOOM, null, null)));
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(3L)),
+				mapIds(overlay.searchMapIndex(250, 350, 250, 350, MIN_ZOOM, null, null)));
+		// zoom range of delta roots
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(3L, 4L)),
+				mapIds(overlay.searchMapIndex(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, MIN_ZOOM - 1, null, null)));
+
+		SearchFilter roads = new SearchFilter() {
+			@Override
+			public boolean accept(TIntArrayList types, MapIndex index) {
+				return types.contains(ROAD);
+			}
+		};
+		ResultMatcher<BinaryMapDataObject> skipSome = new ResultMatcher<BinaryMapDataObject>() {
+			@Override
+			public boolean publish(BinaryMapDataObject object) {
+				return object.getId() != 1 && object.getId() != 3;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(4L, 6L)), mapIds(
+				overlay.searchMapIndex(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, MIN_ZOOM, roads, skipSome)));
+	}
+
+	@Test
+	public void testSearchPoi() throws IOException {
+		TestSource base = new TestSource(0);
+		base.poi(10, 1.0, shop, false).poi(11, 2.0, shop, false).poi(12, 3.0, amenity, false);
+		TestSource delta = new TestSource(1);
+		delta.poi(10, 1.5, shop, false).poi(11, 2.0, shop, true).poi(13, 4.0, amenity, false);
+		BinaryMapOverlayReader overlay = new BinaryMapOverlayReader(base, Collections.singletonList(delta),
+				Collections.<BinaryMapIndexReader>emptyList());
+		delta.queries = 0;
+
+		List<Amenity> res = overlay.searchPoi(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, 15,
+				BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null);
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(10L, 12L, 13L)), poiIds(res));
+		for (Amenity a : res) {
+			if (a.getId() == 10) {
+				Assert.assertEquals(1.5, a.getLocation().getLongitude(), 1e-9);
+			}
+		}
+		Assert.assertEquals(0, delta.queries);
+
+		SearchPoiTypeFilter amenities = new SearchPoiTypeFilter() {
+			@Override
+			public boolean accept(PoiCategory type, String subcategory) {
+				return type == amenity;
+			}
+
+			@Override
+			public boolean isEmpty() {
+				return false;
+			}
+		};
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(12L, 13L)), poiIds(
+				overlay.searchPoi(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, 15, amenities, null)));
+		int x = MapUtils.get31TileNumberX(1.5);
+		int y = MapUtils.get31TileNumberY(50);
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(10L)), poiIds(overlay.searchPoi(x - 1, x + 1, y - 1,
+				y + 1, 15, BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null)));
+
+		// base without poi is not queried
+		TestSource empty = new TestSource(0);
+		overlay = new BinaryMapOverlayReader(empty, Collections.singletonList(delta),
+				Collections.<BinaryMapIndexReader>emptyList());
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(10L, 13L)), poiIds(overlay.searchPoi(0,
+				Integer.MAX_VALUE, 0, Integer.MAX_VALUE, 15, BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null)));
+		Assert.assertEquals(0, empty.queries);
+		Assert.assertEquals(1, overlay.getBaseSkipped());
+	}
+
+	@Test
+	public void testSearchRouteIndex() throws IOException {
+		TestSource base = new TestSource(0);
+		base.route(20, 100, ROAD).route(21, 200, ROAD).route(22, 300, ROAD);
+		TestSource first = new TestSource(1);
+		first.route(20, 100, DELETE).route(21, 250, ROAD).route(23, 400, ROAD);
+		TestSource second = new TestSource(2);
+		second.route(20, 120, ROAD).route(23, 400, DELETE);
+		BinaryMapOverlayReader overlay = new BinaryMapOverlayReader(base, Arrays.asList(first, second),
+				Collections.<BinaryMapIndexReader>emptyList());
+		first.queries = second.queries = 0;
+
+		List<RouteDataObject> res = overlay.searchRouteIndex(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null);
+		TreeSet<Long> ids = new TreeSet<Long>();
+		for (RouteDataObject o : res) {
+			// every object only once
+			Assert.assertTrue(ids.add(o.getId()));
+			if (o.getId() == 20) {
+				Assert.assertEquals(120, o.getPoint31XTile(0));
+			} else if (o.getId() == 21) {
+				Assert.assertEquals(250, o.getPoint31XTile(0));
+			}
+		}
+		// road deleted and created again is taken from newer delta, created and deleted is not returned
+		Assert.assertEquals(new TreeSet<Long>(Arrays.asList(20L, 21L, 22L)), ids);
+		Assert.assertEquals(0, first.queries + second.queries);
+
+		ResultMatcher<RouteDataObject> cancelled = new ResultMatcher<RouteDataObject>() {
+			@Override
+			public boolean publish(RouteDataObject object) {
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return true;
+			}
+		};
+		Assert.assertTrue(overlay.searchRouteIndex(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, cancelled).isEmpty());
+	}
+
+	private static TreeSet<Long> mapIds(List<BinaryMapDataObject> res) {
+		TreeSet<Long> ids = new TreeSet<Long>();
+		for (BinaryMapDataObject o : res) {
+			Assert.assertTrue(ids.add(o.getId()));
+		}
+		return ids;
+	}
+
+	private static TreeSet<Long> poiIds(List<Amenity> res) {
+		TreeSet<Long> ids = new TreeSet<Long>();
+		for (Amenity o : res) {
+			Assert.assertTrue(ids.add(o.getId()));
+		}
+		return ids;
+	}
+
+	private static BinaryMapDataObject find(List<BinaryMapDataObject> res, long id) {
+		for (BinaryMapDataObject o : res) {
+			if (o.getId() == id) {
+				return o;
+			}
+		}
+		return null;
+	}
+
+	private class TestSource implements OverlaySource {
+		private final long date;
+		private final List<BinaryMapDataObject> map = new ArrayList<BinaryMapDataObject>();
+		private final List<Amenity> poi = new ArrayList<Amenity>();
+		private final List<RouteDataObject> route = new ArrayList<RouteDataObject>();
+		int queries;
+
+		TestSource(long date) {
+			this.date = date;
+		}
+
+		TestSource map(long id, int xy, int type) {
+			BinaryMapDataObject o = new BinaryMapDataObject(id, new int[] { xy, xy, xy + 10, xy + 10 }, null, 0,
+					false, new int[] { type }, null, 0, 0);
+			o.setMapIndex(mapIndex);
+			map.add(o);
+			return this;
+		}
+
+		TestSource poi(long id, double lon, PoiCategory type, boolean deleted) {
+			Amenity a = new Amenity();
+			a.setId(id);
+			a.setLocation(50, lon);
+			a.setType(type);
+			if (deleted) {
+				a.setAdditionalInfo(Amenity.OSM_DELETE_TAG, Amenity.OSM_DELETE_VALUE);
+			}
+			poi.add(a);
+			return this;
+		}
+
+		TestSource route(long id, int xy, int type) {
+			RouteDataObject o = new RouteDataObject(region);
+			o.id = id;
+			o.types = new int[] { type };
+			o.pointsX = new int[] { xy, xy + 10 };
+			o.pointsY = new int[] { xy, xy + 10 };
+			route.add(o);
+			return this;
+		}
+
+		@Override
+		public long getDateCreated() {
+			return date;
+		}
+
+		@Override
+		public boolean containsMapData(int left31, int top31, int right31, int bottom31, int zoom) {
+			return !map.isEmpty();
+		}
+
+		@Override
+		public boolean containsPoiData(int left31, int top31, int right31, int bottom31) {
+			return !poi.isEmpty();
+		}
+
+		@Override
+		public boolean containsRouteData(int left31, int top31, int right31, int bottom31) {
+			return !route.isEmpty();
+		}
+
+		@Override
+		public void readAllMapObjects(MapObjectsCollector collector) {
+			queries++;
+			for (BinaryMapDataObject o : map) {
+				collector.collect(MIN_ZOOM, MAX_ZOOM, o);
+			}
+		}
+
+		@Override
+		public void searchMap(int left31, int right31, int top31, int bottom31, int zoom, SearchFilter searchFilter,
+				ResultMatcher<BinaryMapDataObject> matcher) {
+			queries++;
+			for (BinaryMapDataObject o : map) {
+				// base objects are present at all zooms
+				if (o.getPoint31XTile(0) <= right31 && o.getPoint31XTile(1) >= left31 && o.getPoint31YTile(0) <= bottom31
+						&& o.getPoint31YTile(1) >= top31
+						&& (searchFilter == null || searchFilter.accept(new TIntArrayList(o.getTypes()), mapIndex))) {
+					matcher.publish(o);
+				}
+			}
+		}
+
+		@Override
+		public void searchPoi(int left31, int right31, int top31, int bottom31, int zoom,
+				SearchPoiTypeFilter poiTypeFilter, ResultMatcher<Amenity> matcher) {
+			queries++;
+			for (Amenity a : poi) {
+				int x = MapUtils.get31TileNumberX(a.getLocation().getLongitude());
+				int y = MapUtils.get31TileNumberY(a.getLocation().getLatitude());
+				if (x >= left31 && x <= right31 && y >= top31 && y <= bottom31
+						&& poiTypeFilter.accept(a.getType(), a.getSubType())) {
+					matcher.publish(a);
+				}
+			}
+		}
+
+		@Override
+		public void searchRoute(int left31, int right31, int top31, int bottom31,
+				ResultMatcher<RouteDataObject> matcher) {
+			queries++;
+			for (RouteDataObject o : route) {
+				if (matcher.isCancelled()) {
+					break;
+				}
+				if (o.pointsX[0] <= right31 && o.pointsX[1] >= left31 && o.pointsY[0] <= bottom31
+						&& o.pointsY[1] >= top31) {
+					matcher.publish(o);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package net.osmand.gpx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+public class GPXStreamReaderTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		Random rnd = new Random(17);
+		GPXFile gpx = new GPXFile("test");
+		gpx.addPoint(new WptPt(52.1, 4.1));
+		for (int t = 0; t < 2; t++) {
+			Track track = new Track();
+			for (int s = 0; s < 3; s++) {
+				int points = s == 2 ? 1 : 500 + rnd.nextInt(500);
+				track.segments.add(GPXTestFiles.createSegment(rnd, 52.3 + t, points, true, t != 0));
+			}
+			gpx.tracks.add(track);
+		}
+		file = GPXTestFiles.writeTempFile("stream", gpx);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testSameAnalysis() throws Exception {
+		GPXFile gpx = GPXUtilities.loadGPXFile(file);
+		GPXTrackAnalysis expected = gpx.getAnalysis(file.lastModified());
+		GPXTrackAnalysis actual = GPXStreamReader.analyse(file, null);
+
+		Assert.assertEquals(expected.getPoints(), actual.getPoints());
+		Assert.assertEquals(expected.getWptPoints(), actual.getWptPoints());
+		Assert.assertEquals(expected.getTotalTracks(), actual.getTotalTracks());
+		Assert.assertEquals(expected.getTotalDistance(), actual.getTotalDistance(), 0);
+		Assert.assertEquals(expected.getTotalDistanceMoving(), actual.getTotalDistanceMoving(), 0);
+		Assert.assertEquals(expected.getTimeMoving(), actual.getTimeMoving());
+		Assert.assertEquals(expected.getTimeSpan(), actual.getTimeSpan());
+		Assert.assertEquals(expected.getAvgSpeed(), actual.getAvgSpeed(), 0);
+		Assert.assertEquals(expected.getMaxSpeed(), actual.getMaxSpeed(), 0);
+		Assert.assertEquals(expected.getAvgElevation(), actual.getAvgElevation(), 0);
+		Assert.assertEquals(expected.getMinElevation(), actual.getMinElevation(), 0);
+		Assert.assertEquals(expected.getMaxElevation(), actual.getMaxElevation(), 0);
+		Assert.assertTrue(expected.getDiffElevationUp() > 0);
+		Assert.assertEquals(expected.getDiffElevationUp(), actual.getDiffElevationUp(), 0);
+		Assert.assertEquals(expected.getDiffElevationDown(), actual.getDiffElevationDown(), 0);
+		Assert.assertEquals(expected.left, actual.left, 0);
+		Assert.assertEquals(expected.top, actual.top, 0);
+		Assert.assertEquals(expected.right, actual.right, 0);
+		Assert.assertEquals(expected.bottom, actual.bottom, 0);
+		Assert.assertEquals(expected.locationStart.lat, actual.locationStart.lat, 0);
+		Assert.assertEquals(expected.locationEnd.lon, actual.locationEnd.lon, 0);
+		Assert.assertTrue(actual.pointAttributes.isEmpty());
+	}
+
+	@Test
+	public void testColumnarSegments() throws Exception {
+		ColumnarTrkSegment.Collector collector = new ColumnarTrkSegment.Collector(null);
+		new GPXStreamReader(collector).read(file);
+		List<ColumnarTrkSegment> segments = collector.getSegments();
+		GPXFile gpx = GPXUtilities.loadGPXFile(file);
+		Assert.assertEquals(6, segments.size());
+		int k = 0;
+		for (Track track : gpx.tracks) {
+			if (track.generalTrack) {
+				continue;
+			}
+			for (TrkSegment segment : track.segments) {
+				ColumnarTrkSegment columns = segments.get(k++);
+				Assert.assertEquals(segment.points.size(), columns.size());
+				for (int i = 0; i < columns.size(); i++) {
+					WptPt p = segment.points.get(i);
+					Assert.assertEquals(p.lat, columns.getLatitude(i), 0);
+					Assert.assertEquals(p.lon, columns.getLongitude(i), 0);
+					Assert.assertEquals(p.ele, columns.getElevation(i), 0);
+					Assert.assertEquals(p.time, columns.getTime(i));
+				}
+			}
+		}
+		Assert.assertEquals(segments.size(), k);
+	}
+}
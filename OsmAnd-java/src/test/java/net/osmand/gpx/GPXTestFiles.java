@@ -0,0 +1,42 @@
+package net.osmand.gpx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+/**
+ * Generated tracks for tests of gpx readers
+ */
+class GPXTestFiles {
+
+	/**
+	 * Random walk around lat, 4.9 with 1-4 seconds between points
+	 */
+	static TrkSegment createSegment(Random rnd, double lat, int points, boolean elevation, boolean speed) {
+		TrkSegment segment = new TrkSegment();
+		double lon = 4.9, ele = 10;
+		long time = 1_600_000_000_000L;
+		for (int i = 0; i < points; i++) {
+			lat += (rnd.nextDouble() - 0.5) * 0.0005;
+			lon += (rnd.nextDouble() - 0.5) * 0.0005;
+			ele += (rnd.nextDouble() - 0.45) * 5;
+			time += 1000 + rnd.nextInt(3000);
+			segment.points.add(new WptPt(lat, lon, time, elevation ? ele : Double.NaN,
+					speed ? rnd.nextDouble() * 10 : 0, 5));
+		}
+		return segment;
+	}
+
+	static File writeTempFile(String prefix, GPXFile gpx) throws IOException {
+		File file = File.createTempFile(prefix, ".gpx");
+		Exception e = GPXUtilities.writeGpxFile(file, gpx);
+		if (e != null) {
+			file.delete();
+			throw new IOException(e);
+		}
+		return file;
+	}
+}
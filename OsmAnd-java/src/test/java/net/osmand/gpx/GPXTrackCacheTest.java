@@ -0,0 +1,140 @@
+package net.osmand.gpx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+public class GPXTrackCacheTest {
+
+	private File file;
+	private boolean enabled;
+
+	@Before
+	public void setUp() throws IOException {
+		enabled = GPXTrackCache.ENABLED;
+		GPXTrackCache.ENABLED = true;
+		Random rnd = new Random(11);
+		GPXFile gpx = new GPXFile("test");
+		gpx.metadata.name = "cache";
+		for (int t = 0; t < 2; t++) {
+			Track track = new Track();
+			track.name = "track " + t;
+			for (int s = 0; s < 2; s++) {
+				TrkSegment segment = GPXTestFiles.createSegment(rnd, 52.3 + t, 300, t == 1, true);
+				if (t == 1) {
+					for (WptPt point : segment.points) {
+						point.getExtensionsToWrite().put("hr", String.valueOf(60 + rnd.nextInt(100)));
+					}
+				}
+				track.segments.add(segment);
+			}
+			gpx.tracks.add(track);
+		}
+		file = GPXTestFiles.writeTempFile("cache", gpx);
+	}
+
+	@After
+	public void tearDown() {
+		GPXTrackCache.ENABLED = enabled;
+		GPXTrackCache.getCacheFile(file).delete();
+		file.delete();
+	}
+
+	@Test
+	public void testLoadFromCache() {
+		GPXFile parsed = GPXUtilities.loadGPXFile(file);
+		File cache = GPXTrackCache.getCacheFile(file);
+		Assert.assertTrue(cache.exists());
+		Assert.assertTrue(cache.length() < file.length() / 4);
+
+		GPXFile cached = GPXTrackCache.loadGPXFile(file, true);
+		Assert.assertNotNull(cached);
+		Assert.assertNotNull(cached.getCachedAnalysis());
+		Assert.assertEquals(parsed.metadata.name, cached.metadata.name);
+		Assert.assertEquals(parsed.metadata.time, cached.metadata.time);
+		Assert.assertEquals(parsed.tracks.size(), cached.tracks.size());
+		for (int t = 0; t < parsed.tracks.size(); t++) {
+			Track expectedTrack = parsed.tracks.get(t);
+			Track track = cached.tracks.get(t);
+			Assert.assertEquals(expectedTrack.name, track.name);
+			Assert.assertEquals(expectedTrack.generalTrack, track.generalTrack);
+			Assert.assertEquals(expectedTrack.segments.size(), track.segments.size());
+			for (int s = 0; s < expectedTrack.segments.size(); s++) {
+				List<WptPt> expected = expectedTrack.segments.get(s).points;
+				List<WptPt> points = track.segments.get(s).points;
+				Assert.assertEquals(expected.size(), points.size());
+				for (int i = 0; i < expected.size(); i++) {
+					WptPt e = expected.get(i);
+					WptPt p = points.get(i);
+					Assert.assertEquals(e.lat, p.lat, 0);
+					Assert.assertEquals(e.lon, p.lon, 0);
+					Assert.assertEquals(e.ele, p.ele, 0);
+					Assert.assertEquals(e.speed, p.speed, 0);
+					Assert.assertEquals(e.hdop, p.hdop, 0);
+					Assert.assertEquals(e.time, p.time);
+					Assert.assertEquals(e.getExtensionsToRead(), p.getExtensionsToRead());
+				}
+			}
+		}
+
+		GPXTrackAnalysis expected = parsed.getAnalysis(file.lastModified());
+		GPXTrackAnalysis analysis = GPXTrackCache.getAnalysis(file);
+		Assert.assertNotNull(analysis);
+		for (GpxParameter parameter : GpxParameter.values()) {
+			if (parameter.isAnalysisParameter()) {
+				Assert.assertEquals(parameter.name(), expected.getGpxParameter(parameter), analysis.getGpxParameter(parameter));
+			}
+		}
+		Assert.assertEquals(expected.left, analysis.left, 0);
+		Assert.assertEquals(expected.bottom, analysis.bottom, 0);
+		Assert.assertEquals(expected.locationEnd.lat, analysis.locationEnd.lat, 0);
+		Assert.assertEquals(expected.availableAttributes, analysis.availableAttributes);
+
+		List<ColumnarTrkSegment> segments = GPXTrackCache.loadSegments(file);
+		Assert.assertEquals(4, segments.size());
+		Assert.assertEquals(300, segments.get(3).size());
+	}
+
+	@Test
+	public void testIncompleteFileKeepsCache() throws IOException {
+		GPXFile gpx = GPXUtilities.loadGPXFile(file);
+		gpx.addPoint(new WptPt(52.3, 4.9, 1_600_000_000_000L, Double.NaN, 0, Double.NaN));
+		Exception e = GPXUtilities.writeGpxFile(file, gpx);
+		if (e != null) {
+			throw new IOException(e);
+		}
+		GPXUtilities.loadGPXFile(file);
+		File cache = GPXTrackCache.getCacheFile(file);
+		Assert.assertTrue(cache.exists());
+		Assert.assertNull(GPXTrackCache.loadGPXFile(file, true));
+		long written = cache.lastModified() - 10000;
+		Assert.assertTrue(cache.setLastModified(written));
+
+		GPXFile parsed = GPXUtilities.loadGPXFile(file);
+		Assert.assertEquals(1, parsed.getPointsSize());
+		Assert.assertNotNull(parsed.getCachedAnalysis());
+		Assert.assertEquals(1, parsed.getCachedAnalysis().getWptPoints());
+		Assert.assertEquals(written, cache.lastModified());
+		parsed.addPoint(new WptPt(52.4, 4.9, 1_600_000_000_000L, Double.NaN, 0, Double.NaN));
+		Assert.assertNull(parsed.getCachedAnalysis());
+	}
+
+	@Test
+	public void testModifiedFileInvalidatesCache() {
+		GPXUtilities.loadGPXFile(file);
+		Assert.assertNotNull(GPXTrackCache.getAnalysis(file));
+		Assert.assertTrue(file.setLastModified(file.lastModified() - 10000));
+		Assert.assertNull(GPXTrackCache.getAnalysis(file));
+		Assert.assertNull(GPXTrackCache.loadGPXFile(file, true));
+	}
+}
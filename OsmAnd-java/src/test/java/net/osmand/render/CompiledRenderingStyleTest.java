@@ -0,0 +1,120 @@
+package net.osmand.render;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+public class CompiledRenderingStyleTest {
+
+	private static final String BASE = "<renderingStyle name=\"base\" depends=\"\" version=\"1\">\n"
+			+ "<renderingProperty attr=\"roadStyle\" name=\"Road style\" type=\"string\" possibleValues=\"default,bold\"/>\n"
+			+ "<renderingAttribute name=\"roadColor\">\n"
+			+ "  <case nightMode=\"true\" attrColorValue=\"#000000\"/>\n"
+			+ "  <case attrColorValue=\"#ffffff\"/>\n"
+			+ "</renderingAttribute>\n"
+			+ "<line>\n"
+			+ "  <switch>\n"
+			+ "    <case tag=\"highway\" value=\"primary\" color=\"$roadColor\" strokeWidth=\"3\">\n"
+			+ "      <apply roadStyle=\"bold\" strokeWidth=\"5\"/>\n"
+			+ "    </case>\n"
+			+ "    <case tag=\"highway\" value=\"secondary\" minzoom=\"14\" strokeWidth=\"2\"/>\n"
+			+ "  </switch>\n"
+			+ "</line>\n"
+			+ "</renderingStyle>";
+
+	private static final String STYLE = "<renderingStyle name=\"test\" depends=\"base\" version=\"1\">\n"
+			+ "<renderingProperty attr=\"hideRoads\" name=\"Hide roads\" type=\"boolean\"/>\n"
+			+ "<line>\n"
+			+ "  <case tag=\"highway\" value=\"secondary\" hideRoads=\"true\" disable=\"true\"/>\n"
+			+ "  <case tag=\"highway\" value=\"tertiary\" additional=\"surface=gravel\" color=\"#777777\"/>\n"
+			+ "</line>\n"
+			+ "</renderingStyle>";
+
+	private static RenderingRulesStorage parse() throws XmlPullParserException, IOException {
+		RenderingRulesStorage storage = new RenderingRulesStorage("test", new LinkedHashMap<String, String>());
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(STYLE.getBytes("UTF-8")),
+				new RenderingRulesStorage.RenderingRulesStorageResolver() {
+
+					@Override
+					public RenderingRulesStorage resolve(String name, RenderingRulesStorage.RenderingRulesStorageResolver ref)
+							throws XmlPullParserException, IOException {
+						RenderingRulesStorage depends = new RenderingRulesStorage(name, null);
+						depends.parseRulesFromXmlInputStream(new ByteArrayInputStream(BASE.getBytes("UTF-8")), ref, false);
+						return depends;
+					}
+				}, false);
+		return storage;
+	}
+
+	private static String print(RenderingRulesStorage storage) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bos);
+		for (int state = 1; state < RenderingRulesStorage.LENGTH_RULES; state++) {
+			if (storage.tagValueGlobalRules[state] != null) {
+				storage.printDebug(state, out);
+			}
+		}
+		out.flush();
+		return bos.toString();
+	}
+
+	private static String search(RenderingRulesStorage storage, String value, String additional, boolean night,
+			String customAttr, String customValue) {
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		req.setBooleanFilter(storage.PROPS.R_NIGHT_MODE, night);
+		req.setStringFilter(storage.PROPS.R_ADDITIONAL, additional);
+		RenderingRuleProperty custom = storage.PROPS.getCustomRule(customAttr);
+		if (custom.isBoolean()) {
+			req.setBooleanFilter(custom, Boolean.parseBoolean(customValue));
+		} else {
+			req.setStringFilter(custom, customValue);
+		}
+		req.saveState();
+		req.setInitialTagValueZoom("highway", value, 15, null);
+		return req.search(RenderingRulesStorage.LINE_RULES) + " " + req.toString();
+	}
+
+	@Test
+	public void testWriteRead() throws Exception {
+		RenderingRulesStorage storage = parse();
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CompiledRenderingStyle.write(storage, bos);
+		RenderingRulesStorage loaded = CompiledRenderingStyle.read(new ByteArrayInputStream(bos.toByteArray()));
+
+		Assert.assertEquals("test", loaded.getName());
+		Assert.assertEquals("base", loaded.getDependsName());
+		Assert.assertEquals(print(storage), print(loaded));
+		Assert.assertEquals(storage.PROPS.getPoperties().length, loaded.PROPS.getPoperties().length);
+		Assert.assertEquals(2, loaded.PROPS.getCustomRules().size());
+		RenderingRuleProperty roadStyle = loaded.PROPS.getCustomRule("roadStyle");
+		Assert.assertEquals("Road style", roadStyle.getName());
+		Assert.assertArrayEquals(new String[] { "default", "bold" }, roadStyle.getPossibleValues());
+
+		String[] values = { "primary", "secondary", "tertiary", "residential" };
+		String[][] custom = { { "hideRoads", "true" }, { "hideRoads", "false" }, { "roadStyle", "bold" } };
+		for (String value : values) {
+			for (String[] c : custom) {
+				for (String additional : new String[] { "", "surface=gravel" }) {
+					Assert.assertEquals(search(storage, value, additional, true, c[0], c[1]),
+							search(loaded, value, additional, true, c[0], c[1]));
+					Assert.assertEquals(search(storage, value, additional, false, c[0], c[1]),
+							search(loaded, value, additional, false, c[0], c[1]));
+				}
+			}
+		}
+		Assert.assertTrue(search(loaded, "primary", "", false, "roadStyle", "bold").contains("strokeWidth 5.0"));
+		Assert.assertTrue(search(loaded, "secondary", "", false, "hideRoads", "true").startsWith("false"));
+		Assert.assertTrue(search(loaded, "tertiary", "surface=gravel", false, "hideRoads", "true").startsWith("true"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testWrongFormat() throws Exception {
+		CompiledRenderingStyle.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+	}
+}
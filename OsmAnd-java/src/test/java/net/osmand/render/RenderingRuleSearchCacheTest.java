@@ -0,0 +1,132 @@
+package net.osmand.render;
+
+import java.io.ByteArrayInputStream;
+import java.util.LinkedHashMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenderingRuleSearchCacheTest {
+
+	private static final String STYLE = "<renderingStyle name=\"test\" depends=\"\" version=\"1\">\n"
+			+ "<renderingProperty attr=\"hideRoads\" name=\"Hide roads\" type=\"boolean\"/>\n"
+			+ "<renderingAttribute name=\"roadColor\">\n"
+			+ "  <case nightMode=\"true\" attrColorValue=\"#000000\"/>\n"
+			+ "  <case attrColorValue=\"#ffffff\"/>\n"
+			+ "</renderingAttribute>\n"
+			+ "<line>\n"
+			+ "  <switch>\n"
+			+ "    <case tag=\"highway\" value=\"primary\" color=\"$roadColor\" strokeWidth=\"3\"/>\n"
+			+ "    <case tag=\"highway\" value=\"secondary\" minzoom=\"14\" strokeWidth=\"2\">\n"
+			+ "      <apply hideRoads=\"true\" disable=\"true\"/>\n"
+			+ "    </case>\n"
+			+ "  </switch>\n"
+			+ "</line>\n"
+			+ "</renderingStyle>";
+
+	private RenderingRulesStorage storage;
+
+	@Before
+	public void setUp() throws Exception {
+		RenderingRuleSearchCache.ENABLED = true;
+		storage = new RenderingRulesStorage("test", new LinkedHashMap<String, String>());
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(STYLE.getBytes("UTF-8")), null, false);
+	}
+
+	private boolean search(RenderingRuleSearchRequest req, String tag, String value, int zoom) {
+		req.setInitialTagValueZoom(tag, value, zoom, null);
+		return req.search(RenderingRulesStorage.LINE_RULES);
+	}
+
+	@Test
+	public void testCachedResults() {
+		RenderingRuleSearchCache cache = storage.getSearchCache();
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		Assert.assertTrue(search(req, "highway", "primary", 15));
+		Assert.assertEquals(0xffffffff, req.getIntPropertyValue(storage.PROPS.R_COLOR));
+		Assert.assertEquals(3, req.getFloatPropertyValue(storage.PROPS.R_STROKE_WIDTH), 0);
+		Assert.assertEquals(0, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+
+		RenderingRuleSearchRequest other = new RenderingRuleSearchRequest(storage);
+		Assert.assertTrue(search(other, "highway", "primary", 12));
+		// zoom is not referenced by rules of primary
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(0xffffffff, other.getIntPropertyValue(storage.PROPS.R_COLOR));
+		Assert.assertEquals(3, other.getFloatPropertyValue(storage.PROPS.R_STROKE_WIDTH), 0);
+		Assert.assertEquals(storage.getDictionaryValue("highway"), other.getIntPropertyValue(storage.PROPS.R_TAG));
+
+		Assert.assertTrue(search(req, "highway", "secondary", 15));
+		Assert.assertFalse(req.isSpecified(storage.PROPS.R_COLOR));
+		Assert.assertFalse(search(req, "highway", "secondary", 13));
+		Assert.assertEquals(3, cache.getMisses());
+	}
+
+	private RenderingRuleSearchRequest createRequest(RenderingRuleProperty p, boolean value) {
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		req.setBooleanFilter(p, value);
+		req.saveState();
+		return req;
+	}
+
+	@Test
+	public void testCustomProperties() {
+		RenderingRuleSearchCache cache = storage.getSearchCache();
+		RenderingRuleSearchRequest req = createRequest(storage.PROPS.R_NIGHT_MODE, true);
+		Assert.assertTrue(search(req, "highway", "primary", 15));
+		Assert.assertEquals(0xff000000, req.getIntPropertyValue(storage.PROPS.R_COLOR));
+
+		RenderingRuleProperty hideRoads = storage.PROPS.getCustomRule("hideRoads");
+		Assert.assertTrue(search(createRequest(hideRoads, false), "highway", "secondary", 15));
+		Assert.assertFalse(search(createRequest(hideRoads, true), "highway", "secondary", 15));
+		Assert.assertTrue(search(createRequest(hideRoads, false), "highway", "secondary", 15));
+		Assert.assertFalse(search(createRequest(hideRoads, true), "highway", "secondary", 15));
+		Assert.assertEquals(2, cache.getHits());
+		Assert.assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void testInvalidation() throws Exception {
+		RenderingRuleSearchCache cache = storage.getSearchCache();
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		Assert.assertFalse(search(req, "highway", "tertiary", 15));
+		Assert.assertEquals(1, cache.getSize());
+
+		LinkedHashMap<String, String> attrs = new LinkedHashMap<String, String>();
+		attrs.put("strokeWidth", "1");
+		RenderingRule rule = new RenderingRule(attrs, false, storage);
+		attrs.put("tag", "highway");
+		attrs.put("value", "tertiary");
+		rule.storeAttributes(attrs);
+		storage.registerTopLevel(rule, null, new LinkedHashMap<String, String>(), RenderingRulesStorage.LINE_RULES,
+				false);
+		Assert.assertTrue(search(req, "highway", "tertiary", 15));
+		Assert.assertEquals(1, req.getFloatPropertyValue(storage.PROPS.R_STROKE_WIDTH), 0);
+		Assert.assertEquals(1, cache.getInvalidations());
+	}
+
+	@Test
+	public void testSameAsUncached() {
+		String[] values = { "primary", "secondary", "tertiary" };
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		for (int night = 0; night < 2; night++) {
+			req.clearState();
+			req.setBooleanFilter(storage.PROPS.R_NIGHT_MODE, night == 1);
+			req.saveState();
+			for (int i = 0; i < 2; i++) {
+				for (String v : values) {
+					for (int zoom = 12; zoom < 16; zoom++) {
+						RenderingRuleSearchCache.ENABLED = false;
+						boolean expected = search(req, "highway", v, zoom);
+						String expectedState = req.toString();
+						RenderingRuleSearchCache.ENABLED = true;
+						Assert.assertEquals(expected, search(req, "highway", v, zoom));
+						Assert.assertEquals(expectedState, req.toString());
+					}
+				}
+			}
+		}
+		Assert.assertTrue(storage.getSearchCache().getHits() > 0);
+	}
+}
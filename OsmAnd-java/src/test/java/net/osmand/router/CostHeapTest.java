@@ -0,0 +1,83 @@
+package net.osmand.router;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CostHeapTest {
+
+	private static class Entry {
+		final int id;
+		final float cost;
+
+		Entry(int id, float cost) {
+			this.id = id;
+			this.cost = cost;
+		}
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random rnd = new Random(7);
+		PriorityQueue<Entry> pq = new PriorityQueue<>(50, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry o1, Entry o2) {
+				return Double.compare(o1.cost, o2.cost);
+			}
+		});
+		CostHeap<Entry> heap = new CostHeap<>();
+		int id = 0;
+		for (int it = 0; it < 20000; it++) {
+			if (rnd.nextInt(3) > 0 || pq.isEmpty()) {
+				// few distinct costs to check order of equal costs
+				Entry e = new Entry(id++, rnd.nextInt(100) / 4f);
+				pq.add(e);
+				heap.add(e, e.cost);
+			} else {
+				Assert.assertEquals(pq.peek().cost, heap.peekCost(), 0);
+				Assert.assertSame(pq.poll(), heap.poll());
+			}
+			Assert.assertEquals(pq.size(), heap.size());
+		}
+		while (!pq.isEmpty()) {
+			Assert.assertSame(pq.poll(), heap.poll());
+		}
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertNull(heap.poll());
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		Random rnd = new Random(11);
+		int n = 1000;
+		double[] costs = new double[n];
+		CostHeap<Integer> heap = new CostHeap<>(true);
+		for (int i = 0; i < n; i++) {
+			costs[i] = 1000 + rnd.nextDouble() * 1000;
+			heap.add(i, costs[i], i);
+		}
+		for (int k = 0; k < 3000; k++) {
+			int i = rnd.nextInt(n);
+			costs[i] = costs[i] - rnd.nextDouble() * 100;
+			heap.add(i, costs[i], i);
+		}
+		Assert.assertEquals(n, heap.size());
+		double prev = Double.NEGATIVE_INFINITY;
+		while (!heap.isEmpty()) {
+			double cost = heap.peekCost();
+			int handle = heap.peekHandle();
+			Integer value = heap.poll();
+			Assert.assertEquals(handle, value.intValue());
+			Assert.assertEquals(costs[handle], cost, 0);
+			Assert.assertFalse(heap.contains(handle));
+			Assert.assertTrue(cost >= prev);
+			prev = cost;
+		}
+		heap.add(5, 1, 5);
+		heap.clear();
+		Assert.assertFalse(heap.contains(5));
+	}
+}
@@ -0,0 +1,79 @@
+package net.osmand.router;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.router.GeneralRouter.RouteAttributeContext;
+import net.osmand.router.GeneralRouter.RouteDataObjectAttribute;
+
+public class GeneralRouterCompiledRulesTest {
+
+	private static final String PROFILE = "<osmand_routing_config defaultProfile=\"car\">"
+			+ "<routingProfile name=\"car\" baseProfile=\"car\">"
+			+ "<parameter id=\"avoid_toll\" name=\"\" description=\"\" type=\"boolean\"/>"
+			+ "<way attribute=\"access\">"
+			+ "  <select value=\"-1\" t=\"access\" v=\"no\"/>"
+			+ "  <select value=\"-1\" param=\"avoid_toll\" t=\"toll\" v=\"yes\"/>"
+			+ "  <select value=\"1\" t=\"highway\"/>"
+			+ "</way>"
+			+ "<way attribute=\"speed\" type=\"speed\">"
+			+ "  <select value=\"$maxspeed\" t=\"highway\"><gt value1=\"$maxspeed\" value2=\"30\"/></select>"
+			+ "  <if t=\"highway\" v=\"primary\">"
+			+ "    <select value=\"40\" t=\"surface\" v=\"gravel\"/>"
+			+ "    <select value=\"70\" t=\"lanes\" v=\"2\"/>"
+			+ "    <select value=\"65\"/>"
+			+ "  </if>"
+			+ "  <select value=\"110\" t=\"highway\" v=\"motorway\"/>"
+			+ "  <select value=\"20\" t=\"highway\" v=\"service\"><ifnot t=\"access\" v=\"yes\"/></select>"
+			+ "  <select value=\"30\" t=\"highway\"/>"
+			+ "  <select value=\"5\"/>"
+			+ "</way>"
+			+ "</routingProfile>"
+			+ "</osmand_routing_config>";
+
+	private static final String[][] TAGS = { { "highway", "primary" }, { "highway", "motorway" },
+			{ "highway", "service" }, { "surface", "gravel" }, { "lanes", "2" }, { "access", "no" },
+			{ "access", "yes" }, { "toll", "yes" }, { "maxspeed", "20" }, { "maxspeed", "50" }, { "name", "x" } };
+
+	@Test
+	public void testSameResultsAsInterpreted() throws Exception {
+		InputStream is = new ByteArrayInputStream(PROFILE.getBytes(StandardCharsets.UTF_8));
+		GeneralRouter root = RoutingConfiguration.parseFromInputStream(is).getRouter("car");
+		int[] ids = new int[TAGS.length];
+		for (int i = 0; i < TAGS.length; i++) {
+			ids[i] = root.registerTagValueAttribute(TAGS[i][0], TAGS[i][1]);
+		}
+		Map<String, String> params = new LinkedHashMap<>();
+		params.put(GeneralRouter.AVOID_TOLL, "true");
+		GeneralRouter compiled = root.build(params);
+		boolean compile = GeneralRouter.COMPILE_RULES;
+		GeneralRouter.COMPILE_RULES = false;
+		GeneralRouter interpreted = root.build(params);
+		GeneralRouter.COMPILE_RULES = compile;
+
+		Random rnd = new Random(1);
+		for (int i = 0; i < 2000; i++) {
+			BitSet types = new BitSet();
+			int cnt = rnd.nextInt(5);
+			for (int k = 0; k < cnt; k++) {
+				types.set(ids[rnd.nextInt(ids.length)]);
+			}
+			for (RouteDataObjectAttribute attr : new RouteDataObjectAttribute[] { RouteDataObjectAttribute.ACCESS,
+					RouteDataObjectAttribute.ROAD_SPEED }) {
+				RouteAttributeContext c = compiled.getObjContext(attr);
+				RouteAttributeContext in = interpreted.getObjContext(attr);
+				Assert.assertTrue(c.isCompiled());
+				Assert.assertFalse(in.isCompiled());
+				Assert.assertEquals(types + " " + attr, in.evaluateFloat(types, -100), c.evaluateFloat(types, -100), 0);
+			}
+		}
+	}
+}
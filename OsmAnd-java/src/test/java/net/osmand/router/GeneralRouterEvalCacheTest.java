@@ -0,0 +1,68 @@
+package net.osmand.router;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.router.GeneralRouter.GeneralRouterProfile;
+import net.osmand.router.GeneralRouter.RouteDataObjectAttribute;
+
+public class GeneralRouterEvalCacheTest {
+
+	@Test
+	public void testKeys() {
+		GeneralRouterEvalCache cache = new GeneralRouterEvalCache(64);
+		RouteRegion r1 = new RouteRegion();
+		RouteRegion r2 = new RouteRegion();
+		int[] types = { 1, 5, 7 };
+		cache.put(RouteDataObjectAttribute.ROAD_SPEED, r1, types, true, 10f);
+		Assert.assertEquals(10f, cache.get(RouteDataObjectAttribute.ROAD_SPEED, r1, new int[] { 1, 5, 7 }, true), 0);
+		Assert.assertTrue(Float.isNaN(cache.get(RouteDataObjectAttribute.ROAD_SPEED, r1, types, false)));
+		Assert.assertTrue(Float.isNaN(cache.get(RouteDataObjectAttribute.ROAD_SPEED, r2, types, true)));
+		Assert.assertTrue(Float.isNaN(cache.get(RouteDataObjectAttribute.ROAD_PRIORITIES, r1, types, true)));
+		// cache keeps own copy of types
+		types[0] = 2;
+		Assert.assertEquals(10f, cache.get(RouteDataObjectAttribute.ROAD_SPEED, r1, new int[] { 1, 5, 7 }, true), 0);
+		cache.clear();
+		Assert.assertTrue(Float.isNaN(cache.get(RouteDataObjectAttribute.ROAD_SPEED, r1, new int[] { 1, 5, 7 }, true)));
+	}
+
+	@Test
+	public void testBounded() {
+		GeneralRouterEvalCache cache = new GeneralRouterEvalCache(100);
+		Assert.assertEquals(128, cache.capacity());
+		RouteRegion r = new RouteRegion();
+		int found = 0;
+		for (int i = 0; i < 1000; i++) {
+			cache.put(RouteDataObjectAttribute.ONEWAY, r, new int[] { i }, false, i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			float v = cache.get(RouteDataObjectAttribute.ONEWAY, r, new int[] { i }, false);
+			if (!Float.isNaN(v)) {
+				Assert.assertEquals(i, v, 0);
+				found++;
+			}
+		}
+		Assert.assertTrue(found > 0 && found <= cache.capacity());
+	}
+
+	@Test
+	public void testSharedBetweenCopies() {
+		GeneralRouter root = new GeneralRouter(GeneralRouterProfile.CAR, new LinkedHashMap<String, String>());
+		Map<String, String> params = new LinkedHashMap<>();
+		params.put(GeneralRouter.AVOID_TOLL, "true");
+		params.put(GeneralRouter.USE_SHORTEST_WAY, "false");
+		Map<String, String> sameParams = new LinkedHashMap<>();
+		sameParams.put(GeneralRouter.USE_SHORTEST_WAY, "false");
+		sameParams.put(GeneralRouter.AVOID_TOLL, "true");
+		GeneralRouter c1 = root.build(params);
+		GeneralRouter c2 = root.build(sameParams);
+		GeneralRouter c3 = c1.build(new LinkedHashMap<String, String>());
+		Assert.assertSame(c1.evalCache, c2.evalCache);
+		Assert.assertNotSame(c1.evalCache, c3.evalCache);
+		Assert.assertNotSame(root.evalCache, c3.evalCache);
+	}
+}
@@ -0,0 +1,81 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHRouteMatrix;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+
+public class HHRouteMatrixTest {
+
+	private boolean calculateMissingMaps;
+	private int statsVerboseLevel;
+	private HHTestNetwork network;
+
+	@Before
+	public void setUp() {
+		calculateMissingMaps = RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS;
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = false;
+		statsVerboseLevel = HHRoutingConfig.STATS_VERBOSE_LEVEL;
+		HHRoutingConfig.STATS_VERBOSE_LEVEL = 0;
+		network = new HHTestNetwork(1);
+	}
+
+	@After
+	public void tearDown() {
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = calculateMissingMaps;
+		HHRoutingConfig.STATS_VERBOSE_LEVEL = statsVerboseLevel;
+	}
+
+	// bidirectional dijkstra (direction 0) doesn't select short routes without network points
+	private static HHRoutingConfig config(int direction) {
+		HHRoutingConfig config = HHRoutingConfig.dijkstra(direction);
+		config.ROUTE_LAST_MILE = true;
+		return config;
+	}
+
+	@Test
+	public void testMatrixMatchesRoutes() throws Exception {
+		LatLon far = new LatLon(10, 10);
+		List<LatLon> sources = Arrays.asList(network.avenue(1, 4), network.avenue(4, 3), network.avenue(8, 5), far);
+		List<LatLon> targets = Arrays.asList(network.avenue(0, 1), network.avenue(2, 7), network.avenue(5, 7),
+				network.avenue(9, 2), far);
+		HHRouteMatrix matrix = network.planner().calculateMatrix(sources, targets, config(0));
+		Assert.assertNotNull(matrix);
+
+		int reachable = 0;
+		for (int i = 0; i < sources.size(); i++) {
+			for (int j = 0; j < targets.size(); j++) {
+				HHNetworkRouteRes route = network.planner().runRouting(sources.get(i), targets.get(j), config(1));
+				float time = matrix.times[i][j];
+				String pair = i + " -> " + j + ": " + route.getError();
+				if (route.getError() != null) {
+					Assert.assertTrue(pair, Float.isInfinite(time));
+					Assert.assertTrue(pair, Float.isInfinite(matrix.distances[i][j]));
+				} else {
+					reachable++;
+					Assert.assertEquals(pair, route.getHHRoutingTime(), time, 0.01);
+					Assert.assertTrue(pair, matrix.distances[i][j] > 0 && !Float.isInfinite(matrix.distances[i][j]));
+				}
+			}
+		}
+		// cluster 3 is not reachable from cluster 1 (through cluster 2), far points are not reachable at all
+		for (int j = 0; j < targets.size(); j++) {
+			Assert.assertTrue(Float.isInfinite(matrix.times[3][j]));
+		}
+		for (int i = 0; i < sources.size(); i++) {
+			Assert.assertTrue(Float.isInfinite(matrix.times[i][4]));
+		}
+		Assert.assertTrue(Float.isInfinite(matrix.times[0][3]));
+		Assert.assertFalse(Float.isInfinite(matrix.times[1][3]));
+		Assert.assertFalse(Float.isInfinite(matrix.times[2][0]));
+		Assert.assertEquals(11, reachable);
+	}
+}
@@ -0,0 +1,104 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHNetworkSegmentRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class HHRouteSharedNetworkTest {
+
+	private static final int THREADS = 4;
+
+	private boolean calculateMissingMaps;
+	private int statsVerboseLevel;
+
+	@Before
+	public void setUp() {
+		calculateMissingMaps = RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS;
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = false;
+		statsVerboseLevel = HHRoutingConfig.STATS_VERBOSE_LEVEL;
+		HHRoutingConfig.STATS_VERBOSE_LEVEL = 0;
+	}
+
+	@After
+	public void tearDown() {
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = calculateMissingMaps;
+		HHRoutingConfig.STATS_VERBOSE_LEVEL = statsVerboseLevel;
+	}
+
+	private static HHRoutingConfig config() {
+		HHRoutingConfig config = HHRoutingConfig.dijkstra(1);
+		config.ROUTE_LAST_MILE = true;
+		config.ROUTE_ALL_SEGMENTS = true;
+		return config;
+	}
+
+	@Test
+	public void testConcurrentCostCorrections() throws Exception {
+		final HHTestNetwork network = new HHTestNetwork(1);
+		final LatLon start = network.avenue(8, 5), end = network.avenue(0, 1);
+		final HHRoutingContext<NetworkDBPoint> shared = network.planner().loadNetwork(start, end, config());
+		RoutingContext ctx = network.buildContext();
+		RouteCalcResult expected = new RoutePlannerFrontEnd().searchRoute(ctx, start, end, null);
+		Assert.assertTrue(expected.isCorrect());
+		HHNetworkRouteRes first = HHRoutePlanner.createShared(network.buildContext(), shared, NetworkDBPoint.class)
+				.runRouting(start, end, config());
+		Assert.assertNull(first.getError());
+		// costs of found route are underestimated, so concurrent routes correct them
+		List<NetworkDBSegment> underestimated = new ArrayList<>();
+		for (HHNetworkSegmentRes s : first.segments) {
+			if (s.segment != null) {
+				s.segment.dist /= 2;
+				underestimated.add(s.segment);
+			}
+		}
+		Assert.assertFalse(underestimated.isEmpty());
+		double underestimatedCost = underestimated.get(0).dist;
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<HHNetworkRouteRes>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(new Callable<HHNetworkRouteRes>() {
+					@Override
+					public HHNetworkRouteRes call() throws Exception {
+						return HHRoutePlanner.createShared(network.buildContext(), shared, NetworkDBPoint.class)
+								.runRouting(start, end, config());
+					}
+				}));
+			}
+			for (Future<HHNetworkRouteRes> f : futures) {
+				HHNetworkRouteRes route = f.get(60, TimeUnit.SECONDS);
+				Assert.assertNull(route.getError());
+				Assert.assertEquals(ctx.routingTime, route.getHHRoutingDetailed(), 1);
+				for (HHNetworkSegmentRes s : route.segments) {
+					if (s.segment != null) {
+						Assert.assertTrue(s.segment.toString(), s.rtTimeDetailed + HHRoutePlanner.MAX_INC_COST_CORR
+								<= (s.segment.dist + HHRoutePlanner.MAX_INC_COST_CORR) * config().MAX_INC_COST_CF);
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		// corrected cost is visible in shared network
+		Assert.assertTrue(underestimated.get(0).dist > underestimatedCost);
+	}
+}
@@ -0,0 +1,137 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+
+public class HHRoutingDBTest {
+
+	private static final int PROFILE = 1;
+
+	private int batchSize;
+	private HHTestConnection conn;
+	private HHRoutingDB db;
+	private HHRoutingContext<NetworkDBPoint> ctx;
+	private HHRouteRegionPointsCtx<NetworkDBPoint> reg;
+
+	@Before
+	public void setUp() throws SQLException {
+		batchSize = HHRoutingDB.LOAD_BATCH_SIZE;
+		conn = new HHTestConnection();
+		db = new HHRoutingDB(new File("test.hhdb"), conn.getConnection());
+		ctx = new HHRoutingContext<NetworkDBPoint>();
+		ctx.pointsById = new TLongObjectHashMap<NetworkDBPoint>();
+		ctx.clusterOutPoints = new TIntObjectHashMap<List<NetworkDBPoint>>();
+		reg = new HHRouteRegionPointsCtx<NetworkDBPoint>((short) 0, db);
+		reg.routingProfile = PROFILE;
+		// cluster 1: points 1-4 (point 4 of other map), cluster 2: points 5-6
+		addPoint(1, 1, 0);
+		addPoint(2, 1, 0);
+		addPoint(3, 1, 0);
+		addPoint(4, 1, 1);
+		addPoint(5, 2, 0);
+		addPoint(6, 2, 0);
+		conn.addSegment(1, 2, 10, false, PROFILE);
+		conn.addSegment(1, 5, 20, true, PROFILE);
+		conn.addSegment(2, 3, 30, false, PROFILE);
+		conn.addSegment(5, 6, 40, false, PROFILE);
+		// other profile
+		conn.addSegment(3, 1, 50, false, PROFILE + 1);
+	}
+
+	@After
+	public void tearDown() {
+		HHRoutingDB.LOAD_BATCH_SIZE = batchSize;
+	}
+
+	private void addPoint(int index, int clusterId, int mapId) {
+		NetworkDBPoint p = new NetworkDBPoint();
+		p.index = index;
+		p.clusterId = clusterId;
+		p.mapId = (short) mapId;
+		p.markSegmentsNotLoaded();
+		ctx.pointsById.put(index, p);
+		if (!ctx.clusterOutPoints.containsKey(clusterId)) {
+			ctx.clusterOutPoints.put(clusterId, new ArrayList<NetworkDBPoint>());
+		}
+		ctx.clusterOutPoints.get(clusterId).add(p);
+	}
+
+	private NetworkDBPoint point(int index) {
+		return ctx.pointsById.get(index);
+	}
+
+	@Test
+	public void testClusterLoadedByOneQuery() throws SQLException {
+		int loaded = db.loadNetworkSegmentPoint(ctx, reg, point(1), false);
+		Assert.assertEquals(3, loaded);
+		Assert.assertEquals(1, conn.queries.size());
+		Assert.assertTrue(conn.queries.get(0), conn.queries.get(0).endsWith("and idPoint IN (1,2,3)"));
+
+		assertConnected(point(1), false, 2, 5);
+		assertConnected(point(2), false, 3);
+		// point without segments of profile is marked as loaded
+		assertConnected(point(3), false);
+		Assert.assertTrue(point(1).connected(false).get(1).shortcut);
+		// point of other map and other cluster are not loaded
+		Assert.assertNull(point(4).connected(false));
+		Assert.assertNull(point(5).connected(false));
+		// reverse segments are loaded separately
+		Assert.assertNull(point(1).connected(true));
+
+		// points of batch are not queried again
+		Assert.assertEquals(0, db.loadNetworkSegmentPoint(ctx, reg, point(3), false));
+		Assert.assertEquals(1, conn.queries.size());
+	}
+
+	@Test
+	public void testReverseSegments() throws SQLException {
+		// segments 5 -> 6 and 1 -> 5 (from other cluster)
+		int loaded = db.loadNetworkSegmentPoint(ctx, reg, point(6), true);
+		Assert.assertEquals(2, loaded);
+		Assert.assertEquals(1, conn.queries.size());
+		Assert.assertTrue(conn.queries.get(0), conn.queries.get(0).endsWith("and idConnPoint IN (6,5)"));
+		NetworkDBSegment s = point(6).connected(true).get(0);
+		Assert.assertSame(point(5), s.start);
+		Assert.assertSame(point(6), s.end);
+		Assert.assertFalse(s.direction);
+		Assert.assertEquals(40, s.dist, 0);
+		assertConnected(point(5), true, 1);
+	}
+
+	@Test
+	public void testBatchSize() throws SQLException {
+		HHRoutingDB.LOAD_BATCH_SIZE = 2;
+		db.loadNetworkSegmentPoint(ctx, reg, point(2), false);
+		Assert.assertTrue(conn.queries.get(0), conn.queries.get(0).endsWith("and idPoint IN (2,1)"));
+		Assert.assertNull(point(3).connected(false));
+		db.loadNetworkSegmentPoint(ctx, reg, point(3), false);
+		Assert.assertEquals(2, conn.queries.size());
+		Assert.assertTrue(conn.queries.get(1), conn.queries.get(1).endsWith("and idPoint IN (3)"));
+	}
+
+	private static void assertConnected(NetworkDBPoint p, boolean reverse, int... ids) {
+		List<Integer> res = new ArrayList<Integer>();
+		for (NetworkDBSegment s : p.connected(reverse)) {
+			res.add((reverse ? s.start : s.end).index);
+		}
+		List<Integer> exp = new ArrayList<Integer>();
+		for (int id : ids) {
+			exp.add(id);
+		}
+		Assert.assertEquals(exp, res);
+	}
+}
@@ -0,0 +1,154 @@
+package net.osmand.router;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * In memory connection to not compact HH network db (points and segments tables without geometry), it answers
+ * queries of HHRoutingDB used to load network and keeps log of segments queries.
+ */
+public class HHTestConnection implements InvocationHandler {
+
+	private static final Pattern SEGMENTS_IN = Pattern.compile(
+			"SELECT idPoint, idConnPoint, dist, shortcut from segments where profile = (\\d+) and (idPoint|idConnPoint) IN \\(([\\d,]+)\\)");
+
+	// dualIdPoint, idPoint, clusterId, chInd, roadId, start, end, sx31, sy31, ex31, ey31, tagValues
+	private final List<Object[]> points = new ArrayList<Object[]>();
+	// idPoint, idConnPoint, dist, shortcut, profile
+	private final List<Object[]> segments = new ArrayList<Object[]>();
+	public final List<String> queries = new ArrayList<String>();
+
+	public Connection getConnection() {
+		return proxy(Connection.class, this);
+	}
+
+	public void addPoint(int idPoint, int dualIdPoint, int clusterId, long roadId, int start, int end, int sx31,
+			int sy31, int ex31, int ey31) {
+		points.add(new Object[] { dualIdPoint, idPoint, clusterId, 0, roadId, start, end, sx31, sy31, ex31, ey31,
+				null });
+	}
+
+	public void addSegment(int idPoint, int idConnPoint, double dist, boolean shortcut, int profile) {
+		segments.add(new Object[] { idPoint, idConnPoint, dist, shortcut ? 1 : 0, profile });
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		if (name.equals("createStatement")) {
+			return proxy(Statement.class, new StatementHandler());
+		} else if (name.equals("prepareStatement")) {
+			return proxy(PreparedStatement.class, new StatementHandler());
+		}
+		return defaultValue(method.getReturnType());
+	}
+
+	private class StatementHandler implements InvocationHandler {
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("execute")) {
+				String sql = (String) args[0];
+				if (sql.startsWith("SELECT ins FROM segments")) {
+					// column of compact db
+					throw new SQLException("no such column: ins");
+				}
+				return false;
+			} else if (name.equals("executeQuery")) {
+				// prepared statements are used only to load geometry which is not stored
+				return args == null ? result(new ArrayList<Object[]>()) : query((String) args[0]);
+			}
+			return defaultValue(method.getReturnType());
+		}
+	}
+
+	private ResultSet query(String sql) throws SQLException {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		Matcher m = SEGMENTS_IN.matcher(sql);
+		if (m.matches()) {
+			queries.add(sql);
+			int profile = Integer.parseInt(m.group(1));
+			int col = m.group(2).equals("idPoint") ? 0 : 1;
+			TIntHashSet ids = new TIntHashSet();
+			for (String id : m.group(3).split(",")) {
+				ids.add(Integer.parseInt(id));
+			}
+			for (Object[] s : segments) {
+				if (((Integer) s[4]) == profile && ids.contains((Integer) s[col])) {
+					rows.add(s);
+				}
+			}
+		} else if (sql.startsWith("SELECT dualIdPoint, idPoint")) {
+			rows.addAll(points);
+		} else if (!sql.startsWith("SELECT profile, id, params from profiles")) {
+			throw new SQLException("Not supported " + sql);
+		}
+		return result(rows);
+	}
+
+	private static ResultSet result(List<Object[]> rows) {
+		return proxy(ResultSet.class, new ResultSetHandler(rows));
+	}
+
+	private static class ResultSetHandler implements InvocationHandler {
+		private final List<Object[]> rows;
+		private int row = -1;
+
+		ResultSetHandler(List<Object[]> rows) {
+			this.rows = rows;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("next")) {
+				return ++row < rows.size();
+			}
+			if (name.startsWith("get") && args != null && args[0] instanceof Integer) {
+				Object v = rows.get(row)[(Integer) args[0] - 1];
+				if (name.equals("getString")) {
+					return (String) v;
+				} else if (name.equals("getInt")) {
+					return ((Number) v).intValue();
+				} else if (name.equals("getShort")) {
+					return ((Number) v).shortValue();
+				} else if (name.equals("getLong")) {
+					return ((Number) v).longValue();
+				} else if (name.equals("getDouble")) {
+					return ((Number) v).doubleValue();
+				}
+				throw new SQLException("Not supported " + name);
+			}
+			return defaultValue(method.getReturnType());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> cl, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(HHTestConnection.class.getClassLoader(), new Class<?>[] { cl }, handler);
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+}
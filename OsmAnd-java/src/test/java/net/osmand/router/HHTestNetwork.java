@@ -0,0 +1,102 @@
+package net.osmand.router;
+
+import java.io.File;
+
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.util.MapUtils;
+
+/**
+ * HH network over grid of {@link RoutingTestNetwork}: horizontal roads between columns 2-3 and 6-7 are boundaries of
+ * clusters 1 (columns 0-2), 2 (3-6) and 3 (7-9). Cluster 2 is not connected to points leaving to cluster 3,
+ * so cluster 3 is not reachable from other clusters by network.
+ */
+public class HHTestNetwork {
+
+	static final int SIZE = 10;
+	private static final int[] BOUNDARIES = { 2, 6 };
+	private static final double SPEED = 30 / 3.6;
+
+	final RoutingTestNetwork network;
+	final HHTestConnection conn = new HHTestConnection();
+
+	/**
+	 * @param costFactor network segments cost is multiplied by factor (less than 1 underestimates detailed routes)
+	 */
+	public HHTestNetwork(double costFactor) {
+		network = new RoutingTestNetwork(SIZE, 0);
+		for (int j = 0; j < SIZE; j++) {
+			for (int b = 0; b < BOUNDARIES.length; b++) {
+				int c = BOUNDARIES[b];
+				RouteDataObject road = network.roads.get(2 * (j * (SIZE - 1) + c));
+				int east = eastPoint(j, b);
+				conn.addPoint(east, east + 1, cluster(c + 1), road.getId(), 0, 1, network.x(c), network.y(j),
+						network.x(c + 1), network.y(j));
+				conn.addPoint(east + 1, east, cluster(c), road.getId(), 1, 0, network.x(c + 1), network.y(j),
+						network.x(c), network.y(j));
+			}
+		}
+		// point entering cluster is connected to all points leaving it
+		for (int j = 0; j < SIZE; j++) {
+			for (int b = 0; b < BOUNDARIES.length; b++) {
+				for (int k = 0; k < SIZE; k++) {
+					for (int b2 = 0; b2 < BOUNDARIES.length; b2++) {
+						connect(eastPoint(j, b), j, b, k, b2, costFactor);
+						connect(eastPoint(j, b) + 1, j, b, k, b2, costFactor);
+					}
+				}
+			}
+		}
+	}
+
+	private static int eastPoint(int row, int boundary) {
+		return 1 + 2 * (row * BOUNDARIES.length + boundary);
+	}
+
+	private static int cluster(int column) {
+		return column <= BOUNDARIES[0] ? 1 : (column <= BOUNDARIES[1] ? 2 : 3);
+	}
+
+	private void connect(int from, int j, int b, int k, int b2, double costFactor) {
+		boolean fromEast = from % 2 == 1;
+		int cl = cluster(fromEast ? BOUNDARIES[b] + 1 : BOUNDARIES[b]);
+		for (int to = eastPoint(k, b2); to <= eastPoint(k, b2) + 1; to++) {
+			boolean toEast = to % 2 == 1;
+			// point leaves cluster from its start
+			int toCluster = cluster(toEast ? BOUNDARIES[b2] : BOUNDARIES[b2] + 1);
+			if (to == from || toCluster != cl || (j == k && b == b2)) {
+				continue;
+			}
+			if (cl == 2 && toEast && b2 == 1) {
+				continue;
+			}
+			int x1 = mid(BOUNDARIES[b]), x2 = mid(BOUNDARIES[b2]);
+			double dist = MapUtils.measuredDist31(x1, network.y(j), x2, network.y(j))
+					+ MapUtils.measuredDist31(x2, network.y(j), x2, network.y(k));
+			conn.addSegment(from, to, costFactor * dist / SPEED, false, 0);
+		}
+	}
+
+	private int mid(int column) {
+		return network.x(column) + RoutingTestNetwork.STEP / 2;
+	}
+
+	/**
+	 * Point in the middle of vertical road between rows j and j + 1
+	 */
+	public LatLon avenue(int i, int j) {
+		return new LatLon(MapUtils.get31LatitudeY(network.y(j) + RoutingTestNetwork.STEP / 2),
+				MapUtils.get31LongitudeX(network.x(i)));
+	}
+
+	public RoutingContext buildContext() throws Exception {
+		RoutingContext ctx = network.buildContext(new RoutePlannerFrontEnd(), RoutingTestNetwork.parseProfile());
+		ctx.calculationProgress = new RouteCalculationProgress();
+		return ctx;
+	}
+
+	public HHRoutePlanner<NetworkDBPoint> planner() throws Exception {
+		return HHRoutePlanner.createDB(buildContext(), new HHRoutingDB(new File("test.hhdb"), conn.getConnection()));
+	}
+}
@@ -0,0 +1,42 @@
+package net.osmand.router;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+public class IncludeTLongObjectMapTest {
+
+	@Test
+	public void testIncludedKeys() {
+		TLongObjectHashMap<String> map = new TLongObjectHashMap<String>();
+		map.put(5, "5");
+		map.put(-7, "-7");
+		// keys are not sorted
+		long[] keys = { 42, -3, 1000000000000L, 7, 5 };
+		IncludeTLongObjectMap<String> include = new IncludeTLongObjectMap<String>(map, keys);
+		for (long k : keys) {
+			Assert.assertTrue(String.valueOf(k), include.containsKey(k));
+			// included keys have no value
+			Assert.assertNull(String.valueOf(k), include.get(k));
+		}
+		Assert.assertTrue(include.containsKey(-7));
+		Assert.assertEquals("-7", include.get(-7));
+		Assert.assertFalse(include.containsKey(6));
+		Assert.assertNull(include.get(6));
+		Assert.assertFalse(include.containsKey(1000000000001L));
+		// keys of caller are not modified
+		Assert.assertArrayEquals(new long[] { 42, -3, 1000000000000L, 7, 5 }, keys);
+		Assert.assertFalse(map.containsKey(42));
+	}
+
+	@Test
+	public void testNoIncludedKeys() {
+		TLongObjectHashMap<String> map = new TLongObjectHashMap<String>();
+		map.put(1, "1");
+		IncludeTLongObjectMap<String> include = new IncludeTLongObjectMap<String>(map);
+		Assert.assertTrue(include.containsKey(1));
+		Assert.assertEquals("1", include.get(1));
+		Assert.assertFalse(include.containsKey(0));
+	}
+}
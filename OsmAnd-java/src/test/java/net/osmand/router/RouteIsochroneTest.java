@@ -0,0 +1,157 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.util.MapUtils;
+
+public class RouteIsochroneTest {
+
+	@Test
+	public void testBands() {
+		int x = MapUtils.get31TileNumberX(4.9), y = MapUtils.get31TileNumberY(52.3);
+		int step = 1 << 12;
+		// cross of 2 roads through start, 10 seconds per segment
+		RouteDataObject horizontal = new RouteDataObject(new RouteRegion());
+		RouteDataObject vertical = new RouteDataObject(new RouteRegion());
+		horizontal.pointsX = new int[21];
+		horizontal.pointsY = new int[21];
+		vertical.pointsX = new int[21];
+		vertical.pointsY = new int[21];
+		for (int i = 0; i < 21; i++) {
+			horizontal.pointsX[i] = x + (i - 10) * step;
+			horizontal.pointsY[i] = y;
+			vertical.pointsX[i] = x;
+			vertical.pointsY[i] = y + (i - 10) * step;
+		}
+		List<RouteSegment> segments = new ArrayList<>();
+		for (RouteDataObject road : new RouteDataObject[] { horizontal, vertical }) {
+			RouteSegment pos = null, neg = null;
+			for (int i = 0; i < 10; i++) {
+				RouteSegment p = new RouteSegment(road, 10 + i, 11 + i);
+				p.setParentRoute(pos);
+				p.setDistanceFromStart(10 * (i + 1));
+				RouteSegment n = new RouteSegment(road, 10 - i, 9 - i);
+				n.setParentRoute(neg);
+				n.setDistanceFromStart(10 * (i + 1));
+				segments.add(p);
+				segments.add(n);
+				pos = p;
+				neg = n;
+			}
+		}
+		RouteIsochrone iso = new RouteIsochrone(x, y, new float[] { 30, 65 }, segments);
+		Assert.assertEquals(24, iso.getPointsCount());
+
+		List<LatLon> small = iso.getPolygon(0);
+		List<LatLon> large = iso.getPolygon(1);
+		Assert.assertTrue(small.size() > 4);
+		Assert.assertEquals(small.get(0), small.get(small.size() - 1));
+		Assert.assertEquals(large.get(0), large.get(large.size() - 1));
+		double smallWidth = width(small), largeWidth = width(large);
+		double segment = MapUtils.measuredDist31(x, y, x + step, y);
+		Assert.assertEquals(6 * segment, smallWidth, 3 * RouteIsochrone.HULL_CELL_SIZE);
+		Assert.assertEquals(13 * segment, largeWidth, 3 * RouteIsochrone.HULL_CELL_SIZE);
+	}
+
+	private static double width(List<LatLon> polygon) {
+		double left = 180, right = -180;
+		for (LatLon l : polygon) {
+			left = Math.min(left, l.getLongitude());
+			right = Math.max(right, l.getLongitude());
+		}
+		return MapUtils.getDistance(52.3, left, 52.3, right);
+	}
+
+	@Test
+	public void testInvalidThresholds() throws Exception {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		LatLon start = new LatLon(52.3, 4.9);
+		float[][] invalid = { {}, { 600, 0 }, { -60 }, { Float.NaN }, { Float.POSITIVE_INFINITY } };
+		for (float[] thresholds : invalid) {
+			try {
+				// thresholds are checked before context is used
+				fe.calculateIsochrone(null, start, thresholds);
+				Assert.fail("Accepted " + Arrays.toString(thresholds));
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testReachableSegments() throws Exception {
+		RoutingTestNetwork network = new RoutingTestNetwork(6, 0);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = network.buildContext(fe, RoutingTestNetwork.parseProfile());
+		// residential roads 30 km/h
+		double segmentTime = MapUtils.measuredDist31(network.x(0), network.y(0), network.x(1), network.y(0)) / (30 / 3.6);
+		LatLon start = network.node(0, 0);
+		BinaryRoutePlanner planner = new BinaryRoutePlanner();
+
+		float heuristic = ctx.config.heuristicCoefficient;
+		ctx.dijkstraMode = -1;
+		TLongObjectHashMap<RouteSegment> all = planner.searchReachableSegments(ctx,
+				fe.findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null), 10000);
+		// mode of context is restored for next calculations
+		Assert.assertEquals(-1, ctx.dijkstraMode);
+		Assert.assertEquals(heuristic, ctx.config.heuristicCoefficient, 0);
+		Assert.assertEquals(network.roads.size(), roads(all).size());
+		for (RouteSegment s : all.valueCollection()) {
+			if (s.getParentRoute() == null) {
+				// start segments
+				continue;
+			}
+			// segments leading away from start are reached along manhattan paths, time is counted till the end
+			int from = manhattan(network, s, s.getSegmentStart()), to = manhattan(network, s, s.getSegmentEnd());
+			if (to > from) {
+				Assert.assertEquals(s.toString(), to * segmentTime, s.getDistanceFromStart(), segmentTime / 10);
+			} else {
+				Assert.assertTrue(s.toString(), s.getDistanceFromStart() > (from + 1) * segmentTime - segmentTime / 10);
+			}
+		}
+
+		float maxCost = (float) (2.5 * segmentTime);
+		ctx = network.buildContext(fe, RoutingTestNetwork.parseProfile());
+		TLongObjectHashMap<RouteSegment> near = planner.searchReachableSegments(ctx,
+				fe.findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null), maxCost);
+		Assert.assertEquals(0, ctx.dijkstraMode);
+		TLongHashSet nearRoads = roads(near);
+		Assert.assertTrue(nearRoads.size() < network.roads.size());
+		for (RouteSegment s : all.valueCollection()) {
+			if (s.getDistanceFromStart() <= maxCost) {
+				Assert.assertTrue(s.toString(), nearRoads.contains(s.getRoad().getId()));
+			}
+		}
+		boolean crossing = false;
+		for (RouteSegment s : near.valueCollection()) {
+			// segments crossing max cost are included
+			Assert.assertTrue(s.toString(), s.getDistanceFromStart() < maxCost + segmentTime);
+			crossing |= s.getDistanceFromStart() > maxCost;
+		}
+		Assert.assertTrue(crossing);
+	}
+
+	private static int manhattan(RoutingTestNetwork network, RouteSegment s, int point) {
+		return (s.getRoad().getPoint31XTile(point) - network.x(0) + s.getRoad().getPoint31YTile(point) - network.y(0))
+				/ RoutingTestNetwork.STEP;
+	}
+
+	private static TLongHashSet roads(TLongObjectHashMap<RouteSegment> segments) {
+		TLongHashSet res = new TLongHashSet();
+		for (RouteSegment s : segments.valueCollection()) {
+			res.add(s.getRoad().getId());
+		}
+		return res;
+	}
+}
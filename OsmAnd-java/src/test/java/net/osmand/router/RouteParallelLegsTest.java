@@ -0,0 +1,71 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class RouteParallelLegsTest {
+
+	private boolean calculateMissingMaps;
+
+	@Before
+	public void setUp() {
+		calculateMissingMaps = RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS;
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = false;
+	}
+
+	@After
+	public void tearDown() {
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = calculateMissingMaps;
+	}
+
+	@Test
+	public void testSameResultAsSequential() throws Exception {
+		RoutingTestNetwork network = new RoutingTestNetwork(12, 4);
+		LatLon start = network.node(0, 1);
+		LatLon end = network.node(11, 10);
+		List<LatLon> intermediates = Arrays.asList(network.node(5, 2), network.node(9, 6), network.node(2, 9),
+				network.node(7, 11));
+		for (int k = 0; k < 5; k++) {
+			// rules of fresh profile are registered by all legs at once
+			RoutingConfiguration.Builder builder = RoutingTestNetwork.parseProfile();
+			RoutePlannerFrontEnd sequential = new RoutePlannerFrontEnd();
+			RoutingContext sctx = network.buildContext(sequential, builder);
+			sctx.calculationProgress = new RouteCalculationProgress();
+			RouteCalcResult expected = sequential.searchRoute(sctx, start, end, intermediates);
+
+			RoutePlannerFrontEnd parallel = new RoutePlannerFrontEnd().setParallelLegs(4);
+			RoutingContext pctx = network.buildContext(parallel, RoutingTestNetwork.parseProfile());
+			pctx.calculationProgress = new RouteCalculationProgress();
+			RouteCalcResult actual = parallel.searchRoute(pctx, start, end, intermediates);
+
+			Assert.assertNull(expected.getError());
+			Assert.assertNull(actual.getError());
+			Assert.assertFalse(expected.detailed.isEmpty());
+			Assert.assertEquals(describe(expected), describe(actual));
+			Assert.assertEquals(sctx.routingTime, pctx.routingTime, 0.01);
+			Assert.assertEquals(sctx.calculationProgress.visitedSegments, pctx.calculationProgress.visitedSegments);
+
+			// progress is optional
+			RoutingContext nctx = network.buildContext(parallel, RoutingTestNetwork.parseProfile());
+			nctx.calculationProgress = null;
+			Assert.assertEquals(describe(expected), describe(parallel.searchRoute(nctx, start, end, intermediates)));
+		}
+	}
+
+	private static List<String> describe(RouteCalcResult res) {
+		List<String> l = new ArrayList<String>();
+		for (RouteSegmentResult r : res.detailed) {
+			l.add((r.getObject().getId() >> 6) + ":" + r.getStartPointIndex() + "-" + r.getEndPointIndex());
+		}
+		return l;
+	}
+}
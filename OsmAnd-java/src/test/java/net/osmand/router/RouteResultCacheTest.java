@@ -0,0 +1,55 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class RouteResultCacheTest {
+
+	private static RouteCalcResult route(long id) {
+		RouteDataObject ro = new RouteDataObject(new RouteRegion());
+		ro.id = id;
+		List<RouteSegmentResult> list = new ArrayList<>();
+		list.add(new RouteSegmentResult(ro, 0, 1));
+		return new RouteCalcResult(list);
+	}
+
+	@Test
+	public void testLruEviction() {
+		Collection<BinaryMapIndexReader> maps = Collections.emptyList();
+		RouteResultCache cache = new RouteResultCache(2);
+		RouteResultCache.Key k1 = new RouteResultCache.Key("car", new long[] { 1, 0, 10, 10, 2, 0, 20, 20 });
+		RouteResultCache.Key k2 = new RouteResultCache.Key("car", new long[] { 1, 0, 10, 10, 3, 0, 30, 30 });
+		RouteResultCache.Key k3 = new RouteResultCache.Key("bicycle", new long[] { 1, 0, 10, 10, 2, 0, 20, 20 });
+
+		Assert.assertNull(cache.get(k1, maps));
+		cache.put(k1, maps, route(1), 100);
+		cache.put(k2, maps, route(2), 200);
+		cache.put(k3, maps, new RouteCalcResult("error"), 0);
+		Assert.assertEquals(2, cache.size());
+
+		RouteResultCache.CachedRoute cached = cache.get(
+				new RouteResultCache.Key("car", new long[] { 1, 0, 10, 10, 2, 0, 20, 20 }), maps);
+		Assert.assertNotNull(cached);
+		Assert.assertEquals(1, cached.createResult().getList().get(0).getObject().getId());
+		Assert.assertEquals(100, cached.getRoutingTime(), 0);
+		// k2 is least recently used
+		cache.put(k3, maps, route(3), 300);
+		Assert.assertNull(cache.get(k2, maps));
+		Assert.assertNotNull(cache.get(k1, maps));
+		Assert.assertNotNull(cache.get(k3, maps));
+
+		Assert.assertEquals(3, cache.getHits());
+		Assert.assertEquals(2, cache.getMisses());
+		Assert.assertEquals(1, cache.getEvictions());
+	}
+}
@@ -0,0 +1,95 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadPointDouble;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.util.MapUtils;
+
+public class RouteSegmentIndexTest {
+
+	@Test
+	public void testNearestRoads() {
+		Random rnd = new Random(7);
+		RouteRegion region = new RouteRegion();
+		int base = MapUtils.get31TileNumberX(4.9);
+		int size = 1 << 16;
+		List<RouteDataObject> roads = new ArrayList<>();
+		for (int r = 0; r < 300; r++) {
+			RouteDataObject ro = new RouteDataObject(region);
+			ro.id = r + 1;
+			int len = 2 + rnd.nextInt(8);
+			ro.pointsX = new int[len];
+			ro.pointsY = new int[len];
+			int x = base + rnd.nextInt(size), y = base + rnd.nextInt(size);
+			for (int i = 0; i < len; i++) {
+				ro.pointsX[i] = x;
+				ro.pointsY[i] = y;
+				x += rnd.nextInt(2000) - 1000;
+				y += rnd.nextInt(2000) - 1000;
+			}
+			roads.add(ro);
+		}
+		RouteSegmentIndex index = new RouteSegmentIndex(roads);
+		RouteSegmentIndex.Candidates candidates = new RouteSegmentIndex.Candidates();
+		int k = 5;
+		for (int q = 0; q < 200; q++) {
+			int px = base - size / 4 + rnd.nextInt(size + size / 2), py = base - size / 4 + rnd.nextInt(size + size / 2);
+			double[] expected = new double[roads.size()];
+			for (int r = 0; r < roads.size(); r++) {
+				RouteDataObject ro = roads.get(r);
+				expected[r] = Double.MAX_VALUE;
+				for (int j = 1; j < ro.getPointsLength(); j++) {
+					QuadPointDouble pr = MapUtils.getProjectionPoint31(px, py, ro.pointsX[j - 1], ro.pointsY[j - 1],
+							ro.pointsX[j], ro.pointsY[j]);
+					expected[r] = Math.min(expected[r], MapUtils.squareDist31TileMetric((int) pr.x, (int) pr.y, px, py));
+				}
+			}
+			Arrays.sort(expected);
+			candidates.clear();
+			index.findNearest(px, py, k, candidates);
+			Assert.assertTrue(candidates.size() >= k);
+			double[] found = Arrays.copyOf(candidates.distances, candidates.size());
+			Arrays.sort(found);
+			for (int i = 0; i < k; i++) {
+				Assert.assertEquals(expected[i], found[i], 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testFindRouteSegments() throws Exception {
+		RoutingTestNetwork network = new RoutingTestNetwork(5, 0);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = network.buildContext(fe, RoutingTestNetwork.parseProfile());
+		// close to Avenue 1 between rows 2 and 3
+		LatLon p = new LatLon(MapUtils.get31LatitudeY(network.y(2) + RoutingTestNetwork.STEP / 2),
+				MapUtils.get31LongitudeX(network.x(1) + 100));
+		List<RouteSegmentPoint> res = fe.findRouteSegments(ctx, Arrays.asList(p, p), 1);
+		Assert.assertEquals(2, res.size());
+		RouteDataObject avenue = network.roads.get(2 * (1 * 4 + 2) + 1);
+		Assert.assertEquals(avenue.getId(), res.get(0).getRoad().getId());
+		Assert.assertTrue(res.get(0).others == null || res.get(0).others.isEmpty());
+
+		RouteSegmentPoint s = fe.findRouteSegments(ctx, Arrays.asList(p), 3).get(0);
+		Assert.assertEquals(avenue.getId(), s.getRoad().getId());
+		Assert.assertEquals(2, s.others.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindRouteSegmentsWithoutCandidates() throws Exception {
+		RoutingTestNetwork network = new RoutingTestNetwork(3, 0);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = network.buildContext(fe, RoutingTestNetwork.parseProfile());
+		fe.findRouteSegments(ctx, Arrays.asList(network.node(1, 1)), 0);
+	}
+}
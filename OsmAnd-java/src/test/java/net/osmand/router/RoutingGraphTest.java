@@ -0,0 +1,70 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+
+public class RoutingGraphTest {
+
+	private static RouteDataObject road(RouteRegion region, long id, int... xy) {
+		RouteDataObject ro = new RouteDataObject(region);
+		ro.id = id;
+		ro.types = new int[0];
+		ro.pointsX = new int[xy.length / 2];
+		ro.pointsY = new int[xy.length / 2];
+		for (int i = 0; i < xy.length / 2; i++) {
+			ro.pointsX[i] = xy[2 * i];
+			ro.pointsY[i] = xy[2 * i + 1];
+		}
+		return ro;
+	}
+
+	@Test
+	public void testNodesAndTiles() {
+		RouteRegion region = new RouteRegion();
+		int base = 1 << 30;
+		int tile = 1 << (31 - RoutingGraph.DEFAULT_TILE_ZOOM);
+		List<RouteDataObject> roads = new ArrayList<>();
+		roads.add(road(region, 1, base, base, base + 100, base, base + 200, base + 50));
+		roads.add(road(region, 2, base + 100, base, base + 100, base + 100));
+		// long segment crossing several tiles without points inside them
+		roads.add(road(region, 3, base + 100, base + 100, base + 5 * tile, base + 100));
+		RoutingGraph graph = new RoutingGraph(Collections.<BinaryMapIndexReader>emptyList(), false,
+				RoutingGraph.DEFAULT_TILE_ZOOM, roads);
+
+		Assert.assertEquals(3, graph.getRoadsCount());
+		Assert.assertEquals(5, graph.getNodesCount());
+		Assert.assertEquals(-1, graph.findNode(base + 1, base));
+
+		int node = graph.findNode(base + 100, base);
+		Assert.assertEquals(base + 100, graph.getNodeX(node));
+		Assert.assertEquals(base, graph.getNodeY(node));
+		Assert.assertEquals(2, graph.getEdgesEnd(node) - graph.getEdgesStart(node));
+		Assert.assertEquals(1, graph.getEdgeRoad(graph.getEdgesStart(node)).getId());
+		Assert.assertEquals(1, graph.getEdgePoint(graph.getEdgesStart(node)));
+		Assert.assertEquals(2, graph.getEdgeRoad(graph.getEdgesStart(node) + 1).getId());
+		Assert.assertEquals(0, graph.getEdgePoint(graph.getEdgesStart(node) + 1));
+
+		node = graph.findNode(base + 100, base + 100);
+		Assert.assertEquals(2, graph.getEdgesEnd(node) - graph.getEdgesStart(node));
+
+		List<RouteDataObject> found = new ArrayList<>();
+		graph.collectRoads(base + 3 * tile, base, base + 3 * tile, base, found);
+		Assert.assertEquals(1, found.size());
+		Assert.assertEquals(3, found.get(0).getId());
+		found.clear();
+		graph.collectRoads(base, base, base + 3 * tile, base + tile - 1, found);
+		Assert.assertEquals(3, found.size());
+
+		Assert.assertTrue(graph.isSuitable(RouteCalculationMode.NORMAL, Collections.<BinaryMapIndexReader>emptyList()));
+		Assert.assertFalse(graph.isSuitable(RouteCalculationMode.BASE, Collections.<BinaryMapIndexReader>emptyList()));
+	}
+}
@@ -0,0 +1,117 @@
+package net.osmand.router;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.util.MapUtils;
+
+/**
+ * Grid of roads without map files (roads are routed over preloaded graph) for tests of routing
+ */
+public class RoutingTestNetwork {
+
+	static final String PROFILE = "<osmand_routing_config defaultProfile=\"car\">"
+			+ "<routingProfile name=\"car\" baseProfile=\"car\" restrictionsAware=\"true\""
+			+ " minDefaultSpeed=\"10\" maxDefaultSpeed=\"130\">"
+			+ "<way attribute=\"access\">"
+			+ "  <select value=\"1\" t=\"highway\"/>"
+			+ "</way>"
+			+ "<way attribute=\"oneway\" type=\"int\">"
+			+ "  <select value=\"0\"/>"
+			+ "</way>"
+			+ "<way attribute=\"speed\" type=\"speed\">"
+			+ "  <select value=\"80\" t=\"highway\" v=\"primary\"/>"
+			+ "  <select value=\"30\" t=\"highway\"/>"
+			+ "</way>"
+			+ "<way attribute=\"priority\">"
+			+ "  <select value=\"1\"/>"
+			+ "</way>"
+			+ "</routingProfile>"
+			+ "</osmand_routing_config>";
+
+	static final double LAT = 52.3;
+	static final double LON = 4.9;
+	// distance between grid nodes in 31 tiles (~120 m)
+	public static final int STEP = 1 << 13;
+
+	public final int size;
+	final int x0;
+	final int y0;
+	final RouteRegion region = new RouteRegion();
+	public final List<RouteDataObject> roads = new ArrayList<RouteDataObject>();
+	public final RoutingGraph graph;
+
+	/**
+	 * Grid of size x size nodes, every horizontal and vertical line is a road (each {@code primaryEvery}
+	 * line is primary road, others are residential), roads are split at nodes and named by line
+	 * ("Street j" for horizontal line j, "Avenue i" for vertical line i)
+	 */
+	public RoutingTestNetwork(int size, int primaryEvery) {
+		this.size = size;
+		this.x0 = MapUtils.get31TileNumberX(LON);
+		this.y0 = MapUtils.get31TileNumberY(LAT);
+		region.initRouteEncodingRule(0, "highway", "residential");
+		region.initRouteEncodingRule(1, "highway", "primary");
+		region.initRouteEncodingRule(2, "name", "");
+		long id = 1;
+		for (int line = 0; line < size; line++) {
+			int type = primaryEvery > 0 && line % primaryEvery == 0 ? 1 : 0;
+			for (int i = 0; i < size - 1; i++) {
+				roads.add(road(id++, type, "Street " + line, x(i), y(line), x(i + 1), y(line)));
+				roads.add(road(id++, type, "Avenue " + line, x(line), y(i), x(line), y(i + 1)));
+			}
+		}
+		graph = new RoutingGraph(Collections.<BinaryMapIndexReader>emptyList(), false,
+				RoutingGraph.DEFAULT_TILE_ZOOM, roads);
+	}
+
+	private RouteDataObject road(long id, int type, String name, int... xy) {
+		RouteDataObject ro = new RouteDataObject(region);
+		ro.names = new TIntObjectHashMap<String>();
+		ro.names.put(region.getNameTypeRule(), name);
+		ro.nameIds = new int[] { region.getNameTypeRule() };
+		// ids of roads are shifted as in map files
+		ro.id = id << 6;
+		ro.types = new int[] { type };
+		ro.pointsX = new int[xy.length / 2];
+		ro.pointsY = new int[xy.length / 2];
+		for (int i = 0; i < xy.length / 2; i++) {
+			ro.pointsX[i] = xy[2 * i];
+			ro.pointsY[i] = xy[2 * i + 1];
+		}
+		return ro;
+	}
+
+	public int x(int i) {
+		return x0 + i * STEP;
+	}
+
+	public int y(int j) {
+		return y0 + j * STEP;
+	}
+
+	public LatLon node(int i, int j) {
+		return new LatLon(MapUtils.get31LatitudeY(y(j)), MapUtils.get31LongitudeX(x(i)));
+	}
+
+	public static RoutingConfiguration.Builder parseProfile() throws Exception {
+		return RoutingConfiguration.parseFromInputStream(
+				new ByteArrayInputStream(PROFILE.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	public RoutingContext buildContext(RoutePlannerFrontEnd fe, RoutingConfiguration.Builder builder) {
+		RoutingConfiguration config = builder.build("car", new RoutingMemoryLimits(100, 100));
+		fe.setPreloadedGraphs(graph);
+		return fe.buildRoutingContext(config, null, new BinaryMapIndexReader[0], RouteCalculationMode.NORMAL);
+	}
+}
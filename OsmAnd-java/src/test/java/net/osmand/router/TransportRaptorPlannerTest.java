@@ -0,0 +1,93 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.router.GeneralRouter.GeneralRouterProfile;
+import net.osmand.router.TransportRaptorPlanner.TransportNetwork;
+
+public class TransportRaptorPlannerTest {
+
+	private static long ids = 1;
+
+	private static TransportRoute route(long id, double... latLons) {
+		List<TransportStop> stops = new ArrayList<>();
+		for (int i = 0; i < latLons.length; i += 2) {
+			TransportStop s = new TransportStop();
+			s.setId(ids++);
+			s.setLocation(latLons[i], latLons[i + 1]);
+			stops.add(s);
+		}
+		TransportRoute r = new TransportRoute();
+		r.setId(id);
+		r.setType("bus");
+		r.setName("r" + id);
+		r.setForwardStops(stops);
+		return r;
+	}
+
+	private static TransportRoutingConfiguration config() {
+		return new TransportRoutingConfiguration(
+				new GeneralRouter(GeneralRouterProfile.PUBLIC_TRANSPORT, new HashMap<String, String>()),
+				new HashMap<String, String>());
+	}
+
+	@Test
+	public void testParetoAlternatives() throws Exception {
+		TransportRoute a = route(1, 50.0, 10.0, 50.0, 10.01, 50.0, 10.02, 50.0, 10.03);
+		TransportRoute b = route(2, 50.0009, 10.03, 50.01, 10.03, 50.02, 10.03, 50.03, 10.03);
+		// direct but long detour
+		TransportRoute c = route(3, 50.0, 10.0, 49.95, 10.0, 49.95, 10.06, 50.03, 10.06, 50.03, 10.031);
+		TransportRoutingConfiguration cfg = config();
+		TransportNetwork net = TransportNetwork.build(Arrays.asList(a, b, c), cfg);
+		Assert.assertEquals(3, net.getRoutesCount());
+		Assert.assertEquals(13, net.getStopsCount());
+
+		TransportRoutingContext ctx = new TransportRoutingContext(cfg, null);
+		List<TransportRouteResult> res = new TransportRaptorPlanner().searchRoute(ctx, net,
+				new LatLon(50.0, 9.999), new LatLon(50.0301, 10.03));
+		Assert.assertEquals(2, res.size());
+		TransportRouteResult fast = res.get(0);
+		Assert.assertEquals(2, fast.getSegments().size());
+		Assert.assertEquals(1, fast.getSegments().get(0).route.getId().longValue());
+		Assert.assertEquals(0, fast.getSegments().get(0).start);
+		Assert.assertEquals(3, fast.getSegments().get(0).end);
+		Assert.assertEquals(2, fast.getSegments().get(1).route.getId().longValue());
+		Assert.assertEquals(100, fast.getSegments().get(1).walkDist, 5);
+		TransportRouteResult direct = res.get(1);
+		Assert.assertEquals(1, direct.getSegments().size());
+		Assert.assertEquals(3, direct.getSegments().get(0).route.getId().longValue());
+		Assert.assertTrue(direct.getRouteTime() > fast.getRouteTime());
+	}
+
+	@Test
+	public void testSchedule() throws Exception {
+		TransportRoute a = route(1, 50.0, 10.0, 50.0, 10.01, 50.0, 10.02, 50.0, 10.03);
+		// departures at 11:55 and 12:05, 2 minutes between stops
+		a.setSchedule(new TransportSchedule(new TIntArrayList(new int[] { 4290, 60 }),
+				new TIntArrayList(new int[] { 12, 12, 12 }), new TIntArrayList()));
+		TransportRoutingConfiguration cfg = config();
+		cfg.useSchedule = true;
+		TransportNetwork net = TransportNetwork.build(Arrays.asList(a), cfg);
+
+		TransportRoutingContext ctx = new TransportRoutingContext(cfg, null);
+		List<TransportRouteResult> res = new TransportRaptorPlanner().searchRoute(ctx, net,
+				new LatLon(50.0, 10.0), new LatLon(50.0, 10.03));
+		Assert.assertEquals(1, res.size());
+		TransportRouteResult r = res.get(0);
+		Assert.assertEquals(4350, r.getSegments().get(0).depTime);
+		Assert.assertEquals(360, r.getSegments().get(0).getTravelTime(), 0.1);
+		// 5 minutes waiting for departure
+		Assert.assertEquals(660, r.getRouteTime(), 0.1);
+	}
+}
@@ -0,0 +1,162 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.osm.MapPoiTypes;
+
+public class TransportStopsCacheTest {
+
+	private static final int STOPS_PER_TILE = 3;
+
+	private final List<File> files = new ArrayList<>();
+	private final List<BinaryMapIndexReader> readers = new ArrayList<>();
+	private TransportStopsCache cache;
+
+	@BeforeClass
+	public static void setUpPoiTypes() {
+		// readers are not initialized, so poi types are not read
+		MapPoiTypes.getDefaultNoInit();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		for (int i = 0; i < 2; i++) {
+			File f = File.createTempFile("transport" + i, ".obf");
+			files.add(f);
+			readers.add(new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f, false));
+		}
+		// 2 tiles fit into cache, routes of 3 tiles are decoded before reset
+		cache = new TransportStopsCache(2 * STOPS_PER_TILE, 2 * STOPS_PER_TILE);
+	}
+
+	@After
+	public void tearDown() {
+		for (BinaryMapIndexReader r : readers) {
+			try {
+				r.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+		for (File f : files) {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testHitsAndEvictions() throws IOException {
+		TestReader reader = new TestReader(readers);
+		Collection<TransportStop> first = cache.getTile(reader, 15, 1, 1);
+		Assert.assertEquals(STOPS_PER_TILE, first.size());
+		Assert.assertSame(first, cache.getTile(reader, 15, 1, 1));
+		Assert.assertEquals(1, reader.reads);
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+
+		cache.getTile(reader, 15, 2, 1);
+		// tile 1 is used recently, so tile 2 is evicted
+		Assert.assertSame(first, cache.getTile(reader, 15, 1, 1));
+		cache.getTile(reader, 15, 3, 1);
+		Assert.assertEquals(2, cache.getTilesCount());
+		Assert.assertEquals(2 * STOPS_PER_TILE, cache.getStopsCount());
+		Assert.assertEquals(1, cache.getEvictions());
+		Assert.assertSame(first, cache.getTile(reader, 15, 1, 1));
+		Assert.assertEquals(3, reader.reads);
+		cache.getTile(reader, 15, 2, 1);
+		Assert.assertEquals(4, reader.reads);
+		Assert.assertEquals(2, cache.getEvictions());
+		// same tile number of other zoom is other tile
+		cache.getTile(reader, 14, 1, 1);
+		Assert.assertEquals(5, reader.reads);
+	}
+
+	@Test
+	public void testRoutesReset() throws IOException {
+		TestReader reader = new TestReader(readers);
+		Collection<TransportStop> first = cache.getTile(reader, 15, 1, 1);
+		cache.getTile(reader, 15, 2, 1);
+		Assert.assertEquals(2 * STOPS_PER_TILE, cache.routesFilesCache.get(readers.get(0)).size());
+		Assert.assertEquals(2 * STOPS_PER_TILE, cache.combinedRoutesCache.size());
+		// routes exceed limit, decoded routes are dropped but tiles keep them
+		cache.getTile(reader, 15, 3, 1);
+		Assert.assertEquals(0, cache.routesFilesCache.get(readers.get(0)).size());
+		Assert.assertEquals(0, cache.combinedRoutesCache.size());
+		Assert.assertEquals(2, cache.getTilesCount());
+		for (TransportStop stop : first) {
+			Assert.assertEquals(1, stop.getRoutes().size());
+		}
+	}
+
+	@Test
+	public void testReadersChange() throws IOException {
+		TestReader reader = new TestReader(readers);
+		Collection<TransportStop> first = cache.getTile(reader, 15, 1, 1);
+		Assert.assertEquals(2, cache.routesFilesCache.size());
+		Assert.assertEquals(0, cache.getInvalidations());
+
+		TestReader other = new TestReader(readers.subList(0, 1));
+		Collection<TransportStop> stops = cache.getTile(other, 15, 1, 1);
+		Assert.assertNotSame(first, stops);
+		Assert.assertEquals(1, other.reads);
+		Assert.assertEquals(1, cache.getInvalidations());
+		Assert.assertEquals(1, cache.getTilesCount());
+		// decoding cache is recreated for new readers
+		Assert.assertEquals(Arrays.asList(readers.get(0)), new ArrayList<>(cache.routesFilesCache.keySet()));
+		Assert.assertEquals(STOPS_PER_TILE, cache.combinedRoutesCache.size());
+		Assert.assertSame(stops, cache.getTile(other, 15, 1, 1));
+
+		cache.clear();
+		Assert.assertEquals(0, cache.getTilesCount());
+		Assert.assertEquals(0, cache.getStopsCount());
+		Assert.assertNotSame(stops, cache.getTile(other, 15, 1, 1));
+		Assert.assertEquals(2, other.reads);
+		// readers are not changed after clear
+		Assert.assertEquals(1, cache.getInvalidations());
+	}
+
+	/**
+	 * Reads 3 stops per tile, each stop has own route decoded into cache of first reader
+	 */
+	private class TestReader extends TransportStopsRouteReader {
+		int reads;
+
+		TestReader(List<BinaryMapIndexReader> files) {
+			super(files, cache);
+		}
+
+		@Override
+		public Collection<TransportStop> readMergedTransportStops(SearchRequest<TransportStop> sr) {
+			List<TransportStop> res = new ArrayList<>();
+			for (int i = 0; i < STOPS_PER_TILE; i++) {
+				long id = ((long) sr.getLeft() << 2) + i;
+				TransportRoute route = new TransportRoute();
+				route.setId(id);
+				routesFilesCache.get(files.get(0)).put(id, route);
+				combinedRoutesCache.put(id, route);
+				TransportStop stop = new TransportStop();
+				stop.setId(id);
+				stop.addRouteId(id);
+				stop.addRoute(route);
+				res.add(stop);
+			}
+			reads++;
+			return res;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package net.osmand.search.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.Amenity;
+import net.osmand.osm.MapPoiTypes;
+
+public class ParallelPoiSearchTest {
+
+	private static final int READERS = 6;
+
+	private final List<File> files = new ArrayList<>();
+	private final List<BinaryMapIndexReader> readers = new ArrayList<>();
+
+	@BeforeClass
+	public static void setUpPoiTypes() {
+		// readers are not initialized, so poi types are not read
+		MapPoiTypes.getDefaultNoInit();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		for (int i = 0; i < READERS; i++) {
+			File f = File.createTempFile("poi" + i, ".obf");
+			files.add(f);
+			readers.add(new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f, false));
+		}
+	}
+
+	@After
+	public void tearDown() {
+		for (BinaryMapIndexReader r : readers) {
+			try {
+				r.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+		for (File f : files) {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testPoolPerParallelism() {
+		ForkJoinPool two = ParallelPoiSearch.getPool(2);
+		ForkJoinPool three = ParallelPoiSearch.getPool(3);
+		Assert.assertNotSame(two, three);
+		Assert.assertSame(two, ParallelPoiSearch.getPool(2));
+		Assert.assertFalse(two.isShutdown());
+		Assert.assertEquals(2, two.getParallelism());
+		Assert.assertEquals(3, three.getParallelism());
+	}
+
+	@Test
+	public void testConcurrentSearchesWithDifferentThreads() throws Exception {
+		// first search is blocked in workers while second search with other parallelism runs
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<Long>> first = caller.submit(new Callable<List<Long>>() {
+				@Override
+				public List<Long> call() throws Exception {
+					return search(2, started, release);
+				}
+			});
+			Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+			Assert.assertEquals(expected(), search(4, null, null));
+			release.countDown();
+			Assert.assertEquals(expected(), first.get(10, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			caller.shutdownNow();
+		}
+	}
+
+	private List<Long> expected() {
+		List<Long> res = new ArrayList<>();
+		for (int i = 0; i < READERS; i++) {
+			res.add((long) i * 10);
+			res.add((long) i * 10 + 1);
+		}
+		return res;
+	}
+
+	// every reader publishes 2 objects, results are collected in order of readers
+	private List<Long> search(int threads, final CountDownLatch started, final CountDownLatch release)
+			throws IOException {
+		final List<Long> res = new ArrayList<>();
+		ParallelPoiSearch.search(readers, threads, -1, new ParallelPoiSearch.ReaderPoiSearch() {
+
+			@Override
+			public void search(BinaryMapIndexReader reader, ResultMatcher<Amenity> collector) throws IOException {
+				int ind = readers.indexOf(reader);
+				if (started != null) {
+					started.countDown();
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+				for (int i = 0; i < 2; i++) {
+					Amenity a = new Amenity();
+					a.setId((long) ind * 10 + i);
+					collector.publish(a);
+				}
+			}
+
+			@Override
+			public boolean readerFinished(BinaryMapIndexReader reader, List<Amenity> objects) {
+				for (Amenity a : objects) {
+					res.add(a.getId());
+				}
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		return res;
+	}
+}
@@ -0,0 +1,65 @@
+package net.osmand.util;
+
+import java.util.Calendar;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.util.OpeningHoursParser.OpeningHours;
+
+public class CompiledOpeningHoursTest {
+
+	private static final String[] HOURS = { "Mo-Fr 08:30-14:40", "mo-fr 07:00-19:00; sa 12:00-18:00", "24/7",
+			"Mo-Sa 09:00-18:25; Th off", "Mo 20:00-02:00", "Su 10:00-10:00",
+			"Tu-Th 07:00-2:00; Fr 17:00-4:00; Sa 18:00-05:00; Su,Mo off", "Mo-Fr 08:30-17:00; 12:00-12:40 off;",
+			"11:00-14:00,17:00-22:00; We off; Fr,Sa 11:00-14:00,17:00-00:00", "Apr-Sep 8:00-22:00; Oct-Mar 10:00-18:00",
+			"Mo-Su 07:00-23:00; Dec 25 off", "Oct 24-Apr 05: Fr 08:00-16:00", "2019 Oct 1 - 2024 dec 31 ",
+			"Mo 09:00-12:00; We,Sa 13:30-17:00, Apr 01-Oct 31 We,Sa 17:00-18:30; PH off", "10:00+",
+			"Mo-Fr 9-19", "Mo-Su 07:00-23:00, Fr 08:00-20:00" };
+
+	@Test
+	public void testSameAsRules() {
+		Random rnd = new Random(3);
+		for (String s : HOURS) {
+			OpeningHours hours = OpeningHoursParser.parseOpenedHours(s);
+			CompiledOpeningHours compiled = CompiledOpeningHours.compile(s);
+			Assert.assertSame(compiled, CompiledOpeningHours.compile(s));
+			Calendar cal = Calendar.getInstance();
+			for (int k = 0; k < 2000; k++) {
+				cal.clear();
+				cal.set(2019 + rnd.nextInt(7), rnd.nextInt(12), 1 + rnd.nextInt(28), rnd.nextInt(24), rnd.nextInt(60));
+				Assert.assertEquals(s + " " + cal.getTime(), hours.isOpenedForTime(cal), compiled.isOpened(cal));
+			}
+		}
+	}
+
+	@Test
+	public void testMinutesToOpening() {
+		Random rnd = new Random(5);
+		for (String s : HOURS) {
+			OpeningHours hours = OpeningHoursParser.parseOpenedHours(s);
+			CompiledOpeningHours compiled = CompiledOpeningHours.compile(s);
+			Calendar cal = Calendar.getInstance();
+			for (int k = 0; k < 20; k++) {
+				cal.clear();
+				cal.set(2020 + rnd.nextInt(4), rnd.nextInt(12), 1 + rnd.nextInt(28), rnd.nextInt(24), rnd.nextInt(60));
+				Calendar c = (Calendar) cal.clone();
+				int expected = -1;
+				for (int m = 0; m <= 7 * 24 * 60; m++) {
+					if (hours.isOpenedForTime(c)) {
+						expected = m;
+						break;
+					}
+					c.add(Calendar.MINUTE, 1);
+				}
+				int found = compiled.getMinutesToOpening(cal);
+				if (expected != -1 && found != -1) {
+					Assert.assertEquals(s + " " + cal.getTime(), expected, found);
+				} else {
+					Assert.assertTrue(s + " " + cal.getTime(), expected == -1 || expected == 7 * 24 * 60);
+				}
+			}
+		}
+	}
+}